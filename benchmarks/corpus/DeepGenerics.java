@@ -0,0 +1,35 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Deeply nested generic types, for the subtyping and deepCopy benchmarks.
+ * Do not change this file: benchmark results are only comparable while
+ * the corpus stays the same.
+ */
+class DeepGenerics {
+
+    HashMap<String, ArrayList<TreeMap<Integer, HashSet<LinkedList<HashMap<String, Object>>>>>> concrete
+        = new HashMap<>();
+
+    Map<String, ? extends List<? extends Map<Integer, ? extends Set<? extends List<? extends Map<String, @Nullable Object>>>>>> wildcardView
+        = concrete;
+
+    Map<String, List<Map<Integer, Set<List<Map<String, Object>>>>>> nonNullLeaves
+        = new HashMap<>();
+
+    Map<String, List<Map<Integer, Set<List<Map<String, @Nullable Object>>>>>> nullableLeaves
+        = new HashMap<>();
+
+    <K extends Comparable<K>, V extends @Nullable Object> Map<K, List<? extends Set<? super V>>> generic(
+            Map<? extends K, ? extends List<V>> in, List<? super Map<K, V>> out) {
+        return new TreeMap<>();
+    }
+}
@@ -0,0 +1,902 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Large methods, for the CFG construction benchmark.  Generated once and
+ * committed; do not change it, because benchmark results are only
+ * comparable while the corpus stays the same.
+ */
+class LargeMethods {
+
+    @Nullable Object field;
+
+    int medium(int x) {
+        int sum = 0;
+        List<String> names = new ArrayList<>();
+        if (x > 0 && names.size() < 3) {
+            sum += x * 0;
+        } else {
+            sum -= 0;
+        }
+        for (int i1 = 0; i1 < x; i1++) {
+            if (i1 % 3 == 0) {
+                continue;
+            }
+            sum += i1;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("2");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 3)));
+        } catch (ArithmeticException e3) {
+            sum = 3;
+        } finally {
+            sum++;
+        }
+        Object o4 = field;
+        if (o4 != null) {
+            names.add(o4.toString());
+        }
+        while (sum > 50) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 6 && names.size() < 9) {
+            sum += x * 6;
+        } else {
+            sum -= 6;
+        }
+        for (int i7 = 0; i7 < x; i7++) {
+            if (i7 % 3 == 0) {
+                continue;
+            }
+            sum += i7;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("8");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 9)));
+        } catch (ArithmeticException e9) {
+            sum = 9;
+        } finally {
+            sum++;
+        }
+        Object o10 = field;
+        if (o10 != null) {
+            names.add(o10.toString());
+        }
+        while (sum > 110) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 12 && names.size() < 15) {
+            sum += x * 12;
+        } else {
+            sum -= 12;
+        }
+        for (int i13 = 0; i13 < x; i13++) {
+            if (i13 % 3 == 0) {
+                continue;
+            }
+            sum += i13;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("14");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 15)));
+        } catch (ArithmeticException e15) {
+            sum = 15;
+        } finally {
+            sum++;
+        }
+        Object o16 = field;
+        if (o16 != null) {
+            names.add(o16.toString());
+        }
+        while (sum > 170) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 18 && names.size() < 21) {
+            sum += x * 18;
+        } else {
+            sum -= 18;
+        }
+        for (int i19 = 0; i19 < x; i19++) {
+            if (i19 % 3 == 0) {
+                continue;
+            }
+            sum += i19;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("20");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 21)));
+        } catch (ArithmeticException e21) {
+            sum = 21;
+        } finally {
+            sum++;
+        }
+        Object o22 = field;
+        if (o22 != null) {
+            names.add(o22.toString());
+        }
+        while (sum > 230) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 24 && names.size() < 27) {
+            sum += x * 24;
+        } else {
+            sum -= 24;
+        }
+        for (int i25 = 0; i25 < x; i25++) {
+            if (i25 % 3 == 0) {
+                continue;
+            }
+            sum += i25;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("26");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 27)));
+        } catch (ArithmeticException e27) {
+            sum = 27;
+        } finally {
+            sum++;
+        }
+        Object o28 = field;
+        if (o28 != null) {
+            names.add(o28.toString());
+        }
+        while (sum > 290) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        return sum + names.size();
+    }
+
+    int large(int x) {
+        int sum = 0;
+        List<String> names = new ArrayList<>();
+        if (x > 0 && names.size() < 3) {
+            sum += x * 0;
+        } else {
+            sum -= 0;
+        }
+        for (int i1 = 0; i1 < x; i1++) {
+            if (i1 % 3 == 0) {
+                continue;
+            }
+            sum += i1;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("2");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 3)));
+        } catch (ArithmeticException e3) {
+            sum = 3;
+        } finally {
+            sum++;
+        }
+        Object o4 = field;
+        if (o4 != null) {
+            names.add(o4.toString());
+        }
+        while (sum > 50) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 6 && names.size() < 9) {
+            sum += x * 6;
+        } else {
+            sum -= 6;
+        }
+        for (int i7 = 0; i7 < x; i7++) {
+            if (i7 % 3 == 0) {
+                continue;
+            }
+            sum += i7;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("8");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 9)));
+        } catch (ArithmeticException e9) {
+            sum = 9;
+        } finally {
+            sum++;
+        }
+        Object o10 = field;
+        if (o10 != null) {
+            names.add(o10.toString());
+        }
+        while (sum > 110) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 12 && names.size() < 15) {
+            sum += x * 12;
+        } else {
+            sum -= 12;
+        }
+        for (int i13 = 0; i13 < x; i13++) {
+            if (i13 % 3 == 0) {
+                continue;
+            }
+            sum += i13;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("14");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 15)));
+        } catch (ArithmeticException e15) {
+            sum = 15;
+        } finally {
+            sum++;
+        }
+        Object o16 = field;
+        if (o16 != null) {
+            names.add(o16.toString());
+        }
+        while (sum > 170) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 18 && names.size() < 21) {
+            sum += x * 18;
+        } else {
+            sum -= 18;
+        }
+        for (int i19 = 0; i19 < x; i19++) {
+            if (i19 % 3 == 0) {
+                continue;
+            }
+            sum += i19;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("20");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 21)));
+        } catch (ArithmeticException e21) {
+            sum = 21;
+        } finally {
+            sum++;
+        }
+        Object o22 = field;
+        if (o22 != null) {
+            names.add(o22.toString());
+        }
+        while (sum > 230) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 24 && names.size() < 27) {
+            sum += x * 24;
+        } else {
+            sum -= 24;
+        }
+        for (int i25 = 0; i25 < x; i25++) {
+            if (i25 % 3 == 0) {
+                continue;
+            }
+            sum += i25;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("26");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 27)));
+        } catch (ArithmeticException e27) {
+            sum = 27;
+        } finally {
+            sum++;
+        }
+        Object o28 = field;
+        if (o28 != null) {
+            names.add(o28.toString());
+        }
+        while (sum > 290) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 30 && names.size() < 33) {
+            sum += x * 30;
+        } else {
+            sum -= 30;
+        }
+        for (int i31 = 0; i31 < x; i31++) {
+            if (i31 % 3 == 0) {
+                continue;
+            }
+            sum += i31;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("32");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 33)));
+        } catch (ArithmeticException e33) {
+            sum = 33;
+        } finally {
+            sum++;
+        }
+        Object o34 = field;
+        if (o34 != null) {
+            names.add(o34.toString());
+        }
+        while (sum > 350) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 36 && names.size() < 39) {
+            sum += x * 36;
+        } else {
+            sum -= 36;
+        }
+        for (int i37 = 0; i37 < x; i37++) {
+            if (i37 % 3 == 0) {
+                continue;
+            }
+            sum += i37;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("38");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 39)));
+        } catch (ArithmeticException e39) {
+            sum = 39;
+        } finally {
+            sum++;
+        }
+        Object o40 = field;
+        if (o40 != null) {
+            names.add(o40.toString());
+        }
+        while (sum > 410) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 42 && names.size() < 45) {
+            sum += x * 42;
+        } else {
+            sum -= 42;
+        }
+        for (int i43 = 0; i43 < x; i43++) {
+            if (i43 % 3 == 0) {
+                continue;
+            }
+            sum += i43;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("44");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 45)));
+        } catch (ArithmeticException e45) {
+            sum = 45;
+        } finally {
+            sum++;
+        }
+        Object o46 = field;
+        if (o46 != null) {
+            names.add(o46.toString());
+        }
+        while (sum > 470) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 48 && names.size() < 51) {
+            sum += x * 48;
+        } else {
+            sum -= 48;
+        }
+        for (int i49 = 0; i49 < x; i49++) {
+            if (i49 % 3 == 0) {
+                continue;
+            }
+            sum += i49;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("50");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 51)));
+        } catch (ArithmeticException e51) {
+            sum = 51;
+        } finally {
+            sum++;
+        }
+        Object o52 = field;
+        if (o52 != null) {
+            names.add(o52.toString());
+        }
+        while (sum > 530) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 54 && names.size() < 57) {
+            sum += x * 54;
+        } else {
+            sum -= 54;
+        }
+        for (int i55 = 0; i55 < x; i55++) {
+            if (i55 % 3 == 0) {
+                continue;
+            }
+            sum += i55;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("56");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 57)));
+        } catch (ArithmeticException e57) {
+            sum = 57;
+        } finally {
+            sum++;
+        }
+        Object o58 = field;
+        if (o58 != null) {
+            names.add(o58.toString());
+        }
+        while (sum > 590) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 60 && names.size() < 63) {
+            sum += x * 60;
+        } else {
+            sum -= 60;
+        }
+        for (int i61 = 0; i61 < x; i61++) {
+            if (i61 % 3 == 0) {
+                continue;
+            }
+            sum += i61;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("62");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 63)));
+        } catch (ArithmeticException e63) {
+            sum = 63;
+        } finally {
+            sum++;
+        }
+        Object o64 = field;
+        if (o64 != null) {
+            names.add(o64.toString());
+        }
+        while (sum > 650) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 66 && names.size() < 69) {
+            sum += x * 66;
+        } else {
+            sum -= 66;
+        }
+        for (int i67 = 0; i67 < x; i67++) {
+            if (i67 % 3 == 0) {
+                continue;
+            }
+            sum += i67;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("68");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 69)));
+        } catch (ArithmeticException e69) {
+            sum = 69;
+        } finally {
+            sum++;
+        }
+        Object o70 = field;
+        if (o70 != null) {
+            names.add(o70.toString());
+        }
+        while (sum > 710) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 72 && names.size() < 75) {
+            sum += x * 72;
+        } else {
+            sum -= 72;
+        }
+        for (int i73 = 0; i73 < x; i73++) {
+            if (i73 % 3 == 0) {
+                continue;
+            }
+            sum += i73;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("74");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 75)));
+        } catch (ArithmeticException e75) {
+            sum = 75;
+        } finally {
+            sum++;
+        }
+        Object o76 = field;
+        if (o76 != null) {
+            names.add(o76.toString());
+        }
+        while (sum > 770) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 78 && names.size() < 81) {
+            sum += x * 78;
+        } else {
+            sum -= 78;
+        }
+        for (int i79 = 0; i79 < x; i79++) {
+            if (i79 % 3 == 0) {
+                continue;
+            }
+            sum += i79;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("80");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 81)));
+        } catch (ArithmeticException e81) {
+            sum = 81;
+        } finally {
+            sum++;
+        }
+        Object o82 = field;
+        if (o82 != null) {
+            names.add(o82.toString());
+        }
+        while (sum > 830) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 84 && names.size() < 87) {
+            sum += x * 84;
+        } else {
+            sum -= 84;
+        }
+        for (int i85 = 0; i85 < x; i85++) {
+            if (i85 % 3 == 0) {
+                continue;
+            }
+            sum += i85;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("86");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 87)));
+        } catch (ArithmeticException e87) {
+            sum = 87;
+        } finally {
+            sum++;
+        }
+        Object o88 = field;
+        if (o88 != null) {
+            names.add(o88.toString());
+        }
+        while (sum > 890) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 90 && names.size() < 93) {
+            sum += x * 90;
+        } else {
+            sum -= 90;
+        }
+        for (int i91 = 0; i91 < x; i91++) {
+            if (i91 % 3 == 0) {
+                continue;
+            }
+            sum += i91;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("92");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 93)));
+        } catch (ArithmeticException e93) {
+            sum = 93;
+        } finally {
+            sum++;
+        }
+        Object o94 = field;
+        if (o94 != null) {
+            names.add(o94.toString());
+        }
+        while (sum > 950) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 96 && names.size() < 99) {
+            sum += x * 96;
+        } else {
+            sum -= 96;
+        }
+        for (int i97 = 0; i97 < x; i97++) {
+            if (i97 % 3 == 0) {
+                continue;
+            }
+            sum += i97;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("98");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 99)));
+        } catch (ArithmeticException e99) {
+            sum = 99;
+        } finally {
+            sum++;
+        }
+        Object o100 = field;
+        if (o100 != null) {
+            names.add(o100.toString());
+        }
+        while (sum > 1010) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 102 && names.size() < 105) {
+            sum += x * 102;
+        } else {
+            sum -= 102;
+        }
+        for (int i103 = 0; i103 < x; i103++) {
+            if (i103 % 3 == 0) {
+                continue;
+            }
+            sum += i103;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("104");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 105)));
+        } catch (ArithmeticException e105) {
+            sum = 105;
+        } finally {
+            sum++;
+        }
+        Object o106 = field;
+        if (o106 != null) {
+            names.add(o106.toString());
+        }
+        while (sum > 1070) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 108 && names.size() < 111) {
+            sum += x * 108;
+        } else {
+            sum -= 108;
+        }
+        for (int i109 = 0; i109 < x; i109++) {
+            if (i109 % 3 == 0) {
+                continue;
+            }
+            sum += i109;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("110");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 111)));
+        } catch (ArithmeticException e111) {
+            sum = 111;
+        } finally {
+            sum++;
+        }
+        Object o112 = field;
+        if (o112 != null) {
+            names.add(o112.toString());
+        }
+        while (sum > 1130) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        if (x > 114 && names.size() < 117) {
+            sum += x * 114;
+        } else {
+            sum -= 114;
+        }
+        for (int i115 = 0; i115 < x; i115++) {
+            if (i115 % 3 == 0) {
+                continue;
+            }
+            sum += i115;
+        }
+        switch (x % 4) {
+        case 0:
+            sum++;
+            break;
+        case 1:
+            names.add("116");
+            break;
+        default:
+            sum--;
+        }
+        try {
+            names.add(String.valueOf(sum / (x - 117)));
+        } catch (ArithmeticException e117) {
+            sum = 117;
+        } finally {
+            sum++;
+        }
+        Object o118 = field;
+        if (o118 != null) {
+            names.add(o118.toString());
+        }
+        while (sum > 1190) {
+            sum = sum / 2 + (x > 0 ? 1 : -1);
+        }
+        return sum + names.size();
+    }
+
+}
@@ -0,0 +1,296 @@
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Methods whose exit stores hold many refined fields and locals, for the
+ * store benchmarks.  Do not change this file: benchmark results are only
+ * comparable while the corpus stays the same.
+ */
+class Stores {
+    @Nullable String f0;
+    @Nullable String f1;
+    @Nullable String f2;
+    @Nullable String f3;
+    @Nullable String f4;
+    @Nullable String f5;
+    @Nullable String f6;
+    @Nullable String f7;
+    @Nullable String f8;
+    @Nullable String f9;
+    @Nullable String f10;
+    @Nullable String f11;
+    @Nullable String f12;
+    @Nullable String f13;
+    @Nullable String f14;
+    @Nullable String f15;
+    @Nullable String f16;
+    @Nullable String f17;
+    @Nullable String f18;
+    @Nullable String f19;
+    @Nullable String f20;
+    @Nullable String f21;
+    @Nullable String f22;
+    @Nullable String f23;
+    @Nullable String f24;
+    @Nullable String f25;
+    @Nullable String f26;
+    @Nullable String f27;
+    @Nullable String f28;
+    @Nullable String f29;
+    @Nullable String f30;
+    @Nullable String f31;
+    @Nullable String f32;
+    @Nullable String f33;
+    @Nullable String f34;
+    @Nullable String f35;
+    @Nullable String f36;
+    @Nullable String f37;
+    @Nullable String f38;
+    @Nullable String f39;
+
+    void refine0() {
+        String l0 = f0;
+        if (f0 == null) {
+            f0 = "0";
+        }
+        String l1 = f1;
+        if (f1 == null) {
+            f1 = "1";
+        }
+        String l2 = f2;
+        if (f2 == null) {
+            f2 = "2";
+        }
+        String l3 = f3;
+        if (f3 == null) {
+            f3 = "3";
+        }
+        String l4 = f4;
+        if (f4 == null) {
+            f4 = "4";
+        }
+        String l5 = f5;
+        if (f5 == null) {
+            f5 = "5";
+        }
+        String l6 = f6;
+        if (f6 == null) {
+            f6 = "6";
+        }
+        String l7 = f7;
+        if (f7 == null) {
+            f7 = "7";
+        }
+        String l8 = f8;
+        if (f8 == null) {
+            f8 = "8";
+        }
+        String l9 = f9;
+        if (f9 == null) {
+            f9 = "9";
+        }
+        String l10 = f10;
+        if (f10 == null) {
+            f10 = "10";
+        }
+        String l11 = f11;
+        if (f11 == null) {
+            f11 = "11";
+        }
+        String l12 = f12;
+        if (f12 == null) {
+            f12 = "12";
+        }
+        String l13 = f13;
+        if (f13 == null) {
+            f13 = "13";
+        }
+        String l14 = f14;
+        if (f14 == null) {
+            f14 = "14";
+        }
+        String l15 = f15;
+        if (f15 == null) {
+            f15 = "15";
+        }
+        String l16 = f16;
+        if (f16 == null) {
+            f16 = "16";
+        }
+        String l17 = f17;
+        if (f17 == null) {
+            f17 = "17";
+        }
+        String l18 = f18;
+        if (f18 == null) {
+            f18 = "18";
+        }
+        String l19 = f19;
+        if (f19 == null) {
+            f19 = "19";
+        }
+        String l20 = f20;
+        if (f20 == null) {
+            f20 = "20";
+        }
+        String l21 = f21;
+        if (f21 == null) {
+            f21 = "21";
+        }
+        String l22 = f22;
+        if (f22 == null) {
+            f22 = "22";
+        }
+        String l23 = f23;
+        if (f23 == null) {
+            f23 = "23";
+        }
+        String l24 = f24;
+        if (f24 == null) {
+            f24 = "24";
+        }
+        String l25 = f25;
+        if (f25 == null) {
+            f25 = "25";
+        }
+        String l26 = f26;
+        if (f26 == null) {
+            f26 = "26";
+        }
+        String l27 = f27;
+        if (f27 == null) {
+            f27 = "27";
+        }
+        String l28 = f28;
+        if (f28 == null) {
+            f28 = "28";
+        }
+        String l29 = f29;
+        if (f29 == null) {
+            f29 = "29";
+        }
+    }
+
+    void refine1() {
+        String l10 = f10;
+        if (f10 == null) {
+            f10 = "10";
+        }
+        String l11 = f11;
+        if (f11 == null) {
+            f11 = "11";
+        }
+        String l12 = f12;
+        if (f12 == null) {
+            f12 = "12";
+        }
+        String l13 = f13;
+        if (f13 == null) {
+            f13 = "13";
+        }
+        String l14 = f14;
+        if (f14 == null) {
+            f14 = "14";
+        }
+        String l15 = f15;
+        if (f15 == null) {
+            f15 = "15";
+        }
+        String l16 = f16;
+        if (f16 == null) {
+            f16 = "16";
+        }
+        String l17 = f17;
+        if (f17 == null) {
+            f17 = "17";
+        }
+        String l18 = f18;
+        if (f18 == null) {
+            f18 = "18";
+        }
+        String l19 = f19;
+        if (f19 == null) {
+            f19 = "19";
+        }
+        String l20 = f20;
+        if (f20 == null) {
+            f20 = "20";
+        }
+        String l21 = f21;
+        if (f21 == null) {
+            f21 = "21";
+        }
+        String l22 = f22;
+        if (f22 == null) {
+            f22 = "22";
+        }
+        String l23 = f23;
+        if (f23 == null) {
+            f23 = "23";
+        }
+        String l24 = f24;
+        if (f24 == null) {
+            f24 = "24";
+        }
+        String l25 = f25;
+        if (f25 == null) {
+            f25 = "25";
+        }
+        String l26 = f26;
+        if (f26 == null) {
+            f26 = "26";
+        }
+        String l27 = f27;
+        if (f27 == null) {
+            f27 = "27";
+        }
+        String l28 = f28;
+        if (f28 == null) {
+            f28 = "28";
+        }
+        String l29 = f29;
+        if (f29 == null) {
+            f29 = "29";
+        }
+        String l30 = f30;
+        if (f30 == null) {
+            f30 = "30";
+        }
+        String l31 = f31;
+        if (f31 == null) {
+            f31 = "31";
+        }
+        String l32 = f32;
+        if (f32 == null) {
+            f32 = "32";
+        }
+        String l33 = f33;
+        if (f33 == null) {
+            f33 = "33";
+        }
+        String l34 = f34;
+        if (f34 == null) {
+            f34 = "34";
+        }
+        String l35 = f35;
+        if (f35 == null) {
+            f35 = "35";
+        }
+        String l36 = f36;
+        if (f36 == null) {
+            f36 = "36";
+        }
+        String l37 = f37;
+        if (f37 == null) {
+            f37 = "37";
+        }
+        String l38 = f38;
+        if (f38 == null) {
+            f38 = "38";
+        }
+        String l39 = f39;
+        if (f39 == null) {
+            f39 = "39";
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+package org.checkerframework.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Turns the CSV results of a JMH run ({@code -rf csv}) into a text report
+ * that can be diffed between versions, or compares two such results.
+ *
+ * <p>
+ * Usage:
+ * <pre>
+ *   java BenchmarkReport results.csv
+ *   java BenchmarkReport old.csv new.csv
+ * </pre>
+ *
+ * With two files, every benchmark of both is printed with its old and new
+ * scores and the relative change.  Changes larger than the sum of the two
+ * error margins are marked {@code FASTER} or {@code SLOWER}; the others are
+ * within the noise of the measurements.
+ */
+public class BenchmarkReport {
+
+    /** The result of one benchmark, with one setting of its parameters. */
+    static class Result {
+        final String mode;
+        final double score;
+        final double error;
+        final String unit;
+
+        Result(String mode, double score, double error, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        /** Whether a higher score is better, as for throughput. */
+        boolean higherIsBetter() {
+            return mode.equals("thrpt");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 1) {
+            Map<String, Result> results = read(args[0]);
+            for (Map.Entry<String, Result> e : results.entrySet()) {
+                Result r = e.getValue();
+                System.out.printf("%-70s %5s %14.3f +- %10.3f %s%n",
+                        e.getKey(), r.mode, r.score, r.error, r.unit);
+            }
+        } else if (args.length == 2) {
+            diff(read(args[0]), read(args[1]));
+        } else {
+            System.err.println("Usage: BenchmarkReport results.csv [new-results.csv]");
+            System.exit(2);
+        }
+    }
+
+    private static void diff(Map<String, Result> olds, Map<String, Result> news) {
+        Map<String, Result> all = new TreeMap<>(olds);
+        all.putAll(news);
+        for (String name : all.keySet()) {
+            Result o = olds.get(name);
+            Result n = news.get(name);
+            if (o == null || n == null) {
+                System.out.printf("%-70s %s%n", name, o == null ? "new" : "removed");
+                continue;
+            }
+            if (!o.unit.equals(n.unit) || !o.mode.equals(n.mode)) {
+                System.out.printf("%-70s not comparable: %s %s vs. %s %s%n",
+                        name, o.mode, o.unit, n.mode, n.unit);
+                continue;
+            }
+            double change = o.score == 0 ? 0 : (n.score - o.score) / o.score * 100;
+            String verdict = "";
+            if (Math.abs(n.score - o.score) > o.error + n.error) {
+                boolean better = (n.score > o.score) == o.higherIsBetter();
+                verdict = better ? "FASTER" : "SLOWER";
+            }
+            System.out.printf("%-70s %14.3f -> %14.3f %s %+7.1f%% %s%n",
+                    name, o.score, n.score, n.unit, change, verdict);
+        }
+    }
+
+    /**
+     * Reads the results of a JMH CSV file.  The keys are the benchmark
+     * names, followed by their parameters if they have any.
+     */
+    static Map<String, Result> read(String file) throws IOException {
+        Map<String, Result> results = new TreeMap<>();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line = in.readLine();
+            if (line == null) {
+                return results;
+            }
+            List<String> header = split(line);
+            int benchmark = header.indexOf("Benchmark");
+            int mode = header.indexOf("Mode");
+            int score = header.indexOf("Score");
+            int unit = header.indexOf("Unit");
+            int error = -1;
+            for (int i = 0; i < header.size(); ++i) {
+                if (header.get(i).startsWith("Score Error")) {
+                    error = i;
+                }
+            }
+            if (benchmark < 0 || mode < 0 || score < 0 || unit < 0) {
+                throw new IOException(file + " is not a JMH CSV result file");
+            }
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                List<String> row = split(line);
+                StringBuilder name = new StringBuilder(row.get(benchmark));
+                for (int i = 0; i < header.size() && i < row.size(); ++i) {
+                    if (header.get(i).startsWith("Param: ") && !row.get(i).isEmpty()) {
+                        name.append(' ').append(header.get(i).substring(7))
+                            .append('=').append(row.get(i));
+                    }
+                }
+                results.put(name.toString(), new Result(row.get(mode),
+                        parse(row.get(score)),
+                        error < 0 ? 0 : parse(row.get(error)),
+                        row.get(unit)));
+            }
+        }
+        return results;
+    }
+
+    private static double parse(String number) {
+        if (number.isEmpty() || number.equals("NaN")) {
+            return 0;
+        }
+        // JMH writes numbers with the decimal comma of some locales.
+        return Double.parseDouble(number.replace(',', '.'));
+    }
+
+    /** Splits a line of a CSV file written by JMH, in which fields may be quoted. */
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); ++i) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    ++i;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,54 @@
+package org.checkerframework.benchmarks;
+
+import org.checkerframework.checker.nullness.NullnessChecker;
+import org.checkerframework.dataflow.cfg.CFGBuilder;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.processing.ProcessingEnvironment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+
+/**
+ * {@link CFGBuilder#build} on the methods of the {@code LargeMethods}
+ * corpus, which mix conditionals, loops, switches, and exception handling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CFGBuilderBenchmark {
+
+    @Param({"medium", "large"})
+    public String method;
+
+    private CompilationUnitTree root;
+    private ProcessingEnvironment env;
+    private ClassTree classTree;
+    private MethodTree methodTree;
+
+    @Setup
+    public void setup() {
+        CheckerFixture fixture = CheckerFixture.compile(NullnessChecker.class, "LargeMethods");
+        root = fixture.getRoot();
+        env = fixture.getProcessingEnvironment();
+        classTree = fixture.getClass("LargeMethods");
+        methodTree = fixture.getMethod("LargeMethods", method);
+    }
+
+    @Benchmark
+    public ControlFlowGraph build() {
+        return CFGBuilder.build(root, env, methodTree, classTree);
+    }
+}
@@ -0,0 +1,183 @@
+package org.checkerframework.benchmarks;
+
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.framework.type.GenericAnnotatedTypeFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.JavacTask;
+
+/**
+ * A file of the benchmark corpus, compiled and checked with a checker.
+ *
+ * The benchmarks use the trees, the processing environment, and the type
+ * factory of the checker after the compilation has finished, so that they
+ * measure single operations on realistic types and stores.  The corpus
+ * files are in the {@code corpus} directory of the benchmarks module and
+ * are packaged as resources; they must not change, so that results of
+ * different versions of the Checker Framework can be compared.
+ */
+public class CheckerFixture {
+
+    private final BaseTypeChecker checker;
+    private final CompilationUnitTree root;
+
+    private CheckerFixture(BaseTypeChecker checker, CompilationUnitTree root) {
+        this.checker = checker;
+        this.root = root;
+    }
+
+    /**
+     * Compiles a file of the corpus with a checker.
+     *
+     * @param checkerClass the checker to run
+     * @param corpus the name of the corpus file, without ".java"
+     * @throws IllegalStateException if the compilation reports an error
+     */
+    public static CheckerFixture compile(Class<? extends BaseTypeChecker> checkerClass, String corpus) {
+        final String source = readResource("corpus/" + corpus + ".java");
+        JavaFileObject file = new SimpleJavaFileObject(
+                URI.create("string:///" + corpus + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        BaseTypeChecker checker;
+        try {
+            checker = checkerClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException("Cannot create " + checkerClass.getName(), e);
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = Arrays.asList(
+                "-classpath", System.getProperty("java.class.path"),
+                "-Anocheckjdk");
+        JavacTask task = (JavacTask) compiler.getTask(null, null, diagnostics, options,
+                null, Collections.singletonList(file));
+        task.setProcessors(Collections.singletonList(checker));
+        CompilationUnitTree root;
+        try {
+            root = task.parse().iterator().next();
+            task.analyze();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot compile corpus " + corpus, e);
+        }
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+            if (d.getKind() == Diagnostic.Kind.ERROR) {
+                throw new IllegalStateException("Corpus " + corpus + " does not check: " + d);
+            }
+        }
+
+        // Setting the root discards the results of the flow analysis of the
+        // compilation; analyze the classes again, as the visitor does, so
+        // that types and stores of trees within them are available.
+        CheckerFixture fixture = new CheckerFixture(checker, root);
+        fixture.getTypeFactory().setRoot(root);
+        for (Tree decl : root.getTypeDecls()) {
+            if (decl instanceof ClassTree) {
+                fixture.getTypeFactory().getAnnotatedType(decl);
+            }
+        }
+        return fixture;
+    }
+
+    public BaseTypeChecker getChecker() {
+        return checker;
+    }
+
+    public GenericAnnotatedTypeFactory<?, ?, ?, ?> getTypeFactory() {
+        return checker.getTypeFactory();
+    }
+
+    public ProcessingEnvironment getProcessingEnvironment() {
+        return checker.getProcessingEnvironment();
+    }
+
+    public CompilationUnitTree getRoot() {
+        return root;
+    }
+
+    /** Returns the top-level class of the corpus file with the given name. */
+    public ClassTree getClass(String name) {
+        for (Tree decl : root.getTypeDecls()) {
+            if (decl instanceof ClassTree
+                    && ((ClassTree) decl).getSimpleName().contentEquals(name)) {
+                return (ClassTree) decl;
+            }
+        }
+        throw new IllegalArgumentException("No class " + name + " in the corpus");
+    }
+
+    /** Returns the field {@code name} of class {@code className}. */
+    public VariableTree getField(String className, String name) {
+        for (Tree member : getClass(className).getMembers()) {
+            if (member instanceof VariableTree
+                    && ((VariableTree) member).getName().contentEquals(name)) {
+                return (VariableTree) member;
+            }
+        }
+        throw new IllegalArgumentException("No field " + className + "." + name + " in the corpus");
+    }
+
+    /** Returns the method {@code name} of class {@code className}. */
+    public MethodTree getMethod(String className, String name) {
+        for (Tree member : getClass(className).getMembers()) {
+            if (member instanceof MethodTree
+                    && ((MethodTree) member).getName().contentEquals(name)) {
+                return (MethodTree) member;
+            }
+        }
+        throw new IllegalArgumentException("No method " + className + "." + name + " in the corpus");
+    }
+
+    /** Reads a resource of the benchmarks module. */
+    static byte[] readBytes(Class<?> owner, String resource) {
+        InputStream in = owner.getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalStateException("Missing resource " + resource + " of " + owner.getName());
+        }
+        try {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                }
+                return out.toByteArray();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read resource " + resource, e);
+        }
+    }
+
+    private static String readResource(String resource) {
+        return new String(readBytes(CheckerFixture.class, resource), StandardCharsets.UTF_8);
+    }
+}
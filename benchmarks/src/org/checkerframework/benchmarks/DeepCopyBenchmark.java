@@ -0,0 +1,47 @@
+package org.checkerframework.benchmarks;
+
+import org.checkerframework.checker.nullness.NullnessChecker;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link AnnotatedTypeMirror#deepCopy} of the types of the
+ * {@code DeepGenerics} corpus:  a field type with six levels of wildcards,
+ * and the type of a generic method with bounded type variables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeepCopyBenchmark {
+
+    private AnnotatedTypeMirror wildcardView;
+    private AnnotatedTypeMirror genericMethod;
+
+    @Setup
+    public void setup() {
+        CheckerFixture fixture = CheckerFixture.compile(NullnessChecker.class, "DeepGenerics");
+        wildcardView = fixture.getTypeFactory().getAnnotatedType(
+                fixture.getField("DeepGenerics", "wildcardView"));
+        genericMethod = fixture.getTypeFactory().getAnnotatedType(
+                fixture.getMethod("DeepGenerics", "generic"));
+    }
+
+    @Benchmark
+    public AnnotatedTypeMirror deepWildcardType() {
+        return wildcardView.deepCopy();
+    }
+
+    @Benchmark
+    public AnnotatedTypeMirror genericMethodType() {
+        return genericMethod.deepCopy();
+    }
+}
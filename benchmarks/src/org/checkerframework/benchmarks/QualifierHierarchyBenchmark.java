@@ -0,0 +1,73 @@
+package org.checkerframework.benchmarks;
+
+import org.checkerframework.checker.nullness.NullnessChecker;
+import org.checkerframework.framework.type.QualifierHierarchy;
+import org.checkerframework.javacutil.AnnotationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.lang.model.element.AnnotationMirror;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link QualifierHierarchy#leastUpperBound} on every pair of qualifiers of
+ * the same hierarchy of the Nullness Checker, and
+ * {@link QualifierHierarchy#leastUpperBounds} on the sets of tops and
+ * bottoms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QualifierHierarchyBenchmark {
+
+    private QualifierHierarchy hierarchy;
+    private AnnotationMirror[] lefts;
+    private AnnotationMirror[] rights;
+    private Set<? extends AnnotationMirror> tops;
+    private Set<? extends AnnotationMirror> bottoms;
+
+    @Setup
+    public void setup() {
+        CheckerFixture fixture = CheckerFixture.compile(NullnessChecker.class, "Stores");
+        hierarchy = fixture.getTypeFactory().getQualifierHierarchy();
+        List<AnnotationMirror> left = new ArrayList<>();
+        List<AnnotationMirror> right = new ArrayList<>();
+        for (AnnotationMirror a1 : hierarchy.getTypeQualifiers()) {
+            for (AnnotationMirror a2 : hierarchy.getTypeQualifiers()) {
+                if (AnnotationUtils.areSame(hierarchy.getTopAnnotation(a1),
+                        hierarchy.getTopAnnotation(a2))) {
+                    left.add(a1);
+                    right.add(a2);
+                }
+            }
+        }
+        lefts = left.toArray(new AnnotationMirror[left.size()]);
+        rights = right.toArray(new AnnotationMirror[right.size()]);
+        tops = hierarchy.getTopAnnotations();
+        bottoms = hierarchy.getBottomAnnotations();
+    }
+
+    /** The least upper bounds of all pairs; the score is for all of them. */
+    @Benchmark
+    public void leastUpperBound(Blackhole bh) {
+        for (int i = 0; i < lefts.length; ++i) {
+            bh.consume(hierarchy.leastUpperBound(lefts[i], rights[i]));
+        }
+    }
+
+    @Benchmark
+    public Set<? extends AnnotationMirror> leastUpperBounds() {
+        return hierarchy.leastUpperBounds(bottoms, tops);
+    }
+}
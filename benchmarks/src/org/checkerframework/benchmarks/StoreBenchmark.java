@@ -0,0 +1,55 @@
+package org.checkerframework.benchmarks;
+
+import org.checkerframework.checker.nullness.NullnessChecker;
+import org.checkerframework.framework.flow.CFAbstractStore;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link CFAbstractStore#copy} and {@link CFAbstractStore#leastUpperBound}
+ * on the regular exit stores of the {@code Stores} corpus, which refine 30
+ * fields each, 20 of them in both stores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class StoreBenchmark {
+
+    private CFAbstractStore store0;
+    private CFAbstractStore store1;
+
+    @Setup
+    public void setup() {
+        CheckerFixture fixture = CheckerFixture.compile(NullnessChecker.class, "Stores");
+        store0 = exitStore(fixture, "refine0");
+        store1 = exitStore(fixture, "refine1");
+    }
+
+    private static CFAbstractStore exitStore(CheckerFixture fixture, String method) {
+        CFAbstractStore store = (CFAbstractStore) fixture.getTypeFactory()
+                .getRegularExitStore(fixture.getMethod("Stores", method));
+        if (store == null) {
+            throw new IllegalStateException("No exit store for Stores." + method);
+        }
+        return store;
+    }
+
+    @Benchmark
+    public CFAbstractStore copy() {
+        return store0.copy();
+    }
+
+    @Benchmark
+    public CFAbstractStore leastUpperBound() {
+        return store0.leastUpperBound(store1);
+    }
+}
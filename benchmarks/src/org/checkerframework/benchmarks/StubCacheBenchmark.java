@@ -0,0 +1,70 @@
+package org.checkerframework.benchmarks;
+
+import org.checkerframework.framework.stub.StubCache;
+import org.checkerframework.framework.stub.StubCacheCodec;
+import org.checkerframework.stubparser.JavaParser;
+import org.checkerframework.stubparser.ParseException;
+import org.checkerframework.stubparser.ast.IndexUnit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reading stub files of the distribution through a {@link StubCache},
+ * compared with parsing them from scratch:  decoding the entry that a
+ * -AstubCache directory holds, which is what the first compilation in a
+ * process pays, and looking up the stub file that an earlier compilation
+ * in the same process already parsed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StubCacheBenchmark {
+
+    @Param({"/org/checkerframework/checker/interning/jdk.astub",
+            "/org/checkerframework/checker/guieffect/jdk.astub",
+            "/org/checkerframework/checker/regex/jdk.astub"})
+    public String stub;
+
+    private byte[] contents;
+    private byte[] entry;
+
+    @Setup
+    public void setup() throws IOException, ParseException {
+        contents = CheckerFixture.readBytes(StubCacheBenchmark.class, stub);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StubCacheCodec.write(JavaParser.parse(new ByteArrayInputStream(contents)),
+                new DataOutputStream(out));
+        entry = out.toByteArray();
+        // Prime the stub files shared by the process.
+        StubCache.parseShared(stub, contents);
+    }
+
+    @Benchmark
+    public IndexUnit parse() throws ParseException {
+        return JavaParser.parse(new ByteArrayInputStream(contents));
+    }
+
+    @Benchmark
+    public IndexUnit decode() throws IOException {
+        return StubCacheCodec.read(new DataInputStream(new ByteArrayInputStream(entry)));
+    }
+
+    @Benchmark
+    public IndexUnit shared() {
+        return StubCache.parseShared(stub, contents);
+    }
+}
@@ -0,0 +1,66 @@
+package org.checkerframework.benchmarks;
+
+import org.checkerframework.checker.interning.InterningChecker;
+import org.checkerframework.framework.stub.StubParser;
+import org.checkerframework.framework.type.AnnotatedTypeFactory;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.stubparser.JavaParser;
+import org.checkerframework.stubparser.ParseException;
+import org.checkerframework.stubparser.ast.IndexUnit;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parsing of the annotated JDK stub file of the Interning Checker, the
+ * largest stub file of the distribution:  the syntax alone with
+ * {@link JavaParser#parse}, and the whole of {@link StubParser#parse},
+ * which also looks up every element and builds its annotated type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StubParserBenchmark {
+
+    private static final String STUB = "jdk.astub";
+
+    private byte[] stub;
+    private AnnotatedTypeFactory factory;
+    private ProcessingEnvironment env;
+
+    @Setup
+    public void setup() {
+        stub = CheckerFixture.readBytes(InterningChecker.class, STUB);
+        CheckerFixture fixture = CheckerFixture.compile(InterningChecker.class, "Stores");
+        factory = fixture.getTypeFactory();
+        env = fixture.getProcessingEnvironment();
+    }
+
+    @Benchmark
+    public IndexUnit syntax() throws ParseException {
+        return JavaParser.parse(new ByteArrayInputStream(stub));
+    }
+
+    @Benchmark
+    public Map<Element, AnnotatedTypeMirror> full() {
+        Map<Element, AnnotatedTypeMirror> atypes = new HashMap<>();
+        Map<String, Set<AnnotationMirror>> declAnnos = new HashMap<>();
+        new StubParser(STUB, new ByteArrayInputStream(stub), factory, env).parse(atypes, declAnnos);
+        return atypes;
+    }
+}
@@ -0,0 +1,58 @@
+package org.checkerframework.benchmarks;
+
+import org.checkerframework.stubparser.JavaParser;
+import org.checkerframework.stubparser.ParseException;
+import org.checkerframework.stubparser.ast.IndexUnit;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * {@link JavaParser#parse} of stub files of the distribution, with the
+ * token manager generated by javacc and with the hand-written one (see
+ * {@link JavaParser#setFastTokenManager}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StubTokenManagerBenchmark {
+
+    @Param({"/org/checkerframework/checker/interning/jdk.astub",
+            "/org/checkerframework/checker/guieffect/jdk.astub",
+            "/org/checkerframework/checker/signature/jdk.astub",
+            "/org/checkerframework/common/value/statically-executable.astub",
+            "/org/checkerframework/common/basetype/flow.astub",
+            "/org/checkerframework/checker/regex/jdk.astub"})
+    public String stub;
+
+    @Param({"javacc", "handwritten"})
+    public String tokenManager;
+
+    private byte[] contents;
+
+    @Setup
+    public void setup() {
+        contents = CheckerFixture.readBytes(StubTokenManagerBenchmark.class, stub);
+        JavaParser.setFastTokenManager(tokenManager.equals("handwritten"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        JavaParser.setFastTokenManager(true);
+    }
+
+    @Benchmark
+    public IndexUnit parse() throws ParseException {
+        return JavaParser.parse(new ByteArrayInputStream(contents));
+    }
+}
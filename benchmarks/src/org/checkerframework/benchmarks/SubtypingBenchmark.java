@@ -0,0 +1,61 @@
+package org.checkerframework.benchmarks;
+
+import org.checkerframework.checker.nullness.NullnessChecker;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.framework.type.TypeHierarchy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link TypeHierarchy#isSubtype} on the deeply nested generic field types
+ * of the {@code DeepGenerics} corpus:  one check that succeeds through
+ * six levels of wildcards, and one that fails at the innermost type
+ * argument.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SubtypingBenchmark {
+
+    private TypeHierarchy hierarchy;
+    private AnnotatedTypeMirror concrete;
+    private AnnotatedTypeMirror wildcardView;
+    private AnnotatedTypeMirror nonNullLeaves;
+    private AnnotatedTypeMirror nullableLeaves;
+
+    @Setup
+    public void setup() {
+        CheckerFixture fixture = CheckerFixture.compile(NullnessChecker.class, "DeepGenerics");
+        hierarchy = fixture.getTypeFactory().getTypeHierarchy();
+        concrete = fieldType(fixture, "concrete");
+        wildcardView = fieldType(fixture, "wildcardView");
+        nonNullLeaves = fieldType(fixture, "nonNullLeaves");
+        nullableLeaves = fieldType(fixture, "nullableLeaves");
+        if (!hierarchy.isSubtype(concrete, wildcardView)
+                || hierarchy.isSubtype(nonNullLeaves, nullableLeaves)) {
+            throw new IllegalStateException("Unexpected subtyping result on the corpus");
+        }
+    }
+
+    private static AnnotatedTypeMirror fieldType(CheckerFixture fixture, String name) {
+        return fixture.getTypeFactory().getAnnotatedType(fixture.getField("DeepGenerics", name));
+    }
+
+    @Benchmark
+    public boolean deepWildcardSubtype() {
+        return hierarchy.isSubtype(concrete, wildcardView);
+    }
+
+    @Benchmark
+    public boolean deepInvariantMismatch() {
+        return hierarchy.isSubtype(nonNullLeaves, nullableLeaves);
+    }
+}
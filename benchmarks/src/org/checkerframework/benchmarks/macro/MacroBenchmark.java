@@ -0,0 +1,354 @@
+package org.checkerframework.benchmarks.macro;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * The macro benchmark suite:  runs checkers over whole corpora and records
+ * the cost of each run.
+ *
+ * <p>
+ * Usage:
+ * <pre>
+ *   java MacroBenchmark run suite.txt results.csv [repetitions [entry...]]
+ * </pre>
+ *
+ * For every entry of the suite file (see {@code benchmarks/macro/suite.txt}
+ * for its format), {@code run} starts a fresh JVM that checks every file
+ * of the entry's corpora separately, as the test suites do, and measures
+ * <ul>
+ *   <li>the wall time and the CPU time of the process,</li>
+ *   <li>the peak heap usage, summed over the heap memory pools,</li>
+ *   <li>the number and total time of garbage collections,</li>
+ * </ul>
+ * and the number of diagnostics and of crashed compilations, so that a
+ * change of behavior is noticed along with a change of cost.  Each entry
+ * is measured {@code repetitions} times (default 3) and the median of
+ * every measure is written to the results file.  The child JVMs get the
+ * class path of this JVM and the JVM arguments in the system property
+ * {@code macro.jvmargs}, and run in the current directory, which must be
+ * the root of the repository.
+ *
+ * <p>
+ * Results of two runs are compared by {@link MacroComparison}.
+ */
+public class MacroBenchmark {
+
+    /** The columns of a results file. */
+    static final List<String> COLUMNS = Collections.unmodifiableList(Arrays.asList(
+            "entry", "files", "diagnostics", "crashes",
+            "wall_ms", "cpu_ms", "peak_heap_mb", "gc_count", "gc_ms"));
+
+    /** The prefix of the line in which a child JVM reports its measurements. */
+    private static final String RESULT = "MACRO-RESULT ";
+
+    /** An entry of the suite file. */
+    static class Entry {
+        final String name;
+        final String checker;
+        final List<String> corpora;
+        final List<String> options;
+
+        Entry(String name, String checker, List<String> corpora, List<String> options) {
+            this.name = name;
+            this.checker = checker;
+            this.corpora = corpora;
+            this.options = options;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && args[0].equals("run")) {
+            int repetitions = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+            List<String> selected = Arrays.asList(args).subList(Math.min(4, args.length), args.length);
+            run(args[1], new File(args[2]), repetitions, selected);
+        } else if (args.length == 3 && args[0].equals("measure")) {
+            for (Entry e : readSuite(args[1])) {
+                if (e.name.equals(args[2])) {
+                    System.out.println(RESULT + measure(e));
+                    return;
+                }
+            }
+            throw new IllegalArgumentException("No entry " + args[2] + " in " + args[1]);
+        } else {
+            System.err.println("Usage: MacroBenchmark run suite.txt results.csv [repetitions [entry...]]");
+            System.exit(2);
+        }
+    }
+
+    /** Reads the entries of a suite file. */
+    static List<Entry> readSuite(String file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                if (fields.length < 3) {
+                    throw new IOException(file + ": malformed entry: " + line);
+                }
+                entries.add(new Entry(fields[0], fields[1],
+                        Arrays.asList(fields[2].split(",")),
+                        Arrays.asList(fields).subList(3, fields.length)));
+            }
+        }
+        return entries;
+    }
+
+    /** Measures every selected entry in fresh JVMs and writes the medians to {@code results}. */
+    private static void run(String suiteFile, File results, int repetitions, List<String> selected)
+            throws IOException, InterruptedException {
+        File dir = results.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        List<String> rows = new ArrayList<>();
+        for (Entry e : readSuite(suiteFile)) {
+            if (!selected.isEmpty() && !selected.contains(e.name)) {
+                continue;
+            }
+            List<long[]> samples = new ArrayList<>();
+            for (int i = 0; i < repetitions; ++i) {
+                long[] sample = fork(suiteFile, e);
+                System.out.printf("%-24s run %d: %s%n", e.name, i + 1, Arrays.toString(sample));
+                samples.add(sample);
+            }
+            StringBuilder row = new StringBuilder(e.name);
+            for (int column = 0; column < COLUMNS.size() - 1; ++column) {
+                row.append(',').append(median(samples, column));
+            }
+            rows.add(row.toString());
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(results), StandardCharsets.UTF_8)) {
+            out.write(join(COLUMNS) + "\n");
+            for (String row : rows) {
+                out.write(row + "\n");
+            }
+        }
+    }
+
+    private static long median(List<long[]> samples, int column) {
+        long[] values = new long[samples.size()];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = samples.get(i)[column];
+        }
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+
+    /** Measures an entry in a new JVM and returns its measurements. */
+    private static long[] fork(String suiteFile, Entry e) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        String jvmArgs = System.getProperty("macro.jvmargs", "").trim();
+        if (!jvmArgs.isEmpty()) {
+            command.addAll(Arrays.asList(jvmArgs.split("\\s+")));
+        }
+        String jdk = System.getProperty("JDK_JAR");
+        if (jdk != null) {
+            command.add("-DJDK_JAR=" + jdk);
+        }
+        command.add("-classpath");
+        command.add(System.getProperty("java.class.path"));
+        command.add(MacroBenchmark.class.getName());
+        command.add("measure");
+        command.add(suiteFile);
+        command.add(e.name);
+
+        Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String result = null;
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith(RESULT)) {
+                    result = line.substring(RESULT.length());
+                }
+            }
+        }
+        if (p.waitFor() != 0 || result == null) {
+            throw new IOException("Measuring " + e.name + " failed with exit code " + p.exitValue());
+        }
+        String[] fields = result.split(",");
+        long[] sample = new long[fields.length];
+        for (int i = 0; i < fields.length; ++i) {
+            sample[i] = Long.parseLong(fields[i]);
+        }
+        return sample;
+    }
+
+    /**
+     * Checks the files of an entry in this JVM.
+     *
+     * @return the measurements, in the order of {@link #COLUMNS} without the entry name
+     */
+    private static String measure(Entry e) throws IOException {
+        // The files to check, each with its source path:  the directory of
+        // the corpus it belongs to.
+        Map<File, String> files = new LinkedHashMap<>();
+        for (String corpus : e.corpora) {
+            if (corpus.startsWith("synthetic:")) {
+                File dir = new File(System.getProperty("java.io.tmpdir"),
+                        "macro-" + corpus.replace(':', '-') + "-" + System.nanoTime());
+                for (File file : new ProjectGenerator().generate(dir,
+                        Integer.parseInt(corpus.substring("synthetic:".length())))) {
+                    files.put(file, dir.getPath());
+                }
+            } else {
+                File dir = new File(corpus);
+                if (!dir.isDirectory()) {
+                    throw new IOException("No corpus directory " + dir.getAbsolutePath());
+                }
+                collect(dir, dir.getPath(), files);
+            }
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        long gcCount0 = gcCount();
+        long gcTime0 = gcTime();
+        long cpu0 = processCpuTime(os);
+        long wall0 = System.nanoTime();
+
+        int diagnostics = 0;
+        int crashes = 0;
+        Writer sink = new PrintWriter(new NullOutputStream());
+        for (Map.Entry<File, String> file : files.entrySet()) {
+            StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+            DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+            List<String> options = new ArrayList<>();
+            options.add("-proc:only");
+            options.add("-Xmaxerrs");
+            options.add("9999");
+            String jdk = System.getProperty("JDK_JAR");
+            if (jdk != null && !jdk.isEmpty()) {
+                options.add("-Xbootclasspath/p:" + jdk);
+            }
+            options.add("-classpath");
+            options.add(System.getProperty("java.class.path"));
+            options.add("-sourcepath");
+            options.add(file.getValue());
+            options.add("-processor");
+            options.add(e.checker);
+            options.addAll(e.options);
+            try {
+                compiler.getTask(sink, fileManager, collector, options, null,
+                        fileManager.getJavaFileObjects(file.getKey())).call();
+            } catch (RuntimeException | Error ex) {
+                crashes++;
+            }
+            for (Diagnostic<? extends JavaFileObject> d : collector.getDiagnostics()) {
+                if (d.getKind() != Diagnostic.Kind.NOTE) {
+                    diagnostics++;
+                }
+            }
+            fileManager.close();
+        }
+
+        long wall = System.nanoTime() - wall0;
+        long cpu = processCpuTime(os) - cpu0;
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        return files.size() + "," + diagnostics + "," + crashes + ","
+            + wall / 1000000 + "," + cpu / 1000000 + "," + peakHeap / (1024 * 1024) + ","
+            + (gcCount() - gcCount0) + "," + (gcTime() - gcTime0);
+    }
+
+    private static void collect(File dir, String sourcePath, Map<File, String> files) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (File child : children) {
+            if (child.isDirectory()) {
+                collect(child, sourcePath, files);
+            } else if (child.getName().endsWith(".java")) {
+                files.put(child, sourcePath);
+            }
+        }
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    /** The CPU time of the process in nanoseconds, or 0 if the JVM does not provide it. */
+    private static long processCpuTime(OperatingSystemMXBean os) {
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return 0;
+    }
+
+    static String join(List<String> fields) {
+        StringBuilder sb = new StringBuilder();
+        for (String f : fields) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(f);
+        }
+        return sb.toString();
+    }
+
+    /** Discards the output of the compiler; the diagnostics are collected separately. */
+    private static class NullOutputStream extends java.io.OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.checkerframework.benchmarks.macro;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two results files of {@link MacroBenchmark} and fails if the
+ * newer one shows a regression.
+ *
+ * <p>
+ * Usage:
+ * <pre>
+ *   java MacroComparison baseline.csv results.csv [measure=percent...]
+ * </pre>
+ *
+ * A measure of an entry regresses if it grew by more than its threshold,
+ * in percent of the baseline, and by more than an absolute noise floor
+ * (for example 100 ms of wall time or 2 garbage collections), so that
+ * small entries do not fail on noise.  The default thresholds are in
+ * {@link #DEFAULT_THRESHOLDS}; arguments such as {@code wall_ms=5}
+ * override them.  More crashes than in the baseline are always a
+ * regression.  A different number of files or diagnostics is reported,
+ * since it means that the two runs did not do the same work, but is not a
+ * regression by itself.
+ *
+ * <p>
+ * The exit code is 1 if there is a regression, and 0 otherwise, so that
+ * the comparison can gate an upgrade.
+ */
+public class MacroComparison {
+
+    /** The thresholds of the measures, in percent. */
+    static final Map<String, Double> DEFAULT_THRESHOLDS = new HashMap<>();
+
+    /** The absolute changes below which a measure is considered noise. */
+    private static final Map<String, Long> NOISE_FLOORS = new HashMap<>();
+
+    static {
+        DEFAULT_THRESHOLDS.put("wall_ms", 10.0);
+        DEFAULT_THRESHOLDS.put("cpu_ms", 10.0);
+        DEFAULT_THRESHOLDS.put("peak_heap_mb", 15.0);
+        DEFAULT_THRESHOLDS.put("gc_count", 25.0);
+        DEFAULT_THRESHOLDS.put("gc_ms", 25.0);
+
+        NOISE_FLOORS.put("wall_ms", 100L);
+        NOISE_FLOORS.put("cpu_ms", 100L);
+        NOISE_FLOORS.put("peak_heap_mb", 16L);
+        NOISE_FLOORS.put("gc_count", 2L);
+        NOISE_FLOORS.put("gc_ms", 50L);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: MacroComparison baseline.csv results.csv [measure=percent...]");
+            System.exit(2);
+        }
+        Map<String, Double> thresholds = new HashMap<>(DEFAULT_THRESHOLDS);
+        for (String arg : Arrays.asList(args).subList(2, args.length)) {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !thresholds.containsKey(arg.substring(0, eq))) {
+                System.err.println("Unknown threshold " + arg + "; measures are " + thresholds.keySet());
+                System.exit(2);
+            }
+            thresholds.put(arg.substring(0, eq), Double.parseDouble(arg.substring(eq + 1)));
+        }
+        boolean regression = compare(read(args[0]), read(args[1]), thresholds);
+        System.exit(regression ? 1 : 0);
+    }
+
+    /** Prints the comparison of every entry and returns whether there is a regression. */
+    private static boolean compare(Map<String, Map<String, Long>> baseline,
+            Map<String, Map<String, Long>> results, Map<String, Double> thresholds) {
+        boolean regression = false;
+        for (Map.Entry<String, Map<String, Long>> entry : results.entrySet()) {
+            String name = entry.getKey();
+            Map<String, Long> now = entry.getValue();
+            Map<String, Long> before = baseline.get(name);
+            if (before == null) {
+                System.out.printf("%-24s new entry%n", name);
+                continue;
+            }
+            for (String measure : Arrays.asList("files", "diagnostics")) {
+                if (!before.get(measure).equals(now.get(measure))) {
+                    System.out.printf("%-24s %-14s changed: %d -> %d%n",
+                            name, measure, before.get(measure), now.get(measure));
+                }
+            }
+            if (now.get("crashes") > before.get("crashes")) {
+                System.out.printf("%-24s %-14s %d -> %d REGRESSION%n",
+                        name, "crashes", before.get("crashes"), now.get("crashes"));
+                regression = true;
+            }
+            for (String measure : MacroBenchmark.COLUMNS) {
+                Double threshold = thresholds.get(measure);
+                if (threshold == null) {
+                    continue;
+                }
+                long old = before.get(measure);
+                long neu = now.get(measure);
+                double change = old == 0 ? 0 : (neu - old) * 100.0 / old;
+                boolean regressed = neu - old > NOISE_FLOORS.get(measure)
+                        && (old == 0 || change > threshold);
+                System.out.printf("%-24s %-14s %10d -> %10d %+7.1f%%%s%n",
+                        name, measure, old, neu, change, regressed ? " REGRESSION" : "");
+                regression |= regressed;
+            }
+        }
+        for (String name : baseline.keySet()) {
+            if (!results.containsKey(name)) {
+                System.out.printf("%-24s missing from the results%n", name);
+            }
+        }
+        return regression;
+    }
+
+    /** Reads a results file:  the measures of every entry, by column name. */
+    static Map<String, Map<String, Long>> read(String file) throws IOException {
+        Map<String, Map<String, Long>> results = new LinkedHashMap<>();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line = in.readLine();
+            if (line == null || !Arrays.asList(line.split(",")).equals(MacroBenchmark.COLUMNS)) {
+                throw new IOException(file + " is not a results file of this version of MacroBenchmark");
+            }
+            List<String> columns = MacroBenchmark.COLUMNS;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                Map<String, Long> measures = new HashMap<>();
+                for (int i = 1; i < columns.size(); ++i) {
+                    measures.put(columns.get(i), Long.parseLong(fields[i]));
+                }
+                results.put(fields[0], measures);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,163 @@
+package org.checkerframework.benchmarks.macro;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a synthetic project of a given number of classes, for the
+ * {@code synthetic:N} corpora of the macro benchmark suite.
+ *
+ * <p>
+ * The classes are spread over packages of 20 classes each.  Every class
+ * has fields of generic types, methods with loops, conditionals, null
+ * tests, string operations and exception handling, and calls to methods
+ * of the classes generated before it, so that checking one class also
+ * reads the signatures of others.  The code is plain Java without
+ * annotations, and it is free of errors for all checkers of the suite.
+ *
+ * <p>
+ * The generator is deterministic:  the same number of classes always
+ * produces the same project.
+ */
+public class ProjectGenerator {
+
+    /** The number of classes in a package. */
+    private static final int PACKAGE_SIZE = 20;
+
+    /** The seed of the generator; changing it changes every synthetic result. */
+    private static final long SEED = 20150701L;
+
+    private final Random random = new Random(SEED);
+
+    /**
+     * Writes a project of {@code classes} classes into {@code dir}.
+     *
+     * @return the generated files
+     */
+    public List<File> generate(File dir, int classes) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < classes; ++i) {
+            File pkg = new File(dir, "synth" + File.separator + packageName(i));
+            if (!pkg.isDirectory() && !pkg.mkdirs()) {
+                throw new IOException("Cannot create " + pkg);
+            }
+            File file = new File(pkg, className(i) + ".java");
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                    new FileOutputStream(file), StandardCharsets.UTF_8))) {
+                writeClass(out, i);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    private static String packageName(int i) {
+        return "p" + (i / PACKAGE_SIZE);
+    }
+
+    private static String className(int i) {
+        return "C" + i;
+    }
+
+    private static String qualifiedName(int i) {
+        return "synth." + packageName(i) + "." + className(i);
+    }
+
+    private void writeClass(PrintWriter out, int i) {
+        out.println("package synth." + packageName(i) + ";");
+        out.println();
+        out.println("import java.util.ArrayList;");
+        out.println("import java.util.HashMap;");
+        out.println("import java.util.List;");
+        out.println("import java.util.Map;");
+        out.println();
+        out.println("public class " + className(i) + " {");
+        out.println();
+        out.println("    private final Map<String, List<Integer>> index = new HashMap<>();");
+        out.println("    private final List<String> names = new ArrayList<>();");
+        out.println("    private String label = \"" + className(i) + "\";");
+        out.println("    private int counter;");
+        out.println();
+        int methods = 4 + random.nextInt(6);
+        for (int m = 0; m < methods; ++m) {
+            writeMethod(out, i, m);
+        }
+        out.println("    public String describe() {");
+        out.println("        StringBuilder sb = new StringBuilder(label);");
+        out.println("        for (Map.Entry<String, List<Integer>> e : index.entrySet()) {");
+        out.println("            sb.append(e.getKey()).append('=').append(e.getValue().size());");
+        out.println("        }");
+        out.println("        return sb.toString();");
+        out.println("    }");
+        out.println("}");
+    }
+
+    private void writeMethod(PrintWriter out, int i, int m) {
+        out.println("    public int m" + m + "(String key, int n) {");
+        out.println("        List<Integer> values = index.get(key);");
+        out.println("        if (values == null) {");
+        out.println("            values = new ArrayList<>();");
+        out.println("            index.put(key, values);");
+        out.println("        }");
+        out.println("        int sum = 0;");
+        int statements = 3 + random.nextInt(8);
+        for (int s = 0; s < statements; ++s) {
+            switch (random.nextInt(6)) {
+                case 0:
+                    out.println("        for (int j = 0; j < n; ++j) {");
+                    out.println("            values.add(j * " + (s + 1) + ");");
+                    out.println("            sum += j;");
+                    out.println("        }");
+                    break;
+                case 1:
+                    out.println("        if (key.length() > " + s + " && sum % 2 == 0) {");
+                    out.println("            names.add(key.substring(" + s + "));");
+                    out.println("        } else {");
+                    out.println("            counter++;");
+                    out.println("        }");
+                    break;
+                case 2:
+                    out.println("        try {");
+                    out.println("            sum += Integer.parseInt(key.trim());");
+                    out.println("        } catch (NumberFormatException e) {");
+                    out.println("            label = label + e.getMessage();");
+                    out.println("        }");
+                    break;
+                case 3:
+                    out.println("        switch (n % 3) {");
+                    out.println("            case 0: sum += values.size(); break;");
+                    out.println("            case 1: sum -= names.size(); break;");
+                    out.println("            default: sum += counter;");
+                    out.println("        }");
+                    break;
+                case 4:
+                    out.println("        String s" + s + " = names.isEmpty() ? null : names.get(0);");
+                    out.println("        if (s" + s + " != null) {");
+                    out.println("            sum += s" + s + ".length();");
+                    out.println("        }");
+                    break;
+                default:
+                    if (i > 0) {
+                        int callee = random.nextInt(i);
+                        out.println("        " + qualifiedName(callee) + " c" + s + " = new "
+                                + qualifiedName(callee) + "();");
+                        out.println("        sum += c" + s + ".m0(key, n - 1);");
+                        out.println("        label = c" + s + ".describe();");
+                    } else {
+                        out.println("        sum += label.hashCode();");
+                    }
+                    break;
+            }
+        }
+        out.println("        return sum;");
+        out.println("    }");
+        out.println();
+    }
+}
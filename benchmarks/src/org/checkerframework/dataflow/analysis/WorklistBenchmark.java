@@ -0,0 +1,267 @@
+package org.checkerframework.dataflow.analysis;
+
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.block.BlockImpl;
+import org.checkerframework.dataflow.cfg.block.ConditionalBlock;
+import org.checkerframework.dataflow.cfg.block.ConditionalBlockImpl;
+import org.checkerframework.dataflow.cfg.block.RegularBlockImpl;
+import org.checkerframework.dataflow.cfg.block.SingleSuccessorBlock;
+import org.checkerframework.dataflow.cfg.block.SpecialBlock.SpecialBlockType;
+import org.checkerframework.dataflow.cfg.block.SpecialBlockImpl;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.dataflow.cfg.node.ReturnNode;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.sun.source.tree.Tree;
+
+/**
+ * The worklist operations of {@link Analysis} on synthetic control flow
+ * graphs:  a long chain of if statements, and deeply nested loops.  Both
+ * graphs lead to many additions of blocks that are already in the
+ * worklist.  The {@link Analysis.Worklist} is compared with a priority
+ * queue whose membership test is linear, which is how the worklist used
+ * to be implemented.
+ *
+ * Only the worklist is exercised; the graphs contain no nodes, and each
+ * block is re-added to the worklist a fixed number of times to simulate
+ * the iteration of the analysis to a fixed point.  The benchmark is in the
+ * package of {@link Analysis} because the worklist is not public.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WorklistBenchmark {
+
+    /** How often a block propagates to its successors. */
+    private static final int VISITS = 3;
+
+    @Param({"ifChain", "nestedLoops"})
+    public String graph;
+
+    @Param({"priorityQueue", "bitSet"})
+    public String worklist;
+
+    /** The number of if statements or loops of the graph. */
+    @Param({"2000"})
+    public int size;
+
+    private ControlFlowGraph cfg;
+
+    @Setup
+    public void setup() {
+        cfg = graph.equals("ifChain") ? ifChain(size) : nestedLoops(size);
+    }
+
+    /** @return the number of blocks taken from the worklist */
+    @Benchmark
+    public int simulate() {
+        Queue queue = worklist.equals("bitSet") ? new BitSetQueue(cfg) : new PriorityQueueQueue(cfg);
+        return simulate(queue, cfg);
+    }
+
+    /** The operations of a worklist that the benchmark uses. */
+    private interface Queue {
+        boolean isEmpty();
+        boolean contains(Block b);
+        void add(Block b);
+        Block poll();
+    }
+
+    /** The current worklist of {@link Analysis}. */
+    private static class BitSetQueue implements Queue {
+        private final Analysis.Worklist worklist;
+
+        BitSetQueue(ControlFlowGraph cfg) {
+            worklist = new Analysis.Worklist(cfg);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return worklist.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Block b) {
+            return worklist.contains(b);
+        }
+
+        @Override
+        public void add(Block b) {
+            worklist.add(b);
+        }
+
+        @Override
+        public Block poll() {
+            return worklist.poll();
+        }
+    }
+
+    /** The previous worklist of {@link Analysis}. */
+    private static class PriorityQueueQueue implements Queue {
+        private final IdentityHashMap<Block, Integer> depthFirstOrder = new IdentityHashMap<>();
+        private final PriorityQueue<Block> queue;
+
+        PriorityQueueQueue(ControlFlowGraph cfg) {
+            int count = 1;
+            for (Block b : cfg.getDepthFirstOrderedBlocks()) {
+                depthFirstOrder.put(b, count++);
+            }
+            queue = new PriorityQueue<Block>(11, new Comparator<Block>() {
+                @Override
+                public int compare(Block b1, Block b2) {
+                    return depthFirstOrder.get(b1) - depthFirstOrder.get(b2);
+                }
+            });
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return queue.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Block b) {
+            return queue.contains(b);
+        }
+
+        @Override
+        public void add(Block b) {
+            queue.add(b);
+        }
+
+        @Override
+        public Block poll() {
+            return queue.poll();
+        }
+    }
+
+    /**
+     * Runs the worklist algorithm of {@link Analysis} on {@code cfg}, in
+     * which every block propagates to its successors {@link #VISITS} times.
+     *
+     * @return the number of blocks taken from the worklist
+     */
+    private static int simulate(Queue worklist, ControlFlowGraph cfg) {
+        IdentityHashMap<Block, Integer> visits = new IdentityHashMap<>();
+        int polls = 0;
+        worklist.add(cfg.getEntryBlock());
+        while (!worklist.isEmpty()) {
+            Block b = worklist.poll();
+            polls++;
+            Integer v = visits.get(b);
+            v = (v == null) ? 1 : v + 1;
+            visits.put(b, v);
+            if (v > VISITS) {
+                continue;
+            }
+            for (Block succ : successors(b)) {
+                if (!worklist.contains(succ)) {
+                    worklist.add(succ);
+                }
+            }
+        }
+        return polls;
+    }
+
+    private static List<Block> successors(Block b) {
+        List<Block> result = new ArrayList<>(2);
+        if (b instanceof ConditionalBlock) {
+            result.add(((ConditionalBlock) b).getThenSuccessor());
+            result.add(((ConditionalBlock) b).getElseSuccessor());
+        } else {
+            Block succ = ((SingleSuccessorBlock) b).getSuccessor();
+            if (succ != null) {
+                result.add(succ);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a CFG for {@code size} sequential if statements inside a
+     * single loop, so that all blocks are re-analyzed.
+     */
+    private static ControlFlowGraph ifChain(int size) {
+        SpecialBlockImpl entry = new SpecialBlockImpl(SpecialBlockType.ENTRY);
+        SpecialBlockImpl exit = new SpecialBlockImpl(SpecialBlockType.EXIT);
+        ConditionalBlockImpl header = new ConditionalBlockImpl();
+        entry.setSuccessor(header);
+        header.setElseSuccessor(exit);
+
+        BlockImpl last = header;
+        for (int i = 0; i < size; i++) {
+            ConditionalBlockImpl cond = new ConditionalBlockImpl();
+            RegularBlockImpl thenBlock = new RegularBlockImpl();
+            RegularBlockImpl elseBlock = new RegularBlockImpl();
+            RegularBlockImpl join = new RegularBlockImpl();
+            cond.setThenSuccessor(thenBlock);
+            cond.setElseSuccessor(elseBlock);
+            thenBlock.setSuccessor(join);
+            elseBlock.setSuccessor(join);
+            connect(last, cond);
+            last = join;
+        }
+        ((RegularBlockImpl) last).setSuccessor(header);
+        return newCFG(entry, exit);
+    }
+
+    /** Returns a CFG for {@code depth} nested loops. */
+    private static ControlFlowGraph nestedLoops(int depth) {
+        SpecialBlockImpl entry = new SpecialBlockImpl(SpecialBlockType.ENTRY);
+        SpecialBlockImpl exit = new SpecialBlockImpl(SpecialBlockType.EXIT);
+
+        // Each loop header either enters the next loop or exits to the
+        // back edge of the enclosing loop.
+        BlockImpl afterLoop = exit;
+        List<ConditionalBlockImpl> headers = new ArrayList<>();
+        for (int i = 0; i < depth; i++) {
+            headers.add(new ConditionalBlockImpl());
+        }
+        entry.setSuccessor(headers.get(0));
+        for (int i = 0; i < depth; i++) {
+            ConditionalBlockImpl header = headers.get(i);
+            RegularBlockImpl backEdge = new RegularBlockImpl();
+            backEdge.setSuccessor(header);
+            header.setElseSuccessor(afterLoop);
+            if (i + 1 < depth) {
+                header.setThenSuccessor(headers.get(i + 1));
+            } else {
+                header.setThenSuccessor(backEdge);
+            }
+            afterLoop = backEdge;
+        }
+        return newCFG(entry, exit);
+    }
+
+    private static void connect(BlockImpl pred, BlockImpl succ) {
+        if (pred instanceof ConditionalBlockImpl) {
+            ((ConditionalBlockImpl) pred).setThenSuccessor(succ);
+        } else {
+            ((RegularBlockImpl) pred).setSuccessor(succ);
+        }
+    }
+
+    private static ControlFlowGraph newCFG(SpecialBlockImpl entry, SpecialBlockImpl exit) {
+        return new ControlFlowGraph(entry, exit,
+                new SpecialBlockImpl(SpecialBlockType.EXCEPTIONAL_EXIT), null,
+                new IdentityHashMap<Tree, Node>(),
+                new IdentityHashMap<Tree, Node>(),
+                new ArrayList<ReturnNode>());
+    }
+}
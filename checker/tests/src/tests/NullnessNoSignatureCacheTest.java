@@ -0,0 +1,34 @@
+package tests;
+
+import org.checkerframework.checker.nullness.AbstractNullnessChecker;
+import org.checkerframework.framework.test.ParameterizedCheckerTest;
+
+import java.io.File;
+import java.util.Collection;
+
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * JUnit tests for the Nullness checker without the signature cache
+ * (-AsignatureCacheSize=0).  The inputs and expected diagnostics are those
+ * of {@link NullnessFbcTest}, which runs with the cache.
+ */
+public class NullnessNoSignatureCacheTest extends ParameterizedCheckerTest {
+
+    public NullnessNoSignatureCacheTest(File testFile) {
+        super(testFile,
+                org.checkerframework.checker.nullness.NullnessChecker.class,
+                "nullness",
+                "-AcheckPurityAnnotations",
+                "-AsignatureCacheSize=0",
+                "-Anomsgtext", "-Xlint:deprecation",
+                "-Alint=forbidnonnullarraycomponents,"
+                        + AbstractNullnessChecker.LINT_REDUNDANTNULLCOMPARISON);
+    }
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        return testFiles("nullness", "initialization/fbc", "all-systems");
+    }
+
+}
@@ -0,0 +1,35 @@
+package tests;
+
+import java.io.File;
+import java.util.Collection;
+
+import org.checkerframework.framework.test.ParameterizedCheckerTest;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * JUnit tests for the Nullness checker that parse the stub files lazily
+ * (-AstubLazy).  The inputs, stub files, and expected diagnostics are
+ * those of {@link NullnessStubfileTest}, which parses the stub files
+ * eagerly; -AstubWarnIfNotFound is omitted, as it disables -AstubLazy.
+ */
+public class NullnessStubLazyTest extends ParameterizedCheckerTest {
+
+    public NullnessStubLazyTest(File testFile) {
+        super(
+                testFile,
+                org.checkerframework.checker.nullness.NullnessChecker.class,
+                "nullness",
+                "-Anomsgtext",
+                "-AprintErrorStack",
+                "-AstubLazy",
+                "-Astubs="
+                        + "tests/nullness-stubfile/stubfile1.astub:"
+                        + "tests/nullness-stubfile/stubfile2.astub");
+    }
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        return testFiles("nullness-stubfile");
+    }
+
+}
@@ -19,11 +19,13 @@ import org.checkerframework.dataflow.cfg.node.AssignmentNode;
 import org.checkerframework.dataflow.cfg.node.LocalVariableNode;
 import org.checkerframework.dataflow.cfg.node.Node;
 import org.checkerframework.dataflow.cfg.node.ReturnNode;
+import org.checkerframework.dataflow.util.NodeValueMap;
 
 import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.Pair;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -31,7 +33,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
-import java.util.PriorityQueue;
 import java.util.Set;
 
 import javax.annotation.processing.ProcessingEnvironment;
@@ -102,7 +103,7 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
     protected Worklist worklist;
 
     /** Abstract values of nodes. */
-    protected IdentityHashMap<Node, A> nodeValues;
+    protected NodeValueMap<A> nodeValues;
 
     /** Map from (effectively final) local variable elements to their abstract value. */
     public HashMap<Element, A> finalLocalValues;
@@ -390,7 +391,7 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
         inputs = new IdentityHashMap<>();
         storesAtReturnStatements = new IdentityHashMap<>();
         worklist = new Worklist(cfg);
-        nodeValues = new IdentityHashMap<>();
+        nodeValues = new NodeValueMap<>();
         finalLocalValues = new HashMap<>();
         worklist.add(cfg.getEntryBlock());
 
@@ -430,10 +431,7 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
      * the method does nothing.
      */
     protected void addToWorklist(Block b) {
-        // TODO: use a more efficient way to check if b is already present
-        if (!worklist.contains(b)) {
-            worklist.add(b);
-        }
+        worklist.add(b);
     }
 
     /**
@@ -515,6 +513,10 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
     /**
      * A worklist is a priority queue of blocks in which the order is given
      * by depth-first ordering to place non-loop predecessors ahead of successors.
+     *
+     * The queue is a bit set indexed by the depth-first order of the blocks,
+     * so membership tests and insertions take constant time, and a block
+     * is never present twice.
      */
     protected static class Worklist {
 
@@ -522,7 +524,10 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
         protected IdentityHashMap<Block, Integer> depthFirstOrder;
 
         /** Comparator to allow priority queue to order blocks by their depth-first
-            order. */
+            order.
+            @deprecated the worklist is no longer a priority queue and does
+            not use this comparator */
+        @Deprecated
         public class DFOComparator implements Comparator<Block> {
             @Override
             public int compare(Block b1, Block b2) {
@@ -530,18 +535,28 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
             }
         }
 
-        /** The backing priority queue. */
-        protected PriorityQueue<Block> queue;
+        /** The blocks of the CFG, indexed by their depth-first order. */
+        protected Block[] blocks;
 
+        /** The depth-first orders of the blocks in the worklist. */
+        protected BitSet queue;
+
+        /** A lower bound for the depth-first orders in {@link #queue}. */
+        protected int lowest;
 
         public Worklist(ControlFlowGraph cfg) {
+            List<Block> dfoBlocks = cfg.getDepthFirstOrderedBlocks();
             depthFirstOrder = new IdentityHashMap<>();
-            int count = 1;
-            for (Block b : cfg.getDepthFirstOrderedBlocks()) {
-                depthFirstOrder.put(b, count++);
+            blocks = new Block[dfoBlocks.size()];
+            int count = 0;
+            for (Block b : dfoBlocks) {
+                depthFirstOrder.put(b, count);
+                blocks[count] = b;
+                count++;
             }
 
-            queue = new PriorityQueue<Block>(11, new DFOComparator());
+            queue = new BitSet(blocks.length);
+            lowest = 0;
         }
 
         public boolean isEmpty() {
@@ -549,20 +564,45 @@ public class Analysis<A extends AbstractValue<A>, S extends Store<S>, T extends
         }
 
         public boolean contains(Block block) {
-            return queue.contains(block);
+            return queue.get(depthFirstOrder.get(block));
         }
 
+        /**
+         * Adds {@code block} to the worklist; does nothing if it is
+         * already present.
+         */
         public void add(Block block) {
-            queue.add(block);
+            int order = depthFirstOrder.get(block);
+            // The depth-first order computation can list a block more than
+            // once; the block is then known by its last position.
+            assert blocks[order] == block;
+            queue.set(order);
+            if (order < lowest) {
+                lowest = order;
+            }
         }
 
-        public Block poll() {
-            return queue.poll();
+        /**
+         * Removes and returns the block with the lowest depth-first order,
+         * or returns null if the worklist is empty.
+         */
+        public /*@Nullable*/ Block poll() {
+            int order = queue.nextSetBit(lowest);
+            if (order < 0) {
+                return null;
+            }
+            queue.clear(order);
+            lowest = order + 1;
+            return blocks[order];
         }
 
         @Override
         public String toString() {
-            return "Worklist(" + queue + ")";
+            List<Block> contents = new ArrayList<>();
+            for (int i = queue.nextSetBit(0); i >= 0; i = queue.nextSetBit(i + 1)) {
+                contents.add(blocks[i]);
+            }
+            return "Worklist(" + contents + ")";
         }
     }
 
@@ -8,6 +8,7 @@ import org.checkerframework.dataflow.cfg.block.Block;
 import org.checkerframework.dataflow.cfg.block.ExceptionBlock;
 import org.checkerframework.dataflow.cfg.block.RegularBlock;
 import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.dataflow.util.NodeValueMap;
 
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -31,7 +32,7 @@ import com.sun.source.tree.Tree;
 public class AnalysisResult<A extends AbstractValue<A>, S extends Store<S>> {
 
     /** Abstract values of nodes. */
-    protected final IdentityHashMap<Node, A> nodeValues;
+    protected final NodeValueMap<A> nodeValues;
 
     /** Map from AST {@link Tree}s to {@link Node}s. */
     protected final IdentityHashMap<Tree, Node> treeLookup;
@@ -50,7 +51,16 @@ public class AnalysisResult<A extends AbstractValue<A>, S extends Store<S>> {
     public AnalysisResult(Map<Node, A> nodeValues,
             IdentityHashMap<Block, TransferInput<A, S>> stores,
             IdentityHashMap<Tree, Node> treeLookup, HashMap<Element, A> finalLocalValues) {
-        this.nodeValues = new IdentityHashMap<>(nodeValues);
+        this(toNodeValueMap(nodeValues), stores, treeLookup, finalLocalValues);
+    }
+
+    /**
+     * Initialize with a given node-value mapping.
+     */
+    public AnalysisResult(NodeValueMap<A> nodeValues,
+            IdentityHashMap<Block, TransferInput<A, S>> stores,
+            IdentityHashMap<Tree, Node> treeLookup, HashMap<Element, A> finalLocalValues) {
+        this.nodeValues = new NodeValueMap<>(nodeValues);
         this.treeLookup = new IdentityHashMap<>(treeLookup);
         this.stores = stores;
         this.finalLocalValues = finalLocalValues;
@@ -60,28 +70,30 @@ public class AnalysisResult<A extends AbstractValue<A>, S extends Store<S>> {
      * Initialize empty result.
      */
     public AnalysisResult() {
-        nodeValues = new IdentityHashMap<>();
+        nodeValues = new NodeValueMap<>();
         treeLookup = new IdentityHashMap<>();
         stores = new IdentityHashMap<>();
         finalLocalValues = new HashMap<>();
     }
 
+    private static <A> NodeValueMap<A> toNodeValueMap(Map<Node, A> nodeValues) {
+        NodeValueMap<A> result = new NodeValueMap<>();
+        for (Entry<Node, A> e : nodeValues.entrySet()) {
+            result.put(e.getKey(), e.getValue());
+        }
+        return result;
+    }
+
     /**
-     * Combine with another analysis result.
+     * Combine with another analysis result.  The node values of a result
+     * are stored by node number, so combining the results of the methods
+     * of a class copies array slices instead of rehashing every node.
      */
     public void combine(AnalysisResult<A, S> other) {
-        for (Entry<Node, A> e : other.nodeValues.entrySet()) {
-            nodeValues.put(e.getKey(), e.getValue());
-        }
-        for (Entry<Tree, Node> e : other.treeLookup.entrySet()) {
-            treeLookup.put(e.getKey(), e.getValue());
-        }
-        for (Entry<Block, TransferInput<A, S>> e : other.stores.entrySet()) {
-            stores.put(e.getKey(), e.getValue());
-        }
-        for (Entry<Element, A> e : other.finalLocalValues.entrySet()) {
-            finalLocalValues.put(e.getKey(), e.getValue());
-        }
+        nodeValues.putAll(other.nodeValues);
+        treeLookup.putAll(other.treeLookup);
+        stores.putAll(other.stores);
+        finalLocalValues.putAll(other.finalLocalValues);
     }
 
     /**
@@ -24,6 +24,7 @@ import org.checkerframework.javacutil.BasicAnnotationProvider;
 import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.InternalUtils;
 import org.checkerframework.javacutil.Pair;
+import org.checkerframework.javacutil.Profiler;
 import org.checkerframework.javacutil.TreeUtils;
 import org.checkerframework.javacutil.TypesUtils;
 import org.checkerframework.javacutil.trees.TreeBuilder;
@@ -104,10 +105,23 @@ public class CFGBuilder {
     /** Can assertions be assumed to be enabled? */
     protected final boolean assumeAssertionsEnabled;
 
+    /** The numbering of the nodes of the graphs this builder builds. */
+    protected final NodeNumbering nodeNumbering;
+
     public CFGBuilder(boolean assumeAssertionsEnabled, boolean assumeAssertionsDisabled) {
+        this(assumeAssertionsEnabled, assumeAssertionsDisabled, new NodeNumbering());
+    }
+
+    /**
+     * Creates a builder that numbers the nodes of the graphs it builds with
+     * {@code nodeNumbering}; see {@link Node#getId}.
+     */
+    public CFGBuilder(boolean assumeAssertionsEnabled, boolean assumeAssertionsDisabled,
+            NodeNumbering nodeNumbering) {
         assert !(assumeAssertionsDisabled && assumeAssertionsEnabled);
         this.assumeAssertionsEnabled = assumeAssertionsEnabled;
         this.assumeAssertionsDisabled = assumeAssertionsDisabled;
+        this.nodeNumbering = nodeNumbering;
     }
 
     /**
@@ -182,18 +196,23 @@ public class CFGBuilder {
     public ControlFlowGraph run(
             CompilationUnitTree root, ProcessingEnvironment env,
             UnderlyingAST underlyingAST) {
-        declaredClasses.clear();
-        declaredLambdas.clear();
-
-        TreeBuilder builder = new TreeBuilder(env);
-        AnnotationProvider annotationProvider = new BasicAnnotationProvider();
-        PhaseOneResult phase1result = new CFGTranslationPhaseOne().process(
-                root, env, underlyingAST, exceptionalExitLabel, builder, annotationProvider);
-        ControlFlowGraph phase2result = new CFGTranslationPhaseTwo()
-                .process(phase1result);
-        ControlFlowGraph phase3result = CFGTranslationPhaseThree
-                .process(phase2result);
-        return phase3result;
+        Profiler.Measurement measurement = Profiler.start("cfg", underlyingAST.getKind().name());
+        try {
+            declaredClasses.clear();
+            declaredLambdas.clear();
+
+            TreeBuilder builder = new TreeBuilder(env);
+            AnnotationProvider annotationProvider = new BasicAnnotationProvider();
+            PhaseOneResult phase1result = new CFGTranslationPhaseOne().process(
+                    root, env, underlyingAST, exceptionalExitLabel, builder, annotationProvider);
+            ControlFlowGraph phase2result = new CFGTranslationPhaseTwo()
+                    .process(phase1result);
+            ControlFlowGraph phase3result = CFGTranslationPhaseThree
+                    .process(phase2result);
+            return phase3result;
+        } finally {
+            Profiler.stop(measurement);
+        }
     }
 
     /**
@@ -203,16 +222,21 @@ public class CFGBuilder {
     public ControlFlowGraph run(
             TreePath bodyPath, ProcessingEnvironment env,
             UnderlyingAST underlyingAST) {
-        declaredClasses.clear();
-        TreeBuilder builder = new TreeBuilder(env);
-        AnnotationProvider annotationProvider = new BasicAnnotationProvider();
-        PhaseOneResult phase1result = new CFGTranslationPhaseOne().process(
-                bodyPath, env, underlyingAST, exceptionalExitLabel, builder, annotationProvider);
-        ControlFlowGraph phase2result = new CFGTranslationPhaseTwo()
-                .process(phase1result);
-        ControlFlowGraph phase3result = CFGTranslationPhaseThree
-                .process(phase2result);
-        return phase3result;
+        Profiler.Measurement measurement = Profiler.start("cfg", underlyingAST.getKind().name());
+        try {
+            declaredClasses.clear();
+            TreeBuilder builder = new TreeBuilder(env);
+            AnnotationProvider annotationProvider = new BasicAnnotationProvider();
+            PhaseOneResult phase1result = new CFGTranslationPhaseOne().process(
+                    bodyPath, env, underlyingAST, exceptionalExitLabel, builder, annotationProvider);
+            ControlFlowGraph phase2result = new CFGTranslationPhaseTwo()
+                    .process(phase1result);
+            ControlFlowGraph phase3result = CFGTranslationPhaseThree
+                    .process(phase2result);
+            return phase3result;
+        } finally {
+            Profiler.stop(measurement);
+        }
     }
 
     /**
@@ -1402,11 +1426,41 @@ public class CFGBuilder {
             // removed in a later phase.
             nodeList.add(new UnconditionalJump(regularExitLabel));
 
+            numberNodes();
+
             return new PhaseOneResult(underlyingAST, treeLookupMap,
                     convertedTreeLookupMap, nodeList,
                     bindings, leaders, returnNodes);
         }
 
+        /**
+         * Numbers the nodes of the control flow graph with a contiguous
+         * range of numbers.  See {@link Node#getId}.
+         */
+        protected void numberNodes() {
+            List<Node> nodes = new ArrayList<>();
+            Set<Node> seen = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+            for (ExtendedNode n : nodeList) {
+                if (n instanceof NodeHolder || n instanceof NodeWithExceptionsHolder) {
+                    addUnnumbered(nodes, seen, n.getNode());
+                }
+            }
+            // Some nodes are only reachable from the tree lookup maps.
+            for (Node n : treeLookupMap.values()) {
+                addUnnumbered(nodes, seen, n);
+            }
+            for (Node n : convertedTreeLookupMap.values()) {
+                addUnnumbered(nodes, seen, n);
+            }
+            nodeNumbering.number(nodes);
+        }
+
+        private void addUnnumbered(List<Node> nodes, Set<Node> seen, Node n) {
+            if (n.getId() < 0 && seen.add(n)) {
+                nodes.add(n);
+            }
+        }
+
         public PhaseOneResult process(
                 CompilationUnitTree root, ProcessingEnvironment env,
                 UnderlyingAST underlyingAST, Label exceptionalExitLabel,
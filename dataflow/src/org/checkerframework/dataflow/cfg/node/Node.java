@@ -68,6 +68,11 @@ public abstract class Node {
      */
     protected final TypeMirror type;
 
+    /**
+     * The number of this node, or -1 if it has none. See {@link #getId}.
+     */
+    private int id = -1;
+
     public Node(TypeMirror type) {
         assert type != null;
         this.type = type;
@@ -86,6 +91,26 @@ public abstract class Node {
         block = b;
     }
 
+    /**
+     * Returns the number of this node, or -1 if it has none.
+     *
+     * <p>
+     * The {@link CFGBuilder} numbers the nodes of a control flow graph
+     * with a contiguous range of numbers from its {@link NodeNumbering},
+     * which no other graph numbered by the same numbering uses, so that
+     * analyses can store the values of nodes in arrays indexed by their
+     * number.  Nodes created outside the {@link CFGBuilder}, such as the
+     * nodes for method parameters, have no number.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /** Set the number of this node; only {@link NodeNumbering} does. */
+    void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Returns the {@link Tree} in the abstract syntax tree, or
      * <code>null</code> if no corresponding tree exists. For instance, this is
@@ -0,0 +1,51 @@
+package org.checkerframework.dataflow.cfg.node;
+
+import org.checkerframework.dataflow.cfg.CFGBuilder;
+
+import java.util.List;
+
+/**
+ * Gives numbers to {@link Node}s (see {@link Node#getId}).  A numbering
+ * hands out consecutive numbers, so the nodes it numbers have distinct
+ * numbers until the numbers run out and start again at 0.
+ *
+ * <p>
+ * The {@link CFGBuilder} numbers the nodes of every control flow graph it
+ * builds with its numbering.  A client that combines the analysis results
+ * of several graphs, such as a type factory, passes one numbering to all
+ * the builders it creates, so that the nodes of those graphs, and only
+ * those, share one dense range of numbers.
+ */
+public class NodeNumbering {
+
+    /** The number of the next node. */
+    private int next;
+
+    /** Creates a numbering that starts at 0. */
+    public NodeNumbering() {
+        this(0);
+    }
+
+    /** Creates a numbering that starts at {@code first}. */
+    public NodeNumbering(int first) {
+        assert first >= 0;
+        this.next = first;
+    }
+
+    /**
+     * Numbers {@code nodes}, which must not have numbers yet, with a
+     * contiguous range of numbers in their order in the list.
+     */
+    public void number(List<? extends Node> nodes) {
+        int count = nodes.size();
+        if (next > Integer.MAX_VALUE - count) {
+            // By then, the results of analyses that used the old numbers
+            // have long been discarded.
+            next = 0;
+        }
+        for (Node n : nodes) {
+            assert n.getId() < 0 : "node is already numbered: " + n;
+            n.setId(next++);
+        }
+    }
+}
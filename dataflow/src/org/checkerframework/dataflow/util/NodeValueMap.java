@@ -0,0 +1,160 @@
+package org.checkerframework.dataflow.util;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.dataflow.cfg.node.Node;
+
+import java.util.IdentityHashMap;
+
+/**
+ * A map from {@link Node}s to values that is indexed by the numbers the
+ * {@link org.checkerframework.dataflow.cfg.CFGBuilder} gives to nodes
+ * (see {@link Node#getId}).
+ *
+ * <p>
+ * The values are stored in an array that covers a range of node numbers.
+ * Because the nodes of a control flow graph are numbered contiguously,
+ * the values of a CFG occupy one slice of the array, and {@link #putAll}
+ * of the values of another CFG copies a slice instead of hashing every
+ * node.  The values of nodes without a number are kept in an identity
+ * hash map.
+ *
+ * <p>
+ * The map does not permit null values; storing null removes the value.
+ *
+ * @param <V> the type of the values
+ */
+public class NodeValueMap<V> {
+
+    /** The smallest capacity of a non-empty array. */
+    private static final int MIN_CAPACITY = 16;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    /** The values of numbered nodes; {@code values[i]} belongs to node {@code base + i}. */
+    private Object[] values = EMPTY;
+
+    /** The number of the node whose value is in {@code values[0]}. */
+    private int base = 0;
+
+    /** The number of non-null elements of {@link #values}. */
+    private int arraySize = 0;
+
+    /** The values of nodes that are not covered by {@link #values}, or null if there are none. */
+    private /*@Nullable*/ IdentityHashMap<Node, V> others = null;
+
+    /** Creates an empty map. */
+    public NodeValueMap() {
+    }
+
+    /** Creates a map with the same values as {@code other}. */
+    public NodeValueMap(NodeValueMap<V> other) {
+        values = other.values.length == 0 ? EMPTY : other.values.clone();
+        base = other.base;
+        arraySize = other.arraySize;
+        others = other.others == null ? null : new IdentityHashMap<>(other.others);
+    }
+
+    private boolean inArray(int id) {
+        return id - base >= 0 && id - base < values.length;
+    }
+
+    /** Returns the number of nodes that have a value. */
+    public int size() {
+        return arraySize + (others == null ? 0 : others.size());
+    }
+
+    /** Returns the value of {@code n}, or null if it has none. */
+    @SuppressWarnings("unchecked")
+    public /*@Nullable*/ V get(/*@Nullable*/ Node n) {
+        if (n == null) {
+            return null;
+        }
+        int i = n.getId() - base;
+        if (n.getId() >= 0 && i >= 0 && i < values.length) {
+            return (V) values[i];
+        }
+        return others == null ? null : others.get(n);
+    }
+
+    /** Sets the value of {@code n} to {@code value}, or removes it if {@code value} is null. */
+    public void put(Node n, /*@Nullable*/ V value) {
+        int id = n.getId();
+        if (id >= 0 && (value != null || inArray(id))) {
+            reserve(id, id + 1);
+            Object old = values[id - base];
+            values[id - base] = value;
+            arraySize += (value == null ? 0 : 1) - (old == null ? 0 : 1);
+        } else if (value != null) {
+            if (others == null) {
+                others = new IdentityHashMap<>();
+            }
+            others.put(n, value);
+        } else if (others != null) {
+            others.remove(n);
+        }
+    }
+
+    /**
+     * Copies all values of {@code other} into this map, replacing the
+     * values of nodes that have one in both maps.
+     */
+    public void putAll(NodeValueMap<V> other) {
+        if (other.arraySize > 0) {
+            // Trim the range of the other map to its values.
+            int lo = 0;
+            while (other.values[lo] == null) {
+                lo++;
+            }
+            int hi = other.values.length;
+            while (other.values[hi - 1] == null) {
+                hi--;
+            }
+            reserve(other.base + lo, other.base + hi);
+            int offset = other.base - base;
+            for (int i = lo; i < hi; ++i) {
+                Object v = other.values[i];
+                if (v != null) {
+                    if (values[offset + i] == null) {
+                        arraySize++;
+                    }
+                    values[offset + i] = v;
+                }
+            }
+        }
+        if (other.others != null) {
+            for (Node n : other.others.keySet()) {
+                put(n, other.others.get(n));
+            }
+        }
+    }
+
+    /**
+     * Grows the array to cover the numbers from {@code lo} (inclusive) to
+     * {@code hi} (exclusive).  When the array grows towards higher numbers,
+     * it gets additional room at the end, so that appending the values of
+     * the CFGs built later takes amortized constant time.
+     */
+    private void reserve(int lo, int hi) {
+        if (values.length == 0) {
+            base = lo;
+            values = new Object[Math.max(hi - lo, MIN_CAPACITY)];
+            return;
+        }
+        if (lo >= base && hi - base <= values.length) {
+            return;
+        }
+        int newLo = Math.min(base, lo);
+        long newHi = Math.max((long) base + values.length, hi);
+        if (hi - base > values.length) {
+            newHi = Math.max(newHi, (long) base + values.length + values.length / 2);
+        }
+        newHi = Math.min(newHi, Integer.MAX_VALUE);
+        Object[] newValues = new Object[(int) (newHi - newLo)];
+        System.arraycopy(values, 0, newValues, base - newLo, values.length);
+        values = newValues;
+        base = newLo;
+    }
+}
@@ -0,0 +1,680 @@
+package org.checkerframework.dataflow.util;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A hash map that shares its structure with its copies.
+ *
+ * <p>
+ * The entries are stored in a hash array mapped trie whose nodes are never
+ * modified.  An update creates new nodes on the path from the root to the
+ * changed entry, and shares all other nodes with the previous version of
+ * the map.  Therefore, the copy constructor takes constant time, and an
+ * update of a copy costs time logarithmic in the size of the map.
+ *
+ * <p>
+ * Maps that were copied from each other share the subtrees they did not
+ * update since.  {@link #intersect} and {@link #includes} compare such
+ * subtrees by reference and do not visit their entries, which makes joins
+ * of the dataflow stores of two branches proportional to the number of
+ * entries that were updated in the branches.
+ *
+ * <p>
+ * The map does not permit null keys.  Its iterators iterate over the
+ * entries the map had when the iterator was created; they do not fail if
+ * the map is modified during the iteration.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * A function that combines the values of a key in two maps.
+     *
+     * @see PersistentHashMap#intersect
+     */
+    public interface Merger<V> {
+        /**
+         * Returns the value of a key in the intersection of two maps, or
+         * null if the intersection should not contain the key.
+         *
+         * @param v1 the value of the key in the first map
+         * @param v2 the value of the key in the second map
+         */
+        /*@Nullable*/ V merge(V v1, V v2);
+    }
+
+    /** The number of bits of the hash code used at each level of the trie. */
+    private static final int BITS = 5;
+
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * The maximal depth of the trie: one level for every {@link #BITS} bits
+     * of the hash code, and one for the nodes of colliding hash codes.
+     */
+    private static final int MAX_DEPTH = (32 + BITS - 1) / BITS + 1;
+
+    /** The result of a lookup of a key that is not in the map. */
+    private static final Object NOT_FOUND = new Object();
+
+    private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+    /** The root of the trie, or null if the map is empty. */
+    private /*@Nullable*/ Node root;
+
+    /** Creates an empty map. */
+    public PersistentHashMap() {
+        this.root = null;
+    }
+
+    /**
+     * Creates a map with the same entries as {@code other}, in constant time.
+     */
+    public PersistentHashMap(PersistentHashMap<K, V> other) {
+        this.root = other.root;
+    }
+
+    @Override
+    public int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) != NOT_FOUND;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public /*@Nullable*/ V get(Object key) {
+        Object value = find(key);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    /** Returns the value of {@code key}, or {@link #NOT_FOUND}. */
+    private Object find(Object key) {
+        if (key == null || root == null) {
+            return NOT_FOUND;
+        }
+        return root.find(0, hash(key), key);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public /*@Nullable*/ V put(K key, V value) {
+        if (key == null) {
+            throw new NullPointerException("PersistentHashMap does not permit null keys");
+        }
+        int hash = hash(key);
+        Object old = root == null ? NOT_FOUND : root.find(0, hash, key);
+        if (old == NOT_FOUND) {
+            root = (root == null ? EMPTY : root).put(0, hash, key, value);
+            return null;
+        }
+        if (old != value) {
+            root = root.put(0, hash, key, value);
+        }
+        return (V) old;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public /*@Nullable*/ V remove(Object key) {
+        Object old = find(key);
+        if (old == NOT_FOUND) {
+            return null;
+        }
+        root = root.remove(0, hash(key), key);
+        return (V) old;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+    }
+
+    /**
+     * Replaces the entries of this map by those of {@code other}, in
+     * constant time.  Later changes to either map do not affect the other.
+     */
+    public void replaceWith(PersistentHashMap<K, V> other) {
+        this.root = other.root;
+    }
+
+    /**
+     * Returns a map with the keys that are in both this map and
+     * {@code other}.  The value of such a key is the result of
+     * {@code merger}, applied to the value in this map and the value in
+     * {@code other}; if that is null, the key is left out.
+     *
+     * <p>
+     * Subtrees and values that the two maps share are shared by the result
+     * as well, without calling {@code merger}.  The merger therefore must
+     * be idempotent: {@code merger.merge(v, v)} must equal {@code v}.
+     */
+    public PersistentHashMap<K, V> intersect(PersistentHashMap<K, V> other, Merger<V> merger) {
+        PersistentHashMap<K, V> result = new PersistentHashMap<>();
+        result.root = intersect(root, other.root, 0, merger);
+        return result;
+    }
+
+    /**
+     * Returns true if this map contains all keys of {@code other}, with
+     * values that are equal according to the {@code equals} method of the
+     * values of this map.  Subtrees that the two maps share are not visited.
+     */
+    public boolean includes(PersistentHashMap<K, V> other) {
+        return includes(root, other.root, 0);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public int size() {
+                return PersistentHashMap.this.size();
+            }
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator(root);
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /** Returns the bit of the bitmap for {@code hash} at the level {@code shift}. */
+    private static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /** A node of the trie. */
+    private static abstract class Node {
+        /** The number of entries in this subtree. */
+        final int size;
+
+        /**
+         * Keys and values in alternating elements.  In a {@link BitmapNode},
+         * a null key means that the following element is a child node.
+         */
+        final Object[] array;
+
+        Node(int size, Object[] array) {
+            this.size = size;
+            this.array = array;
+        }
+
+        /** Returns the value of {@code key}, or {@link #NOT_FOUND}. */
+        abstract Object find(int shift, int hash, Object key);
+
+        /** Returns a node with the entries of this one, and {@code key} mapped to {@code value}. */
+        abstract Node put(int shift, int hash, Object key, Object value);
+
+        /** Returns a node with the entries of this one except {@code key}, or null if it is empty. */
+        abstract /*@Nullable*/ Node remove(int shift, int hash, Object key);
+
+        /** Returns true if this node contains exactly one entry, and no child nodes. */
+        boolean isSingleEntry() {
+            return array.length == 2 && array[0] != null;
+        }
+    }
+
+    /**
+     * An inner node of the trie.  It has one key and value, or one child
+     * node, for every bit set in its bitmap.
+     */
+    private static final class BitmapNode extends Node {
+        final int bitmap;
+
+        BitmapNode(int bitmap, Object[] array) {
+            super(sizeOf(array), array);
+            this.bitmap = bitmap;
+        }
+
+        private static int sizeOf(Object[] array) {
+            int size = 0;
+            for (int i = 0; i < array.length; i += 2) {
+                size += array[i] == null ? ((Node) array[i + 1]).size : 1;
+            }
+            return size;
+        }
+
+        /** Returns the index in {@link #array} of the key for {@code bit}. */
+        int index(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int i = index(bit);
+            Object k = array[i];
+            if (k == null) {
+                return ((Node) array[i + 1]).find(shift + BITS, hash, key);
+            }
+            return key.equals(k) ? array[i + 1] : NOT_FOUND;
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value) {
+            int bit = bitpos(hash, shift);
+            int i = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, i);
+                newArray[i] = key;
+                newArray[i + 1] = value;
+                System.arraycopy(array, i, newArray, i + 2, array.length - i);
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+            Object k = array[i];
+            Object v = array[i + 1];
+            Object[] newArray = array.clone();
+            if (k == null) {
+                newArray[i + 1] = ((Node) v).put(shift + BITS, hash, key, value);
+            } else if (key.equals(k)) {
+                newArray[i + 1] = value;
+            } else {
+                newArray[i] = null;
+                newArray[i + 1] = createNode(shift + BITS, k, v, hash, key, value);
+            }
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        @Override
+        /*@Nullable*/ Node remove(int shift, int hash, Object key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int i = index(bit);
+            Object k = array[i];
+            if (k == null) {
+                Node child = (Node) array[i + 1];
+                Node newChild = child.remove(shift + BITS, hash, key);
+                if (newChild == child) {
+                    return this;
+                }
+                if (newChild != null) {
+                    Object[] newArray = array.clone();
+                    setChild(newArray, i, newChild);
+                    return new BitmapNode(bitmap, newArray);
+                }
+            } else if (!key.equals(k)) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, i);
+            System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+            return new BitmapNode(bitmap ^ bit, newArray);
+        }
+    }
+
+    /** A leaf of the trie for keys whose hash codes are the same. */
+    private static final class CollisionNode extends Node {
+        final int hash;
+
+        CollisionNode(int hash, Object[] array) {
+            super(array.length / 2, array);
+            this.hash = hash;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            if (hash != this.hash) {
+                return NOT_FOUND;
+            }
+            int i = indexOf(key);
+            return i < 0 ? NOT_FOUND : array[i + 1];
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value) {
+            if (hash != this.hash) {
+                // Move this node one level down, below a node that
+                // distinguishes the two hash codes.
+                Node parent = new BitmapNode(bitpos(this.hash, shift), new Object[] {null, this});
+                return parent.put(shift, hash, key, value);
+            }
+            int i = indexOf(key);
+            Object[] newArray;
+            if (i < 0) {
+                newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, array.length);
+                newArray[array.length] = key;
+                newArray[array.length + 1] = value;
+            } else {
+                newArray = array.clone();
+                newArray[i + 1] = value;
+            }
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        /*@Nullable*/ Node remove(int shift, int hash, Object key) {
+            int i = hash == this.hash ? indexOf(key) : -1;
+            if (i < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, i);
+            System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+            return new CollisionNode(hash, newArray);
+        }
+    }
+
+    /** Returns a node at level {@code shift} with two entries of different keys. */
+    private static Node createNode(int shift, Object k1, Object v1, int h2, Object k2, Object v2) {
+        int h1 = hash(k1);
+        if (h1 == h2) {
+            return new CollisionNode(h1, new Object[] {k1, v1, k2, v2});
+        }
+        return EMPTY.put(shift, h1, k1, v1).put(shift, h2, k2, v2);
+    }
+
+    /**
+     * Stores {@code child} at index {@code i} of the array of a
+     * {@link BitmapNode}; a child with a single entry is stored as that entry.
+     */
+    private static void setChild(Object[] array, int i, Node child) {
+        if (child.isSingleEntry()) {
+            array[i] = child.array[0];
+            array[i + 1] = child.array[1];
+        } else {
+            array[i] = null;
+            array[i + 1] = child;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> /*@Nullable*/ Node intersect(/*@Nullable*/ Node a, /*@Nullable*/ Node b,
+            int shift, Merger<V> merger) {
+        if (a == null || b == null) {
+            return null;
+        }
+        if (a == b) {
+            return a;
+        }
+        if (a instanceof CollisionNode || b instanceof CollisionNode) {
+            return intersectEntries(a, b, shift, merger);
+        }
+
+        BitmapNode ba = (BitmapNode) a;
+        BitmapNode bb = (BitmapNode) b;
+        int common = ba.bitmap & bb.bitmap;
+        Object[] array = new Object[2 * Integer.bitCount(common)];
+        int bitmap = 0;
+        int n = 0;
+        for (int bits = common; bits != 0; bits &= bits - 1) {
+            int bit = bits & -bits;
+            int ia = ba.index(bit);
+            int ib = bb.index(bit);
+            Object ka = ba.array[ia];
+            Object va = ba.array[ia + 1];
+            Object kb = bb.array[ib];
+            Object vb = bb.array[ib + 1];
+
+            if (ka == null && kb == null) {
+                Node child = intersect((Node) va, (Node) vb, shift + BITS, merger);
+                if (child != null) {
+                    setChild(array, n, child);
+                    bitmap |= bit;
+                    n += 2;
+                }
+                continue;
+            }
+
+            Object key;
+            if (ka != null && kb != null) {
+                if (!ka.equals(kb)) {
+                    continue;
+                }
+                key = ka;
+            } else if (ka != null) {
+                key = ka;
+                vb = ((Node) vb).find(shift + BITS, hash(ka), ka);
+            } else {
+                key = kb;
+                va = ((Node) va).find(shift + BITS, hash(kb), kb);
+            }
+            if (va == NOT_FOUND || vb == NOT_FOUND) {
+                continue;
+            }
+            Object value = va == vb ? va : merger.merge((V) va, (V) vb);
+            if (value != null) {
+                array[n] = key;
+                array[n + 1] = value;
+                bitmap |= bit;
+                n += 2;
+            }
+        }
+
+        if (n == 0) {
+            return null;
+        }
+        if (n < array.length) {
+            Object[] trimmed = new Object[n];
+            System.arraycopy(array, 0, trimmed, 0, n);
+            array = trimmed;
+        }
+        return new BitmapNode(bitmap, array);
+    }
+
+    /**
+     * Intersects two nodes at level {@code shift}, at least one of which is
+     * a {@link CollisionNode}, by looking up its entries in the other.
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> /*@Nullable*/ Node intersectEntries(Node a, Node b, int shift, Merger<V> merger) {
+        boolean entriesOfA = a instanceof CollisionNode;
+        CollisionNode collision = (CollisionNode) (entriesOfA ? a : b);
+        Node other = entriesOfA ? b : a;
+        Node result = null;
+        for (int i = 0; i < collision.array.length; i += 2) {
+            Object key = collision.array[i];
+            Object found = other.find(shift, collision.hash, key);
+            if (found == NOT_FOUND) {
+                continue;
+            }
+            Object va = entriesOfA ? collision.array[i + 1] : found;
+            Object vb = entriesOfA ? found : collision.array[i + 1];
+            Object value = va == vb ? va : merger.merge((V) va, (V) vb);
+            if (value != null) {
+                result = (result == null ? EMPTY : result).put(shift, collision.hash, key, value);
+            }
+        }
+        return result;
+    }
+
+    private static boolean includes(/*@Nullable*/ Node a, /*@Nullable*/ Node b, int shift) {
+        if (b == null || a == b) {
+            return true;
+        }
+        if (a == null || b.size > a.size) {
+            return false;
+        }
+        if (!(a instanceof BitmapNode && b instanceof BitmapNode)) {
+            return includesEntries(a, b, shift);
+        }
+
+        BitmapNode ba = (BitmapNode) a;
+        BitmapNode bb = (BitmapNode) b;
+        if ((bb.bitmap & ~ba.bitmap) != 0) {
+            return false;
+        }
+        for (int bits = bb.bitmap; bits != 0; bits &= bits - 1) {
+            int bit = bits & -bits;
+            int ia = ba.index(bit);
+            int ib = bb.index(bit);
+            Object ka = ba.array[ia];
+            Object kb = bb.array[ib];
+            Object va = ba.array[ia + 1];
+            Object vb = bb.array[ib + 1];
+            if (ka == null && kb == null) {
+                if (!includes((Node) va, (Node) vb, shift + BITS)) {
+                    return false;
+                }
+            } else if (kb == null) {
+                if (!includesEntries(a, (Node) vb, shift)) {
+                    return false;
+                }
+            } else {
+                Object found = ka == null ? ((Node) va).find(shift + BITS, hash(kb), kb)
+                        : kb.equals(ka) ? va : NOT_FOUND;
+                if (!sameValue(found, vb)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if {@code a} contains all entries of {@code b}, by looking
+     * up the entries of {@code b} in {@code a}.  Both are at level
+     * {@code shift}.
+     */
+    private static boolean includesEntries(Node a, Node b, int shift) {
+        for (int i = 0; i < b.array.length; i += 2) {
+            Object key = b.array[i];
+            if (key == null) {
+                if (!includesEntries(a, (Node) b.array[i + 1], shift)) {
+                    return false;
+                }
+            } else if (!sameValue(a.find(shift, hash(key), key), b.array[i + 1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns true if the value found in one map equals the value of the other. */
+    private static boolean sameValue(Object found, Object value) {
+        if (found == NOT_FOUND) {
+            return false;
+        }
+        return found == value || (found != null && found.equals(value));
+    }
+
+    /** An iterator over the entries of a trie, in depth-first order. */
+    private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        /** The arrays of the nodes on the path to the next entry. */
+        private final Object[][] arrays = new Object[MAX_DEPTH][];
+        /** The index of the next key in each of {@link #arrays}. */
+        private final int[] positions = new int[MAX_DEPTH];
+        private int depth = -1;
+
+        private /*@Nullable*/ Entry next;
+        private /*@Nullable*/ Entry last;
+
+        EntryIterator(/*@Nullable*/ Node root) {
+            if (root != null) {
+                push(root);
+            }
+            advance();
+        }
+
+        private void push(Node node) {
+            ++depth;
+            arrays[depth] = node.array;
+            positions[depth] = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int i = positions[depth];
+                if (i >= array.length) {
+                    arrays[depth--] = null;
+                    continue;
+                }
+                positions[depth] = i + 2;
+                if (array[i] == null) {
+                    push((Node) array[i + 1]);
+                } else {
+                    next = new Entry((K) array[i], (V) array[i + 1]);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            PersistentHashMap.this.remove(last.getKey());
+            last = null;
+        }
+    }
+
+    /** An entry of the map; setting its value updates the map. */
+    private class Entry extends AbstractMap.SimpleEntry<K, V> {
+        private static final long serialVersionUID = -3587421694637412376L;
+
+        Entry(K key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            PersistentHashMap.this.put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
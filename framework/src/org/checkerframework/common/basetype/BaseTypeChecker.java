@@ -8,14 +8,19 @@ import org.checkerframework.common.reflection.MethodValChecker;
 import org.checkerframework.framework.qual.SubtypeOf;
 import org.checkerframework.framework.qual.TypeQualifiers;
 import org.checkerframework.framework.source.SourceChecker;
+import org.checkerframework.framework.type.AnnotatedJdkIndex;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedDeclaredType;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.GenericAnnotatedTypeFactory;
 import org.checkerframework.framework.type.QualifierHierarchy;
+import org.checkerframework.framework.type.SignatureCache;
 import org.checkerframework.framework.type.TypeHierarchy;
 import org.checkerframework.javacutil.AbstractTypeProcessor;
 import org.checkerframework.javacutil.AnnotationProvider;
+import org.checkerframework.javacutil.BoundedCache;
 import org.checkerframework.javacutil.ErrorReporter;
 
+import java.io.File;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
@@ -32,6 +37,8 @@ import java.util.Map;
 import java.util.Set;
 
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 
 import com.sun.source.util.TreePath;
@@ -322,6 +329,49 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
         return getTypeFactory();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The signature consists of the annotated type of the element,
+     * including invisible qualifiers, and its declaration annotations; for
+     * a type, also of its annotated direct supertypes and of all its
+     * members.
+     */
+    @Override
+    protected String dependencySignature(Element elt) {
+        GenericAnnotatedTypeFactory<?, ?, ?, ?> factory = getTypeFactory();
+        StringBuilder signature = new StringBuilder();
+        appendSignature(factory, elt, signature);
+        if (elt instanceof TypeElement) {
+            AnnotatedDeclaredType type = (AnnotatedDeclaredType) factory.fromElement(elt);
+            for (AnnotatedDeclaredType supertype : type.directSuperTypes()) {
+                signature.append(" extends ").append(supertype.toString(true));
+            }
+            for (Element member : elt.getEnclosedElements()) {
+                signature.append('\n').append(member.getKind()).append(' ').append(member);
+                if (member.getKind().isClass() || member.getKind().isInterface()) {
+                    // A member type is a dependency of its own.
+                    continue;
+                }
+                signature.append(' ');
+                appendSignature(factory, member, signature);
+                if (member instanceof ExecutableElement) {
+                    for (Element parameter : ((ExecutableElement) member).getParameters()) {
+                        signature.append(' ').append(factory.getDeclAnnotations(parameter));
+                    }
+                }
+            }
+        }
+        return signature.toString();
+    }
+
+    /** Appends the annotated type and declaration annotations of {@code elt}. */
+    private static void appendSignature(GenericAnnotatedTypeFactory<?, ?, ?, ?> factory,
+            Element elt, StringBuilder signature) {
+        signature.append(factory.fromElement(elt).toString(true));
+        signature.append(' ').append(factory.getDeclAnnotations(elt));
+    }
+
     /**
      * Returns the requested subchecker.
      * A checker of a given class can only be run once, so this returns the
@@ -458,9 +508,41 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
             checker.typeProcessingOver();
         }
 
+        if (hasOption("atfCacheStats")) {
+            printCacheStatistics();
+        }
+
+        if (getVisitor() != null) {
+            SignatureCache signatureCache = getTypeFactory().getSignatureCache();
+            if (signatureCache != null) {
+                signatureCache.save();
+            }
+            String jdkIndexJar = getOption("jdkIndexBuild");
+            String jdkIndexDirectory = getOption("jdkIndex");
+            if (jdkIndexJar != null && jdkIndexDirectory != null) {
+                AnnotatedJdkIndex.build(new File(jdkIndexJar),
+                        AnnotatedJdkIndex.file(new File(jdkIndexDirectory), this), getTypeFactory());
+            }
+        }
+
         super.typeProcessingOver();
     }
 
+    /**
+     * Prints the hit, miss, and eviction counts of the caches of the type
+     * factory of this checker, for the -AatfCacheStats option.
+     */
+    protected void printCacheStatistics() {
+        if (getVisitor() == null) {
+            // Initialization failed; there is no type factory.
+            return;
+        }
+        System.out.println("Cache statistics of " + getClass().getSimpleName() + ":");
+        for (BoundedCache<?, ?> cache : getTypeFactory().getCaches()) {
+            System.out.println("  " + cache.statistics());
+        }
+    }
+
     @Override
     public Set<String> getSupportedOptions() {
         Set<String> options = new HashSet<String>();
@@ -56,6 +56,7 @@ import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.ErrorReporter;
 import org.checkerframework.javacutil.InternalUtils;
 import org.checkerframework.javacutil.Pair;
+import org.checkerframework.javacutil.Profiler;
 import org.checkerframework.javacutil.TreeUtils;
 import org.checkerframework.javacutil.TypesUtils;
 
@@ -270,7 +271,15 @@ public class BaseTypeVisitor<Factory extends GenericAnnotatedTypeFactory<?, ?, ?
     public Void scan(Tree tree, Void p) {
         if (tree != null && getCurrentPath() != null)
             this.visitorState.setPath(new TreePath(getCurrentPath(), tree));
-        return super.scan(tree, p);
+        if (tree == null || !Profiler.isEnabled()) {
+            return super.scan(tree, p);
+        }
+        Profiler.Measurement measurement = Profiler.start("visit", tree.getKind().name());
+        try {
+            return super.scan(tree, p);
+        } finally {
+            Profiler.stop(measurement);
+        }
     }
 
     @Override
@@ -288,6 +297,11 @@ public class BaseTypeVisitor<Factory extends GenericAnnotatedTypeFactory<?, ?, ?
         MethodTree preMT = visitorState.getMethodTree();
         Pair<Tree, AnnotatedTypeMirror> preAssCtxt = visitorState.getAssignmentContext();
 
+        if (preCT == null) {
+            // A top-level class, which may have been checked before
+            atypeFactory.reanalyzeIfReleased(node);
+        }
+
         // For flow-sensitive type checking, it's significant that we get the
         // annotated type of the ClassTree before checking the type of any
         // code within the class.  The call below causes flow analysis to
@@ -327,6 +341,10 @@ public class BaseTypeVisitor<Factory extends GenericAnnotatedTypeFactory<?, ?, ?
             this.visitorState.setMethodReceiver(preAMT);
             this.visitorState.setMethodTree(preMT);
             this.visitorState.setAssignmentContext(preAssCtxt);
+            if (preCT == null) {
+                // A top-level class
+                atypeFactory.releaseFlowResults(node);
+            }
         }
     }
 
@@ -19,15 +19,14 @@ import org.checkerframework.dataflow.cfg.node.Node;
 import org.checkerframework.dataflow.cfg.node.ThisLiteralNode;
 import org.checkerframework.dataflow.qual.Pure;
 import org.checkerframework.dataflow.qual.SideEffectFree;
+import org.checkerframework.dataflow.util.PersistentHashMap;
 import org.checkerframework.dataflow.util.PurityUtils;
 import org.checkerframework.framework.qual.MonotonicQualifier;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.Pair;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Map.Entry;
 
 import javax.lang.model.element.AnnotationMirror;
@@ -41,6 +40,11 @@ import javax.lang.model.util.Types;
  * A store for the checker framework analysis tracks the annotations of memory
  * locations such as local variables and fields.
  *
+ * <p>
+ * The information is kept in {@link PersistentHashMap}s, so copying a store
+ * takes constant time, and a store shares the unchanged part of its maps
+ * with the store it was copied from.
+ *
  * @author Charlie Garrett
  * @author Stefan Heule
  */
@@ -58,7 +62,7 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
      * Information collected about local variables, which are identified by the
      * corresponding element.
      */
-    protected final Map<Element, V> localVariableValues;
+    protected final PersistentHashMap<Element, V> localVariableValues;
 
     /**
      * Information collected about the current object.
@@ -69,21 +73,21 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
      * Information collected about fields, using the internal representation
      * {@link FieldAccess}.
      */
-    protected Map<FlowExpressions.FieldAccess, V> fieldValues;
+    protected final PersistentHashMap<FlowExpressions.FieldAccess, V> fieldValues;
 
     /**
      * Information collected about arrays, using the internal representation
      * {@link ArrayAccess}.
      */
-    protected Map<FlowExpressions.ArrayAccess, V> arrayValues;
+    protected final PersistentHashMap<FlowExpressions.ArrayAccess, V> arrayValues;
 
     /**
      * Information collected about pure method calls, using the internal
      * representation {@link PureMethodCall}.
      */
-    protected Map<FlowExpressions.PureMethodCall, V> methodValues;
+    protected final PersistentHashMap<FlowExpressions.PureMethodCall, V> methodValues;
 
-    protected Map<FlowExpressions.ClassName, V> classValues;
+    protected final PersistentHashMap<FlowExpressions.ClassName, V> classValues;
 
     /**
      * Should the analysis use sequential Java semantics (i.e., assume that only
@@ -98,24 +102,24 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
     public CFAbstractStore(CFAbstractAnalysis<V, S, ?> analysis,
             boolean sequentialSemantics) {
         this.analysis = analysis;
-        localVariableValues = new HashMap<>();
+        localVariableValues = new PersistentHashMap<>();
         thisValue = null;
-        fieldValues = new HashMap<>();
-        methodValues = new HashMap<>();
-        arrayValues = new HashMap<>();
-        classValues = new HashMap<>();
+        fieldValues = new PersistentHashMap<>();
+        methodValues = new PersistentHashMap<>();
+        arrayValues = new PersistentHashMap<>();
+        classValues = new PersistentHashMap<>();
         this.sequentialSemantics = sequentialSemantics;
     }
 
-    /** Copy constructor. */
+    /** Copy constructor; takes constant time. */
     protected CFAbstractStore(CFAbstractStore<V, S> other) {
         this.analysis = other.analysis;
-        localVariableValues = new HashMap<>(other.localVariableValues);
+        localVariableValues = new PersistentHashMap<>(other.localVariableValues);
         thisValue = other.thisValue;
-        fieldValues = new HashMap<>(other.fieldValues);
-        methodValues = new HashMap<>(other.methodValues);
-        arrayValues = new HashMap<>(other.arrayValues);
-        classValues = new HashMap<>(other.classValues);
+        fieldValues = new PersistentHashMap<>(other.fieldValues);
+        methodValues = new PersistentHashMap<>(other.methodValues);
+        arrayValues = new PersistentHashMap<>(other.arrayValues);
+        classValues = new PersistentHashMap<>(other.classValues);
         sequentialSemantics = other.sequentialSemantics;
     }
 
@@ -172,7 +176,8 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
         if (!(analysis.checker.hasOption("assumeSideEffectFree")
               || PurityUtils.isSideEffectFree(atypeFactory, method))) {
             // update field values
-            Map<FlowExpressions.FieldAccess, V> newFieldValues = new HashMap<>();
+            PersistentHashMap<FlowExpressions.FieldAccess, V> newFieldValues =
+                    new PersistentHashMap<>(fieldValues);
             for (Entry<FlowExpressions.FieldAccess, V> e : fieldValues.entrySet()) {
                 FlowExpressions.FieldAccess fieldAccess = e.getKey();
                 V otherVal = e.getValue();
@@ -207,13 +212,12 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
 
                 // case 2:
                 if (!fieldAccess.isUnmodifiableByOtherCode()) {
-                    continue; // remove information completely
+                    newFieldValues.remove(fieldAccess); // remove information completely
                 }
 
-                // keep information
-                newFieldValues.put(fieldAccess, otherVal);
+                // otherwise, keep information
             }
-            fieldValues = newFieldValues;
+            fieldValues.replaceWith(newFieldValues);
 
             // update method values
             methodValues.clear();
@@ -637,14 +641,16 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
      */
     protected void removeConflicting(FlowExpressions.FieldAccess fieldAccess,
             /*@Nullable*/ V val) {
-        Map<FlowExpressions.FieldAccess, V> newFieldValues = new HashMap<>();
+        PersistentHashMap<FlowExpressions.FieldAccess, V> newFieldValues =
+                new PersistentHashMap<>(fieldValues);
         for (Entry<FlowExpressions.FieldAccess, V> e : fieldValues.entrySet()) {
             FlowExpressions.FieldAccess otherFieldAccess = e.getKey();
             V otherVal = e.getValue();
             // case 2:
             if (otherFieldAccess.getReceiver().containsModifiableAliasOf(this,
                     fieldAccess)) {
-                continue; // remove information completely
+                newFieldValues.remove(otherFieldAccess); // remove information completely
+                continue;
             }
             // case 1:
             if (fieldAccess.getField().equals(otherFieldAccess.getField())) {
@@ -656,30 +662,29 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
                             newFieldValues.put(otherFieldAccess, newVal);
                         } else {
                             // remove information completely
+                            newFieldValues.remove(otherFieldAccess);
                         }
                         continue;
                     }
                 }
             }
             // information is save to be carried over
-            newFieldValues.put(otherFieldAccess, otherVal);
         }
-        fieldValues = newFieldValues;
+        fieldValues.replaceWith(newFieldValues);
 
-        Map<FlowExpressions.ArrayAccess, V> newArrayValues = new HashMap<>();
+        PersistentHashMap<FlowExpressions.ArrayAccess, V> newArrayValues =
+                new PersistentHashMap<>(arrayValues);
         for (Entry<ArrayAccess, V> e : arrayValues.entrySet()) {
             FlowExpressions.ArrayAccess otherArrayAccess = e.getKey();
-            V otherVal = e.getValue();
             if (otherArrayAccess.containsModifiableAliasOf(this, fieldAccess)) {
                 // remove information completely
-                continue;
+                newArrayValues.remove(otherArrayAccess);
             }
-            newArrayValues.put(otherArrayAccess, otherVal);
         }
-        arrayValues = newArrayValues;
+        arrayValues.replaceWith(newArrayValues);
 
         // case 3:
-        methodValues = new HashMap<>();
+        methodValues.clear();
     }
 
     /**
@@ -705,42 +710,42 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
      */
     protected void removeConflicting(FlowExpressions.ArrayAccess arrayAccess,
             /*@Nullable*/ V val) {
-        Map<FlowExpressions.ArrayAccess, V> newArrayValues = new HashMap<>();
+        PersistentHashMap<FlowExpressions.ArrayAccess, V> newArrayValues =
+                new PersistentHashMap<>(arrayValues);
         for (Entry<FlowExpressions.ArrayAccess, V> e : arrayValues.entrySet()) {
             FlowExpressions.ArrayAccess otherArrayAccess = e.getKey();
-            V otherVal = e.getValue();
             // case 1:
             if (otherArrayAccess.containsModifiableAliasOf(this, arrayAccess)) {
-                continue; // remove information completely
+                newArrayValues.remove(otherArrayAccess); // remove information completely
+                continue;
             }
             if (canAlias(arrayAccess.getReceiver(),
                     otherArrayAccess.getReceiver())) {
                 // TODO: one could be less strict here, and only raise the
                 // abstract value
                 // for all array expressions with potentially aliasing receivers
-                continue; // remove information completely
+                newArrayValues.remove(otherArrayAccess); // remove information completely
+                continue;
             }
             // information is save to be carried over
-            newArrayValues.put(otherArrayAccess, otherVal);
         }
-        arrayValues = newArrayValues;
+        arrayValues.replaceWith(newArrayValues);
 
         // case 2:
-        Map<FlowExpressions.FieldAccess, V> newFieldValues = new HashMap<>();
+        PersistentHashMap<FlowExpressions.FieldAccess, V> newFieldValues =
+                new PersistentHashMap<>(fieldValues);
         for (Entry<FieldAccess, V> e : fieldValues.entrySet()) {
             FlowExpressions.FieldAccess otherFieldAccess = e.getKey();
-            V otherVal = e.getValue();
             Receiver receiver = otherFieldAccess.getReceiver();
             if (receiver.containsModifiableAliasOf(this, arrayAccess) && receiver.containsOfClass(ArrayAccess.class)) {
                 // remove information completely
-                continue;
+                newFieldValues.remove(otherFieldAccess);
             }
-            newFieldValues.put(otherFieldAccess, otherVal);
         }
-        fieldValues = newFieldValues;
+        fieldValues.replaceWith(newFieldValues);
 
         // case 3:
-        methodValues = new HashMap<>();
+        methodValues.clear();
     }
 
     /**
@@ -759,40 +764,36 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
      * </ol>
      */
     protected void removeConflicting(LocalVariable var) {
-        Map<FlowExpressions.FieldAccess, V> newFieldValues = new HashMap<>();
-        for (Entry<FlowExpressions.FieldAccess, V> e : fieldValues.entrySet()) {
-            FlowExpressions.FieldAccess otherFieldAccess = e.getKey();
+        PersistentHashMap<FlowExpressions.FieldAccess, V> newFieldValues =
+                new PersistentHashMap<>(fieldValues);
+        for (FlowExpressions.FieldAccess otherFieldAccess : fieldValues.keySet()) {
             // case 1:
             if (otherFieldAccess.containsSyntacticEqualReceiver(var)) {
-                continue;
+                newFieldValues.remove(otherFieldAccess);
             }
-            newFieldValues.put(otherFieldAccess, e.getValue());
         }
-        fieldValues = newFieldValues;
+        fieldValues.replaceWith(newFieldValues);
 
-        Map<FlowExpressions.ArrayAccess, V> newArrayValues = new HashMap<>();
-        for (Entry<FlowExpressions.ArrayAccess, V> e : arrayValues.entrySet()) {
-            FlowExpressions.ArrayAccess otherArrayAccess = e.getKey();
+        PersistentHashMap<FlowExpressions.ArrayAccess, V> newArrayValues =
+                new PersistentHashMap<>(arrayValues);
+        for (FlowExpressions.ArrayAccess otherArrayAccess : arrayValues.keySet()) {
             // case 2:
             if (otherArrayAccess.containsSyntacticEqualReceiver(var)) {
-                continue;
+                newArrayValues.remove(otherArrayAccess);
             }
-            newArrayValues.put(otherArrayAccess, e.getValue());
         }
-        arrayValues = newArrayValues;
+        arrayValues.replaceWith(newArrayValues);
 
-        Map<FlowExpressions.PureMethodCall, V> newMethodValues = new HashMap<>();
-        for (Entry<FlowExpressions.PureMethodCall, V> e : methodValues
-                .entrySet()) {
-            FlowExpressions.PureMethodCall otherMethodAccess = e.getKey();
+        PersistentHashMap<FlowExpressions.PureMethodCall, V> newMethodValues =
+                new PersistentHashMap<>(methodValues);
+        for (FlowExpressions.PureMethodCall otherMethodAccess : methodValues.keySet()) {
             // case 3:
             if (otherMethodAccess.containsSyntacticEqualReceiver(var)
                     || otherMethodAccess.containsSyntacticEqualParameter(var)) {
-                continue;
+                newMethodValues.remove(otherMethodAccess);
             }
-            newMethodValues.put(otherMethodAccess, e.getValue());
         }
-        methodValues = newMethodValues;
+        methodValues.replaceWith(newMethodValues);
     }
 
     /**
@@ -844,24 +845,26 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
         return analysis.createCopiedStore((S) this);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Information that is only part of one store, but not the other, is
+     * discarded, as one store implicitly contains 'top' for it.  Values
+     * that the two stores share are kept without computing their least
+     * upper bound, which is the value itself.
+     */
     @Override
     public S leastUpperBound(S other) {
         S newStore = analysis.createEmptyStore(sequentialSemantics);
-
-        for (Entry<Element, V> e : other.localVariableValues.entrySet()) {
-            // local variables that are only part of one store, but not the
-            // other are discarded, as one of store implicitly contains 'top'
-            // for that variable.
-            Element el = e.getKey();
-            if (localVariableValues.containsKey(el)) {
-                V otherVal = e.getValue();
-                V thisVal = localVariableValues.get(el);
-                V mergedVal = thisVal.leastUpperBound(otherVal);
-                if (mergedVal != null) {
-                    newStore.localVariableValues.put(el, mergedVal);
-                }
+        PersistentHashMap.Merger<V> lub = new PersistentHashMap.Merger<V>() {
+            @Override
+            public /*@Nullable*/ V merge(V thisVal, V otherVal) {
+                return thisVal.leastUpperBound(otherVal);
             }
-        }
+        };
+
+        newStore.localVariableValues.replaceWith(
+                localVariableValues.intersect(other.localVariableValues, lub));
 
         // information about the current object
         {
@@ -873,62 +876,10 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
             }
         }
 
-        for (Entry<FlowExpressions.FieldAccess, V> e : other.fieldValues
-                .entrySet()) {
-            // information about fields that are only part of one store, but not
-            // the other are discarded, as one store implicitly contains 'top'
-            // for that field.
-            FlowExpressions.FieldAccess el = e.getKey();
-            if (fieldValues.containsKey(el)) {
-                V otherVal = e.getValue();
-                V thisVal = fieldValues.get(el);
-                V mergedVal = thisVal.leastUpperBound(otherVal);
-                if (mergedVal != null) {
-                    newStore.fieldValues.put(el, mergedVal);
-                }
-            }
-        }
-        for (Entry<FlowExpressions.ArrayAccess, V> e : other.arrayValues
-                .entrySet()) {
-            // information about arrays that are only part of one store, but not
-            // the other are discarded, as one store implicitly contains 'top'
-            // for that array access.
-            FlowExpressions.ArrayAccess el = e.getKey();
-            if (arrayValues.containsKey(el)) {
-                V otherVal = e.getValue();
-                V thisVal = arrayValues.get(el);
-                V mergedVal = thisVal.leastUpperBound(otherVal);
-                if (mergedVal != null) {
-                    newStore.arrayValues.put(el, mergedVal);
-                }
-            }
-        }
-        for (Entry<PureMethodCall, V> e : other.methodValues.entrySet()) {
-            // information about methods that are only part of one store, but
-            // not the other are discarded, as one store implicitly contains
-            // 'top' for that field.
-            FlowExpressions.PureMethodCall el = e.getKey();
-            if (methodValues.containsKey(el)) {
-                V otherVal = e.getValue();
-                V thisVal = methodValues.get(el);
-                V mergedVal = thisVal.leastUpperBound(otherVal);
-                if (mergedVal != null) {
-                    newStore.methodValues.put(el, mergedVal);
-                }
-            }
-        }
-        for (Entry<FlowExpressions.ClassName, V> e : other.classValues
-                .entrySet()) {
-            FlowExpressions.ClassName el = e.getKey();
-            if (classValues.containsKey(el)) {
-                V otherVal = e.getValue();
-                V thisVal = classValues.get(el);
-                V mergedVal = thisVal.leastUpperBound(otherVal);
-                if (mergedVal != null) {
-                    newStore.classValues.put(el, mergedVal);
-                }
-            }
-        }
+        newStore.fieldValues.replaceWith(fieldValues.intersect(other.fieldValues, lub));
+        newStore.arrayValues.replaceWith(arrayValues.intersect(other.arrayValues, lub));
+        newStore.methodValues.replaceWith(methodValues.intersect(other.methodValues, lub));
+        newStore.classValues.replaceWith(classValues.intersect(other.classValues, lub));
         return newStore;
     }
 
@@ -940,45 +891,11 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
      * predicate.
      */
     protected boolean supersetOf(CFAbstractStore<V, S> other) {
-        for (Entry<Element, V> e : other.localVariableValues.entrySet()) {
-            Element key = e.getKey();
-            if (!localVariableValues.containsKey(key)
-                    || !localVariableValues.get(key).equals(e.getValue())) {
-                return false;
-            }
-        }
-        for (Entry<FlowExpressions.FieldAccess, V> e : other.fieldValues
-                .entrySet()) {
-            FlowExpressions.FieldAccess key = e.getKey();
-            if (!fieldValues.containsKey(key)
-                    || !fieldValues.get(key).equals(e.getValue())) {
-                return false;
-            }
-        }
-        for (Entry<FlowExpressions.ArrayAccess, V> e : other.arrayValues
-                .entrySet()) {
-            FlowExpressions.ArrayAccess key = e.getKey();
-            if (!arrayValues.containsKey(key)
-                    || !arrayValues.get(key).equals(e.getValue())) {
-                return false;
-            }
-        }
-        for (Entry<PureMethodCall, V> e : other.methodValues.entrySet()) {
-            FlowExpressions.PureMethodCall key = e.getKey();
-            if (!methodValues.containsKey(key)
-                    || !methodValues.get(key).equals(e.getValue())) {
-                return false;
-            }
-        }
-        for (Entry<FlowExpressions.ClassName, V> e : other.classValues
-                .entrySet()) {
-            FlowExpressions.ClassName key = e.getKey();
-            if (!classValues.containsKey(key)
-                    || !classValues.get(key).equals(e.getValue())) {
-                return false;
-            }
-        }
-        return true;
+        return localVariableValues.includes(other.localVariableValues)
+                && fieldValues.includes(other.fieldValues)
+                && arrayValues.includes(other.arrayValues)
+                && methodValues.includes(other.methodValues)
+                && classValues.includes(other.classValues);
     }
 
     @Override
@@ -4,6 +4,7 @@ import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.dataflow.cfg.CFGBuilder;
 import org.checkerframework.dataflow.cfg.ControlFlowGraph;
 import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.dataflow.cfg.node.NodeNumbering;
 import org.checkerframework.framework.source.SourceChecker;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.AnnotatedTypeMirror;
@@ -42,8 +43,18 @@ public class CFCFGBuilder extends CFGBuilder {
     protected final AnnotatedTypeFactory factory;
 
     public CFCFGBuilder(BaseTypeChecker checker, AnnotatedTypeFactory factory) {
+        this(checker, factory, new NodeNumbering());
+    }
+
+    /**
+     * Creates a builder that numbers the nodes of the graphs it builds with
+     * {@code nodeNumbering}.
+     */
+    public CFCFGBuilder(BaseTypeChecker checker, AnnotatedTypeFactory factory,
+            NodeNumbering nodeNumbering) {
         super(checker.hasOption("assumeAssertionsAreEnabled"),
-              checker.hasOption("assumeAssertionsAreDisabled"));
+              checker.hasOption("assumeAssertionsAreDisabled"),
+              nodeNumbering);
         if (assumeAssertionsEnabled && assumeAssertionsDisabled) {
             ErrorReporter.errorAbort("Assertions cannot be assumed to be enabled and disabled at the same time.");
         }
@@ -98,6 +98,9 @@ public abstract class AggregateChecker extends SourceChecker {
             // Each checker should "support" all possible lint options - otherwise
             // subchecker A would complain about a lint option for subchecker B.
             checker.setSupportedLintOptions(this.getSupportedLintOptions());
+            // The checkers do not know this one as their parent, so they
+            // registered themselves for the incremental cache.
+            incrementalCheckers.putAll(checker.incrementalCheckers);
         }
         allCheckersInited = true;
     }
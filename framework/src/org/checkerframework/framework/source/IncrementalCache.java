@@ -0,0 +1,417 @@
+package org.checkerframework.framework.source;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.javacutil.ErrorReporter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * An on-disk cache of the results of checking classes, for the
+ * -AincrementalCache option.
+ *
+ * An entry records, for one top-level class, a checksum of the source of
+ * its compilation unit, the messages that checking the class issued, and
+ * the classes of other compilation units whose declarations the checkers
+ * used while checking it.  For each such class, the entry holds a
+ * checksum of the signature of the whole class, with qualifiers, as seen
+ * by the checker that used it:  its supertypes and all its members.  If
+ * neither the source nor any of these signatures changed, a later
+ * compilation replays the recorded messages instead of checking the class
+ * again; see {@link SourceChecker}.
+ *
+ * Entries are stored under a name derived from the configuration of the
+ * checker (its class, the processor options, the class path, and the
+ * framework itself) and the name of the class, so that different
+ * configurations do not share entries.  The
+ * cache directory can be shared between sequential compilations:  entries
+ * are written to a temporary file that is then renamed, and an unreadable
+ * entry is simply re-created.
+ */
+public class IncrementalCache {
+
+    /**
+     * Version of the format of the entries.  Change it whenever the
+     * format changes, so that stale entries are ignored.
+     */
+    private static final String FORMAT_VERSION = "2";
+
+    /** File extension of cache entries. */
+    private static final String EXTENSION = ".checkcache";
+
+    /** The directory that holds the cache entries. */
+    private final File directory;
+
+    /** The configuration of the checker, part of the name of every entry. */
+    private final String configuration;
+
+    /**
+     * Creates a cache that stores its entries in {@code directory}.
+     * The directory is created if it does not exist.
+     *
+     * @param directory the cache directory
+     * @param configuration a description of everything besides the
+     *        source that influences the result of checking, such as the
+     *        checker and its options
+     */
+    public IncrementalCache(File directory, String configuration) {
+        this.directory = directory;
+        this.configuration = configuration;
+        if (!directory.isDirectory() && !directory.mkdirs()
+                && !directory.isDirectory()) {
+            ErrorReporter.errorAbort("IncrementalCache: cannot create cache directory " + directory);
+        }
+    }
+
+    /** The cached result of checking a top-level class. */
+    public static class Entry {
+        private final String sourceChecksum;
+        private final List<Dependency> dependencies;
+        private final List<Message> messages;
+
+        public Entry(String sourceChecksum, List<Dependency> dependencies, List<Message> messages) {
+            this.sourceChecksum = sourceChecksum;
+            this.dependencies = Collections.unmodifiableList(dependencies);
+            this.messages = Collections.unmodifiableList(messages);
+        }
+
+        /** Returns the checksum of the source of the compilation unit. */
+        public String getSourceChecksum() {
+            return sourceChecksum;
+        }
+
+        /** Returns the declarations of other compilation units that checking used. */
+        public List<Dependency> getDependencies() {
+            return dependencies;
+        }
+
+        /** Returns the messages that checking issued, in order. */
+        public List<Message> getMessages() {
+            return messages;
+        }
+    }
+
+    /** A class or package that was used by a checker, and the checksum of its signature. */
+    public static class Dependency {
+        /** The class name of the checker that used the declaration. */
+        public final String checker;
+        /** The key of the declaration; see {@link IncrementalCache#elementKey}. */
+        public final String element;
+        /** The checksum of the signature of the declaration. */
+        public final String signature;
+
+        public Dependency(String checker, String element, String signature) {
+            this.checker = checker;
+            this.element = element;
+            this.signature = signature;
+        }
+    }
+
+    /** A message issued while checking a class. */
+    public static class Message {
+        public final Diagnostic.Kind kind;
+        public final String text;
+        /**
+         * The start and end positions of the tree the message is about,
+         * or -1 for a message without a position.
+         */
+        public final long start, end;
+        /** The kind of the tree the message is about, or null. */
+        public final /*@Nullable*/ String treeKind;
+        /** True if the message is about the element declared by the tree. */
+        public final boolean onElement;
+
+        public Message(Diagnostic.Kind kind, String text, long start, long end,
+                /*@Nullable*/ String treeKind, boolean onElement) {
+            this.kind = kind;
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            this.treeKind = treeKind;
+            this.onElement = onElement;
+        }
+    }
+
+    /**
+     * Reads the entry for a class.
+     *
+     * @param key a key that identifies the class, such as its source file
+     *        and qualified name
+     * @return the entry, or null if there is no usable entry
+     */
+    public /*@Nullable*/ Entry read(String key) {
+        File file = entryFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (!in.readUTF().equals(FORMAT_VERSION)) {
+                    return null;
+                }
+                String sourceChecksum = in.readUTF();
+                int n = in.readInt();
+                List<Dependency> dependencies = new ArrayList<Dependency>(n);
+                for (int i = 0; i < n; ++i) {
+                    dependencies.add(new Dependency(in.readUTF(), in.readUTF(), in.readUTF()));
+                }
+                n = in.readInt();
+                List<Message> messages = new ArrayList<Message>(n);
+                for (int i = 0; i < n; ++i) {
+                    Diagnostic.Kind kind = Diagnostic.Kind.valueOf(in.readUTF());
+                    String text = in.readUTF();
+                    long start = in.readLong();
+                    long end = in.readLong();
+                    String treeKind = in.readBoolean() ? in.readUTF() : null;
+                    boolean onElement = in.readBoolean();
+                    messages.add(new Message(kind, text, start, end, treeKind, onElement));
+                }
+                return new Entry(sourceChecksum, dependencies, messages);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // A truncated or corrupt entry; it will be overwritten.
+            return null;
+        } catch (RuntimeException e) {
+            // For example, an unknown diagnostic kind.
+            return null;
+        }
+    }
+
+    /**
+     * Writes the entry for a class.  Failure to write is not an error;
+     * the class will just be checked again next time.
+     */
+    public void write(String key, Entry entry) {
+        File file = entryFile(key);
+        File tmp = null;
+        try {
+            tmp = File.createTempFile(file.getName(), ".tmp", directory);
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeUTF(FORMAT_VERSION);
+                out.writeUTF(entry.getSourceChecksum());
+                out.writeInt(entry.getDependencies().size());
+                for (Dependency dependency : entry.getDependencies()) {
+                    out.writeUTF(dependency.checker);
+                    out.writeUTF(dependency.element);
+                    out.writeUTF(dependency.signature);
+                }
+                out.writeInt(entry.getMessages().size());
+                for (Message message : entry.getMessages()) {
+                    out.writeUTF(message.kind.name());
+                    out.writeUTF(message.text);
+                    out.writeLong(message.start);
+                    out.writeLong(message.end);
+                    out.writeBoolean(message.treeKind != null);
+                    if (message.treeKind != null) {
+                        out.writeUTF(message.treeKind);
+                    }
+                    out.writeBoolean(message.onElement);
+                }
+            } finally {
+                out.close();
+            }
+            // Replace the stale entry, if any.
+            if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+                tmp.delete();
+            }
+        } catch (IOException e) {
+            // Also thrown for strings that are too long for writeUTF.
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private File entryFile(String key) {
+        return new File(directory, checksum(configuration + '\n' + key) + EXTENSION);
+    }
+
+    /**
+     * Returns the declaration whose signature stands for {@code elt}:
+     * a member, parameter, or type parameter stands for the class that
+     * declares it, so that a change to any member or supertype of the
+     * class, such as a new overload, is noticed.  Returns null for an
+     * element that has no signature that other compilation units can use,
+     * such as a local variable.
+     */
+    public static /*@Nullable*/ Element dependencyElement(Element elt) {
+        switch (elt.getKind()) {
+        case PARAMETER:
+            return dependencyElement(elt.getEnclosingElement());
+        case TYPE_PARAMETER:
+            return dependencyElement(((TypeParameterElement) elt).getGenericElement());
+        case FIELD:
+        case ENUM_CONSTANT:
+        case METHOD:
+        case CONSTRUCTOR:
+            return dependencyElement(elt.getEnclosingElement());
+        case PACKAGE:
+        case CLASS:
+        case INTERFACE:
+        case ENUM:
+        case ANNOTATION_TYPE:
+            return elt;
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Returns a key that identifies the declaration {@code elt} across
+     * compilations, or null if there is none, for example for an
+     * anonymous class.
+     *
+     * @param elt a declaration returned by {@link #dependencyElement}
+     * @see #resolveElementKey
+     */
+    public static /*@Nullable*/ String elementKey(Element elt, Types types) {
+        switch (elt.getKind()) {
+        case PACKAGE:
+            return "P " + ((PackageElement) elt).getQualifiedName();
+        case CLASS:
+        case INTERFACE:
+        case ENUM:
+        case ANNOTATION_TYPE: {
+            String name = ((TypeElement) elt).getQualifiedName().toString();
+            return name.isEmpty() ? null : "T " + name;
+        }
+        case FIELD:
+        case ENUM_CONSTANT:
+        case METHOD:
+        case CONSTRUCTOR: {
+            String type = elementKey(elt.getEnclosingElement(), types);
+            if (type == null) {
+                return null;
+            }
+            if (elt.getKind() == ElementKind.FIELD || elt.getKind() == ElementKind.ENUM_CONSTANT) {
+                return "F " + type.substring(2) + " " + elt.getSimpleName();
+            }
+            return "M " + type.substring(2) + " " + elt.getSimpleName() + " " + types.erasure(elt.asType());
+        }
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Returns the declaration with the given key in the current
+     * compilation, or null if there is no such declaration.
+     *
+     * @see #elementKey
+     */
+    public static /*@Nullable*/ Element resolveElementKey(String key, Elements elements, Types types) {
+        if (key.length() < 2) {
+            return null;
+        }
+        String rest = key.substring(2);
+        switch (key.charAt(0)) {
+        case 'P':
+            return elements.getPackageElement(rest);
+        case 'T':
+            return elements.getTypeElement(rest);
+        case 'F':
+        case 'M': {
+            int space = rest.indexOf(' ');
+            if (space < 0) {
+                return null;
+            }
+            TypeElement type = elements.getTypeElement(rest.substring(0, space));
+            if (type == null) {
+                return null;
+            }
+            for (Element member : type.getEnclosedElements()) {
+                if (key.equals(elementKey(member, types))) {
+                    return member;
+                }
+            }
+            return null;
+        }
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Returns a hexadecimal SHA-1 checksum of the format version and
+     * {@code contents}.
+     */
+    public static String checksum(CharSequence contents) {
+        MessageDigest md = newDigest();
+        md.update(contents.toString().getBytes(StandardCharsets.UTF_8));
+        return toHex(md.digest());
+    }
+
+    /**
+     * Returns a hexadecimal SHA-1 checksum of the format version and the
+     * contents of {@code file}, or null if the file cannot be read.
+     */
+    public static /*@Nullable*/ String checksum(File file) {
+        MessageDigest md = newDigest();
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    md.update(buffer, 0, n);
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return toHex(md.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            ErrorReporter.errorAbort("IncrementalCache: SHA-1 is not available", e);
+            return null; // dead code
+        }
+        md.update(FORMAT_VERSION.getBytes(StandardCharsets.UTF_8));
+        return md;
+    }
+
+    private static String toHex(byte[] digest) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+}
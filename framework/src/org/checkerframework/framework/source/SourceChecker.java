@@ -20,24 +20,32 @@ import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.ErrorHandler;
 import org.checkerframework.javacutil.ErrorReporter;
 import org.checkerframework.javacutil.InternalUtils;
+import org.checkerframework.javacutil.Profiler;
 import org.checkerframework.javacutil.TreeUtils;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryPoolMXBean;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Stack;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 
 import javax.annotation.processing.AbstractProcessor;
@@ -53,6 +61,9 @@ import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
 import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileManager;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
 
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.CompilationUnitTree;
@@ -61,6 +72,7 @@ import com.sun.source.tree.Tree;
 import com.sun.source.tree.VariableTree;
 import com.sun.source.util.SourcePositions;
 import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
 import com.sun.source.util.Trees;
 import com.sun.tools.javac.processing.JavacProcessingEnvironment;
 import com.sun.tools.javac.util.Context;
@@ -206,6 +218,51 @@ import com.sun.tools.javac.util.Log;
     // that were not found on the class path
     // org.checkerframework.framework.stub.StubParser.warnIfNotFound
     "stubWarnIfNotFound",
+    // Directory in which to cache parsed stub files between compilations
+    // org.checkerframework.framework.stub.StubCache
+    "stubCache",
+    // Only read the declarations of a type in the stub files when it is used
+    // org.checkerframework.framework.type.AnnotatedTypeFactory.parseLazyStubs
+    "stubLazy",
+
+    ///
+    /// Caches of the type factory
+    ///
+
+    // Capacity of each cache of annotated types and declarations
+    // org.checkerframework.framework.type.AnnotatedTypeFactory.createCache(String)
+    "atfCacheSize",
+    // Eviction policy of those caches: fifo (the default) or lru
+    // org.checkerframework.framework.type.AnnotatedTypeFactory.createCache(String)
+    "atfCacheEviction",
+    // Capacity of the cache of the annotated types of members declared in
+    // class files (default 10000; 0 disables the cache)
+    // org.checkerframework.framework.type.AnnotatedTypeFactory.createSignatureCache()
+    "signatureCacheSize",
+    // Directory in which to store that cache between compilations
+    // org.checkerframework.framework.type.SignatureCache
+    "signatureCache",
+    // Directory of the precomputed annotations of the annotated JDK
+    // org.checkerframework.framework.type.AnnotatedJdkIndex
+    "jdkIndex",
+    // Build that index from the classes of the given annotated JDK jar
+    // org.checkerframework.common.basetype.BaseTypeChecker.typeProcessingOver()
+    "jdkIndexBuild",
+
+    // Release the dataflow results of each top-level class once it has
+    // been checked, so that memory use depends on the size of the largest
+    // class rather than of the largest compilation unit
+    // org.checkerframework.framework.type.GenericAnnotatedTypeFactory.releaseFlowResults(ClassTree)
+    "releaseFlowResults",
+
+    ///
+    /// Incremental checking
+    ///
+
+    // Cache the results of checking each class in the given directory,
+    // and reuse them while the class and what it uses do not change
+    // org.checkerframework.framework.source.SourceChecker.checkClass
+    "incrementalCache",
 
     ///
     /// Debugging
@@ -277,6 +334,17 @@ import com.sun.tools.javac.util.Log;
     // org.checkerframework.framework.source.SourceChecker.shutdownHook()
     "resourceStats",
 
+    // Whether to output hit, miss, and eviction counts of the caches
+    // of the type factory at the end of type processing
+    // org.checkerframework.common.basetype.BaseTypeChecker.typeProcessingOver()
+    "atfCacheStats",
+
+    // Write the wall time and allocated bytes of stub parsing, CFG
+    // construction, flow analysis, type argument inference, and visits of
+    // each tree kind, per checker and source file, to the given JSON file
+    // org.checkerframework.framework.source.SourceChecker.typeProcessingEnd()
+    "profile",
+
 })
 public abstract class SourceChecker
     extends AbstractTypeProcessor implements ErrorHandler, CFContext, OptionConfiguration {
@@ -310,6 +378,32 @@ public abstract class SourceChecker
     /** The visitor to use. */
     protected SourceVisitor<?, ?> visitor;
 
+    /**
+     * The cache of the results of checking classes, set by the
+     * -AincrementalCache option; null if every class is checked.  Only
+     * used by the checker that calls all others.
+     */
+    private /*@Nullable*/ IncrementalCache incrementalCache = null;
+
+    /**
+     * This checker and the checkers it calls, by class name, if this is the
+     * checker that calls all others.  The dependencies in the incremental
+     * cache name the checker that used them.
+     */
+    final Map<String, SourceChecker> incrementalCheckers = new HashMap<String, SourceChecker>();
+
+    /**
+     * The checksums of the signatures of dependencies that were computed
+     * in this compilation, by checker and element key.
+     */
+    private final Map<String, String> signatureChecksums = new HashMap<String, String>();
+
+    /**
+     * What checking the current class used and issued, or null.  Only set
+     * on the checker that calls all others; see {@link #getRecording()}.
+     */
+    private /*@Nullable*/ Recording currentRecording = null;
+
     /** Keys for warning suppressions specified on the command line */
     private String /*@Nullable*/ [] suppressWarnings;
 
@@ -708,9 +802,10 @@ public abstract class SourceChecker
                 processingEnv.getOptions().containsKey("printErrorStack")) &&
                 ce.getCause() != null) {
 
-            if (this.currentRoot != null &&
-                    this.currentRoot.getSourceFile() != null) {
-                msg.append("\nCompilation unit: " + this.currentRoot.getSourceFile().getName());
+            CompilationUnitTree root = currentRoot;
+            if (root != null &&
+                    root.getSourceFile() != null) {
+                msg.append("\nCompilation unit: " + root.getSourceFile().getName());
             }
 
             msg.append("\nException: " +
@@ -733,7 +828,7 @@ public abstract class SourceChecker
         if (this.messager == null) {
             messager = processingEnv.getMessager();
         }
-        this.messager.printMessage(javax.tools.Diagnostic.Kind.ERROR, msg);
+        printMessage(javax.tools.Diagnostic.Kind.ERROR, msg, null, null);
     }
 
     /**
@@ -752,6 +847,12 @@ public abstract class SourceChecker
         try {
             super.typeProcessingStart();
             initChecker();
+            if (parentChecker == null && hasOption("profile")) {
+                Profiler.enable();
+            }
+            if (parentChecker == null && hasOption("incrementalCache")) {
+                incrementalCache = createIncrementalCache(getOption("incrementalCache"));
+            }
             if (this.messager == null) {
                 messager = processingEnv.getMessager();
                 messager.printMessage(
@@ -792,6 +893,12 @@ public abstract class SourceChecker
 
         this.visitor = createSourceVisitor();
 
+        SourceChecker root = this;
+        while (root.parentChecker != null) {
+            root = root.parentChecker;
+        }
+        root.incrementalCheckers.put(getClass().getName(), this);
+
         // TODO: hack to clear out static caches.
         // When the {@link org.checkerframework.qualframework.util.QualifierContext}
         // gets used by all utilities, this shouldn't be an issue anymore.
@@ -857,6 +964,42 @@ public abstract class SourceChecker
             return;
         }
 
+        warnAboutSourceLevel();
+
+        Log log = Log.instance(((JavacProcessingEnvironment)processingEnv).getContext());
+        if (!skipForJavaErrors(log, p)) {
+            if (p.getCompilationUnit() != currentRoot) {
+                currentRoot = p.getCompilationUnit();
+                visitor.setRoot(currentRoot);
+            }
+
+            try {
+                visit(visitor, p);
+            } finally {
+                // Also add possibly deferred diagnostics, which will get published back in
+                // AbstractTypeProcessor.
+                this.errsOnLastExit = log.nerrors;
+            }
+        }
+    }
+
+    /** Visits the attributed tree of a class, and logs the errors of the checker. */
+    private void visit(SourceVisitor<?, ?> v, TreePath p) {
+        Object previousContext = Profiler.setContext(getClass().getName(),
+                p.getCompilationUnit().getSourceFile().getName());
+        try {
+            v.visit(p);
+        } catch (CheckerError ce) {
+            logCheckerError(ce);
+        } catch (Throwable t) {
+            logCheckerError(wrapThrowableAsCheckerError("SourceChecker.typeProcess", t, p));
+        } finally {
+            Profiler.restoreContext(previousContext);
+        }
+    }
+
+    /** Warns once if the source level does not support type annotations. */
+    private void warnAboutSourceLevel() {
         Context context = ((JavacProcessingEnvironment)processingEnv).getContext();
         com.sun.tools.javac.code.Source source = com.sun.tools.javac.code.Source.instance(context);
         if ((! warnedAboutSourceLevel) && (! source.allowTypeAnnotations())) {
@@ -864,38 +1007,501 @@ public abstract class SourceChecker
                                   "-source " + source.name + " does not support type annotations");
             warnedAboutSourceLevel = true;
         }
+    }
 
-        Log log = Log.instance(context);
+    /**
+     * Returns true if the class should not be checked, because the
+     * compiler reported errors since the last class was checked, or
+     * because its compilation unit contains errors.
+     */
+    private boolean skipForJavaErrors(Log log, TreePath p) {
         if (log.nerrors > this.errsOnLastExit) {
             this.errsOnLastExit = log.nerrors;
             previousErrorCompilationUnit = p.getCompilationUnit();
-            return;
+            return true;
         }
         if (p.getCompilationUnit() == previousErrorCompilationUnit) {
             // If the same compilation unit was seen with an error before,
             // skip it. This is in particular necessary for Java errors, which
             // show up once, but further calls to typeProcess will happen.
             // See Issue 346.
-            return;
+            return true;
         } else {
             previousErrorCompilationUnit = null;
         }
-        if (p.getCompilationUnit() != currentRoot) {
-            currentRoot = p.getCompilationUnit();
-            visitor.setRoot(currentRoot);
+        return false;
+    }
+
+    // **********************************************************************
+    // Scheduling of classes
+    // **********************************************************************
+
+    /**
+     * {@inheritDoc}
+     *
+     * Checks the class, or reuses the result of an earlier check if the
+     * -AincrementalCache option is given; see {@link #checkClass}.
+     */
+    @Override
+    protected void scheduleTypeProcess(TypeElement e, TreePath p) {
+        checkClass(e, p);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Writes the file of the -Aprofile option.  Unlike typeProcessingOver,
+     * this method is also called if there were errors.
+     */
+    @Override
+    protected void typeProcessingEnd() {
+        if (parentChecker == null && Profiler.isEnabled()) {
+            writeProfile();
         }
+    }
 
-        // Visit the attributed tree.
+    /**
+     * Writes the measurements of the -Aprofile option to the file given
+     * as its value.  If no file is given, they are written to
+     * <em>Checker</em>-profile-<em>time</em>-<em>pid</em>.json in the
+     * current directory, so that each compilation of a build writes its
+     * own file.
+     */
+    private void writeProfile() {
+        String file = getOption("profile");
+        if (file == null || file.isEmpty()) {
+            String runtime = ManagementFactory.getRuntimeMXBean().getName();
+            // The name of the runtime is pid@host on common JVMs.
+            String pid = runtime.contains("@") ? runtime.substring(0, runtime.indexOf('@')) : runtime;
+            file = getClass().getSimpleName() + "-profile-"
+                    + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + "-" + pid + ".json";
+        }
         try {
-            visitor.visit(p);
-        } catch (CheckerError ce) {
-            logCheckerError(ce);
-        } catch (Throwable t) {
-            logCheckerError(wrapThrowableAsCheckerError("SourceChecker.typeProcess", t, p));
-        } finally {
-            // Also add possibly deferred diagnostics, which will get published back in
-            // AbstractTypeProcessor.
+            Profiler.writeJson(new File(file), getClass().getName());
+        } catch (IOException e) {
+            messager.printMessage(javax.tools.Diagnostic.Kind.WARNING,
+                    "Cannot write profile to " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prints a message using the javac messager, and records it for the
+     * -AincrementalCache option.
+     *
+     * @param source the {@link Element} or {@link Tree} the message is
+     *        about, or null for a message without a position
+     * @param root the compilation unit that contains {@code source}, if it
+     *        is a Tree
+     */
+    private void printMessage(Diagnostic.Kind kind, CharSequence text,
+            /*@Nullable*/ Object source, /*@Nullable*/ CompilationUnitTree root) {
+        Recording recording = getRecording();
+        if (recording != null) {
+            recording.addMessage(kind, text, source, root);
+        }
+        if (source instanceof Element) {
+            messager.printMessage(kind, text, (Element) source);
+        } else if (source instanceof Tree) {
+            Trees.instance(processingEnv).printMessage(kind, text, (Tree) source, root);
+        } else {
+            messager.printMessage(kind, text);
+        }
+    }
+
+    // **********************************************************************
+    // Incremental checking
+    // **********************************************************************
+
+    /**
+     * Creates the cache for the -AincrementalCache option.  The
+     * configuration of the cache is {@link #getConfiguration}, so that
+     * changing any part of it invalidates the cached results.
+     */
+    private IncrementalCache createIncrementalCache(/*@Nullable*/ String directory) {
+        if (directory == null || directory.isEmpty()) {
+            userErrorAbort("-AincrementalCache requires a directory");
+            return null; // dead code
+        }
+        return new IncrementalCache(new File(directory), getConfiguration());
+    }
+
+    /**
+     * Returns a description of the checker and its options, for caches
+     * whose entries are only valid for the same configuration.  It
+     * consists of the checker, all processor options, the source version,
+     * the class path, and the version and jar files of the framework and
+     * the checker.
+     */
+    public String getConfiguration() {
+        StringBuilder configuration = new StringBuilder(getClass().getName());
+        for (Map.Entry<String, String> option : new TreeMap<String, String>(processingEnv.getOptions()).entrySet()) {
+            configuration.append('\n').append(option.getKey()).append('=').append(option.getValue());
+        }
+        configuration.append("\n-source ").append(processingEnv.getSourceVersion());
+        configuration.append("\n-classpath ").append(getClassPath());
+        configuration.append("\nframework ").append(codeSignature(SourceChecker.class));
+        configuration.append("\nchecker ").append(codeSignature(getClass()));
+        return configuration.toString();
+    }
+
+    /**
+     * Returns the class path of the compilation, or the empty string if
+     * the file manager does not tell.
+     */
+    private String getClassPath() {
+        Context context = ((JavacProcessingEnvironment) processingEnv).getContext();
+        JavaFileManager fileManager = context.get(JavaFileManager.class);
+        StringBuilder classPath = new StringBuilder();
+        if (fileManager instanceof StandardJavaFileManager) {
+            Iterable<? extends File> path =
+                    ((StandardJavaFileManager) fileManager).getLocation(StandardLocation.CLASS_PATH);
+            if (path != null) {
+                for (File entry : path) {
+                    if (classPath.length() > 0) {
+                        classPath.append(File.pathSeparatorChar);
+                    }
+                    classPath.append(entry.getAbsolutePath());
+                }
+            }
+        }
+        return classPath.toString();
+    }
+
+    /** Memoizes {@link #codeSignature}, by location. */
+    private static final Map<String, String> codeSignatures = new HashMap<String, String>();
+
+    /**
+     * Returns the implementation version of the package of {@code c} and
+     * a checksum of the jar file it was loaded from, so that a new build
+     * of the framework or of a checker invalidates the caches.  Classes
+     * loaded from a directory, as in a development build, are only
+     * described by their location.
+     */
+    private static String codeSignature(Class<?> c) {
+        Package pkg = c.getPackage();
+        String version = pkg == null ? null : pkg.getImplementationVersion();
+        CodeSource source = c.getProtectionDomain().getCodeSource();
+        if (source == null || source.getLocation() == null) {
+            return String.valueOf(version);
+        }
+        String location = source.getLocation().toString();
+        synchronized (codeSignatures) {
+            String signature = codeSignatures.get(location);
+            if (signature == null) {
+                String checksum = null;
+                try {
+                    File file = new File(source.getLocation().toURI());
+                    if (file.isFile()) {
+                        checksum = IncrementalCache.checksum(file);
+                    }
+                } catch (URISyntaxException | IllegalArgumentException e) {
+                    // Not a file; only the location identifies the code.
+                }
+                signature = version + " " + location + " " + checksum;
+                codeSignatures.put(location, signature);
+            }
+            return signature;
+        }
+    }
+
+    /**
+     * Checks a class with {@link #typeProcess}.  If the -AincrementalCache
+     * option is given and neither the compilation unit of the class nor
+     * the declarations that its last check used changed since, the
+     * messages of the last check are issued again instead.
+     */
+    private void checkClass(TypeElement e, TreePath p) {
+        if (incrementalCache == null || e == null || p == null) {
+            typeProcess(e, p);
+            return;
+        }
+        Log log = Log.instance(((JavacProcessingEnvironment)processingEnv).getContext());
+        if (log.nerrors > this.errsOnLastExit
+                || p.getCompilationUnit() == previousErrorCompilationUnit) {
+            // typeProcess skips the class because of Java errors.
+            typeProcess(e, p);
+            return;
+        }
+
+        CompilationUnitTree root = p.getCompilationUnit();
+        String sourceChecksum;
+        try {
+            sourceChecksum = IncrementalCache.checksum(root.getSourceFile().getCharContent(true));
+        } catch (IOException ex) {
+            typeProcess(e, p);
+            return;
+        }
+        String key = root.getSourceFile().toUri() + "#" + e.getQualifiedName();
+
+        IncrementalCache.Entry entry = incrementalCache.read(key);
+        if (entry != null && entry.getSourceChecksum().equals(sourceChecksum)
+                && dependenciesUnchanged(entry) && replay(entry, p)) {
+            warnAboutSourceLevel();
             this.errsOnLastExit = log.nerrors;
+            return;
+        }
+
+        Recording recording = new Recording(p);
+        currentRecording = recording;
+        try {
+            typeProcess(e, p);
+        } finally {
+            currentRecording = null;
+        }
+        List<IncrementalCache.Dependency> dependencies = recording.getDependencies();
+        if (dependencies != null) {
+            incrementalCache.write(key,
+                    new IncrementalCache.Entry(sourceChecksum, dependencies, recording.messages));
+        }
+    }
+
+    /**
+     * Records that the class that is being checked used the declaration
+     * {@code elt}.  The type factory calls this method whenever it
+     * determines the type of an element; it does nothing unless the
+     * -AincrementalCache option is given.
+     */
+    public void recordDependency(Element elt) {
+        Recording recording = getRecording();
+        if (recording != null) {
+            recording.addElement(this, elt);
+        }
+    }
+
+    /**
+     * Returns what checking the current class used and issued so far, or
+     * null if the class is not recorded.  The checker that calls all
+     * others holds the recording, which its subcheckers add to.
+     */
+    private /*@Nullable*/ Recording getRecording() {
+        SourceChecker root = this;
+        while (root.parentChecker != null) {
+            root = root.parentChecker;
+        }
+        return root.currentRecording;
+    }
+
+    /**
+     * Returns a description of the declaration {@code elt} as this checker
+     * sees it, including its qualifiers, or null if there is none.  A class
+     * is checked again if the description of a declaration that its last
+     * check used changed.
+     *
+     * The default implementation returns null, so that classes that use
+     * declarations of other compilation units are always checked again.
+     *
+     * @param elt a type, field, method, constructor, or package
+     */
+    protected /*@Nullable*/ String dependencySignature(Element elt) {
+        return null;
+    }
+
+    /**
+     * Returns the checksum of the signature of {@code elt} as seen by
+     * {@code checker}, or null if it has none.
+     */
+    private /*@Nullable*/ String signatureChecksum(SourceChecker checker, Element elt, String elementKey) {
+        String memoKey = checker.getClass().getName() + '\n' + elementKey;
+        String checksum = signatureChecksums.get(memoKey);
+        if (checksum == null) {
+            String signature;
+            try {
+                signature = checker.dependencySignature(elt);
+            } catch (RuntimeException ex) {
+                // The class is checked again, which reports the problem.
+                return null;
+            }
+            if (signature == null) {
+                return null;
+            }
+            checksum = IncrementalCache.checksum(signature);
+            signatureChecksums.put(memoKey, checksum);
+        }
+        return checksum;
+    }
+
+    /** Returns true if no dependency of a cache entry changed. */
+    private boolean dependenciesUnchanged(IncrementalCache.Entry entry) {
+        Elements elements = getElementUtils();
+        Types types = getTypeUtils();
+        for (IncrementalCache.Dependency dependency : entry.getDependencies()) {
+            SourceChecker checker = incrementalCheckers.get(dependency.checker);
+            if (checker == null) {
+                return false;
+            }
+            Element elt = IncrementalCache.resolveElementKey(dependency.element, elements, types);
+            if (elt == null
+                    || !dependency.signature.equals(signatureChecksum(checker, elt, dependency.element))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Issues the messages of a cache entry for the class {@code p}.
+     *
+     * @return false, without issuing any message, if a tree that a
+     *         message is about cannot be found
+     */
+    private boolean replay(IncrementalCache.Entry entry, TreePath p) {
+        final Map<String, TreePath> paths = new HashMap<String, TreePath>();
+        for (IncrementalCache.Message message : entry.getMessages()) {
+            paths.put(positionKey(message.start, message.end, message.treeKind), null);
+        }
+        final CompilationUnitTree root = p.getCompilationUnit();
+        if (!paths.isEmpty()) {
+            final SourcePositions positions = trees.getSourcePositions();
+            paths.put(positionKey(positions.getStartPosition(root, p.getLeaf()),
+                    positions.getEndPosition(root, p.getLeaf()), p.getLeaf().getKind().name()), p);
+            new TreePathScanner<Void, Void>() {
+                @Override
+                public Void scan(Tree tree, Void v) {
+                    if (tree != null) {
+                        String key = positionKey(positions.getStartPosition(root, tree),
+                                positions.getEndPosition(root, tree), tree.getKind().name());
+                        if (paths.containsKey(key) && paths.get(key) == null) {
+                            paths.put(key, new TreePath(getCurrentPath(), tree));
+                        }
+                    }
+                    return super.scan(tree, v);
+                }
+            }.scan(p, null);
+        }
+
+        List<Object> sources = new ArrayList<Object>(entry.getMessages().size());
+        for (IncrementalCache.Message message : entry.getMessages()) {
+            TreePath path = paths.get(positionKey(message.start, message.end, message.treeKind));
+            Object source = path == null ? null
+                    : message.onElement ? trees.getElement(path) : path.getLeaf();
+            if (source == null) {
+                return false;
+            }
+            sources.add(source);
+        }
+        for (int i = 0; i < sources.size(); ++i) {
+            IncrementalCache.Message message = entry.getMessages().get(i);
+            printMessage(message.kind, message.text, sources.get(i), root);
+        }
+        return true;
+    }
+
+    private static String positionKey(long start, long end, /*@Nullable*/ String treeKind) {
+        return start + ":" + end + ":" + treeKind;
+    }
+
+    /**
+     * The declarations that the checkers used and the messages that they
+     * issued while checking a class, for the incremental cache.
+     */
+    private class Recording {
+        final CompilationUnitTree root;
+        final SourcePositions positions;
+        /** The positions of the class. */
+        final long start, end;
+        /** The elements whose types the checkers determined, per checker. */
+        final Map<SourceChecker, Set<Element>> elements = new LinkedHashMap<SourceChecker, Set<Element>>();
+        final List<IncrementalCache.Message> messages = new ArrayList<IncrementalCache.Message>();
+        /** False if a message cannot be replayed. */
+        boolean cacheable = true;
+
+        Recording(TreePath p) {
+            this.root = p.getCompilationUnit();
+            this.positions = trees.getSourcePositions();
+            this.start = positions.getStartPosition(root, p.getLeaf());
+            this.end = positions.getEndPosition(root, p.getLeaf());
+        }
+
+        void addElement(SourceChecker checker, Element elt) {
+            Set<Element> used = elements.get(checker);
+            if (used == null) {
+                used = new HashSet<Element>();
+                elements.put(checker, used);
+            }
+            used.add(elt);
+        }
+
+        /**
+         * Records a message.  Only messages about a tree or an element
+         * within the class can be replayed.
+         */
+        void addMessage(Diagnostic.Kind kind, CharSequence text,
+                /*@Nullable*/ Object source, /*@Nullable*/ CompilationUnitTree root) {
+            Tree tree = null;
+            boolean onElement = false;
+            if (source instanceof Tree && root == this.root) {
+                tree = (Tree) source;
+            } else if (source instanceof Element) {
+                TreePath path = trees.getPath((Element) source);
+                if (path != null && path.getCompilationUnit() == this.root) {
+                    tree = path.getLeaf();
+                    onElement = true;
+                }
+            }
+            if (tree == null) {
+                cacheable = false;
+                return;
+            }
+            long treeStart = positions.getStartPosition(this.root, tree);
+            long treeEnd = positions.getEndPosition(this.root, tree);
+            if (treeStart < start || treeEnd > end) {
+                cacheable = false;
+                return;
+            }
+            messages.add(new IncrementalCache.Message(kind, text.toString(),
+                    treeStart, treeEnd, tree.getKind().name(), onElement));
+        }
+
+        /**
+         * Returns the declarations of other compilation units that the
+         * checkers used, or null if the result of checking the class
+         * cannot be cached.
+         */
+        /*@Nullable*/ List<IncrementalCache.Dependency> getDependencies() {
+            if (!cacheable) {
+                return null;
+            }
+            Types types = getTypeUtils();
+            List<IncrementalCache.Dependency> dependencies = new ArrayList<IncrementalCache.Dependency>();
+            for (Map.Entry<SourceChecker, Set<Element>> used : elements.entrySet()) {
+                SourceChecker checker = used.getKey();
+                Set<String> keys = new HashSet<String>();
+                List<Element> declarations = new ArrayList<Element>();
+                for (Element elt : used.getValue()) {
+                    Element declaration = IncrementalCache.dependencyElement(elt);
+                    if (declaration == null) {
+                        // A local variable; it is part of the source.
+                        continue;
+                    }
+                    declarations.add(declaration);
+                    if (declaration instanceof TypeElement) {
+                        // Members of supertypes take part in the lookup of
+                        // members of the class.
+                        declarations.addAll(ElementUtils.getSuperTypes((TypeElement) declaration));
+                    }
+                }
+                for (Element declaration : declarations) {
+                    TreePath path = trees.getPath(declaration);
+                    if (path != null && path.getCompilationUnit() == root) {
+                        // The source checksum covers the declaration.
+                        continue;
+                    }
+                    String key = IncrementalCache.elementKey(declaration, types);
+                    if (key == null) {
+                        return null;
+                    }
+                    if (!keys.add(key)) {
+                        continue;
+                    }
+                    String signature = signatureChecksum(checker, declaration, key);
+                    if (signature == null) {
+                        return null;
+                    }
+                    dependencies.add(new IncrementalCache.Dependency(
+                            checker.getClass().getName(), key, signature));
+                }
+            }
+            return dependencies;
         }
     }
 
@@ -1076,11 +1682,8 @@ public abstract class SourceChecker
         if (LINE_SEPARATOR != "\n") // interned
             messageText = messageText.replaceAll("\n", LINE_SEPARATOR);
 
-        if (source instanceof Element)
-            messager.printMessage(kind, messageText, (Element) source);
-        else if (source instanceof Tree)
-            Trees.instance(processingEnv).printMessage(kind, messageText, (Tree) source,
-                    currentRoot);
+        if (source instanceof Element || source instanceof Tree)
+            printMessage(kind, messageText, source, currentRoot);
         else
             ErrorReporter.errorAbort("invalid position source: "
                     + source.getClass().getName());
@@ -1111,7 +1714,7 @@ public abstract class SourceChecker
      */
     public void message(Diagnostic.Kind kind, String msg, Object... args) {
         if (messager != null) {
-            messager.printMessage(kind, String.format(msg, args));
+            printMessage(kind, String.format(msg, args), null, null);
         } else {
             System.err.println(kind + ": " + String.format(msg, args));
         }
@@ -1229,7 +1832,7 @@ public abstract class SourceChecker
         if (checkerKeys.isEmpty())
             return false;
 
-        /*@Nullable*/ TreePath path = trees.getPath(this.currentRoot, tree);
+        /*@Nullable*/ TreePath path = trees.getPath(currentRoot, tree);
         if (path == null)
             return false;
 
@@ -0,0 +1,315 @@
+package org.checkerframework.framework.stub;
+
+import org.checkerframework.javacutil.ErrorReporter;
+import org.checkerframework.stubparser.ast.IndexUnit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An on-disk cache of parsed stub files.
+ *
+ * The parsed form of a stub file, an {@link IndexUnit}, is stored in the
+ * cache directory in the compact binary form of {@link StubCacheCodec},
+ * under a name derived from a checksum of the stub file's contents.  A later compilation that reads a stub file
+ * with the same contents deserializes the {@link IndexUnit} instead of
+ * lexing and parsing the stub file again.
+ *
+ * Only the syntactic result of parsing is cached.  Resolving the stub file
+ * against the {@link javax.lang.model.element.Element}s of the current
+ * compilation is still done by the {@link StubParser}, because the elements
+ * differ between compilations and the result depends on the classpath.
+ *
+ * An entry starts with the format version and the checksum of the stub
+ * file, which are compared when the entry is read, so that an entry of
+ * another version or another stub file is not used.  The cache directory
+ * can be shared between sequential and concurrent compilations:  entries
+ * are written to a temporary file that is then renamed, and an unreadable
+ * entry is simply re-created.
+ *
+ * In addition, the stub files parsed by the process are kept in memory,
+ * with or without a cache directory, and are shared by all later
+ * compilations in the same process; see {@link #parseShared}.  Their
+ * parsed form is never modified, so the compilations may also run at the
+ * same time.
+ *
+ * @see org.checkerframework.framework.type.AnnotatedTypeFactory#buildIndexTypes()
+ */
+public class StubCache {
+
+    /**
+     * Version of the binary format.  Change it whenever
+     * {@link StubCacheCodec} changes, so that stale entries are ignored.
+     */
+    private static final String FORMAT_VERSION = "2";
+
+    /** File extension of cache entries. */
+    private static final String EXTENSION = ".stubcache";
+
+    /** The directory that holds the cache entries. */
+    private final File directory;
+
+    /**
+     * Number of stub files that were read from the cache.  Guarded by
+     * {@code this}, like {@link #misses}, because concurrent compilations
+     * may share the cache.
+     */
+    private int hits = 0;
+
+    /** Number of stub files that had to be parsed. */
+    private int misses = 0;
+
+    /**
+     * The stub files parsed by this process, by the checksum of their
+     * contents.  The garbage collector may clear the entries when memory
+     * runs low; such a stub file is parsed again.
+     */
+    private static final Map<String, SoftReference<IndexUnit>> shared = new HashMap<>();
+
+    /**
+     * Creates a cache that stores its entries in {@code directory}.
+     * The directory is created if it does not exist.
+     *
+     * @param directory the cache directory
+     */
+    public StubCache(File directory) {
+        this.directory = directory;
+        if (!directory.isDirectory() && !directory.mkdirs()
+                && !directory.isDirectory()) {
+            ErrorReporter.errorAbort("StubCache: cannot create cache directory " + directory);
+        }
+    }
+
+    /**
+     * Returns the parsed contents of the stub file read from {@code in},
+     * either from the cache or by parsing it and adding the result to
+     * the cache.
+     *
+     * @param filename name of the stub file, used in error messages
+     * @param in the contents of the stub file
+     * @return the parsed stub file
+     */
+    public IndexUnit parse(String filename, InputStream in) {
+        return parse(filename, readContents(filename, in));
+    }
+
+    /**
+     * Like {@link #parse(String, InputStream)}, for the contents of a stub
+     * file that were already read with {@link #readContents}.
+     */
+    public IndexUnit parse(String filename, byte[] contents) {
+        String checksum = checksum(contents);
+        IndexUnit index = getShared(checksum);
+        if (index != null) {
+            synchronized (this) {
+                hits++;
+            }
+            return index;
+        }
+
+        File entry = new File(directory, checksum + EXTENSION);
+        index = read(entry, checksum);
+        if (index != null) {
+            synchronized (this) {
+                hits++;
+            }
+            putShared(checksum, index);
+            return index;
+        }
+
+        synchronized (this) {
+            misses++;
+        }
+        index = StubParser.parseIndex(filename, new ByteArrayInputStream(contents));
+        write(entry, checksum, index);
+        putShared(checksum, index);
+        return index;
+    }
+
+    /**
+     * Returns the parsed contents of the stub file read from {@code in},
+     * either as parsed earlier by this process or by parsing it now.
+     * Unlike {@link #parse}, this does not use a cache directory.
+     *
+     * The parsed stub files are shared by the compilations that load the
+     * Checker Framework with the same class loader, for example all tasks
+     * of the compiler API that are given the same processor instance or
+     * that find the checker on the class path of the JVM, and all
+     * compilations of a {@link org.checkerframework.framework.util.CheckerDaemon}.
+     *
+     * @param filename name of the stub file, used in error messages
+     * @param in the contents of the stub file
+     * @return the parsed stub file
+     */
+    public static IndexUnit parseShared(String filename, InputStream in) {
+        return parseShared(filename, readContents(filename, in));
+    }
+
+    /**
+     * Like {@link #parseShared(String, InputStream)}, for the contents of a
+     * stub file that were already read with {@link #readContents}.
+     */
+    public static IndexUnit parseShared(String filename, byte[] contents) {
+        String checksum = checksum(contents);
+        IndexUnit index = getShared(checksum);
+        if (index == null) {
+            index = StubParser.parseIndex(filename, new ByteArrayInputStream(contents));
+            putShared(checksum, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the stub file with the given checksum that was parsed by
+     * this process, or null if there is none.
+     */
+    private static IndexUnit getShared(String checksum) {
+        synchronized (shared) {
+            SoftReference<IndexUnit> ref = shared.get(checksum);
+            IndexUnit index = ref == null ? null : ref.get();
+            if (ref != null && index == null) {
+                shared.remove(checksum);
+            }
+            return index;
+        }
+    }
+
+    private static void putShared(String checksum, IndexUnit index) {
+        synchronized (shared) {
+            shared.put(checksum, new SoftReference<>(index));
+        }
+    }
+
+    /** Returns the number of stub files that were read from the cache. */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    /** Returns the number of stub files that had to be parsed. */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Reads a cache entry.
+     *
+     * @param checksum the checksum of the stub file, as returned by
+     *        {@link #checksum}
+     * @return the cached stub file, or null if there is no usable entry
+     */
+    private static IndexUnit read(File entry, String checksum) {
+        if (!entry.isFile()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(entry)));
+            try {
+                if (!in.readUTF().equals(FORMAT_VERSION) || !in.readUTF().equals(checksum)) {
+                    return null;
+                }
+                return StubCacheCodec.read(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // A truncated or corrupt entry; it will be overwritten.
+            return null;
+        } catch (RuntimeException e) {
+            // For example, an out-of-range tag or string index.
+            return null;
+        }
+    }
+
+    /**
+     * Writes a cache entry.  Failure to write is not an error; the stub
+     * file will just be parsed again next time.  This is also the case
+     * for a stub file that {@link StubCacheCodec} cannot encode.
+     */
+    private void write(File entry, String checksum, IndexUnit index) {
+        File tmp = null;
+        try {
+            tmp = File.createTempFile(entry.getName(), ".tmp", directory);
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeUTF(FORMAT_VERSION);
+                out.writeUTF(checksum);
+                StubCacheCodec.write(index, out);
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(entry)) {
+                // Another compilation may have written the same entry.
+                tmp.delete();
+            }
+        } catch (IOException e) {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * Reads the contents of a stub file and closes {@code in}.
+     *
+     * @param filename name of the stub file, used in error messages
+     */
+    public static byte[] readContents(String filename, InputStream in) {
+        try {
+            return readFully(in);
+        } catch (IOException e) {
+            ErrorReporter.errorAbort("StubCache: could not read stub file " + filename, e);
+            return null; // dead code
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns a hexadecimal SHA-1 checksum of the format version and the
+     * contents of a stub file.
+     */
+    public static String checksum(byte[] contents) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            ErrorReporter.errorAbort("StubCache: SHA-1 is not available", e);
+            return null; // dead code
+        }
+        md.update(FORMAT_VERSION.getBytes());
+        md.update(contents);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest()) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,817 @@
+package org.checkerframework.framework.stub;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.checkerframework.stubparser.ast.CompilationUnit;
+import org.checkerframework.stubparser.ast.ImportDeclaration;
+import org.checkerframework.stubparser.ast.IndexUnit;
+import org.checkerframework.stubparser.ast.Node;
+import org.checkerframework.stubparser.ast.PackageDeclaration;
+import org.checkerframework.stubparser.ast.TypeParameter;
+import org.checkerframework.stubparser.ast.body.BodyDeclaration;
+import org.checkerframework.stubparser.ast.body.ClassOrInterfaceDeclaration;
+import org.checkerframework.stubparser.ast.body.ConstructorDeclaration;
+import org.checkerframework.stubparser.ast.body.EmptyMemberDeclaration;
+import org.checkerframework.stubparser.ast.body.EmptyTypeDeclaration;
+import org.checkerframework.stubparser.ast.body.EnumConstantDeclaration;
+import org.checkerframework.stubparser.ast.body.EnumDeclaration;
+import org.checkerframework.stubparser.ast.body.FieldDeclaration;
+import org.checkerframework.stubparser.ast.body.MethodDeclaration;
+import org.checkerframework.stubparser.ast.body.Parameter;
+import org.checkerframework.stubparser.ast.body.TypeDeclaration;
+import org.checkerframework.stubparser.ast.body.VariableDeclarator;
+import org.checkerframework.stubparser.ast.body.VariableDeclaratorId;
+import org.checkerframework.stubparser.ast.expr.AnnotationExpr;
+import org.checkerframework.stubparser.ast.expr.ArrayInitializerExpr;
+import org.checkerframework.stubparser.ast.expr.BinaryExpr;
+import org.checkerframework.stubparser.ast.expr.BooleanLiteralExpr;
+import org.checkerframework.stubparser.ast.expr.CharLiteralExpr;
+import org.checkerframework.stubparser.ast.expr.ClassExpr;
+import org.checkerframework.stubparser.ast.expr.DoubleLiteralExpr;
+import org.checkerframework.stubparser.ast.expr.EnclosedExpr;
+import org.checkerframework.stubparser.ast.expr.Expression;
+import org.checkerframework.stubparser.ast.expr.FieldAccessExpr;
+import org.checkerframework.stubparser.ast.expr.IntegerLiteralExpr;
+import org.checkerframework.stubparser.ast.expr.IntegerLiteralMinValueExpr;
+import org.checkerframework.stubparser.ast.expr.LongLiteralExpr;
+import org.checkerframework.stubparser.ast.expr.LongLiteralMinValueExpr;
+import org.checkerframework.stubparser.ast.expr.MarkerAnnotationExpr;
+import org.checkerframework.stubparser.ast.expr.MemberValuePair;
+import org.checkerframework.stubparser.ast.expr.NameExpr;
+import org.checkerframework.stubparser.ast.expr.NormalAnnotationExpr;
+import org.checkerframework.stubparser.ast.expr.NullLiteralExpr;
+import org.checkerframework.stubparser.ast.expr.QualifiedNameExpr;
+import org.checkerframework.stubparser.ast.expr.SingleMemberAnnotationExpr;
+import org.checkerframework.stubparser.ast.expr.StringLiteralExpr;
+import org.checkerframework.stubparser.ast.expr.UnaryExpr;
+import org.checkerframework.stubparser.ast.stmt.BlockStmt;
+import org.checkerframework.stubparser.ast.type.ClassOrInterfaceType;
+import org.checkerframework.stubparser.ast.type.PrimitiveType;
+import org.checkerframework.stubparser.ast.type.ReferenceType;
+import org.checkerframework.stubparser.ast.type.Type;
+import org.checkerframework.stubparser.ast.type.VoidType;
+import org.checkerframework.stubparser.ast.type.WildcardType;
+
+/**
+ * A compact binary encoding of parsed stub files, used by {@link StubCache}.
+ * <p>
+ *
+ * The encoding retains everything that {@link StubParser} uses:
+ * imports, declarations, types, and annotations, plus the source positions
+ * of declarations.  Comments, method bodies, field initializers, and the
+ * arguments of enum constants are dropped.  Strings are written once and
+ * afterwards referred to by index.
+ * <p>
+ *
+ * Stub files that use a construct that the encoding does not support,
+ * such as an annotation type declaration, cannot be written; see
+ * {@link #write}.
+ */
+public class StubCacheCodec {
+
+    /** Thrown when the AST contains a construct that cannot be encoded. */
+    static class UnsupportedNodeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedNodeException(Node node) {
+            super("StubCacheCodec: cannot encode " + node.getClass().getSimpleName());
+        }
+    }
+
+    // Tags for the kinds of nodes with subclasses.
+
+    private static final byte CLASS_DECL = 1;
+    private static final byte ENUM_DECL = 2;
+    private static final byte EMPTY_TYPE_DECL = 3;
+    private static final byte METHOD_DECL = 4;
+    private static final byte CONSTRUCTOR_DECL = 5;
+    private static final byte FIELD_DECL = 6;
+    private static final byte EMPTY_MEMBER_DECL = 7;
+
+    private static final byte PRIMITIVE_TYPE = 1;
+    private static final byte VOID_TYPE = 2;
+    private static final byte CLASS_TYPE = 3;
+    private static final byte REFERENCE_TYPE = 4;
+    private static final byte WILDCARD_TYPE = 5;
+
+    private static final byte NAME_EXPR = 1;
+    private static final byte QUALIFIED_NAME_EXPR = 2;
+    private static final byte FIELD_ACCESS_EXPR = 3;
+    private static final byte ARRAY_INITIALIZER_EXPR = 4;
+    private static final byte STRING_LITERAL_EXPR = 5;
+    private static final byte INTEGER_LITERAL_EXPR = 6;
+    private static final byte INTEGER_MIN_LITERAL_EXPR = 7;
+    private static final byte LONG_LITERAL_EXPR = 8;
+    private static final byte LONG_MIN_LITERAL_EXPR = 9;
+    private static final byte CHAR_LITERAL_EXPR = 10;
+    private static final byte DOUBLE_LITERAL_EXPR = 11;
+    private static final byte BOOLEAN_LITERAL_EXPR = 12;
+    private static final byte NULL_LITERAL_EXPR = 13;
+    private static final byte CLASS_EXPR = 14;
+    private static final byte BINARY_EXPR = 15;
+    private static final byte UNARY_EXPR = 16;
+    private static final byte ENCLOSED_EXPR = 17;
+    private static final byte MARKER_ANNOTATION_EXPR = 18;
+    private static final byte SINGLE_MEMBER_ANNOTATION_EXPR = 19;
+    private static final byte NORMAL_ANNOTATION_EXPR = 20;
+
+    private StubCacheCodec() {
+        throw new AssertionError("Class StubCacheCodec cannot be instantiated.");
+    }
+
+    /**
+     * Writes {@code index} to {@code out}.
+     *
+     * @throws UnsupportedNodeException if the stub file uses a construct
+     *         that cannot be encoded; the contents of {@code out} are then
+     *         unspecified
+     */
+    public static void write(IndexUnit index, DataOutputStream out) throws IOException {
+        new Writer(out).writeIndexUnit(index);
+    }
+
+    /**
+     * Reads an {@link IndexUnit} that was written by {@link #write}.
+     */
+    public static IndexUnit read(DataInputStream in) throws IOException {
+        return new Reader(in).readIndexUnit();
+    }
+
+    private static class Writer {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void writeIndexUnit(IndexUnit index) throws IOException {
+            writeSize(index.getCompilationUnits());
+            for (CompilationUnit cu : index.getCompilationUnits()) {
+                writeCompilationUnit(cu);
+            }
+        }
+
+        private void writeCompilationUnit(CompilationUnit cu) throws IOException {
+            PackageDeclaration pkg = cu.getPackage();
+            out.writeBoolean(pkg != null);
+            if (pkg != null) {
+                writeAnnotations(pkg.getAnnotations());
+                writeName(pkg.getName());
+            }
+            if (writeSize(cu.getImports())) {
+                for (ImportDeclaration imp : cu.getImports()) {
+                    writeName(imp.getName());
+                    out.writeBoolean(imp.isStatic());
+                    out.writeBoolean(imp.isAsterisk());
+                }
+            }
+            if (writeSize(cu.getTypes())) {
+                for (TypeDeclaration type : cu.getTypes()) {
+                    writeBodyDeclaration(type);
+                }
+            }
+        }
+
+        private void writeBodyDeclarations(List<BodyDeclaration> decls) throws IOException {
+            if (writeSize(decls)) {
+                for (BodyDeclaration decl : decls) {
+                    writeBodyDeclaration(decl);
+                }
+            }
+        }
+
+        private void writeBodyDeclaration(BodyDeclaration decl) throws IOException {
+            Class<?> c = decl.getClass();
+            if (c == ClassOrInterfaceDeclaration.class) {
+                ClassOrInterfaceDeclaration d = (ClassOrInterfaceDeclaration) decl;
+                out.writeByte(CLASS_DECL);
+                writePosition(d);
+                out.writeInt(d.getModifiers());
+                writeAnnotations(d.getAnnotations());
+                out.writeBoolean(d.isInterface());
+                writeString(d.getName());
+                writeTypeParameters(d.getTypeParameters());
+                writeTypes(d.getExtends());
+                writeTypes(d.getImplements());
+                writeBodyDeclarations(d.getMembers());
+            } else if (c == EnumDeclaration.class) {
+                EnumDeclaration d = (EnumDeclaration) decl;
+                out.writeByte(ENUM_DECL);
+                writePosition(d);
+                out.writeInt(d.getModifiers());
+                writeAnnotations(d.getAnnotations());
+                writeString(d.getName());
+                writeTypes(d.getImplements());
+                if (writeSize(d.getEntries())) {
+                    for (EnumConstantDeclaration e : d.getEntries()) {
+                        writePosition(e);
+                        writeAnnotations(e.getAnnotations());
+                        writeString(e.getName());
+                    }
+                }
+                writeBodyDeclarations(d.getMembers());
+            } else if (c == EmptyTypeDeclaration.class) {
+                out.writeByte(EMPTY_TYPE_DECL);
+                writePosition(decl);
+            } else if (c == MethodDeclaration.class) {
+                MethodDeclaration d = (MethodDeclaration) decl;
+                out.writeByte(METHOD_DECL);
+                writePosition(d);
+                out.writeInt(d.getModifiers());
+                writeAnnotations(d.getAnnotations());
+                writeTypeParameters(d.getTypeParameters());
+                writeType(d.getType());
+                writeString(d.getName());
+                writeParameters(d.getParameters());
+                out.writeInt(d.getArrayCount());
+                writeAnnotations(d.getReceiverAnnotations());
+                writeNames(d.getThrows());
+                out.writeBoolean(d.getBody() != null);
+            } else if (c == ConstructorDeclaration.class) {
+                ConstructorDeclaration d = (ConstructorDeclaration) decl;
+                out.writeByte(CONSTRUCTOR_DECL);
+                writePosition(d);
+                out.writeInt(d.getModifiers());
+                writeAnnotations(d.getAnnotations());
+                writeTypeParameters(d.getTypeParameters());
+                writeString(d.getName());
+                writeParameters(d.getParameters());
+                writeAnnotations(d.getReceiverAnnotations());
+                writeNames(d.getThrows());
+                out.writeBoolean(d.getBlock() != null);
+            } else if (c == FieldDeclaration.class) {
+                FieldDeclaration d = (FieldDeclaration) decl;
+                out.writeByte(FIELD_DECL);
+                writePosition(d);
+                out.writeInt(d.getModifiers());
+                writeAnnotations(d.getAnnotations());
+                writeType(d.getType());
+                if (writeSize(d.getVariables())) {
+                    for (VariableDeclarator v : d.getVariables()) {
+                        writeVariableDeclaratorId(v.getId());
+                    }
+                }
+            } else if (c == EmptyMemberDeclaration.class) {
+                out.writeByte(EMPTY_MEMBER_DECL);
+                writePosition(decl);
+            } else {
+                throw new UnsupportedNodeException(decl);
+            }
+        }
+
+        private void writeParameters(List<Parameter> params) throws IOException {
+            if (writeSize(params)) {
+                for (Parameter p : params) {
+                    out.writeInt(p.getModifiers());
+                    writeAnnotations(p.getAnnotations());
+                    writeType(p.getType());
+                    out.writeBoolean(p.isVarArgs());
+                    writeVariableDeclaratorId(p.getId());
+                }
+            }
+        }
+
+        private void writeVariableDeclaratorId(VariableDeclaratorId id) throws IOException {
+            writeString(id.getName());
+            out.writeInt(id.getArrayCount());
+        }
+
+        private void writeTypeParameters(List<TypeParameter> params) throws IOException {
+            if (writeSize(params)) {
+                for (TypeParameter p : params) {
+                    writeString(p.getName());
+                    writeTypes(p.getTypeBound());
+                }
+            }
+        }
+
+        private void writeTypes(List<? extends Type> types) throws IOException {
+            if (writeSize(types)) {
+                for (Type t : types) {
+                    writeType(t);
+                }
+            }
+        }
+
+        private void writeType(Type type) throws IOException {
+            out.writeBoolean(type != null);
+            if (type == null) {
+                return;
+            }
+            Class<?> c = type.getClass();
+            if (c == PrimitiveType.class) {
+                out.writeByte(PRIMITIVE_TYPE);
+                out.writeByte(((PrimitiveType) type).getType().ordinal());
+            } else if (c == VoidType.class) {
+                out.writeByte(VOID_TYPE);
+            } else if (c == ClassOrInterfaceType.class) {
+                ClassOrInterfaceType t = (ClassOrInterfaceType) type;
+                out.writeByte(CLASS_TYPE);
+                writeType(t.getScope());
+                writeString(t.getName());
+                writeTypes(t.getTypeArgs());
+            } else if (c == ReferenceType.class) {
+                ReferenceType t = (ReferenceType) type;
+                out.writeByte(REFERENCE_TYPE);
+                writeType(t.getType());
+                out.writeInt(t.getArrayCount());
+                List<List<AnnotationExpr>> arrayAnnos = t.getArrayAnnotations();
+                if (writeSize(arrayAnnos)) {
+                    for (List<AnnotationExpr> annos : arrayAnnos) {
+                        writeAnnotations(annos);
+                    }
+                }
+            } else if (c == WildcardType.class) {
+                WildcardType t = (WildcardType) type;
+                out.writeByte(WILDCARD_TYPE);
+                writeType(t.getExtends());
+                writeType(t.getSuper());
+            } else {
+                throw new UnsupportedNodeException(type);
+            }
+            writeAnnotations(type.getAnnotations());
+        }
+
+        private void writeAnnotations(List<AnnotationExpr> annos) throws IOException {
+            writeExpressions(annos);
+        }
+
+        private void writeNames(List<NameExpr> names) throws IOException {
+            writeExpressions(names);
+        }
+
+        private void writeName(NameExpr name) throws IOException {
+            writeExpression(name);
+        }
+
+        private void writeExpressions(List<? extends Expression> exprs) throws IOException {
+            if (writeSize(exprs)) {
+                for (Expression e : exprs) {
+                    writeExpression(e);
+                }
+            }
+        }
+
+        private void writeExpression(Expression expr) throws IOException {
+            out.writeBoolean(expr != null);
+            if (expr == null) {
+                return;
+            }
+            Class<?> c = expr.getClass();
+            if (c == NameExpr.class) {
+                out.writeByte(NAME_EXPR);
+                writeString(((NameExpr) expr).getName());
+            } else if (c == QualifiedNameExpr.class) {
+                QualifiedNameExpr e = (QualifiedNameExpr) expr;
+                out.writeByte(QUALIFIED_NAME_EXPR);
+                writeExpression(e.getQualifier());
+                writeString(e.getName());
+            } else if (c == FieldAccessExpr.class) {
+                FieldAccessExpr e = (FieldAccessExpr) expr;
+                out.writeByte(FIELD_ACCESS_EXPR);
+                writeExpression(e.getScope());
+                writeTypes(e.getTypeArgs());
+                writeString(e.getField());
+            } else if (c == ArrayInitializerExpr.class) {
+                out.writeByte(ARRAY_INITIALIZER_EXPR);
+                writeExpressions(((ArrayInitializerExpr) expr).getValues());
+            } else if (c == StringLiteralExpr.class) {
+                out.writeByte(STRING_LITERAL_EXPR);
+                writeString(((StringLiteralExpr) expr).getValue());
+            } else if (c == IntegerLiteralExpr.class) {
+                out.writeByte(INTEGER_LITERAL_EXPR);
+                writeString(((StringLiteralExpr) expr).getValue());
+            } else if (c == IntegerLiteralMinValueExpr.class) {
+                out.writeByte(INTEGER_MIN_LITERAL_EXPR);
+            } else if (c == LongLiteralExpr.class) {
+                out.writeByte(LONG_LITERAL_EXPR);
+                writeString(((StringLiteralExpr) expr).getValue());
+            } else if (c == LongLiteralMinValueExpr.class) {
+                out.writeByte(LONG_MIN_LITERAL_EXPR);
+            } else if (c == CharLiteralExpr.class) {
+                out.writeByte(CHAR_LITERAL_EXPR);
+                writeString(((StringLiteralExpr) expr).getValue());
+            } else if (c == DoubleLiteralExpr.class) {
+                out.writeByte(DOUBLE_LITERAL_EXPR);
+                writeString(((StringLiteralExpr) expr).getValue());
+            } else if (c == BooleanLiteralExpr.class) {
+                out.writeByte(BOOLEAN_LITERAL_EXPR);
+                out.writeBoolean(((BooleanLiteralExpr) expr).getValue());
+            } else if (c == NullLiteralExpr.class) {
+                out.writeByte(NULL_LITERAL_EXPR);
+            } else if (c == ClassExpr.class) {
+                out.writeByte(CLASS_EXPR);
+                writeType(((ClassExpr) expr).getType());
+            } else if (c == BinaryExpr.class) {
+                BinaryExpr e = (BinaryExpr) expr;
+                out.writeByte(BINARY_EXPR);
+                writeExpression(e.getLeft());
+                writeExpression(e.getRight());
+                out.writeByte(e.getOperator().ordinal());
+            } else if (c == UnaryExpr.class) {
+                UnaryExpr e = (UnaryExpr) expr;
+                out.writeByte(UNARY_EXPR);
+                writeExpression(e.getExpr());
+                out.writeByte(e.getOperator().ordinal());
+            } else if (c == EnclosedExpr.class) {
+                out.writeByte(ENCLOSED_EXPR);
+                writeExpression(((EnclosedExpr) expr).getInner());
+            } else if (c == MarkerAnnotationExpr.class) {
+                out.writeByte(MARKER_ANNOTATION_EXPR);
+                writeExpression(((AnnotationExpr) expr).getName());
+            } else if (c == SingleMemberAnnotationExpr.class) {
+                SingleMemberAnnotationExpr e = (SingleMemberAnnotationExpr) expr;
+                out.writeByte(SINGLE_MEMBER_ANNOTATION_EXPR);
+                writeExpression(e.getName());
+                writeExpression(e.getMemberValue());
+            } else if (c == NormalAnnotationExpr.class) {
+                NormalAnnotationExpr e = (NormalAnnotationExpr) expr;
+                out.writeByte(NORMAL_ANNOTATION_EXPR);
+                writeExpression(e.getName());
+                if (writeSize(e.getPairs())) {
+                    for (MemberValuePair pair : e.getPairs()) {
+                        writeString(pair.getName());
+                        writeExpression(pair.getValue());
+                    }
+                }
+            } else {
+                throw new UnsupportedNodeException(expr);
+            }
+        }
+
+        private void writePosition(Node node) throws IOException {
+            out.writeInt(node.getBeginLine());
+            out.writeInt(node.getBeginColumn());
+            out.writeInt(node.getEndLine());
+            out.writeInt(node.getEndColumn());
+        }
+
+        /**
+         * Writes the size of a list, distinguishing a null list from an
+         * empty one.
+         *
+         * @return true if the list is non-empty, that is, if its elements
+         *         need to be written
+         */
+        private boolean writeSize(List<?> list) throws IOException {
+            out.writeInt(list == null ? -1 : list.size());
+            return list != null && !list.isEmpty();
+        }
+
+        private void writeString(String s) throws IOException {
+            if (s == null) {
+                out.writeInt(-1);
+                return;
+            }
+            Integer index = strings.get(s);
+            if (index != null) {
+                out.writeInt(index);
+            } else {
+                // A new string:  its index is the current table size.
+                out.writeInt(strings.size());
+                out.writeUTF(s);
+                strings.put(s, strings.size());
+            }
+        }
+    }
+
+    private static class Reader {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<String>();
+
+        Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        IndexUnit readIndexUnit() throws IOException {
+            int size = in.readInt();
+            List<CompilationUnit> cus = new ArrayList<CompilationUnit>(size);
+            for (int i = 0; i < size; i++) {
+                cus.add(readCompilationUnit());
+            }
+            return new IndexUnit(cus);
+        }
+
+        private CompilationUnit readCompilationUnit() throws IOException {
+            PackageDeclaration pkg = null;
+            if (in.readBoolean()) {
+                List<AnnotationExpr> annos = readAnnotations();
+                pkg = new PackageDeclaration(annos, readName());
+            }
+            int size = in.readInt();
+            List<ImportDeclaration> imports = newList(size);
+            for (int i = 0; i < size; i++) {
+                NameExpr name = readName();
+                boolean isStatic = in.readBoolean();
+                imports.add(new ImportDeclaration(name, isStatic, in.readBoolean()));
+            }
+            size = in.readInt();
+            List<TypeDeclaration> types = newList(size);
+            for (int i = 0; i < size; i++) {
+                types.add((TypeDeclaration) readBodyDeclaration());
+            }
+            return new CompilationUnit(pkg, imports, types, null);
+        }
+
+        private List<BodyDeclaration> readBodyDeclarations() throws IOException {
+            int size = in.readInt();
+            List<BodyDeclaration> decls = newList(size);
+            for (int i = 0; i < size; i++) {
+                decls.add(readBodyDeclaration());
+            }
+            return decls;
+        }
+
+        private BodyDeclaration readBodyDeclaration() throws IOException {
+            byte tag = in.readByte();
+            int beginLine = in.readInt();
+            int beginColumn = in.readInt();
+            int endLine = in.readInt();
+            int endColumn = in.readInt();
+            switch (tag) {
+            case CLASS_DECL: {
+                int modifiers = in.readInt();
+                List<AnnotationExpr> annos = readAnnotations();
+                boolean isInterface = in.readBoolean();
+                String name = readString();
+                List<TypeParameter> typeParams = readTypeParameters();
+                List<ClassOrInterfaceType> extendsList = readTypes();
+                List<ClassOrInterfaceType> implementsList = readTypes();
+                List<BodyDeclaration> members = readBodyDeclarations();
+                return new ClassOrInterfaceDeclaration(beginLine, beginColumn, endLine, endColumn,
+                        null, modifiers, annos, isInterface, name,
+                        typeParams, extendsList, implementsList, members);
+            }
+            case ENUM_DECL: {
+                int modifiers = in.readInt();
+                List<AnnotationExpr> annos = readAnnotations();
+                String name = readString();
+                List<ClassOrInterfaceType> implementsList = readTypes();
+                int size = in.readInt();
+                List<EnumConstantDeclaration> entries = newList(size);
+                for (int i = 0; i < size; i++) {
+                    int eBeginLine = in.readInt();
+                    int eBeginColumn = in.readInt();
+                    int eEndLine = in.readInt();
+                    int eEndColumn = in.readInt();
+                    List<AnnotationExpr> eAnnos = readAnnotations();
+                    entries.add(new EnumConstantDeclaration(eBeginLine, eBeginColumn, eEndLine, eEndColumn,
+                            null, eAnnos, readString(), null, null));
+                }
+                List<BodyDeclaration> members = readBodyDeclarations();
+                return new EnumDeclaration(beginLine, beginColumn, endLine, endColumn,
+                        null, modifiers, annos, name, implementsList, entries, members);
+            }
+            case EMPTY_TYPE_DECL:
+                return new EmptyTypeDeclaration(beginLine, beginColumn, endLine, endColumn, null);
+            case METHOD_DECL: {
+                int modifiers = in.readInt();
+                List<AnnotationExpr> annos = readAnnotations();
+                List<TypeParameter> typeParams = readTypeParameters();
+                Type type = readType();
+                String name = readString();
+                List<Parameter> params = readParameters();
+                int arrayCount = in.readInt();
+                List<AnnotationExpr> receiverAnnos = readAnnotations();
+                List<NameExpr> throws_ = readNames();
+                BlockStmt body = in.readBoolean() ? new BlockStmt() : null;
+                return new MethodDeclaration(beginLine, beginColumn, endLine, endColumn,
+                        null, modifiers, annos, typeParams, type, name, params,
+                        arrayCount, receiverAnnos, throws_, body);
+            }
+            case CONSTRUCTOR_DECL: {
+                int modifiers = in.readInt();
+                List<AnnotationExpr> annos = readAnnotations();
+                List<TypeParameter> typeParams = readTypeParameters();
+                String name = readString();
+                List<Parameter> params = readParameters();
+                List<AnnotationExpr> receiverAnnos = readAnnotations();
+                List<NameExpr> throws_ = readNames();
+                BlockStmt block = in.readBoolean() ? new BlockStmt() : null;
+                return new ConstructorDeclaration(beginLine, beginColumn, endLine, endColumn,
+                        null, modifiers, annos, typeParams, name, params,
+                        receiverAnnos, throws_, block);
+            }
+            case FIELD_DECL: {
+                int modifiers = in.readInt();
+                List<AnnotationExpr> annos = readAnnotations();
+                Type type = readType();
+                int size = in.readInt();
+                List<VariableDeclarator> vars = newList(size);
+                for (int i = 0; i < size; i++) {
+                    vars.add(new VariableDeclarator(readVariableDeclaratorId()));
+                }
+                return new FieldDeclaration(beginLine, beginColumn, endLine, endColumn,
+                        null, modifiers, annos, type, vars);
+            }
+            case EMPTY_MEMBER_DECL:
+                return new EmptyMemberDeclaration(beginLine, beginColumn, endLine, endColumn, null);
+            default:
+                throw new IOException("StubCacheCodec: bad declaration tag " + tag);
+            }
+        }
+
+        private List<Parameter> readParameters() throws IOException {
+            int size = in.readInt();
+            List<Parameter> params = newList(size);
+            for (int i = 0; i < size; i++) {
+                int modifiers = in.readInt();
+                List<AnnotationExpr> annos = readAnnotations();
+                Type type = readType();
+                boolean isVarArgs = in.readBoolean();
+                params.add(new Parameter(0, 0, 0, 0, modifiers, annos, type,
+                        isVarArgs, readVariableDeclaratorId()));
+            }
+            return params;
+        }
+
+        private VariableDeclaratorId readVariableDeclaratorId() throws IOException {
+            String name = readString();
+            return new VariableDeclaratorId(0, 0, 0, 0, name, in.readInt());
+        }
+
+        private List<TypeParameter> readTypeParameters() throws IOException {
+            int size = in.readInt();
+            List<TypeParameter> params = newList(size);
+            for (int i = 0; i < size; i++) {
+                String name = readString();
+                List<ClassOrInterfaceType> bounds = readTypes();
+                params.add(new TypeParameter(name, bounds));
+            }
+            return params;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T extends Type> List<T> readTypes() throws IOException {
+            int size = in.readInt();
+            List<T> types = newList(size);
+            for (int i = 0; i < size; i++) {
+                types.add((T) readType());
+            }
+            return types;
+        }
+
+        private Type readType() throws IOException {
+            if (!in.readBoolean()) {
+                return null;
+            }
+            byte tag = in.readByte();
+            Type type;
+            switch (tag) {
+            case PRIMITIVE_TYPE:
+                type = new PrimitiveType(PrimitiveType.Primitive.values()[in.readByte()]);
+                break;
+            case VOID_TYPE:
+                type = new VoidType();
+                break;
+            case CLASS_TYPE: {
+                ClassOrInterfaceType scope = (ClassOrInterfaceType) readType();
+                String name = readString();
+                List<Type> typeArgs = readTypes();
+                type = new ClassOrInterfaceType(0, 0, 0, 0, scope, name, typeArgs);
+                break;
+            }
+            case REFERENCE_TYPE: {
+                ReferenceType t = new ReferenceType(readType(), in.readInt());
+                int size = in.readInt();
+                List<List<AnnotationExpr>> arrayAnnos = newList(size);
+                for (int i = 0; i < size; i++) {
+                    arrayAnnos.add(readAnnotations());
+                }
+                t.setArrayAnnotations(arrayAnnos);
+                type = t;
+                break;
+            }
+            case WILDCARD_TYPE: {
+                ReferenceType ext = (ReferenceType) readType();
+                type = new WildcardType(ext, (ReferenceType) readType());
+                break;
+            }
+            default:
+                throw new IOException("StubCacheCodec: bad type tag " + tag);
+            }
+            type.setAnnotations(readAnnotations());
+            return type;
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<AnnotationExpr> readAnnotations() throws IOException {
+            return (List<AnnotationExpr>) (List<?>) readExpressions();
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<NameExpr> readNames() throws IOException {
+            return (List<NameExpr>) (List<?>) readExpressions();
+        }
+
+        private NameExpr readName() throws IOException {
+            return (NameExpr) readExpression();
+        }
+
+        private List<Expression> readExpressions() throws IOException {
+            int size = in.readInt();
+            List<Expression> exprs = newList(size);
+            for (int i = 0; i < size; i++) {
+                exprs.add(readExpression());
+            }
+            return exprs;
+        }
+
+        private Expression readExpression() throws IOException {
+            if (!in.readBoolean()) {
+                return null;
+            }
+            byte tag = in.readByte();
+            switch (tag) {
+            case NAME_EXPR:
+                return new NameExpr(readString());
+            case QUALIFIED_NAME_EXPR: {
+                NameExpr qualifier = readName();
+                return new QualifiedNameExpr(qualifier, readString());
+            }
+            case FIELD_ACCESS_EXPR: {
+                Expression scope = readExpression();
+                List<Type> typeArgs = readTypes();
+                return new FieldAccessExpr(0, 0, 0, 0, scope, typeArgs, readString());
+            }
+            case ARRAY_INITIALIZER_EXPR:
+                return new ArrayInitializerExpr(readExpressions());
+            case STRING_LITERAL_EXPR:
+                return new StringLiteralExpr(readString());
+            case INTEGER_LITERAL_EXPR:
+                return new IntegerLiteralExpr(readString());
+            case INTEGER_MIN_LITERAL_EXPR:
+                return new IntegerLiteralMinValueExpr();
+            case LONG_LITERAL_EXPR:
+                return new LongLiteralExpr(readString());
+            case LONG_MIN_LITERAL_EXPR:
+                return new LongLiteralMinValueExpr();
+            case CHAR_LITERAL_EXPR:
+                return new CharLiteralExpr(readString());
+            case DOUBLE_LITERAL_EXPR:
+                return new DoubleLiteralExpr(readString());
+            case BOOLEAN_LITERAL_EXPR:
+                return new BooleanLiteralExpr(in.readBoolean());
+            case NULL_LITERAL_EXPR:
+                return new NullLiteralExpr();
+            case CLASS_EXPR:
+                return new ClassExpr(readType());
+            case BINARY_EXPR: {
+                Expression left = readExpression();
+                Expression right = readExpression();
+                return new BinaryExpr(left, right, BinaryExpr.Operator.values()[in.readByte()]);
+            }
+            case UNARY_EXPR: {
+                Expression expr = readExpression();
+                return new UnaryExpr(expr, UnaryExpr.Operator.values()[in.readByte()]);
+            }
+            case ENCLOSED_EXPR:
+                return new EnclosedExpr(readExpression());
+            case MARKER_ANNOTATION_EXPR:
+                return new MarkerAnnotationExpr(readName());
+            case SINGLE_MEMBER_ANNOTATION_EXPR: {
+                NameExpr name = readName();
+                return new SingleMemberAnnotationExpr(name, readExpression());
+            }
+            case NORMAL_ANNOTATION_EXPR: {
+                NameExpr name = readName();
+                int size = in.readInt();
+                List<MemberValuePair> pairs = newList(size);
+                for (int i = 0; i < size; i++) {
+                    String pairName = readString();
+                    pairs.add(new MemberValuePair(pairName, readExpression()));
+                }
+                return new NormalAnnotationExpr(name, pairs);
+            }
+            default:
+                throw new IOException("StubCacheCodec: bad expression tag " + tag);
+            }
+        }
+
+        private String readString() throws IOException {
+            int index = in.readInt();
+            if (index == -1) {
+                return null;
+            }
+            if (index == strings.size()) {
+                strings.add(in.readUTF());
+            }
+            return strings.get(index);
+        }
+
+        /**
+         * Returns a new list for {@code size} elements, or null if
+         * {@code size} encodes a null list.
+         */
+        private static <T> List<T> newList(int size) {
+            return size < 0 ? null : new ArrayList<T>(size);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -90,6 +91,12 @@ public class StubParser {
     /** The file being parsed (makes error messages more informative). */
     private final String filename;
 
+    /**
+     * The parsed stub file.  It may be shared with other compilations and
+     * is never modified; see {@link IndexUnit}.  State that depends on
+     * this compilation, like {@link #faexprcache}, is kept in maps of this
+     * StubParser instead.
+     */
     private final IndexUnit index;
     private final ProcessingEnvironment processingEnv;
     private final AnnotatedTypeFactory atypeFactory;
@@ -135,15 +142,22 @@ public class StubParser {
      */
     public StubParser(String filename, InputStream inputStream,
             AnnotatedTypeFactory factory, ProcessingEnvironment env) {
+        this(filename, parseIndex(filename, inputStream), factory, env);
+    }
+
+    /**
+     *
+     * @param filename name of stub file
+     * @param index the already-parsed contents of the stub file,
+     *        for example as read from a {@link StubCache}; it may be
+     *        shared with other StubParsers, which only read it
+     * @param factory  AnnotatedtypeFactory to use
+     * @param env ProcessingEnviroment to use
+     */
+    public StubParser(String filename, IndexUnit index,
+            AnnotatedTypeFactory factory, ProcessingEnvironment env) {
         this.filename = filename;
-        IndexUnit parsedindex;
-        try {
-            parsedindex = JavaParser.parse(inputStream);
-        } catch (Exception e) {
-            ErrorReporter.errorAbort("StubParser: exception from JavaParser.parse for file " + filename, e);
-            parsedindex = null; // dead code, but needed for def. assignment checks
-        }
-        this.index = parsedindex;
+        this.index = index;
         this.atypeFactory = factory;
         this.processingEnv = env;
         this.elements = env.getElementUtils();
@@ -166,6 +180,17 @@ public class StubParser {
     }
 
 
+    /**
+     * Parses the stub file in {@code inputStream}, aborting if it cannot be parsed.
+     */
+    static IndexUnit parseIndex(String filename, InputStream inputStream) {
+        try {
+            return JavaParser.parse(inputStream);
+        } catch (Exception e) {
+            ErrorReporter.errorAbort("StubParser: exception from JavaParser.parse for file " + filename, e);
+            return null; // dead code
+        }
+    }
 
     /** All annotations defined in the package.  Keys are simple names. */
     private Map<String, AnnotationMirror> annosInPackage(PackageElement packageElement) {
@@ -299,6 +324,64 @@ public class StubParser {
             parse(cu, atypes, declAnnos);
     }
 
+    /**
+     * The type declarations that {@link #parseLazily} did not parse, with
+     * their compilation units, by the fully-qualified name of the type.
+     */
+    private Map<String, List<Pair<CompilationUnit, TypeDeclaration>>> lazyTypes;
+
+    /**
+     * Like {@link #parse(Map, Map)}, but only parses the package
+     * declarations of the stub file.  The declarations of a type are only
+     * parsed by {@link #parseLazyType}, when the type is first used.
+     *
+     * @return the fully-qualified names of the types declared in the stub file
+     */
+    public Set<String> parseLazily(Map<Element, AnnotatedTypeMirror> atypes, Map<String, Set<AnnotationMirror>> declAnnos) {
+        lazyTypes = new LinkedHashMap<String, List<Pair<CompilationUnit, TypeDeclaration>>>();
+        for (CompilationUnit cu : index.getCompilationUnits()) {
+            String packageName = null;
+            if (cu.getPackage() != null) {
+                packageName = cu.getPackage().getName().toString();
+                parsePackage(cu.getPackage(), atypes, declAnnos);
+            }
+            if (cu.getTypes() != null) {
+                for (TypeDeclaration typeDecl : cu.getTypes()) {
+                    String typeName = typeName(packageName, typeDecl);
+                    List<Pair<CompilationUnit, TypeDeclaration>> decls = lazyTypes.get(typeName);
+                    if (decls == null) {
+                        decls = new ArrayList<Pair<CompilationUnit, TypeDeclaration>>();
+                        lazyTypes.put(typeName, decls);
+                    }
+                    decls.add(Pair.of(cu, typeDecl));
+                }
+            }
+        }
+        return lazyTypes.keySet();
+    }
+
+    /**
+     * Parses the declarations of the type {@code typeName} that
+     * {@link #parseLazily} skipped, if it did not parse them yet.
+     * Side-effects the arguments.
+     */
+    public void parseLazyType(String typeName, Map<Element, AnnotatedTypeMirror> atypes, Map<String, Set<AnnotationMirror>> declAnnos) {
+        List<Pair<CompilationUnit, TypeDeclaration>> decls = lazyTypes == null ? null : lazyTypes.remove(typeName);
+        if (decls == null) {
+            return;
+        }
+        for (Pair<CompilationUnit, TypeDeclaration> decl : decls) {
+            CompilationUnit cu = decl.first;
+            theCompilationUnit = cu;
+            if (cu.getPackage() == null) {
+                parse(decl.second, null, null, atypes, declAnnos);
+            } else {
+                parse(decl.second, cu.getPackage().getName().toString(), cu.getPackage().getAnnotations(),
+                        atypes, declAnnos);
+            }
+        }
+    }
+
     private CompilationUnit theCompilationUnit;
 
     private void parse(CompilationUnit cu, Map<Element, AnnotatedTypeMirror> atypes, Map<String, Set<AnnotationMirror>> declAnnos) {
@@ -333,12 +416,16 @@ public class StubParser {
 
     // typeDecl's name may be a binary name such as "A$B".
     // That is a hack because the StubParser does not handle nested classes.
+    private static String typeName(String packageName, TypeDeclaration typeDecl) {
+        return (packageName == null ? "" : packageName + ".") + typeDecl.getName().replace('$', '.');
+    }
+
     private void parse(TypeDeclaration typeDecl,
             String packageName, List<AnnotationExpr> packageAnnos,
             Map<Element, AnnotatedTypeMirror> atypes,
             Map<String, Set<AnnotationMirror>> declAnnos) {
         // Fully-qualified name of the type being parsed
-        String typeName = (packageName == null ? "" : packageName + ".") + typeDecl.getName().replace('$', '.');
+        String typeName = typeName(packageName, typeDecl);
         TypeElement typeElt = elements.getTypeElement(typeName);
         // couldn't find type.  not in class path
         if (typeElt == null) {
@@ -876,6 +963,15 @@ public class StubParser {
 
     private static Set<String> warnings = new HashSet<String>();
 
+    /**
+     * Forgets the warnings issued so far, so that a later compilation in
+     * the same JVM issues them again.
+     */
+    public static void clearWarnings() {
+        warnings.clear();
+        nestedClassWarnings.clear();
+    }
+
     /** Issues the given warning, only if it has not been previously issued. */
     private void stubWarning(String warning) {
         if (warnings.add(warning) && (warnIfNotFound || debugStubParser)) {
@@ -132,17 +132,42 @@ public class CheckerParameterized extends Suite {
 
     private final ArrayList<Runner> runners= new ArrayList<Runner>();
 
+    private final List<Object[]> parametersList;
+
     /**
      * Only called reflectively. Do not use programmatically.
      */
     public CheckerParameterized(Class<?> klass) throws Throwable {
         super(klass, Collections.<Runner>emptyList());
-        List<Object[]> parametersList= getParametersList(getTestClass());
+        parametersList= getParametersList(getTestClass());
         for (int i= 0; i < parametersList.size(); i++)
             runners.add(new TestClassRunnerForParameters(getTestClass().getJavaClass(),
                     parametersList, i));
     }
 
+    /**
+     * Runs the tests.  If {@link TestBatch#isEnabled batching} is enabled,
+     * the test files are compiled in batches first, with the checker and
+     * options of the first test.
+     */
+    @Override
+    public void run(RunNotifier notifier) {
+        if (TestBatch.isEnabled() && !runners.isEmpty()) {
+            List<File> files = TestBatch.testFiles(parametersList);
+            if (files.size() == parametersList.size()) {
+                try {
+                    Object test = ((TestClassRunnerForParameters) runners.get(0)).createTest();
+                    if (test instanceof CheckerTest) {
+                        TestBatch.compile((CheckerTest) test, files);
+                    }
+                } catch (Exception e) {
+                    // Without batches, every test compiles its own file.
+                }
+            }
+        }
+        super.run(notifier);
+    }
+
     @Override
     protected List<Runner> getChildren() {
         return runners;
@@ -106,9 +106,17 @@ abstract public class CheckerTest {
     }
 
     /**
-     * Compiles and returns a TestRun.
+     * Compiles and returns a TestRun.  If the file was already compiled in
+     * a {@link TestBatch}, returns the result from the batch.
      */
     protected TestRun getTest(File... files) {
+        if (files.length == 1 && TestBatch.isEnabled()) {
+            TestRun run = TestBatch.take(this, files[0]);
+            if (run != null) {
+                return run;
+            }
+        }
+
         JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
         StandardJavaFileManager fileManager
             = compiler.getStandardFileManager(null, null, null);
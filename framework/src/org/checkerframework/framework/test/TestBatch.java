@@ -0,0 +1,222 @@
+package org.checkerframework.framework.test;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles the test files of a {@link ParameterizedCheckerTest} in
+ * batches, instead of one compilation per test file.
+ *
+ * <p>
+ * Batching is enabled by the system property {@code tests.batch}; the
+ * system property {@code tests.batchSize} sets the number of files per
+ * compilation (default 50).  {@link CheckerParameterized} then compiles
+ * all test files of a test class before running its tests, and each test
+ * takes the diagnostics of its own file from the result of its batch (see
+ * {@link CheckerTest#getTest(File...)}).  All batches of a test class
+ * share one file manager, and they share parsed stub files through a
+ * {@code -AstubCache} directory.
+ *
+ * <p>
+ * A batch gives each file the same diagnostics as compiling it alone
+ * would, as long as the checker reports its errors against trees.  If a
+ * batch has an error that does not come from the checker, such as a
+ * duplicate class, or if the checker crashed, the batch is split in two
+ * and each half is compiled again, down to single files.  A file
+ * compiled alone gets exactly the result of the unbatched test.
+ * Diagnostics without a source file are given to every file of the batch.
+ *
+ * <p>
+ * The compilations of one JVM run one after the other, because the
+ * framework keeps some caches in static fields.  To use several cores,
+ * run several test classes in parallel JVMs, with the {@code threads}
+ * attribute of Ant's {@code junit} task (the {@code tests.threads}
+ * property of the build files).
+ */
+public class TestBatch {
+
+    /** Whether batching is enabled. */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("tests.batch");
+    }
+
+    private static final int BATCH_SIZE = Integer.getInteger("tests.batchSize", 50);
+
+    /** The directory in which the batches share parsed stub files. */
+    private static final String STUB_CACHE = System.getProperty("tests.stubCache",
+            "tests" + File.separator + "build" + File.separator + "stubcache");
+
+    /** The code of the diagnostics that checkers report through the Messager. */
+    private static final String CHECKER_DIAGNOSTIC = ".proc.messager";
+
+    /**
+     * The results of the batches that were not yet taken by a test, by
+     * {@link #key}.
+     */
+    private static final Map<String, TestRun> results = new ConcurrentHashMap<>();
+
+    private TestBatch() {
+        throw new AssertionError("Class TestBatch cannot be instantiated.");
+    }
+
+    /**
+     * Compiles {@code files} in batches with the checker and options of
+     * {@code test}, and keeps the result of each file until it is taken by
+     * {@link #take}.
+     */
+    public static void compile(CheckerTest test, List<File> files) {
+        List<String> options = new ArrayList<>(test.checkerOptions);
+        boolean hasStubCache = false;
+        for (String option : options) {
+            hasStubCache |= option.startsWith("-AstubCache");
+        }
+        if (!hasStubCache) {
+            options.add("-AstubCache=" + STUB_CACHE);
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            for (int i = 0; i < files.size(); i += BATCH_SIZE) {
+                List<File> batch = files.subList(i, Math.min(files.size(), i + BATCH_SIZE));
+                compileBatch(test, fileManager, batch, options);
+            }
+        } finally {
+            try {
+                fileManager.close();
+            } catch (IOException e) {
+                // The file manager only holds caches; nothing is lost.
+            }
+        }
+    }
+
+    /**
+     * Returns and forgets the result of {@code file} from a batch compiled
+     * for {@code test}, or returns null if there is none.
+     */
+    public static /*@Nullable*/ TestRun take(CheckerTest test, File file) {
+        return results.remove(key(test, file));
+    }
+
+    private static String key(CheckerTest test, File file) {
+        return test.checkerName + " " + test.checkerOptions + " " + file.getAbsolutePath();
+    }
+
+    private static void compileBatch(CheckerTest test, StandardJavaFileManager fileManager,
+            List<File> batch, List<String> options) {
+        List<String> batchOptions = options;
+        if (batch.size() > 1) {
+            // Keep checking the other files of the batch after a file has
+            // errors, as separate compilations would.
+            batchOptions = new ArrayList<>(options);
+            batchOptions.add("-XDshouldStopPolicyIfError=FLOW");
+        }
+        Map<File, TestRun> runs = null;
+        try {
+            TestRun run = TestInput.compileAndCheck(test.checkerDir, fileManager,
+                    fileManager.getJavaFileObjects(batch.toArray(new File[batch.size()])),
+                    test.checkerName, batchOptions);
+            runs = split(run, batch);
+        } catch (RuntimeException | Error e) {
+            if (batch.size() == 1) {
+                // Let the test compile the file alone and report the crash.
+                return;
+            }
+        }
+        if (runs == null) {
+            int half = batch.size() / 2;
+            compileBatch(test, fileManager, batch.subList(0, half), options);
+            compileBatch(test, fileManager, batch.subList(half, batch.size()), options);
+            return;
+        }
+        for (Map.Entry<File, TestRun> entry : runs.entrySet()) {
+            results.put(key(test, entry.getKey()), entry.getValue());
+        }
+    }
+
+    /**
+     * Splits the result of a batch into the results of its files, or
+     * returns null if that is not possible because of a crash, an error
+     * that is not the checker's, or a diagnostic in a file outside the
+     * batch.  A batch of one file is always split.
+     */
+    private static /*@Nullable*/ Map<File, TestRun> split(TestRun run, List<File> batch) {
+        Map<String, File> byPath = new HashMap<>();
+        Map<File, List<Diagnostic<? extends JavaFileObject>>> diagnostics = new HashMap<>();
+        for (File file : batch) {
+            byPath.put(file.getAbsoluteFile().toURI().normalize().getPath(), file);
+            diagnostics.put(file, new ArrayList<Diagnostic<? extends JavaFileObject>>());
+        }
+        List<Diagnostic<? extends JavaFileObject>> sourceless = new ArrayList<>();
+        Set<File> hasErrors = new HashSet<>();
+        boolean sourcelessError = false;
+
+        for (Diagnostic<? extends JavaFileObject> d : run.getDiagnostics()) {
+            boolean error = d.getKind() == Diagnostic.Kind.ERROR;
+            if (batch.size() > 1) {
+                if (error && (d.getCode() == null || !d.getCode().endsWith(CHECKER_DIAGNOSTIC))) {
+                    return null;
+                }
+                if (d.getMessage(null).contains("unexpected Throwable")) {
+                    return null;
+                }
+            }
+            if (d.getSource() == null) {
+                sourceless.add(d);
+                sourcelessError |= error;
+                continue;
+            }
+            File file = byPath.get(d.getSource().toUri().normalize().getPath());
+            if (file == null) {
+                // A diagnostic in a file that was compiled implicitly:  it
+                // belongs to whichever test files use that file.
+                if (batch.size() > 1) {
+                    return null;
+                }
+                file = batch.get(0);
+            }
+            diagnostics.get(file).add(d);
+            if (error) {
+                hasErrors.add(file);
+            }
+        }
+
+        Map<File, TestRun> runs = new HashMap<>();
+        for (File file : batch) {
+            List<Diagnostic<? extends JavaFileObject>> own = diagnostics.get(file);
+            own.addAll(sourceless);
+            boolean result = batch.size() == 1 ? run.getResult()
+                    : !hasErrors.contains(file) && !sourcelessError;
+            runs.put(file, new TestRun(result, run.getOutput(), own));
+        }
+        return runs;
+    }
+
+    /** Returns the files that a parameterized test class is run with. */
+    static List<File> testFiles(List<Object[]> parametersList) {
+        List<File> files = new ArrayList<>();
+        for (Object[] parameters : parametersList) {
+            if (parameters.length == 1 && parameters[0] instanceof File) {
+                files.add((File) parameters[0]);
+            }
+        }
+        return files;
+    }
+}
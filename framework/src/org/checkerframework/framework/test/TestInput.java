@@ -1,5 +1,9 @@
 package org.checkerframework.framework.test;
 
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
 import java.io.File;
 import java.io.StringWriter;
 import java.util.Collections;
@@ -30,9 +34,20 @@ public class TestInput {
 
     private TestInput(String checkerDir, Iterable<? extends JavaFileObject> files,
                      Iterable<String> processors, List<String> options) {
+        this(checkerDir, null, files, processors, options);
+    }
+
+    /**
+     * @param fileManager the file manager to compile with, or null to
+     *        create a new one
+     */
+    private TestInput(String checkerDir, /*@Nullable*/ StandardJavaFileManager fileManager,
+                     Iterable<? extends JavaFileObject> files,
+                     Iterable<String> processors, List<String> options) {
 
         this.compiler = ToolProvider.getSystemJavaCompiler();
-        this.fileManager = compiler.getStandardFileManager(null, null, null);
+        this.fileManager = fileManager != null ? fileManager
+                : compiler.getStandardFileManager(null, null, null);
 
         this.files = files;
         this.processors = processors;
@@ -112,6 +127,18 @@ public class TestInput {
     public static TestRun compileAndCheck(String checkerDir,
             Iterable<? extends JavaFileObject> files,
             String processor, List<String> options) {
+        return compileAndCheck(checkerDir, null, files, processor, options);
+    }
+
+    /**
+     * Like {@link #compileAndCheck(String, Iterable, String, List)}, but
+     * compiles with the given file manager, so that consecutive
+     * compilations can share the file manager's caches of the class path.
+     */
+    public static TestRun compileAndCheck(String checkerDir,
+            /*@Nullable*/ StandardJavaFileManager fileManager,
+            Iterable<? extends JavaFileObject> files,
+            String processor, List<String> options) {
 
         List<String> opts = new LinkedList<String>();
         if (processor != null) {
@@ -121,7 +148,7 @@ public class TestInput {
 
         opts.addAll(options);
 
-        TestInput input = new TestInput(checkerDir, files,
+        TestInput input = new TestInput(checkerDir, fileManager, files,
                 // TODO: why are the processors passed as options
                 // and not through this parameter?
                 Collections.<String>emptySet(),
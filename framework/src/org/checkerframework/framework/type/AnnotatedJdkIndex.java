@@ -0,0 +1,520 @@
+package org.checkerframework.framework.type;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.framework.source.IncrementalCache;
+import org.checkerframework.framework.source.SourceChecker;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedExecutableType;
+import org.checkerframework.javacutil.AnnotationUtils;
+import org.checkerframework.javacutil.ElementUtils;
+import org.checkerframework.javacutil.ErrorReporter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.annotation.Annotation;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.JavaFileObject;
+
+import com.sun.tools.javac.code.Symbol;
+
+/**
+ * A precomputed index of the annotations that {@link ElementAnnotationApplier}
+ * reads from the class files of an annotated JDK.
+ *
+ * For every class, method, constructor, and field in the annotated JDK,
+ * the index holds the qualifiers that the checker supports on each part of
+ * its type, as read from the class file, before stub files and defaults
+ * are applied.  {@link AnnotatedTypeFactory#fromElement(Element)} uses the
+ * index instead of walking the type annotation positions of the element;
+ * javac still reads the classes themselves from the annotated JDK.
+ *
+ * The index file is memory-mapped, and an entry is only decoded when its
+ * element is looked up.  An entry is only used while the class file that
+ * declares the element has the same name and time stamp as when the index
+ * was built, and the type of the element has the same shape; otherwise the
+ * annotations are read from the class file as usual.  Elements with
+ * annotations that have elements, such as {@code @KeyFor("map")}, are not
+ * in the index.
+ *
+ * The -AjdkIndex option names the directory of the index files; each
+ * checker has its own file, because the index only holds the qualifiers
+ * of the checker.  A compilation with the -AjdkIndexBuild option, whose
+ * value is the annotated JDK jar, builds the files instead of using them.
+ *
+ * @see AnnotatedTypeFactory#createJdkIndex()
+ */
+public class AnnotatedJdkIndex {
+
+    /** The first and the last bytes of an index file. */
+    private static final int MAGIC = 0x434a4458;
+
+    /**
+     * Version of the format of the index.  Change it whenever the format
+     * changes, so that stale files are ignored.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    /** File extension of index files. */
+    private static final String EXTENSION = ".jdkidx";
+
+    /** The size in bytes of an entry of the table of elements. */
+    private static final int TABLE_ENTRY = 12;
+
+    /** The contents of the index file. */
+    private final ByteBuffer buffer;
+
+    /** The offset of the table of the offsets of the strings. */
+    private final int strings;
+
+    /** The strings decoded so far, by their index. */
+    private final String[] decoded;
+
+    /** The offset of the table of elements. */
+    private final int table;
+
+    /** The number of elements in the table. */
+    private final int size;
+
+    private final Elements elements;
+    private final Types types;
+
+    private AnnotatedJdkIndex(ByteBuffer buffer, Elements elements, Types types) {
+        this.buffer = buffer;
+        this.elements = elements;
+        this.types = types;
+        int offset = buffer.position();
+        int stringCount = buffer.getInt(offset);
+        this.strings = offset + 4;
+        this.decoded = new String[stringCount];
+        offset = strings + 4 * stringCount;
+        this.size = buffer.getInt(offset);
+        this.table = offset + 4;
+    }
+
+    /** Returns the index file of {@code checker} in {@code directory}. */
+    public static File file(File directory, SourceChecker checker) {
+        return new File(directory, checker.getClass().getName() + EXTENSION);
+    }
+
+    /**
+     * Opens the index file {@code file}.
+     *
+     * @return the index, or null if the file was not built for the
+     *         qualifiers of {@code factory} or with this version of the
+     *         format, or if it is truncated
+     * @throws IOException if the file cannot be read
+     */
+    public static /*@Nullable*/ AnnotatedJdkIndex open(File file, AnnotatedTypeFactory factory)
+            throws IOException {
+        ByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+                    || buffer.getInt(buffer.limit() - 4) != MAGIC) {
+                return null;
+            }
+            byte[] configuration = new byte[buffer.getInt()];
+            buffer.get(configuration);
+            if (!new String(configuration, StandardCharsets.UTF_8).equals(configuration(factory))) {
+                return null;
+            }
+            return new AnnotatedJdkIndex(buffer, factory.elements, factory.types);
+        } catch (RuntimeException e) {
+            // For example, a truncated file.
+            return null;
+        }
+    }
+
+    /**
+     * Returns a description of everything besides the class files that
+     * influences the entries of the index:  the checker and its qualifiers.
+     */
+    private static String configuration(AnnotatedTypeFactory factory) {
+        StringBuilder configuration = new StringBuilder(factory.checker.getClass().getName());
+        TreeSet<String> qualifiers = new TreeSet<String>();
+        for (Class<? extends Annotation> qualifier : factory.getSupportedTypeQualifiers()) {
+            qualifiers.add(qualifier.getCanonicalName());
+        }
+        for (String qualifier : qualifiers) {
+            configuration.append('\n').append(qualifier);
+        }
+        return configuration.toString();
+    }
+
+    /**
+     * Returns true if the annotations of {@code elt} can be in an index,
+     * that is, if it is a class or member declared in a class file.
+     */
+    private static boolean isIndexable(Element elt) {
+        switch (elt.getKind()) {
+        case CLASS:
+        case INTERFACE:
+        case ENUM:
+        case ANNOTATION_TYPE:
+        case METHOD:
+        case CONSTRUCTOR:
+        case FIELD:
+        case ENUM_CONSTANT:
+            return ElementUtils.isElementFromByteCode(elt);
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Adds the annotations of {@code elt} in the index to {@code type}, as
+     * {@link ElementAnnotationApplier#apply} would.
+     *
+     * @param type the unannotated type of {@code elt}
+     * @return true if the annotations were added, false if the index has
+     *         no usable entry for {@code elt} and {@code type} is unchanged
+     */
+    public boolean apply(AnnotatedTypeMirror type, Element elt) {
+        if (!isIndexable(elt)) {
+            return false;
+        }
+        List<AnnotatedTypeMirror> positions = SignatureCache.positions(type);
+        List<List<AnnotationMirror>> annotations;
+        try {
+            annotations = read(elt, positions);
+        } catch (RuntimeException e) {
+            // For example, an offset beyond the end of a corrupt file; the
+            // annotations are read from the class file instead.
+            return false;
+        }
+        if (annotations == null) {
+            return false;
+        }
+
+        for (int i = 0; i < positions.size(); ++i) {
+            positions.get(i).clearAnnotations();
+            positions.get(i).addAnnotations(annotations.get(i));
+        }
+        if (type instanceof AnnotatedExecutableType) {
+            ((AnnotatedExecutableType) type).setElement((ExecutableElement) elt);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the annotations of {@code elt} in the index, for each of the
+     * {@code positions} of its type, or null if the index has no usable
+     * entry for {@code elt}.
+     */
+    private /*@Nullable*/ List<List<AnnotationMirror>> read(Element elt,
+            List<AnnotatedTypeMirror> positions) {
+        String key = IncrementalCache.elementKey(elt, types);
+        int entry = key == null ? -1 : find(key);
+        if (entry < 0 || !string(buffer.getInt(entry)).equals(classStamp(elt))) {
+            return null;
+        }
+        if (buffer.getInt(entry + 4) != positions.size()) {
+            return null;
+        }
+        List<List<AnnotationMirror>> annotations = new ArrayList<List<AnnotationMirror>>(positions.size());
+        int offset = entry + 8;
+        for (AnnotatedTypeMirror position : positions) {
+            if (!string(buffer.getInt(offset)).equals(position.getKind().name())) {
+                return null;
+            }
+            int count = buffer.getInt(offset + 4);
+            offset += 8;
+            List<AnnotationMirror> annos = new ArrayList<AnnotationMirror>(count);
+            for (int i = 0; i < count; ++i, offset += 4) {
+                AnnotationMirror anno = AnnotationUtils.fromName(elements, string(buffer.getInt(offset)));
+                if (anno == null) {
+                    return null;
+                }
+                annos.add(anno);
+            }
+            annotations.add(annos);
+        }
+        return annotations;
+    }
+
+    /**
+     * Returns the offset of the entry of the element with key {@code key},
+     * or -1 if there is none.  The table is sorted by the hash codes of the
+     * keys.
+     */
+    private int find(String key) {
+        int hash = key.hashCode();
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getInt(table + mid * TABLE_ENTRY) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        for (int i = low; i < size && buffer.getInt(table + i * TABLE_ENTRY) == hash; ++i) {
+            if (string(buffer.getInt(table + i * TABLE_ENTRY + 4)).equals(key)) {
+                return buffer.getInt(table + i * TABLE_ENTRY + 8);
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the string with the given index. */
+    private String string(int index) {
+        String result = decoded[index];
+        if (result == null) {
+            int offset = buffer.getInt(strings + 4 * index);
+            byte[] bytes = new byte[buffer.getInt(offset)];
+            for (int i = 0; i < bytes.length; ++i) {
+                bytes[i] = buffer.get(offset + 4 + i);
+            }
+            result = new String(bytes, StandardCharsets.UTF_8);
+            decoded[index] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a description of the class file that declares {@code elt},
+     * which changes when the class file changes but not when the JDK jar
+     * is moved, or null if there is none.
+     */
+    private static /*@Nullable*/ String classStamp(Element elt) {
+        Element outermost = null;
+        for (Element e = elt; e != null; e = e.getEnclosingElement()) {
+            if (e instanceof Symbol.ClassSymbol) {
+                outermost = e;
+            }
+        }
+        if (outermost == null) {
+            return null;
+        }
+        JavaFileObject classFile = ((Symbol.ClassSymbol) outermost).classfile;
+        if (classFile == null) {
+            return null;
+        }
+        String uri = classFile.toUri().toString();
+        int entry = uri.lastIndexOf("!/");
+        return uri.substring(entry < 0 ? 0 : entry + 2) + " " + classFile.getLastModified();
+    }
+
+    /**
+     * Builds the index file {@code file} of the classes in the jar file
+     * {@code jar}, with the annotations of their class files as read by
+     * {@code factory}.  The classes are looked up by name, so {@code jar}
+     * should be the annotated JDK on the bootclasspath of the compilation.
+     */
+    public static void build(File jar, File file, AnnotatedTypeFactory factory) {
+        Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+        try (JarFile jarFile = new JarFile(jar)) {
+            Enumeration<JarEntry> jarEntries = jarFile.entries();
+            while (jarEntries.hasMoreElements()) {
+                String name = jarEntries.nextElement().getName();
+                if (!name.endsWith(".class") || name.indexOf('$') >= 0
+                        || name.endsWith("package-info.class")) {
+                    // Nested classes are added with their enclosing class.
+                    continue;
+                }
+                String className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+                TypeElement type = factory.elements.getTypeElement(className);
+                if (type != null) {
+                    addType(type, factory, entries);
+                }
+            }
+        } catch (IOException e) {
+            ErrorReporter.errorAbort("AnnotatedJdkIndex: could not read " + jar, e);
+            return; // dead code
+        }
+
+        try {
+            write(file, configuration(factory), entries);
+        } catch (IOException e) {
+            ErrorReporter.errorAbort("AnnotatedJdkIndex: could not write " + file, e);
+        }
+    }
+
+    /** Adds the entries of {@code type}, its members, and its nested classes. */
+    private static void addType(TypeElement type, AnnotatedTypeFactory factory,
+            Map<String, Entry> entries) {
+        addElement(type, factory, entries);
+        for (Element member : type.getEnclosedElements()) {
+            if (member instanceof TypeElement) {
+                addType((TypeElement) member, factory, entries);
+            } else if (isIndexable(member)) {
+                addElement(member, factory, entries);
+            }
+        }
+    }
+
+    /** Adds the entry of {@code elt}, unless it has an annotation with elements. */
+    private static void addElement(Element elt, AnnotatedTypeFactory factory,
+            Map<String, Entry> entries) {
+        String key = IncrementalCache.elementKey(elt, factory.types);
+        String stamp = classStamp(elt);
+        if (key == null || stamp == null) {
+            return;
+        }
+        AnnotatedTypeMirror type = factory.toAnnotatedType(elt.asType(), ElementUtils.isTypeDeclaration(elt));
+        ElementAnnotationApplier.apply(type, elt, factory);
+
+        List<AnnotatedTypeMirror> positions = SignatureCache.positions(type);
+        List<String> kinds = new ArrayList<String>(positions.size());
+        List<List<String>> annotations = new ArrayList<List<String>>(positions.size());
+        for (AnnotatedTypeMirror position : positions) {
+            List<String> names = new ArrayList<String>();
+            for (AnnotationMirror anno : position.getAnnotations()) {
+                if (!anno.getElementValues().isEmpty()) {
+                    return;
+                }
+                names.add(AnnotationUtils.annotationName(anno));
+            }
+            kinds.add(position.getKind().name());
+            annotations.add(names);
+        }
+        entries.put(key, new Entry(stamp, kinds, annotations));
+    }
+
+    /** An entry of the index, before it is written. */
+    private static class Entry {
+        /** The class file that declares the element; see {@link #classStamp}. */
+        final String classStamp;
+        /** The kinds of the types returned by {@link SignatureCache#positions}. */
+        final List<String> kinds;
+        /** The names of the annotations on the types returned by {@link SignatureCache#positions}. */
+        final List<List<String>> annotations;
+
+        Entry(String classStamp, List<String> kinds, List<List<String>> annotations) {
+            this.classStamp = classStamp;
+            this.kinds = kinds;
+            this.annotations = annotations;
+        }
+    }
+
+    /**
+     * Writes an index file.  The file consists of a header with the
+     * configuration, the table of the offsets of the strings, the table of
+     * elements (the hash code of the key, the key, and the offset of the
+     * entry), the strings, the entries, and {@link #MAGIC} again, which
+     * tells that the file is complete.  All strings are referenced by
+     * their index.
+     */
+    private static void write(File file, String configuration, Map<String, Entry> entries)
+            throws IOException {
+        Map<String, Integer> pool = new LinkedHashMap<String, Integer>();
+        ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+        DataOutputStream entryData = new DataOutputStream(entryBytes);
+        Map<String, Integer> entryOffsets = new HashMap<String, Integer>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            intern(pool, e.getKey());
+            entryOffsets.put(e.getKey(), entryData.size());
+            Entry entry = e.getValue();
+            entryData.writeInt(intern(pool, entry.classStamp));
+            entryData.writeInt(entry.kinds.size());
+            for (int i = 0; i < entry.kinds.size(); ++i) {
+                entryData.writeInt(intern(pool, entry.kinds.get(i)));
+                entryData.writeInt(entry.annotations.get(i).size());
+                for (String name : entry.annotations.get(i)) {
+                    entryData.writeInt(intern(pool, name));
+                }
+            }
+        }
+
+        ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+        DataOutputStream stringData = new DataOutputStream(stringBytes);
+        List<Integer> stringOffsets = new ArrayList<Integer>(pool.size());
+        for (String s : pool.keySet()) {
+            stringOffsets.add(stringData.size());
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            stringData.writeInt(bytes.length);
+            stringData.write(bytes);
+        }
+
+        List<String> keys = new ArrayList<String>(entries.keySet());
+        Collections.sort(keys, new Comparator<String>() {
+            @Override
+            public int compare(String k1, String k2) {
+                return Integer.compare(k1.hashCode(), k2.hashCode());
+            }
+        });
+
+        byte[] configurationBytes = configuration.getBytes(StandardCharsets.UTF_8);
+        int stringStart = 4 + 4 + 4 + configurationBytes.length
+                + 4 + 4 * pool.size() + 4 + TABLE_ENTRY * keys.size();
+        int entryStart = stringStart + stringData.size();
+
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("cannot create directory " + directory);
+        }
+        File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(configurationBytes.length);
+                out.write(configurationBytes);
+                out.writeInt(pool.size());
+                for (int offset : stringOffsets) {
+                    out.writeInt(stringStart + offset);
+                }
+                out.writeInt(keys.size());
+                for (String key : keys) {
+                    out.writeInt(key.hashCode());
+                    out.writeInt(pool.get(key));
+                    out.writeInt(entryStart + entryOffsets.get(key));
+                }
+                stringBytes.writeTo(out);
+                entryBytes.writeTo(out);
+                out.writeInt(MAGIC);
+            } finally {
+                out.close();
+            }
+            // Replace the stale file, if any.
+            if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+                throw new IOException("cannot rename " + tmp + " to " + file);
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    /** Returns the index of {@code s} in the string pool, adding it if necessary. */
+    private static int intern(Map<String, Integer> pool, String s) {
+        Integer index = pool.get(s);
+        if (index == null) {
+            index = pool.size();
+            pool.put(s, index);
+        }
+        return index;
+    }
+}
@@ -346,7 +346,16 @@ public class AnnotatedTypeCopier implements AnnotatedTypeVisitor<AnnotatedTypeMi
      */
     protected void maybeCopyPrimaryAnnotations(final AnnotatedTypeMirror source, final AnnotatedTypeMirror dest) {
         if (copyAnnotations) {
-            dest.addAnnotations(source.annotations);
+            if (source.atypeFactory == dest.atypeFactory) {
+                // The annotations of source were already checked to be supported
+                // qualifiers of this factory, and aliases were resolved, when they
+                // were added to source.  Skip these lookups, which dominate the
+                // cost of copying a type.  The bounds of dest are still null,
+                // so there is nothing for addAnnotation to fix up either.
+                dest.annotations.addAll(source.annotations);
+            } else {
+                dest.addAnnotations(source.annotations);
+            }
         }
     }
 }
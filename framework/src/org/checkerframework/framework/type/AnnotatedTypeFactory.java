@@ -20,6 +20,7 @@ import org.checkerframework.framework.qual.StubFiles;
 import org.checkerframework.framework.qual.SubtypeOf;
 import org.checkerframework.framework.qual.TypeQualifiers;
 import org.checkerframework.framework.source.SourceChecker;
+import org.checkerframework.framework.stub.StubCache;
 import org.checkerframework.framework.stub.StubParser;
 import org.checkerframework.framework.stub.StubResource;
 import org.checkerframework.framework.stub.StubUtil;
@@ -39,14 +40,17 @@ import org.checkerframework.framework.util.MultiGraphQualifierHierarchy;
 import org.checkerframework.framework.util.MultiGraphQualifierHierarchy.MultiGraphFactory;
 import org.checkerframework.framework.util.TreePathCacher;
 import org.checkerframework.framework.util.typeinference.DefaultTypeArgumentInference;
+import org.checkerframework.framework.util.typeinference.InferenceCache;
 import org.checkerframework.framework.util.typeinference.TypeArgumentInference;
 import org.checkerframework.javacutil.AnnotationProvider;
 import org.checkerframework.javacutil.AnnotationUtils;
-import org.checkerframework.javacutil.CollectionUtils;
+import org.checkerframework.javacutil.BoundedCache;
+import org.checkerframework.javacutil.BoundedCache.EvictionPolicy;
 import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.ErrorReporter;
 import org.checkerframework.javacutil.InternalUtils;
 import org.checkerframework.javacutil.Pair;
+import org.checkerframework.javacutil.Profiler;
 import org.checkerframework.javacutil.TreeUtils;
 import org.checkerframework.javacutil.trees.DetachedVarSymbol;
 
@@ -213,6 +217,24 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     // Not final, because it is assigned in postInit().
     private Map<String, Set<AnnotationMirror>> indexDeclAnnos;
 
+    /**
+     * The stub files with declarations of each type that were not parsed
+     * yet, by the fully-qualified name of the type; null unless the
+     * -AstubLazy option is given.
+     *
+     * @see #parseLazyStubs(Element)
+     */
+    private Map<String, List<StubParser>> lazyStubTypes;
+
+    /** Cache of parsed stub files; null unless the -AstubCache option is given. */
+    private StubCache stubCache;
+
+    /**
+     * The checksums of the contents of the stub files that were read, in
+     * order, as part of the configuration of the signature cache.
+     */
+    private final StringBuilder stubChecksums = new StringBuilder();
+
     /**
      * A cache used to store elements whose declaration annotations
      * have already been stored by calling the method getDeclAnnotations.
@@ -289,7 +311,15 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         this.types = processingEnv.getTypeUtils();
         this.visitorState = new VisitorState();
 
+        this.treeCache = createCache("treeCache");
+        this.fromTreeCache = createCache("fromTreeCache");
+        this.elementCache = createCache("elementCache");
+        this.elementToTreeCache = createCache("elementToTreeCache");
+        this.signatureCache = createSignatureCache();
+
         this.supportedQuals = createSupportedTypeQualifiers();
+        this.jdkIndex = createJdkIndex();
+        this.recordDependencies = checker.hasOption("incrementalCache");
 
         this.fromByteCode = AnnotationUtils.fromClass(elements, FromByteCode.class);
         this.fromStubFile = AnnotationUtils.fromClass(elements, FromStubFile.class);
@@ -362,7 +392,7 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         pathHack.clear();
 
         // There is no need to clear the following caches, they
-        // are all limited by CACHE_SIZE.
+        // are all bounded; see createCache.
         /*
         treeCache.clear();
         fromTreeCache.clear();
@@ -517,10 +547,14 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
 
     /**
      * TypeArgumentInference infers the method type arguments when
-     * they are not explicitly written.
+     * they are not explicitly written.  The default one memoizes its
+     * results in a cache with the capacity and eviction policy of the
+     * other caches of this factory.
      */
     protected TypeArgumentInference createTypeArgumentInference() {
-        return new DefaultTypeArgumentInference();
+        int size = getCacheSize();
+        return new DefaultTypeArgumentInference(size == 0 ? null
+                : new InferenceCache("inferenceCache", size, getCacheEvictionPolicy()));
     }
 
     public TypeArgumentInference getTypeArgumentInference() {
@@ -620,26 +654,196 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     protected static boolean SHOULD_READ_CACHE = true;
     public boolean shouldReadCache = SHOULD_READ_CACHE;
 
-    /** Size of LRU cache. */
+    /** Default size of the caches; can be changed with -AatfCacheSize. */
     private final static int CACHE_SIZE = 300;
 
+    /** Default size of the signature cache; can be changed with -AsignatureCacheSize. */
+    private final static int SIGNATURE_CACHE_SIZE = 10000;
+
+    /** Default eviction policy of the caches; can be changed with -AatfCacheEviction. */
+    private final static EvictionPolicy CACHE_EVICTION = EvictionPolicy.FIFO;
+
     /** Mapping from a Tree to its annotated type; implicits have been applied. */
-    private final Map<Tree, AnnotatedTypeMirror> treeCache = CollectionUtils.createLRUCache(CACHE_SIZE);
+    private final BoundedCache<Tree, AnnotatedTypeMirror> treeCache;
 
     /** Mapping from a Tree to its annotated type; before implicits are applied,
      * just what the programmer wrote. */
-    protected final Map<Tree, AnnotatedTypeMirror> fromTreeCache = CollectionUtils.createLRUCache(CACHE_SIZE);
+    protected final BoundedCache<Tree, AnnotatedTypeMirror> fromTreeCache;
 
     /** Mapping from an Element to its annotated type; before implicits are applied,
      * just what the programmer wrote. */
-    private final Map<Element, AnnotatedTypeMirror> elementCache = CollectionUtils.createLRUCache(CACHE_SIZE);
+    private final BoundedCache<Element, AnnotatedTypeMirror> elementCache;
 
     /** Mapping from an Element to the source Tree of the declaration. */
-    private final Map<Element, Tree> elementToTreeCache  = CollectionUtils.createLRUCache(CACHE_SIZE);
+    private final BoundedCache<Element, Tree> elementToTreeCache;
+
+    /**
+     * The annotated types of members declared in class files, with all
+     * implicit qualifiers; null if the cache is disabled.
+     */
+    private final /*@Nullable*/ SignatureCache signatureCache;
+
+    /**
+     * The precomputed annotations of the annotated JDK; null unless the
+     * -AjdkIndex option is given.
+     */
+    private final /*@Nullable*/ AnnotatedJdkIndex jdkIndex;
+
+    /**
+     * Whether the elements whose types this factory determines are recorded
+     * as dependencies of the checked class; true if the -AincrementalCache
+     * option is given.  See {@link SourceChecker#recordDependency}.
+     */
+    private final boolean recordDependencies;
 
     /** Mapping from a Tree to its TreePath **/
     private final TreePathCacher treePathCache = new TreePathCacher();
 
+    /**
+     * Creates one of the caches of this factory.  Its capacity is given by
+     * the -AatfCacheSize option and its eviction policy ("fifo" or "lru")
+     * by the -AatfCacheEviction option.
+     *
+     * @param name the name of the cache, used in statistics
+     */
+    protected <K, V> BoundedCache<K, V> createCache(String name) {
+        return new BoundedCache<K, V>(name, getCacheSize(), getCacheEvictionPolicy());
+    }
+
+    /** Returns the capacity of the caches, given by the -AatfCacheSize option. */
+    protected int getCacheSize() {
+        int size = CACHE_SIZE;
+        String sizeOption = checker.getOption("atfCacheSize");
+        if (sizeOption != null) {
+            try {
+                size = Integer.parseInt(sizeOption);
+            } catch (NumberFormatException e) {
+                size = -1;
+            }
+            if (size < 0) {
+                checker.userErrorAbort("-AatfCacheSize must be a non-negative integer, not " + sizeOption);
+                return -1; // dead code
+            }
+        }
+        return size;
+    }
+
+    /** Returns the eviction policy of the caches, given by the -AatfCacheEviction option. */
+    protected EvictionPolicy getCacheEvictionPolicy() {
+        EvictionPolicy policy = CACHE_EVICTION;
+        String policyOption = checker.getOption("atfCacheEviction");
+        if (policyOption != null) {
+            try {
+                policy = EvictionPolicy.valueOf(policyOption.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                checker.userErrorAbort("-AatfCacheEviction must be fifo or lru, not " + policyOption);
+                return null; // dead code
+            }
+        }
+        return policy;
+    }
+
+    /**
+     * Creates the cache of the annotated types of members declared in
+     * class files.  Its capacity is given by the -AsignatureCacheSize
+     * option, and the -AsignatureCache option names the directory in which
+     * it is stored between compilations.  The stored types are read once
+     * the stub files have been read, see {@link #buildIndexTypes()},
+     * because they are only valid for the same stub files.
+     *
+     * @return the cache, or null if it is disabled
+     */
+    protected /*@Nullable*/ SignatureCache createSignatureCache() {
+        int size = SIGNATURE_CACHE_SIZE;
+        String sizeOption = checker.getOption("signatureCacheSize");
+        if (sizeOption != null) {
+            try {
+                size = Integer.parseInt(sizeOption);
+            } catch (NumberFormatException e) {
+                size = -1;
+            }
+            if (size < 0) {
+                checker.userErrorAbort("-AsignatureCacheSize must be a non-negative integer, not " + sizeOption);
+                return null; // dead code
+            }
+        }
+        if (size == 0) {
+            return null;
+        }
+
+        String directory = checker.getOption("signatureCache");
+        if (directory != null && directory.isEmpty()) {
+            checker.userErrorAbort("-AsignatureCache requires a directory");
+            return null; // dead code
+        }
+        return new SignatureCache(size, directory != null ? new File(directory) : null,
+                elements, types);
+    }
+
+    /**
+     * Opens the index of the annotations of the annotated JDK in the
+     * directory of the -AjdkIndex option, if any.  No index is used if
+     * the -AjdkIndexBuild option is given, because the compilation builds
+     * the index; see BaseTypeChecker.typeProcessingOver().
+     *
+     * @return the index, or null if there is none
+     */
+    protected /*@Nullable*/ AnnotatedJdkIndex createJdkIndex() {
+        String directory = checker.getOption("jdkIndex");
+        if (directory == null || checker.hasOption("jdkIndexBuild")) {
+            return null;
+        }
+        if (directory.isEmpty()) {
+            checker.userErrorAbort("-AjdkIndex requires a directory");
+            return null; // dead code
+        }
+        File file = AnnotatedJdkIndex.file(new File(directory), checker);
+        if (!file.isFile()) {
+            return null;
+        }
+        AnnotatedJdkIndex index;
+        try {
+            index = AnnotatedJdkIndex.open(file, this);
+        } catch (IOException e) {
+            index = null;
+        }
+        if (index == null) {
+            checker.message(Kind.WARNING, "Ignoring JDK index " + file
+                    + ", which was built for other qualifiers or by another version of the Checker Framework");
+        }
+        return index;
+    }
+
+    /**
+     * Returns the cache of the annotated types of members declared in
+     * class files, or null if it is disabled.
+     */
+    public /*@Nullable*/ SignatureCache getSignatureCache() {
+        return signatureCache;
+    }
+
+    /**
+     * Returns the caches of this factory, for example to report their
+     * statistics.
+     *
+     * @see org.checkerframework.common.basetype.BaseTypeChecker#typeProcessingOver()
+     */
+    public List<BoundedCache<?, ?>> getCaches() {
+        List<BoundedCache<?, ?>> caches = new ArrayList<>();
+        caches.add(treeCache);
+        caches.add(fromTreeCache);
+        caches.add(elementCache);
+        caches.add(elementToTreeCache);
+        if (signatureCache != null) {
+            caches.add(signatureCache.getTypes());
+        }
+        if (typeArgumentInference instanceof DefaultTypeArgumentInference
+                && ((DefaultTypeArgumentInference) typeArgumentInference).getCache() != null) {
+            caches.add(((DefaultTypeArgumentInference) typeArgumentInference).getCache());
+        }
+        return caches;
+    }
+
     /**
      * Determines the annotated type of an element using
      * {@link #fromElement(Element)}.
@@ -655,9 +859,24 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
             ErrorReporter.errorAbort("AnnotatedTypeFactory.getAnnotatedType: null element");
             return null; // dead code
         }
+        boolean cacheable = signatureCache != null && SignatureCache.isCacheable(elt);
+        if (cacheable && shouldReadCache) {
+            AnnotatedTypeMirror cached = signatureCache.get(elt, this);
+            if (cached != null) {
+                if (recordDependencies) {
+                    checker.recordDependency(elt);
+                }
+                return cached.deepCopy();
+            }
+        }
         AnnotatedTypeMirror type = fromElement(elt);
         annotateInheritedFromClass(type);
         annotateImplicit(elt, type);
+        // As for the element cache, the type is only final once the stub
+        // files have been read.
+        if (cacheable && shouldCache && indexTypes != null) {
+            signatureCache.put(elt, type.deepCopy());
+        }
         return type;
     }
 
@@ -700,7 +919,7 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
             ErrorReporter.errorAbort("AnnotatedTypeFactory.getAnnotatedType: null tree");
             return null; // dead code
         }
-        if (treeCache.containsKey(tree) && shouldReadCache) {
+        if (shouldReadCache && treeCache.containsKey(tree)) {
             return treeCache.get(tree).deepCopy();
         }
 
@@ -723,8 +942,10 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
 
         if (TreeUtils.isClassTree(tree) ||
             tree.getKind() == Tree.Kind.METHOD) {
-            // Don't cache VARIABLE
-            if (shouldCache) {
+            // Don't cache VARIABLE.  As for the element cache, nothing is
+            // cached while stub files are read, as their types may be
+            // incomplete.
+            if (shouldCache && indexTypes != null) {
                 treeCache.put(tree, type.deepCopy());
             }
         } else {
@@ -785,9 +1006,13 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      * @return the annotated type of the element
      */
     public AnnotatedTypeMirror fromElement(Element elt) {
-        if (elementCache.containsKey(elt) && shouldReadCache) {
+        if (recordDependencies) {
+            checker.recordDependency(elt);
+        }
+        if (shouldReadCache && elementCache.containsKey(elt)) {
             return elementCache.get(elt).deepCopy();
         }
+        parseLazyStubs(elt);
         if (elt.getKind() == ElementKind.PACKAGE)
             return toAnnotatedType(elt.asType(), false);
         AnnotatedTypeMirror type;
@@ -797,7 +1022,9 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
             type = indexTypes.get(elt).deepCopy();
         } else if (decl == null && (indexTypes == null || !indexTypes.containsKey(elt))) {
             type = toAnnotatedType(elt.asType(), ElementUtils.isTypeDeclaration(elt));
-            ElementAnnotationApplier.apply(type, elt, this);
+            if (jdkIndex == null || !jdkIndex.apply(type, elt)) {
+                ElementAnnotationApplier.apply(type, elt, this);
+            }
 
             if (elt instanceof ExecutableElement
                     || elt instanceof VariableElement) {
@@ -825,6 +1052,29 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         return type;
     }
 
+    /**
+     * Determines the annotated type of an element, like
+     * {@link #fromElement(Element)}, but avoids copying a cached type.
+     *
+     * If the type of {@code elt} is cached, the cached type itself is
+     * returned.  It is a snapshot that is shared with the cache, so callers
+     * must only read it.  Callers that need to modify the type should use
+     * {@link #fromElement(Element)}, or make a copy with
+     * {@link AnnotatedTypeMirror#deepCopy()}.
+     *
+     * @param elt the element
+     * @return the annotated type of the element, which must not be modified
+     */
+    protected final AnnotatedTypeMirror fromElementReadOnly(Element elt) {
+        if (shouldReadCache && elementCache.containsKey(elt)) {
+            if (recordDependencies) {
+                checker.recordDependency(elt);
+            }
+            return elementCache.get(elt);
+        }
+        return fromElement(elt);
+    }
+
     /**
      * Adds @FromByteCode to methods, constructors, and fields declared in class files
      * that are not already annotated with @FromStubFile
@@ -876,12 +1126,12 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
             ErrorReporter.errorAbort("AnnotatedTypeFactory.fromMember: not a method or variable declaration: " + tree);
             return null; // dead code
         }
-        if (fromTreeCache.containsKey(tree) && shouldReadCache) {
+        if (shouldReadCache && fromTreeCache.containsKey(tree)) {
             return fromTreeCache.get(tree).deepCopy();
         }
         AnnotatedTypeMirror result = TypeFromTree.fromMember(this, tree);
         annotateInheritedFromClass(result);
-        if (shouldCache)
+        if (shouldCache && indexTypes != null)
             fromTreeCache.put(tree, result.deepCopy());
         return result;
     }
@@ -893,14 +1143,14 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      * @return the annotated type of the expression
      */
     public AnnotatedTypeMirror fromExpression(ExpressionTree tree) {
-        if (fromTreeCache.containsKey(tree) && shouldReadCache)
+        if (shouldReadCache && fromTreeCache.containsKey(tree))
             return fromTreeCache.get(tree).deepCopy();
 
         AnnotatedTypeMirror result = TypeFromTree.fromExpression(this, tree);
 
         annotateInheritedFromClass(result);
 
-        if (shouldCache)
+        if (shouldCache && indexTypes != null)
             fromTreeCache.put(tree, result.deepCopy());
         return result;
     }
@@ -913,7 +1163,7 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      * @return the annotated type of the type in the AST
      */
     public AnnotatedTypeMirror fromTypeTree(Tree tree) {
-        if (fromTreeCache.containsKey(tree) && shouldReadCache) {
+        if (shouldReadCache && fromTreeCache.containsKey(tree)) {
             return fromTreeCache.get(tree).deepCopy();
         }
 
@@ -949,7 +1199,7 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
             }
         }
         annotateInheritedFromClass(result);
-        if (shouldCache)
+        if (shouldCache && indexTypes != null)
             fromTreeCache.put(tree, result.deepCopy());
         return result;
     }
@@ -1164,7 +1414,9 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
             // are no annotations from that hierarchy already on the type.
 
             if (classElt != null) {
-                AnnotatedTypeMirror classType = p.fromElement(classElt);
+                // Only the annotations of the class type are needed, so
+                // there is no need to copy it.
+                AnnotatedTypeMirror classType = p.fromElementReadOnly(classElt);
                 assert classType != null : "Unexpected null type for class element: " + classElt;
 
                 p.annotateInheritedFromClass(type, classType.getAnnotations());
@@ -1871,9 +2123,28 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      */
     public boolean isSupportedQualifier(/*@Nullable*/ AnnotationMirror a) {
         if (a == null) return false;
-        return AnnotationUtils.containsSameIgnoringValues(this.getQualifierHierarchy().getTypeQualifiers(), a);
+        QualifierHierarchy hierarchy = this.getQualifierHierarchy();
+        if (supportedQualifierNamesHierarchy != hierarchy) {
+            supportedQualifierNames = new HashSet</*@Interned*/ String>();
+            for (AnnotationMirror qual : hierarchy.getTypeQualifiers()) {
+                supportedQualifierNames.add(AnnotationUtils.annotationName(qual));
+            }
+            supportedQualifierNamesHierarchy = hierarchy;
+        }
+        // Same as containsSameIgnoringValues(hierarchy.getTypeQualifiers(), a),
+        // but does not scan the qualifiers.
+        return supportedQualifierNames.contains(AnnotationUtils.annotationName(a));
     }
 
+    /** The names of the qualifiers of {@link #supportedQualifierNamesHierarchy}. */
+    private Set</*@Interned*/ String> supportedQualifierNames;
+
+    /**
+     * The qualifier hierarchy for which {@link #supportedQualifierNames}
+     * was computed.
+     */
+    private QualifierHierarchy supportedQualifierNamesHierarchy;
+
     /** Add the annotation clazz as an alias for the annotation type. */
     protected void addAliasedAnnotation(Class<?> alias, AnnotationMirror type) {
         aliases.put(alias.getCanonicalName(), type);
@@ -1981,7 +2252,7 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         // if root is null, we cannot find any declaration
         if (root == null)
             return null;
-        if (elementToTreeCache.containsKey(elt) && shouldReadCache) {
+        if (shouldReadCache && elementToTreeCache.containsKey(elt)) {
             return elementToTreeCache.get(elt);
         }
 
@@ -2240,26 +2511,48 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
             ErrorReporter.errorAbort("AnnotatedTypeFactory.buildIndexTypes called more than once");
         }
 
+        Object previousContext = Profiler.setContext(checker.getClass().getName(), null);
+        Profiler.Measurement measurement = Profiler.start("stubs", null);
+        try {
+            buildIndexTypesUnprofiled();
+            if (signatureCache != null) {
+                signatureCache.open(checker.getConfiguration() + "\nstubs" + stubChecksums);
+            }
+        } finally {
+            Profiler.stop(measurement);
+            Profiler.restoreContext(previousContext);
+        }
+    }
+
+    private void buildIndexTypesUnprofiled() {
+
         Map<Element, AnnotatedTypeMirror> indexTypes
             = new HashMap<Element, AnnotatedTypeMirror>();
         Map<String, Set<AnnotationMirror>> indexDeclAnnos
             = new HashMap<String, Set<AnnotationMirror>>();
 
+        // The stub files are always read completely if the user asked for
+        // warnings about their contents.
+        if (checker.hasOption("stubLazy") && !checker.hasOption("stubWarnIfNotFound")
+                && !checker.hasOption("stubDebug")) {
+            lazyStubTypes = new HashMap<String, List<StubParser>>();
+        }
+
         if (!checker.hasOption("ignorejdkastub")) {
             InputStream in = null;
             if (checker != null)
                 in = checker.getClass().getResourceAsStream("jdk.astub");
             if (in != null) {
-                StubParser stubParser = new StubParser("jdk.astub", in, this, processingEnv);
-                stubParser.parse(indexTypes, indexDeclAnnos);
+                StubParser stubParser = createStubParser("jdk.astub", in);
+                parseStub(stubParser, indexTypes, indexDeclAnnos);
             }
         }
 
         // stub file for type-system independent annotations
         InputStream input = BaseTypeChecker.class.getResourceAsStream("flow.astub");
         if (input != null) {
-            StubParser stubParser = new StubParser("flow.astub", input, this, processingEnv);
-            stubParser.parse(indexTypes, indexDeclAnnos);
+            StubParser stubParser = createStubParser("flow.astub", input);
+            parseStub(stubParser, indexTypes, indexDeclAnnos);
         }
 
         String allstubFiles = "";
@@ -2309,8 +2602,8 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
                 if (checker != null)
                     in = checker.getClass().getResourceAsStream(stubPath);
                 if (in != null) {
-                    StubParser stubParser = new StubParser(stubPath, in, this, processingEnv);
-                    stubParser.parse(indexTypes, indexDeclAnnos);
+                    StubParser stubParser = createStubParser(stubPath, in);
+                    parseStub(stubParser, indexTypes, indexDeclAnnos);
                     // We could handle the stubPath -> continue.
                     continue;
                 }
@@ -2327,8 +2620,8 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
                             "Could not read stub resource: " + resource.getDescription());
                     continue;
                 }
-                StubParser stubParser = new StubParser(resource.getDescription(), stubStream, this, processingEnv);
-                stubParser.parse(indexTypes, indexDeclAnnos);
+                StubParser stubParser = createStubParser(resource.getDescription(), stubStream);
+                parseStub(stubParser, indexTypes, indexDeclAnnos);
             }
         }
 
@@ -2337,6 +2630,87 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         return;
     }
 
+    /**
+     * Parses a stub file into indexTypes and indexDeclAnnos, or with the
+     * -AstubLazy option, only records the types that it declares; see
+     * {@link #parseLazyStubs(Element)}.
+     */
+    private void parseStub(StubParser stubParser, Map<Element, AnnotatedTypeMirror> indexTypes,
+            Map<String, Set<AnnotationMirror>> indexDeclAnnos) {
+        if (lazyStubTypes == null) {
+            stubParser.parse(indexTypes, indexDeclAnnos);
+            return;
+        }
+        for (String typeName : stubParser.parseLazily(indexTypes, indexDeclAnnos)) {
+            List<StubParser> parsers = lazyStubTypes.get(typeName);
+            if (parsers == null) {
+                parsers = new ArrayList<StubParser>(1);
+                lazyStubTypes.put(typeName, parsers);
+            }
+            parsers.add(stubParser);
+        }
+    }
+
+    /**
+     * With the -AstubLazy option, parses the declarations in stub files of
+     * the type that declares {@code elt}, unless they were already parsed.
+     * They are parsed in the order of the stub files, with the same result
+     * as parsing them in buildIndexTypes.
+     *
+     * This must be called before any stub file information about
+     * {@code elt} is used.  While the declarations are parsed, indexTypes
+     * and indexDeclAnnos are null, as while buildIndexTypes runs, so that
+     * nothing is cached and no other type is parsed.
+     */
+    private void parseLazyStubs(Element elt) {
+        if (lazyStubTypes == null || lazyStubTypes.isEmpty() || indexTypes == null) {
+            return;
+        }
+        TypeElement type = ElementUtils.enclosingClass(elt);
+        if (type == null) {
+            return;
+        }
+        String typeName = type.getQualifiedName().toString();
+        List<StubParser> parsers = lazyStubTypes.remove(typeName);
+        if (parsers == null) {
+            return;
+        }
+
+        Map<Element, AnnotatedTypeMirror> indexTypes = this.indexTypes;
+        Map<String, Set<AnnotationMirror>> indexDeclAnnos = this.indexDeclAnnos;
+        this.indexTypes = null;
+        this.indexDeclAnnos = null;
+        try {
+            for (StubParser stubParser : parsers) {
+                stubParser.parseLazyType(typeName, indexTypes, indexDeclAnnos);
+            }
+        } finally {
+            this.indexTypes = indexTypes;
+            this.indexDeclAnnos = indexDeclAnnos;
+        }
+    }
+
+    /**
+     * Creates a {@link StubParser} for the given stub file.  A stub file
+     * that was already parsed by an earlier compilation in the same
+     * process is not parsed again.  The checksum of the stub file is added
+     * to {@link #stubChecksums}.  If the -AstubCache option names a
+     * directory, the parsed stub file is also read from and stored in a
+     * {@link StubCache} in that directory.
+     */
+    private StubParser createStubParser(String filename, InputStream in) {
+        byte[] contents = StubCache.readContents(filename, in);
+        stubChecksums.append('\n').append(StubCache.checksum(contents));
+        String cacheDir = checker.getOption("stubCache");
+        if (cacheDir == null) {
+            return new StubParser(filename, StubCache.parseShared(filename, contents), this, processingEnv);
+        }
+        if (stubCache == null) {
+            stubCache = new StubCache(new File(cacheDir));
+        }
+        return new StubParser(filename, stubCache.parse(filename, contents), this, processingEnv);
+    }
+
     /**
      * Returns the actual annotation mirror used to annotate this element,
      * whose name equals the passed annotation class, if one exists, or null otherwise.
@@ -2409,10 +2783,14 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      *            The element for which to determine annotations.
      */
     public Set<AnnotationMirror> getDeclAnnotations(Element elt) {
+        if (recordDependencies) {
+            checker.recordDependency(elt);
+        }
         if (cacheDeclAnnos.containsKey(elt)) {
             //Found in cache, return result.
             return cacheDeclAnnos.get(elt);
         }
+        parseLazyStubs(elt);
 
         Set<AnnotationMirror> results = AnnotationUtils.createAnnotationSet();
         // Retrieving the annotations from the element.
@@ -1737,7 +1737,8 @@ public abstract class AnnotatedTypeMirror {
 
         @Override
         public AnnotatedNoType deepCopy(boolean copyAnnotations) {
-            return (AnnotatedNoType) new AnnotatedTypeCopier(copyAnnotations).visit(this);
+            // There are no component types, so a shallow copy suffices.
+            return shallowCopy(copyAnnotations);
         }
 
         @Override
@@ -1781,7 +1782,8 @@ public abstract class AnnotatedTypeMirror {
 
         @Override
         public AnnotatedNullType deepCopy(boolean copyAnnotations) {
-            return (AnnotatedNullType) new AnnotatedTypeCopier(copyAnnotations).visit(this);
+            // There are no component types, so a shallow copy suffices.
+            return shallowCopy(copyAnnotations);
         }
 
         @Override
@@ -1828,7 +1830,8 @@ public abstract class AnnotatedTypeMirror {
 
         @Override
         public AnnotatedPrimitiveType deepCopy(boolean copyAnnotations) {
-            return (AnnotatedPrimitiveType) new AnnotatedTypeCopier(copyAnnotations).visit(this);
+            // There are no component types, so a shallow copy suffices.
+            return shallowCopy(copyAnnotations);
         }
 
         @Override
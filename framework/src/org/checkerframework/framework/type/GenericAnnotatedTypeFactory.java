@@ -15,6 +15,7 @@ import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGLambda;
 import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGMethod;
 import org.checkerframework.dataflow.cfg.UnderlyingAST.CFGStatement;
 import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.dataflow.cfg.node.NodeNumbering;
 import org.checkerframework.dataflow.cfg.node.ReturnNode;
 import org.checkerframework.framework.flow.CFAbstractAnalysis;
 import org.checkerframework.framework.flow.CFAbstractStore;
@@ -44,11 +45,13 @@ import org.checkerframework.framework.type.typeannotator.ImplicitsTypeAnnotator;
 import org.checkerframework.framework.type.typeannotator.ListTypeAnnotator;
 import org.checkerframework.framework.type.typeannotator.PropagationTypeAnnotator;
 import org.checkerframework.framework.type.typeannotator.TypeAnnotator;
+import org.checkerframework.framework.util.ContractsUtils;
 import org.checkerframework.framework.util.QualifierPolymorphism;
 import org.checkerframework.framework.util.defaults.QualifierDefaults;
 import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.ErrorReporter;
 import org.checkerframework.javacutil.Pair;
+import org.checkerframework.javacutil.Profiler;
 import org.checkerframework.javacutil.TreeUtils;
 
 import java.lang.annotation.Annotation;
@@ -58,6 +61,7 @@ import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -120,6 +124,9 @@ public abstract class GenericAnnotatedTypeFactory<
     /** to handle defaults specified by the user */
     protected QualifierDefaults defaults;
 
+    /** the pre- and postconditions read so far; see {@link #getContractsUtils} */
+    private ContractsUtils contractsUtils;
+
     // Flow related fields
 
     /** Should use flow analysis? */
@@ -141,6 +148,9 @@ public abstract class GenericAnnotatedTypeFactory<
         this.useFlow = useFlow;
         this.analyses = new LinkedList<>();
         this.scannedClasses = new HashMap<>();
+        this.releaseFlowResults = checker.hasOption("releaseFlowResults");
+        this.analyzedWith = new HashMap<>();
+        this.releasedClasses = new HashSet<>();
         this.flowResult = null;
         this.regularExitStores = null;
         this.methodInvocationStores = null;
@@ -186,6 +196,8 @@ public abstract class GenericAnnotatedTypeFactory<
         super.setRoot(root);
         this.analyses.clear();
         this.scannedClasses.clear();
+        this.analyzedWith.clear();
+        this.releasedClasses.clear();
         this.flowResult = null;
         this.regularExitStores = null;
         this.methodInvocationStores = null;
@@ -338,6 +350,18 @@ public abstract class GenericAnnotatedTypeFactory<
         return ret;
     }
 
+    /**
+     * Returns the pre- and postconditions of methods for this factory.
+     * The contracts of an element are only read from its annotations once,
+     * so all queries of this factory should use the same instance.
+     */
+    public ContractsUtils getContractsUtils() {
+        if (contractsUtils == null) {
+            contractsUtils = new ContractsUtils(this);
+        }
+        return contractsUtils;
+    }
+
     /**
      * Create {@link QualifierDefaults} which handles user specified defaults
      * @return the QualifierDefaults class
@@ -477,6 +501,23 @@ public abstract class GenericAnnotatedTypeFactory<
 
     protected final Map<ClassTree, ScanState> scannedClasses;
 
+    /**
+     * Whether to release the results of the flow analysis of a top-level
+     * class once it has been visited; set by the -AreleaseFlowResults
+     * option.  See {@link #releaseFlowResults(ClassTree)}.
+     */
+    private final boolean releaseFlowResults;
+
+    /**
+     * For each class in scannedClasses, the class that performFlowAnalysis
+     * was called on to analyze it:  the class itself, or the class that
+     * encloses it.  Only maintained if releaseFlowResults is set.
+     */
+    private final Map<ClassTree, ClassTree> analyzedWith;
+
+    /** The top-level classes whose flow analysis results were released. */
+    private final Set<ClassTree> releasedClasses;
+
     /**
      * The result of the flow analysis. Invariant:
      *
@@ -489,6 +530,13 @@ public abstract class GenericAnnotatedTypeFactory<
      */
     protected AnalysisResult<Value, Store> flowResult;
 
+    /**
+     * The numbering of the nodes of all control flow graphs this factory
+     * builds, so that the node values in {@link #flowResult} are indexed
+     * by a dense range of numbers.
+     */
+    protected final NodeNumbering nodeNumbering = new NodeNumbering();
+
     /**
      * A mapping from methods (or other code blocks) to their regular exit store (used to check
      * postconditions).
@@ -595,6 +643,9 @@ public abstract class GenericAnnotatedTypeFactory<
         while (!queue.isEmpty()) {
             ClassTree ct = queue.remove();
             scannedClasses.put(ct, ScanState.IN_PROGRESS);
+            if (releaseFlowResults) {
+                analyzedWith.put(ct, classTree);
+            }
 
             AnnotatedDeclaredType preClassType = visitorState.getClassType();
             ClassTree preClassTree = visitorState.getClassTree();
@@ -612,6 +663,12 @@ public abstract class GenericAnnotatedTypeFactory<
 
             Queue<Pair<LambdaExpressionTree, Store>> lambdaQueue = new LinkedList<>();
 
+            // The time is attributed to each class, including the nested
+            // ones; the string is the qualified name, or a description of
+            // an anonymous class.  It is only built if profiling is on.
+            Profiler.Measurement measurement = Profiler.isEnabled()
+                    ? Profiler.start("flow", TreeUtils.elementFromDeclaration(ct).toString())
+                    : null;
             try {
                 List<MethodTree> methods = new ArrayList<>();
                 for (Tree m : ct.getMembers()) {
@@ -701,12 +758,66 @@ public abstract class GenericAnnotatedTypeFactory<
                 visitorState.setClassTree(preClassTree);
                 visitorState.setMethodReceiver(preAMT);
                 visitorState.setMethodTree(preMT);
+                Profiler.stop(measurement);
             }
 
             scannedClasses.put(ct, ScanState.FINISHED);
         }
     }
 
+    /**
+     * Releases the results of the flow analysis of the top-level class
+     * {@code classTree}, which the visitor has finished checking, if the
+     * -AreleaseFlowResults option is given.  Otherwise, the results of all
+     * classes of a compilation unit are kept until the next call to
+     * {@link #setRoot}.
+     *
+     * The node values, tree lookups, block stores, and exit and return
+     * stores are only queried while the class that contains them is
+     * visited, so the memory they use is freed.  The class and its nested
+     * classes remain marked as scanned, so later queries for trees in them
+     * do not analyze them again; such queries see the types without
+     * flow-sensitive refinement.  Other classes that were analyzed as a
+     * side effect of checking {@code classTree}, but not visited yet, are
+     * analyzed again when they are needed, and so is {@code classTree} if
+     * the visitor checks it again; see {@link #reanalyzeIfReleased}.
+     */
+    public void releaseFlowResults(ClassTree classTree) {
+        if (!releaseFlowResults || flowResult == null || !analyses.isEmpty()) {
+            return;
+        }
+        releasedClasses.add(classTree);
+        for (Iterator<Map.Entry<ClassTree, ScanState>> iter = scannedClasses.entrySet().iterator(); iter.hasNext(); ) {
+            ClassTree ct = iter.next().getKey();
+            if (!releasedClasses.contains(analyzedWith.get(ct))) {
+                iter.remove();
+                analyzedWith.remove(ct);
+            }
+        }
+        flowResult = new AnalysisResult<>();
+        regularExitStores.clear();
+        returnStatementStores.clear();
+    }
+
+    /**
+     * Undoes {@link #releaseFlowResults(ClassTree)} for the top-level class
+     * {@code classTree}, which the visitor is about to check again, so
+     * that it and its nested classes are analyzed again instead of being
+     * checked without flow-sensitive refinement.
+     */
+    public void reanalyzeIfReleased(ClassTree classTree) {
+        if (!releasedClasses.remove(classTree)) {
+            return;
+        }
+        for (Iterator<Map.Entry<ClassTree, ClassTree>> iter = analyzedWith.entrySet().iterator(); iter.hasNext(); ) {
+            Map.Entry<ClassTree, ClassTree> entry = iter.next();
+            if (entry.getValue() == classTree) {
+                scannedClasses.remove(entry.getKey());
+                iter.remove();
+            }
+        }
+    }
+
     // Maintain a deque of analyses to accommodate nested classes.
     protected final Deque<FlowAnalysis> analyses;
     // Maintain for every class the store that is used when we analyze initialization code
@@ -736,7 +847,7 @@ public abstract class GenericAnnotatedTypeFactory<
             List<Pair<VariableElement, Value>> fieldValues, ClassTree currentClass,
             boolean isInitializationCode, boolean isStatic,
             Store lambdaStore) {
-        CFGBuilder builder = new CFCFGBuilder(checker, this);
+        CFGBuilder builder = new CFCFGBuilder(checker, this, nodeNumbering);
         ControlFlowGraph cfg = builder.run(root, processingEnv, ast);
         FlowAnalysis newAnalysis = createFlowAnalysis(fieldValues);
         if (emptyStore == null) {
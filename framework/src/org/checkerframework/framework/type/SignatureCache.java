@@ -0,0 +1,393 @@
+package org.checkerframework.framework.type;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.framework.source.IncrementalCache;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedExecutableType;
+import org.checkerframework.framework.type.visitor.AnnotatedTypeScanner;
+import org.checkerframework.javacutil.AnnotationUtils;
+import org.checkerframework.javacutil.BoundedCache;
+import org.checkerframework.javacutil.BoundedCache.EvictionPolicy;
+import org.checkerframework.javacutil.ElementUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.JavaFileObject;
+
+import com.sun.tools.javac.code.Symbol;
+
+/**
+ * A cache of the annotated types of the methods, constructors, and fields
+ * that are declared in class files, as returned by
+ * {@link AnnotatedTypeFactory#getAnnotatedType(Element)}: with the
+ * annotations from stub files and with all defaults applied.
+ *
+ * Such types only depend on the class file, the stub files, and the
+ * options of the checker, so they can be kept for the whole compilation
+ * instead of being computed again for every use of a library method.  The
+ * cache is bounded by the -AsignatureCacheSize option and evicts the least
+ * recently used types.
+ *
+ * If the -AsignatureCache option names a directory, the types are also
+ * stored there at the end of the compilation and used by later
+ * compilations with the same configuration:  the same checker, options,
+ * class path, version of the framework, and contents of the stub files.  A stored type is only
+ * used while the class file that declares the member has not changed, and
+ * types with annotations that have elements, such as
+ * {@code @KeyFor("map")}, are not stored.
+ *
+ * @see AnnotatedTypeFactory#getAnnotatedType(Element)
+ */
+public class SignatureCache {
+
+    /**
+     * Version of the format of the stored types.  Change it whenever the
+     * format changes, so that stale files are ignored.
+     */
+    private static final String FORMAT_VERSION = "1";
+
+    /** File extension of stored caches. */
+    private static final String EXTENSION = ".sigcache";
+
+    /** The types computed or restored in this compilation. */
+    private final BoundedCache<Element, AnnotatedTypeMirror> types;
+
+    /** The directory of the stored types, or null. */
+    private final /*@Nullable*/ File directory;
+
+    /** The file that holds the stored types, or null until {@link #open} is called. */
+    private /*@Nullable*/ File file = null;
+
+    /**
+     * The stored types that have not been restored yet, by the key of
+     * their element; see {@link IncrementalCache#elementKey}.
+     */
+    private Map<String, StoredType> stored = new HashMap<String, StoredType>();
+
+    private final Elements elements;
+    private final Types typeUtils;
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity the maximal number of types kept in memory
+     * @param directory the directory of the stored types, or null to not
+     *        store them
+     */
+    public SignatureCache(int capacity, /*@Nullable*/ File directory,
+            Elements elements, Types typeUtils) {
+        this.types = new BoundedCache<Element, AnnotatedTypeMirror>("signatureCache", capacity, EvictionPolicy.LRU);
+        this.directory = directory;
+        this.elements = elements;
+        this.typeUtils = typeUtils;
+    }
+
+    /**
+     * Reads the types stored for {@code configuration}, if the cache has a
+     * directory.  Until this is called, no stored type is used and
+     * {@link #save} does nothing.
+     *
+     * @param configuration a description of everything besides the class
+     *        files that influences the types, such as the checker, its
+     *        options, and the stub files
+     */
+    public void open(String configuration) {
+        if (directory == null) {
+            return;
+        }
+        this.file = new File(directory, IncrementalCache.checksum(configuration) + EXTENSION);
+        this.stored = read(file);
+    }
+
+    /** Returns the in-memory cache, for its statistics. */
+    public BoundedCache<Element, AnnotatedTypeMirror> getTypes() {
+        return types;
+    }
+
+    /**
+     * Returns true if the type of {@code elt} can be cached, that is, if
+     * it is a member declared in a class file.
+     */
+    public static boolean isCacheable(Element elt) {
+        switch (elt.getKind()) {
+        case METHOD:
+        case CONSTRUCTOR:
+        case FIELD:
+        case ENUM_CONSTANT:
+            return ElementUtils.isElementFromByteCode(elt);
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Returns the cached type of {@code elt}, or null if there is none.
+     * The type is shared with the cache and must not be modified.
+     *
+     * @param factory the factory used to restore a stored type
+     */
+    public /*@Nullable*/ AnnotatedTypeMirror get(Element elt, AnnotatedTypeFactory factory) {
+        AnnotatedTypeMirror type = types.get(elt);
+        if (type != null || stored.isEmpty()) {
+            return type;
+        }
+        String key = IncrementalCache.elementKey(elt, typeUtils);
+        StoredType storedType = key == null ? null : stored.remove(key);
+        if (storedType == null || !storedType.classFile.equals(classFileStamp(elt))) {
+            return null;
+        }
+        type = restore(elt, storedType, factory);
+        if (type != null) {
+            types.put(elt, type);
+        }
+        return type;
+    }
+
+    /**
+     * Adds the type of {@code elt} to the cache.  The cache takes
+     * ownership of {@code type}, which must not be modified afterwards.
+     */
+    public void put(Element elt, AnnotatedTypeMirror type) {
+        types.put(elt, type);
+    }
+
+    /**
+     * Stores the cached types in the directory of the -AsignatureCache
+     * option, together with the stored types that were not used in this
+     * compilation.  Failure to write is not an error; the types will just
+     * be computed again by the next compilation.
+     */
+    public void save() {
+        if (file == null) {
+            return;
+        }
+        Map<String, StoredType> all = new LinkedHashMap<String, StoredType>(stored);
+        for (Map.Entry<Element, AnnotatedTypeMirror> e : types.entrySet()) {
+            String key = IncrementalCache.elementKey(e.getKey(), typeUtils);
+            String stamp = classFileStamp(e.getKey());
+            if (key == null || stamp == null) {
+                continue;
+            }
+            StoredType storedType = StoredType.of(stamp, e.getValue());
+            if (storedType != null) {
+                all.put(key, storedType);
+            }
+        }
+        write(file, all);
+    }
+
+    /**
+     * Creates the type of {@code elt} from a stored type.  Returns null if
+     * the stored type does not fit the type of {@code elt} in this
+     * compilation, for example because an annotation no longer exists.
+     */
+    private /*@Nullable*/ AnnotatedTypeMirror restore(Element elt, StoredType storedType,
+            AnnotatedTypeFactory factory) {
+        AnnotatedTypeMirror type = factory.toAnnotatedType(elt.asType(), false);
+        if (type instanceof AnnotatedExecutableType) {
+            ((AnnotatedExecutableType) type).setElement((ExecutableElement) elt);
+        }
+        List<AnnotatedTypeMirror> positions = positions(type);
+        if (positions.size() != storedType.kinds.size()) {
+            return null;
+        }
+        for (int i = 0; i < positions.size(); ++i) {
+            AnnotatedTypeMirror position = positions.get(i);
+            if (position.getKind() != storedType.kinds.get(i)) {
+                return null;
+            }
+            List<AnnotationMirror> annotations = new ArrayList<AnnotationMirror>();
+            for (String name : storedType.annotations.get(i)) {
+                AnnotationMirror anno = AnnotationUtils.fromName(elements, name);
+                if (anno == null) {
+                    return null;
+                }
+                annotations.add(anno);
+            }
+            position.clearAnnotations();
+            position.addAnnotations(annotations);
+        }
+        return type;
+    }
+
+    /**
+     * Returns {@code type} and the types it contains, in the order of an
+     * {@link AnnotatedTypeScanner}.
+     */
+    static List<AnnotatedTypeMirror> positions(AnnotatedTypeMirror type) {
+        final List<AnnotatedTypeMirror> result = new ArrayList<AnnotatedTypeMirror>();
+        new AnnotatedTypeScanner<Void, Void>() {
+            @Override
+            protected Void scan(AnnotatedTypeMirror type, Void p) {
+                if (type != null && !visitedNodes.containsKey(type)) {
+                    result.add(type);
+                }
+                return super.scan(type, p);
+            }
+        }.visit(type);
+        return result;
+    }
+
+    /**
+     * Returns a description of the class file that declares {@code elt},
+     * which changes when the class file changes, or null if there is none.
+     */
+    private static /*@Nullable*/ String classFileStamp(Element elt) {
+        Element outermost = null;
+        for (Element e = elt; e != null; e = e.getEnclosingElement()) {
+            if (e instanceof Symbol.ClassSymbol) {
+                outermost = e;
+            }
+        }
+        if (outermost == null) {
+            return null;
+        }
+        JavaFileObject classFile = ((Symbol.ClassSymbol) outermost).classfile;
+        if (classFile == null) {
+            return null;
+        }
+        return classFile.toUri() + " " + classFile.getLastModified();
+    }
+
+    /** A type as it is stored on disk. */
+    private static class StoredType {
+        /** The class file that declares the member; see {@link #classFileStamp}. */
+        final String classFile;
+        /** The kinds of the types returned by {@link #positions}. */
+        final List<TypeKind> kinds;
+        /** The names of the annotations on the types returned by {@link #positions}. */
+        final List<List<String>> annotations;
+
+        StoredType(String classFile, List<TypeKind> kinds, List<List<String>> annotations) {
+            this.classFile = classFile;
+            this.kinds = kinds;
+            this.annotations = annotations;
+        }
+
+        /**
+         * Returns the stored form of {@code type}, or null if it has an
+         * annotation with elements.
+         */
+        static /*@Nullable*/ StoredType of(String classFile, AnnotatedTypeMirror type) {
+            List<AnnotatedTypeMirror> positions = positions(type);
+            List<TypeKind> kinds = new ArrayList<TypeKind>(positions.size());
+            List<List<String>> annotations = new ArrayList<List<String>>(positions.size());
+            for (AnnotatedTypeMirror position : positions) {
+                kinds.add(position.getKind());
+                List<String> names = new ArrayList<String>();
+                for (AnnotationMirror anno : position.getAnnotations()) {
+                    if (!anno.getElementValues().isEmpty()) {
+                        return null;
+                    }
+                    names.add(AnnotationUtils.annotationName(anno));
+                }
+                annotations.add(names);
+            }
+            return new StoredType(classFile, kinds, annotations);
+        }
+    }
+
+    private static Map<String, StoredType> read(File file) {
+        Map<String, StoredType> result = new HashMap<String, StoredType>();
+        if (!file.isFile()) {
+            return result;
+        }
+        try {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (!in.readUTF().equals(FORMAT_VERSION)) {
+                    return result;
+                }
+                int n = in.readInt();
+                for (int i = 0; i < n; ++i) {
+                    String key = in.readUTF();
+                    String classFile = in.readUTF();
+                    int positions = in.readInt();
+                    List<TypeKind> kinds = new ArrayList<TypeKind>(positions);
+                    List<List<String>> annotations = new ArrayList<List<String>>(positions);
+                    for (int j = 0; j < positions; ++j) {
+                        kinds.add(TypeKind.valueOf(in.readUTF()));
+                        int m = in.readInt();
+                        List<String> names = new ArrayList<String>(m);
+                        for (int k = 0; k < m; ++k) {
+                            names.add(in.readUTF());
+                        }
+                        annotations.add(names);
+                    }
+                    result.put(key, new StoredType(classFile, kinds, annotations));
+                }
+                return result;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // A truncated or corrupt file; it will be overwritten.
+            return new HashMap<String, StoredType>();
+        } catch (RuntimeException e) {
+            // For example, an unknown type kind.
+            return new HashMap<String, StoredType>();
+        }
+    }
+
+    private static void write(File file, Map<String, StoredType> types) {
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()
+                && !directory.isDirectory()) {
+            return;
+        }
+        File tmp = null;
+        try {
+            tmp = File.createTempFile(file.getName(), ".tmp", directory);
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeUTF(FORMAT_VERSION);
+                out.writeInt(types.size());
+                for (Map.Entry<String, StoredType> e : types.entrySet()) {
+                    StoredType type = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeUTF(type.classFile);
+                    out.writeInt(type.kinds.size());
+                    for (int j = 0; j < type.kinds.size(); ++j) {
+                        out.writeUTF(type.kinds.get(j).name());
+                        out.writeInt(type.annotations.get(j).size());
+                        for (String name : type.annotations.get(j)) {
+                            out.writeUTF(name);
+                        }
+                    }
+                }
+            } finally {
+                out.close();
+            }
+            // Replace the stale file, if any.
+            if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+                tmp.delete();
+            }
+        } catch (IOException e) {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+}
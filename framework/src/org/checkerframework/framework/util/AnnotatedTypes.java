@@ -24,6 +24,7 @@ import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.ErrorReporter;
 import org.checkerframework.javacutil.InternalUtils;
 import org.checkerframework.javacutil.Pair;
+import org.checkerframework.javacutil.Profiler;
 import org.checkerframework.javacutil.TypesUtils;
 
 import java.util.ArrayDeque;
@@ -687,7 +688,12 @@ public class AnnotatedTypes {
             }
             return typeArguments;
         } else {
-            return atypeFactory.getTypeArgumentInference().inferTypeArgs(atypeFactory, expr, elt, preType);
+            Profiler.Measurement measurement = Profiler.start("inference", expr.getKind().name());
+            try {
+                return atypeFactory.getTypeArgumentInference().inferTypeArgs(atypeFactory, expr, elt, preType);
+            } finally {
+                Profiler.stop(measurement);
+            }
         }
     }
 
@@ -1395,6 +1401,14 @@ public class AnnotatedTypes {
 
     private static Map<TypeElement, Boolean> isTypeAnnotationCache = new IdentityHashMap<>();
 
+    /**
+     * Clears the static caches of this class, which hold elements of the
+     * compilations of the current JVM.
+     */
+    public static void clear() {
+        isTypeAnnotationCache.clear();
+    }
+
     public static boolean isTypeAnnotation(AnnotationMirror anno) {
         TypeElement elem = (TypeElement)anno.getAnnotationType().asElement();
         if (isTypeAnnotationCache.containsKey(elem))
@@ -0,0 +1,747 @@
+package org.checkerframework.framework.util;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.common.reflection.ClassValChecker;
+import org.checkerframework.common.reflection.MethodValChecker;
+import org.checkerframework.common.value.ValueChecker;
+import org.checkerframework.framework.source.SourceChecker;
+import org.checkerframework.framework.stub.StubParser;
+import org.checkerframework.javacutil.AnnotationUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.main.Main;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * A long-lived compiler process that runs the compilations of
+ * {@link CheckerMain} one after the other, so that they do not each pay
+ * for starting a JVM, loading and compiling the classes of the compiler and
+ * the checkers, and parsing stub files.
+ *
+ * <p>
+ * {@code java -jar checker.jar -daemon dir ...} sends the compilation to
+ * the daemon that belongs to directory {@code dir}, starting the daemon if
+ * it is not running.  The daemon writes the port and a secret token for
+ * its loopback socket to a file in {@code dir}, which only its owner can
+ * read, and writes its log next to it.  There is one daemon for every
+ * JVM configuration (the {@code java} command, the {@code javac.jar},
+ * {@code checker.jar} and {@code -J} options) and working directory, since
+ * the compiler resolves relative paths against the working directory of
+ * its process.  A daemon exits after it has been idle for the number of
+ * minutes in the system property {@code checkers.daemon.idleMinutes}
+ * (default 180; pass it with {@code -J-D...}), or when it is stopped with
+ * <pre>
+ *   java -cp checker.jar org.checkerframework.framework.util.CheckerDaemon -stop dir
+ * </pre>
+ *
+ * <p>
+ * The output of a compilation is sent back to the client as it is written,
+ * and the client exits with the exit status of the compiler.  If the daemon
+ * cannot be started or reached, {@link CheckerMain} compiles in a new
+ * process as it does without {@code -daemon}.
+ *
+ * <p>
+ * The classes of {@code checker.jar} are loaded once and shared by all
+ * compilations, if all processors of a compilation are checkers from
+ * {@code checker.jar} and the compilation does not name qualifiers with
+ * {@code -Aquals} or {@code -AqualDirs}.  In that case the daemon also
+ * keeps parsed stub files in a {@code -AstubCache} directory, unless the
+ * compilation names its own.  Otherwise, and for the checkers that load
+ * classes of the checked program, each compilation loads the processors
+ * with a class loader of its own, as a new process would.
+ */
+public class CheckerDaemon {
+
+    /** The system property with the number of idle minutes after which the daemon exits. */
+    public static final String IDLE_MINUTES_PROPERTY = "checkers.daemon.idleMinutes";
+
+    /** How long a client waits for a new daemon to accept compilations. */
+    private static final long STARTUP_TIMEOUT_MILLIS = 60 * 1000;
+
+    /** How often an idle daemon checks whether it should exit. */
+    private static final int POLL_MILLIS = 60 * 1000;
+
+    /** How long the daemon waits for a client to send its request. */
+    private static final int REQUEST_TIMEOUT_MILLIS = 10 * 1000;
+
+    /** The largest string or argument list accepted in a request. */
+    private static final int MAX_LENGTH = 64 * 1024 * 1024;
+
+    // The requests and the frames of the reply.
+    private static final String COMPILE = "compile";
+    private static final String STOP = "stop";
+    private static final int STDOUT = 1;
+    private static final int STDERR = 2;
+    private static final int EXIT = 3;
+    private static final int REFUSED = 4;
+
+    /** The exit status of javac for an abnormal termination. */
+    private static final int EXIT_ABNORMAL = 4;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The checkers that load classes of the checked program, and therefore
+     * need a class loader of their own for every compilation.
+     */
+    private static final Set<String> CLASS_LOADING_CHECKERS = new HashSet<String>(Arrays.asList(
+            ValueChecker.class.getName(),
+            ClassValChecker.class.getName(),
+            MethodValChecker.class.getName()));
+
+    private final File directory;
+    private final String key;
+    private final File stateFile;
+    private final String token;
+    private final long idleMillis;
+
+    private CheckerDaemon(File directory, String key) {
+        this.directory = directory;
+        this.key = key;
+        this.stateFile = stateFile(directory, key);
+        this.token = new BigInteger(130, new SecureRandom()).toString(32);
+        this.idleMillis = Long.getLong(IDLE_MINUTES_PROPERTY, 180) * 60 * 1000;
+    }
+
+    /**
+     * Runs a daemon ({@code CheckerDaemon dir key}, as started by
+     * {@link #compile}), or stops the daemons of a directory
+     * ({@code CheckerDaemon -stop dir}).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 && args[0].equals("-stop")) {
+            System.exit(stop(new File(args[1])) ? 0 : 1);
+        } else if (args.length == 2) {
+            new CheckerDaemon(new File(args[0]), args[1]).serve();
+            System.exit(0);
+        } else {
+            System.err.println("Usage: CheckerDaemon -stop directory");
+            System.exit(2);
+        }
+    }
+
+    // **********************************************************************
+    // Client
+    // **********************************************************************
+
+    /**
+     * Runs a compilation in the daemon of {@code directory} whose JVM is
+     * started with {@code launchCommand}, starting the daemon if necessary.
+     * The output of the compilation is written to {@code System.out} and
+     * {@code System.err}.
+     *
+     * @param directory the directory of the daemon's files
+     * @param launchCommand the command that starts a JVM with the
+     *        compiler and {@code checker.jar}, up to but excluding the main class
+     * @param compilerArgs the arguments of the compiler
+     * @return the exit status of the compiler, or null if the daemon could
+     *         not be used
+     */
+    public static /*@Nullable*/ Integer compile(File directory, List<String> launchCommand,
+            List<String> compilerArgs) {
+        String key = key(launchCommand);
+        File stateFile = stateFile(directory, key);
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Properties state = readState(stateFile);
+            if (state == null) {
+                state = start(directory, key, launchCommand);
+                if (state == null) {
+                    return null;
+                }
+            }
+            Socket socket;
+            try {
+                socket = new Socket(InetAddress.getLoopbackAddress(),
+                        Integer.parseInt(state.getProperty("port")));
+            } catch (IOException e) {
+                // The daemon has exited without removing its state file.
+                stateFile.delete();
+                continue;
+            } catch (NumberFormatException e) {
+                stateFile.delete();
+                continue;
+            }
+            try {
+                return request(socket, state.getProperty("token"), key, compilerArgs);
+            } catch (IOException e) {
+                System.err.println("Checker daemon failed: " + e.getMessage()
+                        + "; see the log in " + directory);
+                return null;
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Nothing to do.
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stops all daemons of {@code directory}.
+     *
+     * @return true if all daemons were stopped
+     */
+    public static boolean stop(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return true;
+        }
+        boolean stopped = true;
+        for (File file : files) {
+            if (!file.getName().startsWith("daemon-") || !file.getName().endsWith(".properties")) {
+                continue;
+            }
+            Properties state = readState(file);
+            if (state == null) {
+                continue;
+            }
+            try {
+                Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                        Integer.parseInt(state.getProperty("port")));
+                try {
+                    DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(socket.getOutputStream()));
+                    writeString(out, state.getProperty("token"));
+                    writeString(out, STOP);
+                    out.flush();
+                    new DataInputStream(socket.getInputStream()).readByte();
+                } finally {
+                    socket.close();
+                }
+            } catch (IOException e) {
+                // The daemon is not running.
+                file.delete();
+            } catch (RuntimeException e) {
+                System.err.println("Cannot stop the daemon of " + file + ": " + e);
+                stopped = false;
+            }
+        }
+        return stopped;
+    }
+
+    /**
+     * Sends a compilation request and copies the reply to
+     * {@code System.out} and {@code System.err}.
+     *
+     * @return the exit status, or null if the daemon refused the request
+     */
+    private static /*@Nullable*/ Integer request(Socket socket, String token, String key,
+            List<String> compilerArgs) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+        writeString(out, token);
+        writeString(out, COMPILE);
+        writeString(out, key);
+        out.writeInt(compilerArgs.size());
+        for (String arg : compilerArgs) {
+            writeString(out, arg);
+        }
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        while (true) {
+            int kind;
+            try {
+                kind = in.readByte();
+            } catch (EOFException e) {
+                throw new IOException("the daemon closed the connection");
+            }
+            switch (kind) {
+                case STDOUT:
+                case STDERR:
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    PrintStream stream = kind == STDOUT ? System.out : System.err;
+                    stream.write(bytes);
+                    stream.flush();
+                    break;
+                case EXIT:
+                    return in.readInt();
+                case REFUSED:
+                    return null;
+                default:
+                    throw new IOException("unexpected reply " + kind);
+            }
+        }
+    }
+
+    /**
+     * Starts a daemon and waits until it accepts compilations.
+     *
+     * @return the state of the new daemon, or null if it did not start
+     */
+    private static /*@Nullable*/ Properties start(File directory, String key,
+            List<String> launchCommand) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.err.println("Cannot create the checker daemon directory " + directory);
+            return null;
+        }
+        File stateFile = stateFile(directory, key);
+        File log = new File(directory, "daemon-" + shortKey(key) + ".log");
+        List<String> command = new ArrayList<String>(launchCommand);
+        command.add(CheckerDaemon.class.getName());
+        command.add(directory.getAbsolutePath());
+        command.add(key);
+
+        Process process;
+        try {
+            process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+        } catch (IOException e) {
+            System.err.println("Cannot start the checker daemon: " + e.getMessage());
+            return null;
+        }
+
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            Properties state = readState(stateFile);
+            if (state != null) {
+                return state;
+            }
+            try {
+                int exitStatus = process.exitValue();
+                System.err.println("The checker daemon exited with status " + exitStatus
+                        + "; see " + log);
+                return null;
+            } catch (IllegalThreadStateException e) {
+                // Still starting.
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        System.err.println("The checker daemon did not start in time; see " + log);
+        return null;
+    }
+
+    /**
+     * Returns the key of the daemons started with {@code launchCommand}
+     * in the current working directory.
+     */
+    private static String key(List<String> launchCommand) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+        for (String part : launchCommand) {
+            md.update(part.getBytes(UTF_8));
+            md.update((byte) 0);
+        }
+        md.update(new File("").getAbsolutePath().getBytes(UTF_8));
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest()) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+
+    private static String shortKey(String key) {
+        return key.substring(0, Math.min(16, key.length()));
+    }
+
+    private static File stateFile(File directory, String key) {
+        return new File(directory, "daemon-" + shortKey(key) + ".properties");
+    }
+
+    private static /*@Nullable*/ Properties readState(File stateFile) {
+        if (!stateFile.isFile()) {
+            return null;
+        }
+        Properties state = new Properties();
+        try {
+            InputStream in = new FileInputStream(stateFile);
+            try {
+                state.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        if (state.getProperty("port") == null || state.getProperty("token") == null) {
+            return null;
+        }
+        return state;
+    }
+
+    // **********************************************************************
+    // Daemon
+    // **********************************************************************
+
+    /** Accepts and runs compilations until the daemon is stopped or idle. */
+    private void serve() throws IOException {
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        try {
+            writeState(server.getLocalPort());
+            System.out.println("Checker daemon " + shortKey(key) + " listening on port "
+                    + server.getLocalPort());
+            server.setSoTimeout(POLL_MILLIS);
+            long lastUse = System.currentTimeMillis();
+            while (true) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    if (System.currentTimeMillis() - lastUse > idleMillis || !ownsStateFile()) {
+                        break;
+                    }
+                    continue;
+                }
+                boolean keepRunning;
+                try {
+                    keepRunning = handle(socket);
+                } catch (IOException e) {
+                    System.out.println("Failed request: " + e);
+                    keepRunning = true;
+                } finally {
+                    socket.close();
+                }
+                lastUse = System.currentTimeMillis();
+                if (!keepRunning) {
+                    break;
+                }
+            }
+        } finally {
+            if (ownsStateFile()) {
+                stateFile.delete();
+            }
+            server.close();
+            System.out.println("Checker daemon " + shortKey(key) + " stopped");
+        }
+    }
+
+    /**
+     * Handles one request.
+     *
+     * @return whether the daemon should keep running
+     */
+    private boolean handle(Socket socket) throws IOException {
+        socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+        if (!token.equals(readString(in))) {
+            return true;
+        }
+        String command = readString(in);
+        if (command.equals(STOP)) {
+            out.writeByte(EXIT);
+            out.writeInt(0);
+            out.flush();
+            return false;
+        }
+        if (!command.equals(COMPILE)) {
+            throw new IOException("unknown request " + command);
+        }
+        if (!key.equals(readString(in))) {
+            out.writeByte(REFUSED);
+            out.flush();
+            return true;
+        }
+        int count = in.readInt();
+        if (count < 0 || count > MAX_LENGTH) {
+            throw new IOException("bad argument count " + count);
+        }
+        String[] args = new String[count];
+        for (int i = 0; i < count; i++) {
+            args[i] = readString(in);
+        }
+        socket.setSoTimeout(0);
+
+        PrintStream stdout = new PrintStream(new FrameOutputStream(out, STDOUT), true);
+        PrintStream stderr = new PrintStream(new FrameOutputStream(out, STDERR), true);
+        long start = System.currentTimeMillis();
+        int exitStatus;
+        boolean keepRunning = true;
+        try {
+            exitStatus = compile(args, stdout, stderr);
+        } catch (Throwable t) {
+            // The state of the daemon is unknown after a crash of the
+            // compiler, such as an OutOfMemoryError:  start afresh.
+            t.printStackTrace(stderr);
+            stderr.println("The checker daemon stops after this error.");
+            exitStatus = EXIT_ABNORMAL;
+            keepRunning = false;
+        }
+        stdout.flush();
+        stderr.flush();
+        out.writeByte(EXIT);
+        out.writeInt(exitStatus);
+        out.flush();
+        System.out.println("Compilation of " + count + " arguments finished with status "
+                + exitStatus + " in " + (System.currentTimeMillis() - start) + " ms");
+        return keepRunning;
+    }
+
+    /**
+     * Runs one compilation with the compiler of this JVM, with
+     * {@code System.out} and {@code System.err} redirected to the client.
+     */
+    private int compile(String[] args, PrintStream stdout, PrintStream stderr) {
+        boolean shareClasses = sharesClasses(args);
+        if (shareClasses) {
+            args = withStubCache(args);
+        }
+        clearStaticState();
+
+        PrintStream systemOut = System.out;
+        PrintStream systemErr = System.err;
+        System.setOut(stdout);
+        System.setErr(stderr);
+        try {
+            Context context = new Context();
+            new DaemonFileManager(context, shareClasses);
+            PrintWriter writer = new PrintWriter(stderr, true);
+            Main.Result result = new Main("javac", writer).compile(args, context);
+            writer.flush();
+            return result.exitCode;
+        } finally {
+            System.setOut(systemOut);
+            System.setErr(systemErr);
+        }
+    }
+
+    /**
+     * Whether the processors of a compilation with {@code args} are
+     * checkers that can be loaded from the classes of {@code checker.jar}
+     * that the daemon shares between compilations.
+     */
+    private static boolean sharesClasses(String[] args) {
+        List<String> allArgs = new ArrayList<String>();
+        for (String arg : args) {
+            if (arg.startsWith("@")) {
+                try {
+                    for (String line : PluginUtil.readArgFile(new File(arg.substring(1)))) {
+                        allArgs.addAll(Arrays.asList(line.trim().split("\\s+")));
+                    }
+                } catch (IOException e) {
+                    // The compiler will report the missing file.
+                    return false;
+                }
+            } else {
+                allArgs.add(arg);
+            }
+        }
+
+        String processors = null;
+        for (int i = 0; i < allArgs.size(); i++) {
+            String arg = allArgs.get(i);
+            if (arg.equals("-processor") && i + 1 < allArgs.size()) {
+                processors = allArgs.get(i + 1);
+            } else if (arg.startsWith("-Aquals") || arg.startsWith("-AqualDirs")) {
+                return false;
+            }
+        }
+        if (processors == null) {
+            // The processors are discovered on the processor path.
+            return false;
+        }
+        for (String processor : processors.split(",")) {
+            if (CLASS_LOADING_CHECKERS.contains(processor)) {
+                return false;
+            }
+            try {
+                Class<?> cls = Class.forName(processor, false, CheckerDaemon.class.getClassLoader());
+                if (!SourceChecker.class.isAssignableFrom(cls)) {
+                    return false;
+                }
+            } catch (ClassNotFoundException e) {
+                return false;
+            } catch (LinkageError e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Adds a {@code -AstubCache} option in the daemon's directory, unless there is one. */
+    private String[] withStubCache(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("-AstubCache")) {
+                return args;
+            }
+        }
+        String[] result = Arrays.copyOf(args, args.length + 1);
+        result[args.length] = "-AstubCache=" + new File(directory, "stubcache").getAbsolutePath();
+        return result;
+    }
+
+    /**
+     * Clears the static caches of the Checker Framework, which would
+     * otherwise keep the elements of earlier compilations alive and change
+     * the diagnostics of later ones.
+     */
+    private static void clearStaticState() {
+        AnnotationUtils.clear();
+        AnnotatedTypes.clear();
+        StubParser.clearWarnings();
+    }
+
+    private void writeState(int port) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        Properties state = new Properties();
+        state.setProperty("port", Integer.toString(port));
+        state.setProperty("token", token);
+        state.setProperty("key", key);
+
+        File tmp = File.createTempFile(stateFile.getName(), ".tmp", directory);
+        // Only the owner may read the token.
+        tmp.setReadable(false, false);
+        tmp.setReadable(true, true);
+        tmp.setWritable(false, false);
+        tmp.setWritable(true, true);
+        OutputStream out = new FileOutputStream(tmp);
+        try {
+            state.store(out, "Checker daemon");
+        } finally {
+            out.close();
+        }
+        stateFile.delete();
+        if (!tmp.renameTo(stateFile)) {
+            tmp.delete();
+            throw new IOException("Cannot write " + stateFile);
+        }
+    }
+
+    /**
+     * Whether the state file still describes this daemon, rather than
+     * another one for the same key that was started at the same time.
+     */
+    private boolean ownsStateFile() {
+        Properties state = readState(stateFile);
+        return state != null && token.equals(state.getProperty("token"));
+    }
+
+    // **********************************************************************
+    // Protocol
+    // **********************************************************************
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IOException("bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /** Sends what is written to it to the client, as frames of one kind. */
+    private static class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final int kind;
+
+        FrameOutputStream(DataOutputStream out, int kind) {
+            this.out = out;
+            this.kind = kind;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            out.writeByte(kind);
+            out.writeInt(len);
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * A file manager that loads the processors with a class loader whose
+     * parent is the class loader of {@code checker.jar} in the daemon, so
+     * that the classes of the checkers are shared between compilations.
+     */
+    private static class DaemonFileManager extends JavacFileManager {
+        private final boolean shareClasses;
+
+        DaemonFileManager(Context context, boolean shareClasses) {
+            super(context, true, null);
+            this.shareClasses = shareClasses;
+        }
+
+        @Override
+        public ClassLoader getClassLoader(Location location) {
+            if (!shareClasses) {
+                return super.getClassLoader(location);
+            }
+            List<URL> urls = new ArrayList<URL>();
+            Iterable<? extends File> path = getLocation(location);
+            if (path != null) {
+                for (File file : path) {
+                    try {
+                        urls.add(file.toURI().toURL());
+                    } catch (MalformedURLException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            }
+            return new URLClassLoader(urls.toArray(new URL[urls.size()]),
+                    CheckerDaemon.class.getClassLoader());
+        }
+    }
+}
@@ -21,9 +21,18 @@ import java.util.zip.ZipEntry;
  * This class functions essentially the same as the jsr308-langtools javac
  * script EXCEPT that it adds the appropriate jdk.jar to the bootclasspath and
  * adds checker.jar to the classpath passed to javac.
+ *
+ * With {@code -daemon dir}, the compilation is run by a {@link CheckerDaemon}
+ * instead of a new JVM.
  */
 public class CheckerMain {
 
+    /**
+     * Option name for running the compilation in a {@link CheckerDaemon}.  The accompanying value
+     * is the directory of the daemon's files.
+     */
+    public static final String DAEMON_OPT = "-daemon";
+
     /**
      * Most logic of the CheckerMain main method is delegated to the CheckerMain class.  This method
      * just determines the relevant parameters to CheckerMain then tells it to invoke the JSR 308
@@ -66,6 +75,12 @@ public class CheckerMain {
 
     private final List<File> argListFiles;
 
+    /**
+     * The directory of the {@link CheckerDaemon} to run the compilation in, or null to run it
+     * in a new JVM
+     */
+    private final File daemonDir;
+
     /**
      * Construct all the relevant file locations and java version given the path to this jar and
      * a set of directories in which to search for jars
@@ -83,6 +98,7 @@ public class CheckerMain {
 
         final String jdkJarName = PluginUtil.getJdkJarName();
         this.jdkJar   = extractFileArg(PluginUtil.JDK_PATH_OPT, new File(searchPath, jdkJarName), argsList);
+        this.daemonDir = extractFileArg(DAEMON_OPT, null, argsList);
 
         this.compilationBootclasspath = createCompilationBootclasspath(argsList);
         this.runtimeBootClasspath     = createRuntimeBootclasspath(argsList);
@@ -337,13 +353,17 @@ public class CheckerMain {
 
         args.addAll(jvmOpts);
 
+        final List<String> launchCommand = new ArrayList<String>(args);
+
         addMainArgs(args);
+        final int compilerArgsStart = args.size();
 
         args.add("-Xbootclasspath/p:" + PluginUtil.join(File.pathSeparator, compilationBootclasspath));
 
+        final String classpath = PluginUtil.join(File.pathSeparator, cpOpts);
         if (!argsListHasClassPath(argListFiles)) {
             args.add("-classpath");
-            args.add(quote(PluginUtil.join(File.pathSeparator, cpOpts)));
+            args.add(quote(classpath));
         }
 
         args.addAll(toolOpts);
@@ -359,10 +379,41 @@ public class CheckerMain {
             }
         }
 
+        if (daemonDir != null) {
+            final Integer exitStatus = invokeDaemon(launchCommand,
+                    args.subList(compilerArgsStart, args.size()), classpath);
+            if (exitStatus != null) {
+                return exitStatus;
+            }
+        }
+
         //Actually invoke the compiler
         return ExecUtil.execute(args.toArray(new String[args.size()]), System.out, System.err);
     }
 
+    /**
+     * Run the compilation in the {@link CheckerDaemon} of daemonDir, starting it if necessary
+     * @param launchCommand The command that starts a JVM with the compiler, without its main class
+     * @param compilerArgs  The arguments of the compiler
+     * @param classpath     The unquoted classpath of the compiler
+     * @return The exit status of the compiler, or null if the daemon could not be used
+     */
+    protected Integer invokeDaemon(final List<String> launchCommand, final List<String> compilerArgs,
+                                   final String classpath) {
+        final List<String> command = new ArrayList<String>(launchCommand);
+        command.add("-classpath");
+        command.add(checkersJar.getAbsolutePath());
+
+        // The daemon does not go through a command line
+        final List<String> daemonArgs = new ArrayList<String>(compilerArgs);
+        final int classpathIndex = daemonArgs.indexOf("-classpath");
+        if (classpathIndex >= 0 && classpathIndex + 1 < daemonArgs.size()) {
+            daemonArgs.set(classpathIndex + 1, classpath);
+        }
+
+        return CheckerDaemon.compile(daemonDir, command, daemonArgs);
+    }
+
     private static void outputArgumentsToFile(String outputFilename, List<String> args) {
         if (outputFilename != null) {
             String errorMessage = null;
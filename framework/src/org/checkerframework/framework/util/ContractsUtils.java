@@ -1,8 +1,10 @@
 package org.checkerframework.framework.util;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.lang.model.element.AnnotationMirror;
@@ -25,6 +27,9 @@ import org.checkerframework.javacutil.Pair;
 /**
  * A utility class to handle pre- and postconditions.
  *
+ * The contracts of an element are read from its annotations once per type
+ * factory and kept for later queries; each query returns a new set.
+ *
  * @see PreconditionAnnotation
  * @see RequiresQualifier
  * @see PostconditionAnnotation
@@ -34,18 +39,34 @@ import org.checkerframework.javacutil.Pair;
  */
 public class ContractsUtils {
 
-    protected static ContractsUtils instance;
     protected GenericAnnotatedTypeFactory<?, ?, ?, ?> factory;
 
+    /** The preconditions of the elements queried so far. */
+    private final Map<Element, Set<Pair<String, String>>> preconditions = new HashMap<>();
+
+    /** The postconditions of the methods queried so far. */
+    private final Map<ExecutableElement, Set<Pair<String, String>>> postconditions = new HashMap<>();
+
+    /** The conditional postconditions of the methods queried so far. */
+    private final Map<ExecutableElement, Set<Pair<String, Pair<Boolean, String>>>> conditionalPostconditions = new HashMap<>();
+
     /**
-     * Returns an instance of the {@link ContractsUtils} class.
+     * Returns the instance of the {@link ContractsUtils} class for
+     * {@code factory}.
+     *
+     * @see GenericAnnotatedTypeFactory#getContractsUtils()
      */
     public static ContractsUtils getInstance(
             GenericAnnotatedTypeFactory<?, ?, ?, ?> factory) {
-        if (instance == null || instance.factory != factory) {
-            instance = new ContractsUtils(factory);
-        }
-        return instance;
+        return factory.getContractsUtils();
+    }
+
+    /**
+     * Creates the contracts of the type factory {@code factory}; use
+     * {@link #getInstance} to get the instance of a factory.
+     */
+    public ContractsUtils(GenericAnnotatedTypeFactory<?, ?, ?, ?> factory) {
+        this.factory = factory;
     }
 
     /**
@@ -54,6 +75,20 @@ public class ContractsUtils {
      */
     public Set<Pair<String, String>> getPreconditions(
             Element element) {
+        Set<Pair<String, String>> result = preconditions.get(element);
+        if (result == null) {
+            result = readPreconditions(element);
+            preconditions.put(element, result);
+        }
+        return new HashSet<>(result);
+    }
+
+    /**
+     * Reads the preconditions on the element {@code element} from its
+     * annotations.
+     */
+    private Set<Pair<String, String>> readPreconditions(
+            Element element) {
         Set<Pair<String, String>> result = new HashSet<>();
         // Check for a single contract.
         AnnotationMirror requiresAnnotation = factory.getDeclAnnotation(
@@ -116,6 +151,20 @@ public class ContractsUtils {
      */
     public Set<Pair<String, String>> getPostconditions(
             ExecutableElement methodElement) {
+        Set<Pair<String, String>> result = postconditions.get(methodElement);
+        if (result == null) {
+            result = readPostconditions(methodElement);
+            postconditions.put(methodElement, result);
+        }
+        return new HashSet<>(result);
+    }
+
+    /**
+     * Reads the postconditions on the method {@code methodElement} from its
+     * annotations.
+     */
+    private Set<Pair<String, String>> readPostconditions(
+            ExecutableElement methodElement) {
         Set<Pair<String, String>> result = new HashSet<>();
         // Check for a single contract.
         AnnotationMirror ensuresAnnotation = factory.getDeclAnnotation(
@@ -178,6 +227,20 @@ public class ContractsUtils {
      */
     public Set<Pair<String, Pair<Boolean, String>>> getConditionalPostconditions(
             ExecutableElement methodElement) {
+        Set<Pair<String, Pair<Boolean, String>>> result = conditionalPostconditions.get(methodElement);
+        if (result == null) {
+            result = readConditionalPostconditions(methodElement);
+            conditionalPostconditions.put(methodElement, result);
+        }
+        return new HashSet<>(result);
+    }
+
+    /**
+     * Reads the conditional postconditions on the method
+     * {@code methodElement} from its annotations.
+     */
+    private Set<Pair<String, Pair<Boolean, String>>> readConditionalPostconditions(
+            ExecutableElement methodElement) {
         Set<Pair<String, Pair<Boolean, String>>> result = new HashSet<>();
         // Check for a single contract.
         AnnotationMirror ensuresAnnotationIf = factory.getDeclAnnotation(
@@ -238,9 +301,4 @@ public class ContractsUtils {
         }
         return result;
     }
-
-    // private constructor
-    private ContractsUtils(GenericAnnotatedTypeFactory<?, ?, ?, ?> factory) {
-        this.factory = factory;
-    }
 }
@@ -20,6 +20,7 @@ import org.checkerframework.dataflow.cfg.node.MethodInvocationNode;
 import org.checkerframework.dataflow.cfg.node.Node;
 import org.checkerframework.dataflow.cfg.node.ObjectCreationNode;
 import org.checkerframework.framework.source.Result;
+import org.checkerframework.javacutil.CollectionUtils;
 import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.InternalUtils;
 import org.checkerframework.javacutil.Resolver;
@@ -29,6 +30,7 @@ import org.checkerframework.javacutil.trees.TreeBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -140,52 +142,43 @@ public class FlowExpressionParseUtil {
             throws FlowExpressionParseException {
         s = s.trim();
 
-        Matcher selfMatcher = selfPattern.matcher(s);
+        Syntax syntax = syntaxOf(s);
 
         // Do not do this in recursive calls, otherwise we can get an infinite loop where
         // "this" gets converted to "this.<fieldname>" in the line below, then
-        // dotMatcher matches "this.<fieldname>" and calls this function recursively
+        // the dot syntax matches "this.<fieldname>" and calls this function recursively
         // with s == "this"
-        if (selfMatcher.matches() && allowSelf && !recursiveCall) {
+        if (syntax.self && allowSelf && !recursiveCall) {
             s = context.receiver.toString(); // it is possible that s == "this" after this call
-            selfMatcher = selfPattern.matcher(s); // Refresh the matcher
+            syntax = syntaxOf(s);
         }
 
-        Matcher itselfMatcher = itselfPattern.matcher(s);
-        if (recursiveCall && itselfMatcher.matches()) {
+        boolean self = syntax.self;
+        boolean itself = syntax.itself;
+        if (recursiveCall && itself) {
             // Only translate 'itself' to an identifier after a recursive call
             // to first give the opportunity to find an identifier actually named 'itself'
             s = path.getLeaf().toString();
+            syntax = syntaxOf(s);
         }
 
-        Matcher identifierMatcher = identifierPattern.matcher(s);
-        Matcher superMatcher = superPattern.matcher(s);
-        Matcher parameterMatcher = parameterPattern.matcher(s);
-        Matcher methodMatcher = methodPattern.matcher(s);
-        Matcher arraymatcher = arrayPattern.matcher(s);
-        Matcher dotMatcher = dotPattern.matcher(s);
-        Matcher intMatcher = intPattern.matcher(s);
-        Matcher longMatcher = longPattern.matcher(s);
-        Matcher stringMatcher = stringPattern.matcher(s);
-        Matcher nullMatcher = nullPattern.matcher(s);
-
         ProcessingEnvironment env = context.checkerContext.getProcessingEnvironment();
         Types types = env.getTypeUtils();
 
-        if (intMatcher.matches() && allowLiterals) {
+        if (syntax.intLiteral && allowLiterals) {
             int val = Integer.parseInt(s);
             return new ValueLiteral(types.getPrimitiveType(TypeKind.INT), val);
-        } else if (nullMatcher.matches() && allowLiterals) {
+        } else if (syntax.nullLiteral && allowLiterals) {
             return new ValueLiteral(types.getNullType(), (Object) null);
-        } else if (longMatcher.matches() && allowLiterals) {
+        } else if (syntax.longLiteral && allowLiterals) {
             long val = Long.parseLong(s.substring(0, s.length() - 1));
             return new ValueLiteral(types.getPrimitiveType(TypeKind.LONG), val);
-        } else if (stringMatcher.matches() && allowLiterals) {
+        } else if (syntax.stringLiteral && allowLiterals) {
             TypeElement stringTypeElem = env.getElementUtils().getTypeElement(
                     "java.lang.String");
             return new ValueLiteral(types.getDeclaredType(stringTypeElem),
                     s.substring(1, s.length() - 1));
-        } else if (selfMatcher.matches() && allowSelf) {
+        } else if (self && allowSelf) {
             // this literal, even after the call above to set s = context.receiver.toString();
             if (context.receiver == null || context.receiver.containsUnknown()) {
                 return new ThisReference(context.receiver == null ? null : context.receiver.getType());
@@ -193,7 +186,7 @@ public class FlowExpressionParseUtil {
             else { // If we already know the receiver, return it.
                 return context.receiver;
             }
-        } else if (superMatcher.matches() && allowSelf) {
+        } else if (syntax.superLiteral && allowSelf) {
             // super literal
             List<? extends TypeMirror> superTypes = types
                     .directSupertypes(context.receiver.getType());
@@ -214,7 +207,7 @@ public class FlowExpressionParseUtil {
                 throw constructParserException(s);
             }
             return new ThisReference(superType);
-        } else if (identifierMatcher.matches() && allowIdentifier) {
+        } else if (syntax.identifier && allowIdentifier) {
             Resolver resolver = new Resolver(env);
             try {
                 if (allowLocalVariables) {
@@ -285,7 +278,7 @@ public class FlowExpressionParseUtil {
                     return new ClassName(classType);
                 } catch (Throwable t2) {
 
-                    if (!recursiveCall && itselfMatcher.matches()) {
+                    if (!recursiveCall && itself) {
                         return parse(s, context, path, allowSelf,
                                 allowIdentifier, allowParameter, allowDot,
                                 allowMethods, allowArrays, allowLiterals,
@@ -295,11 +288,11 @@ public class FlowExpressionParseUtil {
                     throw constructParserException(s);
                 }
             }
-        } else if (parameterMatcher.matches() && allowParameter && context.arguments != null) {
+        } else if (syntax.parameter != null && allowParameter && context.arguments != null) {
             // parameter syntax
             int idx = -1;
             try {
-                idx = Integer.parseInt(parameterMatcher.group(1));
+                idx = Integer.parseInt(syntax.parameter);
             } catch (NumberFormatException e) {
                 // cannot occur by the way the pattern is defined (matches only
                 // numbers)
@@ -310,9 +303,9 @@ public class FlowExpressionParseUtil {
                         "flowexpr.parse.index.too.big", Integer.toString(idx)));
             }
             return context.arguments.get(idx - 1);
-        } else if (arraymatcher.matches() && allowArrays) {
-            String receiverStr = arraymatcher.group(1);
-            String indexStr = arraymatcher.group(2);
+        } else if (syntax.arrayReceiver != null && allowArrays) {
+            String receiverStr = syntax.arrayReceiver;
+            String indexStr = syntax.arrayIndex;
             Receiver receiver = parse(receiverStr, context, path);
             Receiver index = parse(indexStr, context, path);
             TypeMirror receiverType = receiver.getType();
@@ -323,11 +316,11 @@ public class FlowExpressionParseUtil {
                     .getComponentType();
             ArrayAccess result = new ArrayAccess(componentType, receiver, index);
             return result;
-        } else if (methodMatcher.matches() && allowMethods) {
-            String methodName = methodMatcher.group(1);
+        } else if (syntax.methodName != null && allowMethods) {
+            String methodName = syntax.methodName;
 
             // parse parameter list
-            String parameterList = methodMatcher.group(2);
+            String parameterList = syntax.methodArguments;
             List<Receiver> parameters = ParameterListParser.parseParameterList(
                     parameterList, true, context.useOuterReceiver(), path);
 
@@ -397,9 +390,9 @@ public class FlowExpressionParseUtil {
                 return new PureMethodCall(methodType, methodElement,
                         context.receiver, parameters);
             }
-        } else if (dotMatcher.matches() && allowDot) {
-            String receiverString = dotMatcher.group(1);
-            String remainingString = dotMatcher.group(2);
+        } else if (syntax.dotReceiver != null && allowDot) {
+            String receiverString = syntax.dotReceiver;
+            String remainingString = syntax.dotRemainder;
 
             // Parse the receiver first.
             Receiver receiver = parse(receiverString, context, path, true);
@@ -413,6 +406,83 @@ public class FlowExpressionParseUtil {
         }
     }
 
+    /** The number of strings whose syntax is kept; see {@link #syntaxOf}. */
+    private static final int SYNTAX_CACHE_SIZE = 1000;
+
+    /**
+     * The syntax of the strings parsed so far.  Contracts use the same
+     * expressions at every call site, so the patterns are only matched
+     * against a string once; the expression is still resolved in the
+     * context of each use.
+     */
+    private static final Map<String, Syntax> syntaxCache =
+            CollectionUtils.createLRUCache(SYNTAX_CACHE_SIZE);
+
+    /**
+     * The classes of expressions that a trimmed string matches, and the
+     * parts of it that are parsed further.  The parse method decides which
+     * of the matching classes applies.
+     */
+    private static class Syntax {
+        final boolean self;
+        final boolean itself;
+        final boolean superLiteral;
+        final boolean identifier;
+        final boolean intLiteral;
+        final boolean longLiteral;
+        final boolean stringLiteral;
+        final boolean nullLiteral;
+        /** The index of a parameter, or null if the string is not one. */
+        final /*@Nullable*/ String parameter;
+        /** The name and arguments of a method call, or null if the string is not one. */
+        final /*@Nullable*/ String methodName, methodArguments;
+        /** The array and index of an array access, or null if the string is not one. */
+        final /*@Nullable*/ String arrayReceiver, arrayIndex;
+        /** The receiver and the rest of a field access, or null if the string is not one. */
+        final /*@Nullable*/ String dotReceiver, dotRemainder;
+
+        Syntax(String s) {
+            self = selfPattern.matcher(s).matches();
+            itself = itselfPattern.matcher(s).matches();
+            superLiteral = superPattern.matcher(s).matches();
+            identifier = identifierPattern.matcher(s).matches();
+            intLiteral = intPattern.matcher(s).matches();
+            longLiteral = longPattern.matcher(s).matches();
+            stringLiteral = stringPattern.matcher(s).matches();
+            nullLiteral = nullPattern.matcher(s).matches();
+
+            Matcher parameterMatcher = parameterPattern.matcher(s);
+            parameter = parameterMatcher.matches() ? parameterMatcher.group(1) : null;
+
+            Matcher methodMatcher = methodPattern.matcher(s);
+            boolean method = methodMatcher.matches();
+            methodName = method ? methodMatcher.group(1) : null;
+            methodArguments = method ? methodMatcher.group(2) : null;
+
+            Matcher arrayMatcher = arrayPattern.matcher(s);
+            boolean array = arrayMatcher.matches();
+            arrayReceiver = array ? arrayMatcher.group(1) : null;
+            arrayIndex = array ? arrayMatcher.group(2) : null;
+
+            Matcher dotMatcher = dotPattern.matcher(s);
+            boolean dot = dotMatcher.matches();
+            dotReceiver = dot ? dotMatcher.group(1) : null;
+            dotRemainder = dot ? dotMatcher.group(2) : null;
+        }
+    }
+
+    /**
+     * Returns the syntax of the trimmed string {@code s}.
+     */
+    private static Syntax syntaxOf(String s) {
+        Syntax syntax = syntaxCache.get(s);
+        if (syntax == null) {
+            syntax = new Syntax(s);
+            syntaxCache.put(s, syntax);
+        }
+        return syntax;
+    }
+
     /**
      * Returns a {@link FlowExpressionParseException} for the string {@code s}.
      */
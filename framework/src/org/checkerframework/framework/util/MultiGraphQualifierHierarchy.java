@@ -16,10 +16,13 @@ import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.ErrorReporter;
 
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -185,6 +188,44 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
      */
     protected final Map<AnnotationMirror, AnnotationMirror> polyQualifiers;
 
+    /**
+     * The ordinals of the qualifiers of this hierarchy, including the
+     * polymorphic qualifiers.
+     */
+    protected final QualifierIndex qualifierIndex;
+
+    // The following tables are indexed by the ordinals of qualifierIndex.
+    // They make the queries on qualifiers without elements array lookups;
+    // qualifiers with elements use the maps above.
+
+    /**
+     * {@code subtypeTable[rhs][lhs]} is true iff qualifier {@code rhs} is
+     * a subtype of qualifier {@code lhs}, according to supertypesMap.
+     */
+    private final boolean[][] subtypeTable;
+
+    /** The results of getTopAnnotation; filled in on demand. */
+    private final AnnotationMirror[] topTable;
+
+    /** The results of getBottomAnnotation; filled in on demand. */
+    private final AnnotationMirror[] bottomTable;
+
+    /**
+     * The ordinals of the results of leastUpperBound and greatestLowerBound;
+     * filled in on demand.  The special values are {@link #UNKNOWN},
+     * {@link #NO_QUALIFIER}, and {@link #NOT_INTERNED}.
+     */
+    private final int[][] lubTable, glbTable;
+
+    /** The table entry has not been computed yet. */
+    private static final int UNKNOWN = -1;
+
+    /** The result is null. */
+    private static final int NO_QUALIFIER = -2;
+
+    /** The result has no ordinal, so it has to be computed every time. */
+    private static final int NOT_INTERNED = -3;
+
     public MultiGraphQualifierHierarchy(MultiGraphFactory f) {
         this(f, (Object[]) null);
     }
@@ -218,9 +259,56 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
         // TODO: make polyQualifiers immutable also?
 
         this.supertypesMap = Collections.unmodifiableMap(fullMap);
+
+        List<AnnotationMirror> allQualifiers = new ArrayList<AnnotationMirror>(fullMap.keySet());
+        allQualifiers.addAll(polyQualifiers.values());
+        this.qualifierIndex = new QualifierIndex(allQualifiers);
+
+        int n = qualifierIndex.size();
+        this.subtypeTable = buildSubtypeTable();
+        this.topTable = new AnnotationMirror[n];
+        this.bottomTable = new AnnotationMirror[n];
+        this.lubTable = new int[n][n];
+        this.glbTable = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(lubTable[i], UNKNOWN);
+            Arrays.fill(glbTable[i], UNKNOWN);
+        }
         // System.out.println("MGH: " + this);
     }
 
+    /**
+     * Computes the subtype relation between the qualifiers of
+     * {@link #qualifierIndex} from {@link #supertypesMap}.
+     */
+    private boolean[][] buildSubtypeTable() {
+        int n = qualifierIndex.size();
+        boolean[][] table = new boolean[n][n];
+        for (int rhs = 0; rhs < n; rhs++) {
+            table[rhs][rhs] = true;
+            Set<AnnotationMirror> supers = supertypesMap.get(qualifierIndex.getQualifier(rhs));
+            if (supers == null) {
+                continue;
+            }
+            for (AnnotationMirror sup : supers) {
+                // A qualifier without elements is the same as any other
+                // annotation with the same name, so its ordinal suffices.
+                int lhs = qualifierIndex.getOrdinal(sup);
+                if (lhs >= 0) {
+                    table[rhs][lhs] = true;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Returns the interning table of the qualifiers of this hierarchy.
+     */
+    public QualifierIndex getQualifierIndex() {
+        return qualifierIndex;
+    }
+
     /**
      * Method to finalize the qualifier hierarchy before it becomes unmodifiable.
      * The parameters pass all fields and allow modification.
@@ -249,6 +337,19 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
 
     @Override
     public AnnotationMirror getTopAnnotation(AnnotationMirror start) {
+        int ordinal = qualifierIndex.getOrdinal(start);
+        if (ordinal < 0) {
+            return findTopAnnotation(start);
+        }
+        AnnotationMirror top = topTable[ordinal];
+        if (top == null) {
+            top = findTopAnnotation(start);
+            topTable[ordinal] = top;
+        }
+        return top;
+    }
+
+    private AnnotationMirror findTopAnnotation(AnnotationMirror start) {
         for (AnnotationMirror top : tops) {
             if (AnnotationUtils.areSame(start, top) ||
                     isSubtype(start, top)) {
@@ -267,6 +368,19 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
 
     @Override
     public AnnotationMirror getBottomAnnotation(AnnotationMirror start) {
+        int ordinal = qualifierIndex.getOrdinal(start);
+        if (ordinal < 0) {
+            return findBottomAnnotation(start);
+        }
+        AnnotationMirror bottom = bottomTable[ordinal];
+        if (bottom == null) {
+            bottom = findBottomAnnotation(start);
+            bottomTable[ordinal] = bottom;
+        }
+        return bottom;
+    }
+
+    private AnnotationMirror findBottomAnnotation(AnnotationMirror start) {
         for (AnnotationMirror bot : bottoms) {
             if (AnnotationUtils.areSame(start, bot) ||
                     isSubtype(bot, start)) {
@@ -304,7 +418,7 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
         int valid = 0;
         for (AnnotationMirror lhsAnno : lhs) {
             for (AnnotationMirror rhsAnno : rhs) {
-                if (AnnotationUtils.areSame(getTopAnnotation(lhsAnno), getTopAnnotation(rhsAnno)) &&
+                if (isSameTop(lhsAnno, rhsAnno) &&
                         isSubtype(rhsAnno, lhsAnno)) {
                     ++valid;
                 }
@@ -325,6 +439,18 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
         return true;
     }
 
+    /**
+     * Returns true if the two qualifiers have the same top qualifier, that
+     * is, if they belong to the same hierarchy.
+     */
+    private boolean isSameTop(AnnotationMirror a1, AnnotationMirror a2) {
+        AnnotationMirror top1 = getTopAnnotation(a1);
+        AnnotationMirror top2 = getTopAnnotation(a2);
+        // The tops of qualifiers without elements come from topTable, so
+        // they are usually identical.
+        return top1 == top2 || AnnotationUtils.areSame(top1, top2);
+    }
+
     protected Set</*@Interned*/ String> typeQualifiers = null;
 
     @Override
@@ -338,6 +464,21 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
 
     @Override
     public AnnotationMirror leastUpperBound(AnnotationMirror a1, AnnotationMirror a2) {
+        int o1 = qualifierIndex.getOrdinal(a1);
+        int o2 = qualifierIndex.getOrdinal(a2);
+        if (o1 < 0 || o2 < 0) {
+            return computeLeastUpperBound(a1, a2);
+        }
+        int lub = lubTable[o1][o2];
+        if (lub == UNKNOWN || lub == NOT_INTERNED) {
+            AnnotationMirror result = computeLeastUpperBound(a1, a2);
+            lubTable[o1][o2] = toTableEntry(result);
+            return result;
+        }
+        return fromTableEntry(lub, a1, o1, a2, o2);
+    }
+
+    private AnnotationMirror computeLeastUpperBound(AnnotationMirror a1, AnnotationMirror a2) {
         if (!AnnotationUtils.areSameIgnoringValues(getTopAnnotation(a1), getTopAnnotation(a2))) {
             return null;
         } else if (isSubtype(a1, a2)) {
@@ -368,6 +509,21 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
 
     @Override
     public AnnotationMirror greatestLowerBound(AnnotationMirror a1, AnnotationMirror a2) {
+        int o1 = qualifierIndex.getOrdinal(a1);
+        int o2 = qualifierIndex.getOrdinal(a2);
+        if (o1 < 0 || o2 < 0) {
+            return computeGreatestLowerBound(a1, a2);
+        }
+        int glb = glbTable[o1][o2];
+        if (glb == UNKNOWN || glb == NOT_INTERNED) {
+            AnnotationMirror result = computeGreatestLowerBound(a1, a2);
+            glbTable[o1][o2] = toTableEntry(result);
+            return result;
+        }
+        return fromTableEntry(glb, a1, o1, a2, o2);
+    }
+
+    private AnnotationMirror computeGreatestLowerBound(AnnotationMirror a1, AnnotationMirror a2) {
         if (AnnotationUtils.areSameIgnoringValues(a1, a2))
             return AnnotationUtils.areSame(a1, a2) ? a1 : getBottomAnnotation(a1);
         if (glbs == null) {
@@ -377,6 +533,33 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
         return glbs.get(pair);
     }
 
+    /** Returns the lubTable or glbTable entry for a result. */
+    private int toTableEntry(/*@Nullable*/ AnnotationMirror result) {
+        if (result == null) {
+            return NO_QUALIFIER;
+        }
+        int ordinal = qualifierIndex.getOrdinal(result);
+        return ordinal >= 0 ? ordinal : NOT_INTERNED;
+    }
+
+    /**
+     * Returns the result for a lubTable or glbTable entry.  If the result
+     * is one of the arguments, that argument is returned, as the
+     * computation would.
+     */
+    private /*@Nullable*/ AnnotationMirror fromTableEntry(int entry,
+            AnnotationMirror a1, int o1, AnnotationMirror a2, int o2) {
+        if (entry == NO_QUALIFIER) {
+            return null;
+        } else if (entry == o1) {
+            return a1;
+        } else if (entry == o2) {
+            return a2;
+        } else {
+            return qualifierIndex.getQualifier(entry);
+        }
+    }
+
     @Override
     public AnnotationMirror greatestLowerBoundTypeVariable(AnnotationMirror a1, AnnotationMirror a2) {
         if (a1 == null) {
@@ -405,6 +588,12 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
      */
     @Override
     public boolean isSubtype(AnnotationMirror rhs, AnnotationMirror lhs) {
+        int rhsOrdinal = qualifierIndex.getOrdinal(rhs);
+        int lhsOrdinal = qualifierIndex.getOrdinal(lhs);
+        if (rhsOrdinal >= 0 && lhsOrdinal >= 0) {
+            return subtypeTable[rhsOrdinal][lhsOrdinal];
+        }
+
         checkAnnoInGraph(rhs);
         checkAnnoInGraph(lhs);
 
@@ -435,6 +624,9 @@ public class MultiGraphQualifierHierarchy extends QualifierHierarchy {
     }
 
     private final void checkAnnoInGraph(AnnotationMirror a) {
+        if (qualifierIndex.getOrdinal(a) >= 0) {
+            return;
+        }
         if (AnnotationUtils.containsSame(supertypesMap.keySet(), a) ||
                 AnnotationUtils.containsSame(polyQualifiers.values(), a))
             return;
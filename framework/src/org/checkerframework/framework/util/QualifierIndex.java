@@ -0,0 +1,104 @@
+package org.checkerframework.framework.util;
+
+/*>>>
+import org.checkerframework.checker.interning.qual.*;
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import org.checkerframework.javacutil.AnnotationUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.util.ElementFilter;
+
+/**
+ * An interning table for the qualifiers of a qualifier hierarchy.  It
+ * assigns each qualifier a small integer, its ordinal, so that clients
+ * can represent qualifiers and relations between them with integers,
+ * bit sets, and arrays instead of comparing {@link AnnotationMirror}s.
+ *
+ * Only qualifiers whose annotation type declares no elements are interned.
+ * Such a qualifier is identified by its name, so every
+ * {@link AnnotationMirror} of it maps to the same ordinal.  Qualifiers with
+ * elements, such as {@code @Fenum("A")}, have no ordinal; clients must fall
+ * back to comparing the {@link AnnotationMirror}s for them.
+ *
+ * @see MultiGraphQualifierHierarchy
+ */
+public class QualifierIndex {
+
+    /** Maps the interned name of each interned qualifier to its ordinal. */
+    private final Map</*@Interned*/ String, Integer> ordinals;
+
+    /** The canonical qualifiers, indexed by their ordinals. */
+    private final List<AnnotationMirror> qualifiers;
+
+    /**
+     * Creates an index of the qualifiers in {@code quals}.  Ordinals are
+     * assigned in iteration order; qualifiers with elements, and
+     * duplicates, are skipped.
+     *
+     * @param quals the qualifiers of a hierarchy
+     */
+    public QualifierIndex(Collection<? extends AnnotationMirror> quals) {
+        // The names are interned, so they can be compared by identity.
+        this.ordinals = new IdentityHashMap<>();
+        List<AnnotationMirror> list = new ArrayList<>();
+        for (AnnotationMirror qual : quals) {
+            if (qual == null || hasElements(qual)) {
+                continue;
+            }
+            /*@Interned*/ String name = AnnotationUtils.annotationName(qual);
+            if (!ordinals.containsKey(name)) {
+                ordinals.put(name, list.size());
+                list.add(qual);
+            }
+        }
+        this.qualifiers = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns true if the annotation type of {@code anno} declares elements,
+     * so that different annotations of that type may be different qualifiers.
+     */
+    private static boolean hasElements(AnnotationMirror anno) {
+        return !ElementFilter.methodsIn(
+                anno.getAnnotationType().asElement().getEnclosedElements()).isEmpty();
+    }
+
+    /**
+     * Returns the ordinal of {@code anno}, or -1 if it is null, has
+     * elements, or is not a qualifier of this index.
+     */
+    public int getOrdinal(/*@Nullable*/ AnnotationMirror anno) {
+        if (anno == null) {
+            return -1;
+        }
+        Integer ordinal = ordinals.get(AnnotationUtils.annotationName(anno));
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Returns the canonical {@link AnnotationMirror} of the qualifier with
+     * the given ordinal.
+     */
+    public AnnotationMirror getQualifier(int ordinal) {
+        return qualifiers.get(ordinal);
+    }
+
+    /** Returns the canonical qualifiers, indexed by their ordinals. */
+    public List<AnnotationMirror> getQualifiers() {
+        return qualifiers;
+    }
+
+    /** Returns the number of interned qualifiers. */
+    public int size() {
+        return qualifiers.size();
+    }
+}
@@ -1,5 +1,9 @@
 package org.checkerframework.framework.util.typeinference;
 
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.AnnotatedTypeMirror;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedExecutableType;
@@ -8,6 +12,7 @@ import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedTypeVari
 import org.checkerframework.framework.type.GeneralAnnotatedTypeFactory;
 import org.checkerframework.framework.type.QualifierHierarchy;
 import org.checkerframework.framework.type.TypeHierarchy;
+import org.checkerframework.framework.type.visitor.AnnotatedTypeScanner;
 import org.checkerframework.framework.util.AnnotatedTypes;
 import org.checkerframework.framework.util.PluginUtil;
 import org.checkerframework.framework.util.typeinference.constraint.A2F;
@@ -33,6 +38,7 @@ import org.checkerframework.javacutil.ErrorReporter;
 import org.checkerframework.javacutil.Pair;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -76,6 +82,12 @@ import com.sun.tools.javac.code.Symbol.MethodSymbol;
  *              set(get())
  * }</pre>
  *         Presumably, we want to detect these situations and combine the set of constraints with {@code T <: S}.
+ *
+ * If it is given an {@link InferenceCache}, the inference memoizes its results.  Code that makes many calls
+ * to the same generic methods, such as stream pipelines, often repeats the same method type, argument types,
+ * and assignment context; the inferred type arguments of such a repeated invocation are copied from the
+ * cache.  Invocations whose argument types or assignment context contain type variables are not cached,
+ * because type variables of different methods can print alike.
  */
 public class DefaultTypeArgumentInference implements TypeArgumentInference {
     private final EqualitiesSolver equalitiesSolver = new EqualitiesSolver();
@@ -83,6 +95,25 @@ public class DefaultTypeArgumentInference implements TypeArgumentInference {
     private final SubtypesSolver subtypesSolver = new SubtypesSolver();
     private final ConstraintMapBuilder constraintMapBuilder = new ConstraintMapBuilder();
 
+    /** The memo of inferred type arguments, or null to not memoize them. */
+    private final /*@Nullable*/ InferenceCache cache;
+
+    public DefaultTypeArgumentInference() {
+        this(null);
+    }
+
+    /**
+     * @param cache the memo of inferred type arguments, or null to not memoize them
+     */
+    public DefaultTypeArgumentInference(/*@Nullable*/ InferenceCache cache) {
+        this.cache = cache;
+    }
+
+    /** Returns the memo of inferred type arguments, or null if there is none. */
+    public /*@Nullable*/ InferenceCache getCache() {
+        return cache;
+    }
+
     @Override
     public Map<TypeVariable, AnnotatedTypeMirror> inferTypeArgs(AnnotatedTypeFactory typeFactory,
                                                                 ExpressionTree expressionTree,
@@ -99,6 +130,12 @@ public class DefaultTypeArgumentInference implements TypeArgumentInference {
         final List<AnnotatedTypeMirror> argTypes = getArgumentTypes(expressionTree, typeFactory);
         final AnnotatedTypeMirror assignedTo = getAssignedTo(expressionTree, typeFactory);
 
+        final String key = cache == null ? null : cacheKey(methodElem, methodType, argTypes, assignedTo);
+        if (key != null && cache.containsKey(key)) {
+            return fromCache(cache.get(key), methodType);
+        }
+        final long start = System.nanoTime();
+
         //steps 1-4
         final Set<TypeVariable> targets = TypeArgInferenceUtil.methodTypeToTargets(methodType);
         final Map<TypeVariable, AnnotatedTypeMirror> inferredArgs =
@@ -106,9 +143,95 @@ public class DefaultTypeArgumentInference implements TypeArgumentInference {
 
         //step 5
         handleUninferredTypeVariables(typeFactory, methodType, targets, inferredArgs);
+
+        if (key != null) {
+            List<AnnotatedTypeMirror> cached = toCache(inferredArgs, methodType);
+            if (cached != null) {
+                cache.put(key, cached);
+                cache.recordInference(System.nanoTime() - start);
+            }
+        }
         return inferredArgs;
     }
 
+    /**
+     * Returns the key of an invocation in the cache, or null if the invocation cannot be cached.  The key
+     * describes the method and all the types that the inference uses, with their annotations.
+     */
+    private /*@Nullable*/ String cacheKey(ExecutableElement methodElem, AnnotatedExecutableType methodType,
+                                      List<AnnotatedTypeMirror> argTypes, /*@Nullable*/ AnnotatedTypeMirror assignedTo) {
+        if (assignedTo != null && containsTypeVariable(assignedTo)) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder();
+        key.append(methodElem.getEnclosingElement()).append('.').append(methodElem)
+           .append('\n').append(methodType.toString(true));
+        for (AnnotatedTypeVariable typeVar : methodType.getTypeVariables()) {
+            key.append('\n').append(typeVar.getUnderlyingType())
+               .append(" extends ").append(typeVar.getUpperBound().toString(true))
+               .append(" super ").append(typeVar.getLowerBound().toString(true));
+        }
+        for (AnnotatedTypeMirror argType : argTypes) {
+            if (containsTypeVariable(argType)) {
+                return null;
+            }
+            key.append("\narg ").append(argType.toString(true));
+        }
+        key.append("\nassigned ").append(assignedTo == null ? "none" : assignedTo.toString(true));
+        return key.toString();
+    }
+
+    /**
+     * Returns the inferred type arguments in the order of the type variables of {@code methodType}, or null if
+     * they cannot be cached.
+     */
+    private /*@Nullable*/ List<AnnotatedTypeMirror> toCache(Map<TypeVariable, AnnotatedTypeMirror> inferredArgs,
+                                                        AnnotatedExecutableType methodType) {
+        List<AnnotatedTypeVariable> typeVars = methodType.getTypeVariables();
+        List<AnnotatedTypeMirror> result = new ArrayList<>(typeVars.size());
+        for (AnnotatedTypeVariable typeVar : typeVars) {
+            AnnotatedTypeMirror inferred = inferredArgs.get(typeVar.getUnderlyingType());
+            if (inferred != null && containsTypeVariable(inferred)) {
+                // A type variable that the next invocation might not share.
+                return null;
+            }
+            result.add(inferred == null ? null : inferred.deepCopy());
+        }
+        if (inferredArgs.size() != typeVars.size() - Collections.frequency(result, null)) {
+            // A result for a type variable that is not one of the method.
+            return null;
+        }
+        return result;
+    }
+
+    /** Returns a copy of cached type arguments for the type variables of {@code methodType}. */
+    private Map<TypeVariable, AnnotatedTypeMirror> fromCache(List<AnnotatedTypeMirror> cached,
+                                                             AnnotatedExecutableType methodType) {
+        List<AnnotatedTypeVariable> typeVars = methodType.getTypeVariables();
+        Map<TypeVariable, AnnotatedTypeMirror> result = new HashMap<>();
+        for (int i = 0; i < typeVars.size(); ++i) {
+            if (cached.get(i) != null) {
+                result.put(typeVars.get(i).getUnderlyingType(), cached.get(i).deepCopy());
+            }
+        }
+        return result;
+    }
+
+    private static boolean containsTypeVariable(AnnotatedTypeMirror type) {
+        Boolean result = new AnnotatedTypeScanner<Boolean, Void>() {
+            @Override
+            public Boolean visitTypeVariable(AnnotatedTypeVariable type, Void p) {
+                return true;
+            }
+
+            @Override
+            protected Boolean reduce(Boolean r1, Boolean r2) {
+                return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+            }
+        }.visit(type);
+        return Boolean.TRUE.equals(result);
+    }
+
     @Override
     public void adaptMethodType(AnnotatedTypeFactory typeFactory, ExpressionTree invocation, AnnotatedExecutableType methodType) {
         //do nothing
@@ -0,0 +1,224 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.util.Elements;
+import javax.tools.ToolProvider;
+
+import org.checkerframework.framework.qual.Bottom;
+import org.checkerframework.framework.qual.PolyAll;
+import org.checkerframework.framework.qual.Unqualified;
+import org.checkerframework.framework.util.AnnotationBuilder;
+import org.checkerframework.javacutil.AnnotationMirrorSet;
+import org.checkerframework.javacutil.AnnotationUtils;
+import org.junit.Test;
+
+import tests.util.AnnoWithStringArg;
+import tests.util.Encrypted;
+import tests.util.Odd;
+import tests.util.SubQual;
+import tests.util.SuperQual;
+import tests.util.Value;
+
+import com.sun.source.util.JavacTask;
+import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+
+/**
+ * Tests that {@link AnnotationMirrorSet} behaves like a {@link TreeSet}
+ * with the annotation ordering, for random sequences of operations.
+ */
+public class AnnotationMirrorSetTest {
+
+    /** The annotations that the sets hold. */
+    private final List<AnnotationMirror> annotations;
+
+    public AnnotationMirrorSetTest() {
+        JavacTask task = (JavacTask) ToolProvider.getSystemJavaCompiler().getTask(null, null, null,
+                Arrays.asList("-classpath", System.getProperty("java.class.path", "")), null, null);
+        Elements elements = task.getElements();
+        JavacProcessingEnvironment env =
+                JavacProcessingEnvironment.instance(((BasicJavacTask) task).getContext());
+
+        annotations = new ArrayList<AnnotationMirror>();
+        annotations.add(AnnotationUtils.fromClass(elements, Unqualified.class));
+        annotations.add(AnnotationUtils.fromClass(elements, Bottom.class));
+        annotations.add(AnnotationUtils.fromClass(elements, PolyAll.class));
+        annotations.add(AnnotationUtils.fromClass(elements, Encrypted.class));
+        annotations.add(AnnotationUtils.fromClass(elements, Odd.class));
+        annotations.add(AnnotationUtils.fromClass(elements, SuperQual.class));
+        annotations.add(AnnotationUtils.fromClass(elements, SubQual.class));
+        // Equal copies, which the sets only find by the ordering.
+        annotations.add(AnnotationUtils.fromClass(elements, Encrypted.class));
+        annotations.add(AnnotationUtils.fromClass(elements, SubQual.class));
+        for (int i = 0; i < 8; i++) {
+            annotations.add(new AnnotationBuilder(env, Value.class).setValue("value", i % 5).build());
+            annotations.add(new AnnotationBuilder(env, AnnoWithStringArg.class)
+                    .setValue("value", "s" + (i % 3)).build());
+        }
+    }
+
+    private AnnotationMirror random(Random random) {
+        return annotations.get(random.nextInt(annotations.size()));
+    }
+
+    @Test
+    public void randomOperations() {
+        for (long seed = 0; seed < 200; seed++) {
+            Random random = new Random(seed);
+            Set<AnnotationMirror> expected = new TreeSet<AnnotationMirror>(AnnotationUtils.annotationOrdering());
+            Set<AnnotationMirror> actual = new AnnotationMirrorSet();
+            for (int op = 0; op < 100; op++) {
+                String where = "seed " + seed + ", operation " + op;
+                AnnotationMirror anno = random(random);
+                switch (random.nextInt(8)) {
+                case 0:
+                case 1:
+                case 2:
+                    assertEquals(where, expected.add(anno), actual.add(anno));
+                    break;
+                case 3:
+                case 4:
+                    assertEquals(where, expected.remove(anno), actual.remove(anno));
+                    break;
+                case 5:
+                    assertEquals(where, expected.contains(anno), actual.contains(anno));
+                    break;
+                case 6:
+                    // Remove a random subset while iterating.
+                    Iterator<AnnotationMirror> expectedIt = expected.iterator();
+                    Iterator<AnnotationMirror> actualIt = actual.iterator();
+                    while (expectedIt.hasNext()) {
+                        assertTrue(where, actualIt.hasNext());
+                        assertSame(where, expectedIt.next(), actualIt.next());
+                        if (random.nextInt(3) == 0) {
+                            expectedIt.remove();
+                            actualIt.remove();
+                        }
+                    }
+                    assertFalse(where, actualIt.hasNext());
+                    break;
+                case 7:
+                    if (random.nextInt(10) == 0) {
+                        expected.clear();
+                        actual.clear();
+                    } else {
+                        List<AnnotationMirror> more = Arrays.asList(random(random), random(random));
+                        assertEquals(where, expected.addAll(more), actual.addAll(more));
+                    }
+                    break;
+                }
+                assertSameElements(where, expected, actual);
+            }
+        }
+    }
+
+    /** Asserts that both sets hold the same annotations, in the same order. */
+    private static void assertSameElements(String where,
+            Set<AnnotationMirror> expected, Set<AnnotationMirror> actual) {
+        assertEquals(where, expected.size(), actual.size());
+        assertEquals(where, expected.isEmpty(), actual.isEmpty());
+        Iterator<AnnotationMirror> actualIt = actual.iterator();
+        for (AnnotationMirror anno : expected) {
+            // The sets keep the first of equal annotations that was added.
+            assertSame(where, anno, actualIt.next());
+        }
+        assertFalse(where, actualIt.hasNext());
+        assertEquals(where, expected, actual);
+        assertEquals(where, expected.hashCode(), actual.hashCode());
+    }
+
+    @Test
+    public void concurrentModification() {
+        AnnotationMirrorSet set = new AnnotationMirrorSet(annotations.subList(0, 4));
+
+        Iterator<AnnotationMirror> it = set.iterator();
+        it.next();
+        set.add(annotations.get(4));
+        try {
+            it.next();
+            fail("add during iteration");
+        } catch (ConcurrentModificationException e) {
+        }
+
+        it = set.iterator();
+        it.next();
+        set.remove(annotations.get(0));
+        try {
+            it.next();
+            fail("remove during iteration");
+        } catch (ConcurrentModificationException e) {
+        }
+
+        it = set.iterator();
+        it.next();
+        Iterator<AnnotationMirror> other = set.iterator();
+        other.next();
+        other.remove();
+        try {
+            it.remove();
+            fail("remove by another iterator");
+        } catch (ConcurrentModificationException e) {
+        }
+
+        it = set.iterator();
+        it.next();
+        set.clear();
+        try {
+            it.next();
+            fail("clear during iteration");
+        } catch (ConcurrentModificationException e) {
+        }
+
+        // Operations that do not change the set are not modifications.
+        set.addAll(annotations.subList(0, 4));
+        it = set.iterator();
+        it.next();
+        set.add(annotations.get(1));
+        set.remove(annotations.get(5));
+        set.contains(annotations.get(2));
+        it.next();
+    }
+
+    @Test
+    public void iteratorStates() {
+        AnnotationMirrorSet set = new AnnotationMirrorSet(annotations.subList(0, 2));
+        Iterator<AnnotationMirror> it = set.iterator();
+        try {
+            it.remove();
+            fail("remove before next");
+        } catch (IllegalStateException e) {
+        }
+        it.next();
+        it.remove();
+        try {
+            it.remove();
+            fail("remove twice");
+        } catch (IllegalStateException e) {
+        }
+        it.next();
+        it.remove();
+        assertFalse(it.hasNext());
+        try {
+            it.next();
+            fail("next at the end");
+        } catch (NoSuchElementException e) {
+        }
+        assertTrue(set.isEmpty());
+    }
+}
@@ -0,0 +1,31 @@
+package tests;
+
+import java.io.File;
+import java.util.Collection;
+
+import org.checkerframework.framework.test.ParameterizedCheckerTest;
+import org.junit.runners.Parameterized.Parameters;
+
+import tests.util.TestChecker;
+
+/**
+ * JUnit tests for the Checker Framework, using the {@link TestChecker}
+ * without the signature cache (-AsignatureCacheSize=0).  The inputs and
+ * expected diagnostics are those of {@link FrameworkTest}, which runs with
+ * the cache.
+ */
+public class FrameworkNoSignatureCacheTest extends ParameterizedCheckerTest {
+
+    public FrameworkNoSignatureCacheTest(File testFile) {
+        super(testFile,
+                tests.util.TestChecker.class,
+                "framework",
+                "-Anomsgtext",
+                "-AsignatureCacheSize=0");
+    }
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        return testFiles("framework", "all-systems");
+    }
+}
@@ -0,0 +1,242 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.framework.qual.TypeQualifiers;
+import org.checkerframework.framework.qual.Unqualified;
+import org.checkerframework.framework.test.TestInput;
+import org.checkerframework.framework.test.TestRun;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import tests.util.Encrypted;
+import tests.util.PolyEncrypted;
+
+import com.sun.source.util.TreePath;
+
+/**
+ * Tests of the -AincrementalCache option.  Every test checks a class
+ * that uses a class of another compilation unit twice with the same
+ * cache directory, and tells from the classes that the checker visits
+ * whether the second compilation replayed the cache entry of the class
+ * or checked it again.
+ */
+public class IncrementalCacheTest {
+
+    /** The classes that the {@link CountingChecker} checked, in order. */
+    private static final List<String> checked = new ArrayList<String>();
+
+    /** A subtyping checker that records the classes that it checks. */
+    @TypeQualifiers({ Encrypted.class, PolyEncrypted.class, Unqualified.class })
+    public static final class CountingChecker extends BaseTypeChecker {
+        @Override
+        public void typeProcess(TypeElement e, TreePath p) {
+            checked.add(e.getQualifiedName().toString());
+            super.typeProcess(e, p);
+        }
+    }
+
+    private static final String LIB =
+            "import tests.util.Encrypted;\n" +
+            "public class IncrementalLib {\n" +
+            "    public static @Encrypted Object encrypt(@Encrypted Object o) {\n" +
+            "        return o;\n" +
+            "    }\n" +
+            "}\n";
+
+    /** {@link #LIB} with a different signature of its method. */
+    private static final String CHANGED_LIB =
+            "import tests.util.Encrypted;\n" +
+            "public class IncrementalLib {\n" +
+            "    public static Object encrypt(Object o) {\n" +
+            "        return o;\n" +
+            "    }\n" +
+            "}\n";
+
+    private static final String USE =
+            "import tests.util.Encrypted;\n" +
+            "public class IncrementalUse {\n" +
+            "    void use(@Encrypted Object o) {\n" +
+            "        @Encrypted Object e = IncrementalLib.encrypt(o);\n" +
+            "        @Encrypted Object p = new Object();\n" +
+            "    }\n" +
+            "}\n";
+
+    private File sourceDir;
+    private File cacheDir;
+
+    @Before
+    public void createDirectories() throws IOException {
+        sourceDir = createTempDirectory("incremental-sources");
+        cacheDir = createTempDirectory("incremental-cache");
+        write(new File(sourceDir, "IncrementalLib.java"), LIB);
+        write(new File(sourceDir, "IncrementalUse.java"), USE);
+    }
+
+    @After
+    public void deleteDirectories() {
+        delete(sourceDir);
+        delete(cacheDir);
+    }
+
+    @Test
+    public void unchangedClassIsReplayed() {
+        List<String> first = check();
+        assertEquals(Arrays.asList("IncrementalUse"), checked);
+        assertEquals(1, count(first, "assignment.type.incompatible"));
+        assertEquals(1, cacheEntries().length);
+
+        List<String> second = check();
+        assertTrue("class was checked again: " + checked, checked.isEmpty());
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void changedSignatureOfDependencyInvalidates() throws IOException {
+        List<String> first = check();
+        assertEquals(1, count(first, "assignment.type.incompatible"));
+
+        write(new File(sourceDir, "IncrementalLib.java"), CHANGED_LIB);
+        List<String> second = check();
+        assertEquals(Arrays.asList("IncrementalUse"), checked);
+        assertEquals(2, count(second, "assignment.type.incompatible"));
+    }
+
+    @Test
+    public void changedOptionsInvalidate() {
+        List<String> first = check();
+        List<String> second = check("-AsuppressWarnings=incremental");
+        assertEquals(Arrays.asList("IncrementalUse"), checked);
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void changedClassPathInvalidates() {
+        List<String> first = check();
+        File extra = new File(sourceDir, "extra");
+        assertTrue(extra.mkdir());
+        String classpath = "build" + File.pathSeparator +
+                "junit.jar" + File.pathSeparator +
+                System.getProperty("tests.classpath", "tests" + File.separator + "build") + File.pathSeparator +
+                System.getProperty("java.class.path", "") + File.pathSeparator +
+                extra.getAbsolutePath();
+        List<String> second = check("-classpath", classpath);
+        assertEquals(Arrays.asList("IncrementalUse"), checked);
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void corruptEntryFallsBackToChecking() throws IOException {
+        List<String> first = check();
+        File[] entries = cacheEntries();
+        assertEquals(1, entries.length);
+        OutputStream out = new FileOutputStream(entries[0]);
+        try {
+            out.write(new byte[] { 0, 1, 'x', -1, -1, -1, 7 });
+        } finally {
+            out.close();
+        }
+
+        List<String> second = check();
+        assertEquals(Arrays.asList("IncrementalUse"), checked);
+        assertEquals(first, second);
+
+        // Checking the class again re-created the entry.
+        List<String> third = check();
+        assertTrue("class was checked again: " + checked, checked.isEmpty());
+        assertEquals(first, third);
+    }
+
+    /**
+     * Checks IncrementalUse with the cache and the given additional
+     * options, and returns the diagnostics.
+     */
+    private List<String> check(String... options) {
+        checked.clear();
+        List<String> allOptions = new ArrayList<String>();
+        allOptions.add("-Anomsgtext");
+        allOptions.add("-AincrementalCache=" + cacheDir.getAbsolutePath());
+        allOptions.addAll(Arrays.asList(options));
+
+        StandardJavaFileManager fileManager =
+                ToolProvider.getSystemJavaCompiler().getStandardFileManager(null, null, null);
+        Iterable<? extends JavaFileObject> files =
+                fileManager.getJavaFileObjects(new File(sourceDir, "IncrementalUse.java"));
+        TestRun run = TestInput.compileAndCheck(sourceDir.getAbsolutePath(), fileManager, files,
+                CountingChecker.class.getName(), allOptions);
+
+        List<String> diagnostics = new ArrayList<String>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : run.getDiagnostics()) {
+            diagnostics.add(diagnostic.getKind() + ":" + diagnostic.getLineNumber()
+                    + ":" + diagnostic.getColumnNumber() + ": " + diagnostic.getMessage(null));
+        }
+        return diagnostics;
+    }
+
+    private File[] cacheEntries() {
+        File[] entries = cacheDir.listFiles();
+        List<File> result = new ArrayList<File>();
+        for (File entry : entries) {
+            if (entry.getName().endsWith(".checkcache")) {
+                result.add(entry);
+            }
+        }
+        return result.toArray(new File[result.size()]);
+    }
+
+    private static int count(List<String> diagnostics, String key) {
+        int count = 0;
+        for (String diagnostic : diagnostics) {
+            if (diagnostic.contains(key)) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    private static File createTempDirectory(String prefix) throws IOException {
+        File dir = File.createTempFile(prefix, "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+        return dir;
+    }
+
+    private static void write(File file, String contents) throws IOException {
+        PrintWriter out = new PrintWriter(file, "UTF-8");
+        try {
+            out.print(contents);
+        } finally {
+            out.close();
+        }
+        assertFalse(out.checkError());
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,326 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.framework.qual.TypeQualifiers;
+import org.checkerframework.framework.qual.Unqualified;
+import org.checkerframework.framework.test.TestInput;
+import org.checkerframework.framework.test.TestRun;
+import org.checkerframework.framework.type.AnnotatedJdkIndex;
+import org.checkerframework.framework.type.AnnotatedTypeFactory;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.framework.type.ElementAnnotationApplier;
+import org.checkerframework.javacutil.ElementUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import tests.util.Encrypted;
+import tests.util.PolyEncrypted;
+
+/**
+ * Tests of the index of the annotated JDK.  A compilation with
+ * -AjdkIndexBuild builds the index of a jar of annotated library classes,
+ * and a compilation with -AjdkIndex reads it back and compares the
+ * annotations in the index with those of the class files.
+ */
+public class JdkIndexTest {
+
+    /** The index files that the {@link IndexChecker} opens. */
+    private static final List<File> probeFiles = new ArrayList<File>();
+    /** For each of the {@link #probeFiles}, whether it could be opened. */
+    private static final List<Boolean> opened = new ArrayList<Boolean>();
+    /** The elements of the library that were found in an index. */
+    private static final List<String> found = new ArrayList<String>();
+    /** The elements whose annotations in an index differ from those of the class file. */
+    private static final List<String> mismatches = new ArrayList<String>();
+    /** The elements outside of the library that were found in an index. */
+    private static final List<String> unexpected = new ArrayList<String>();
+
+    /**
+     * A subtyping checker that, after the compilation, opens the
+     * {@link #probeFiles} and looks up the elements of the library and
+     * others in them.
+     */
+    @TypeQualifiers({ Encrypted.class, PolyEncrypted.class, Unqualified.class })
+    public static final class IndexChecker extends BaseTypeChecker {
+        @Override
+        public void typeProcessingOver() {
+            if (getVisitor() != null && !hasOption("jdkIndexBuild")) {
+                probe(getTypeFactory());
+            }
+            super.typeProcessingOver();
+        }
+
+        private void probe(AnnotatedTypeFactory factory) {
+            for (File file : probeFiles) {
+                AnnotatedJdkIndex index;
+                try {
+                    index = AnnotatedJdkIndex.open(file, factory);
+                } catch (IOException e) {
+                    index = null;
+                }
+                opened.add(index != null);
+                if (index == null) {
+                    continue;
+                }
+                List<Element> library = new ArrayList<Element>();
+                addWithMembers(getElementUtils().getTypeElement("IndexedLib"), library);
+                for (Element elt : library) {
+                    AnnotatedTypeMirror expected = factory.toAnnotatedType(elt.asType(),
+                            ElementUtils.isTypeDeclaration(elt));
+                    ElementAnnotationApplier.apply(expected, elt, factory);
+                    AnnotatedTypeMirror actual = factory.toAnnotatedType(elt.asType(),
+                            ElementUtils.isTypeDeclaration(elt));
+                    if (index.apply(actual, elt)) {
+                        found.add(elt.toString());
+                        if (!expected.toString(true).equals(actual.toString(true))) {
+                            mismatches.add(elt + ": " + expected.toString(true) + " != " + actual.toString(true));
+                        }
+                    }
+                }
+
+                List<Element> others = new ArrayList<Element>();
+                addWithMembers(getElementUtils().getTypeElement("java.lang.Object"), others);
+                addWithMembers(getElementUtils().getTypeElement("IndexUse"), others);
+                for (Element elt : others) {
+                    AnnotatedTypeMirror type = factory.toAnnotatedType(elt.asType(),
+                            ElementUtils.isTypeDeclaration(elt));
+                    if (index.apply(type, elt)) {
+                        unexpected.add(elt.toString());
+                    }
+                }
+            }
+        }
+
+        private static void addWithMembers(TypeElement type, List<Element> result) {
+            result.add(type);
+            for (Element member : type.getEnclosedElements()) {
+                if (member instanceof TypeElement) {
+                    addWithMembers((TypeElement) member, result);
+                } else {
+                    result.add(member);
+                }
+            }
+        }
+    }
+
+    private static final String LIB =
+            "import java.util.List;\n" +
+            "import tests.util.Encrypted;\n" +
+            "public class IndexedLib {\n" +
+            "    public @Encrypted Object field;\n" +
+            "    public Object plain;\n" +
+            "    public IndexedLib(@Encrypted String s) {}\n" +
+            "    public static @Encrypted String encrypt(@Encrypted Object o, int i) { return null; }\n" +
+            "    public List<@Encrypted String> list(@Encrypted Object @Encrypted [] a) { return null; }\n" +
+            "    public static class Nested {\n" +
+            "        public @Encrypted Object f;\n" +
+            "        public <T extends @Encrypted Object> T m(T t) { return t; }\n" +
+            "    }\n" +
+            "}\n";
+
+    private static final String USE =
+            "public class IndexUse {\n" +
+            "    IndexedLib lib;\n" +
+            "    Object use() { return IndexedLib.encrypt(lib.field, 1); }\n" +
+            "}\n";
+
+    private File dir;
+    private File jar;
+    private File indexDir;
+
+    @Before
+    public void buildLibrary() throws IOException {
+        dir = File.createTempFile("jdk-index", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+        indexDir = new File(dir, "index");
+
+        File libSources = new File(dir, "lib");
+        File libClasses = new File(dir, "classes");
+        assertTrue(libSources.mkdir());
+        assertTrue(libClasses.mkdir());
+        write(new File(libSources, "IndexedLib.java"), LIB);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        boolean compiled = compiler.getTask(null, fileManager, null,
+                Arrays.asList("-d", libClasses.getPath(),
+                        "-classpath", System.getProperty("java.class.path", "")),
+                null, fileManager.getJavaFileObjects(new File(libSources, "IndexedLib.java"))).call();
+        assertTrue(compiled);
+
+        jar = new File(dir, "lib.jar");
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+        try {
+            for (File classFile : libClasses.listFiles()) {
+                out.putNextEntry(new ZipEntry(classFile.getName()));
+                out.write(Files.readAllBytes(classFile.toPath()));
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+
+        File useSources = new File(dir, "use");
+        assertTrue(useSources.mkdir());
+        write(new File(useSources, "IndexUse.java"), USE);
+
+        probeFiles.clear();
+        opened.clear();
+        found.clear();
+        mismatches.clear();
+        unexpected.clear();
+    }
+
+    @After
+    public void deleteFiles() {
+        delete(dir);
+    }
+
+    @Test
+    public void buildAndRead() throws IOException {
+        List<String> withoutIndex = check(false);
+        File index = indexFile();
+        assertFalse(index.exists());
+
+        List<String> building = check(true);
+        assertEquals(withoutIndex, building);
+        assertTrue(index.isFile());
+
+        probeFiles.add(index);
+        List<String> withIndex = check(false);
+        assertEquals(withoutIndex, withIndex);
+        assertEquals(Arrays.asList(true), opened);
+        // The class, two fields, the constructor, two methods, the
+        // nested class, its field, constructor, and method.
+        assertEquals(found.toString(), 10, found.size());
+        assertTrue(mismatches.toString(), mismatches.isEmpty());
+        assertTrue(unexpected.toString(), unexpected.isEmpty());
+    }
+
+    @Test
+    public void rejectOtherVersionsAndCorruptFiles() throws IOException {
+        check(true);
+        byte[] contents = Files.readAllBytes(indexFile().toPath());
+
+        byte[] otherVersion = contents.clone();
+        ByteBuffer.wrap(otherVersion).putInt(4, ByteBuffer.wrap(contents).getInt(4) + 1);
+        byte[] otherMagic = contents.clone();
+        ByteBuffer.wrap(otherMagic).putInt(0, 0);
+        byte[] truncated = Arrays.copyOf(contents, contents.length - 5);
+        byte[] header = Arrays.copyOf(contents, 6);
+        probeFiles.add(write("version", otherVersion));
+        probeFiles.add(write("magic", otherMagic));
+        probeFiles.add(write("truncated", truncated));
+        probeFiles.add(write("header", header));
+        probeFiles.add(write("empty", new byte[0]));
+        // The intact file last, to tell that the probe ran.
+        probeFiles.add(indexFile());
+
+        check(false);
+        assertEquals(Arrays.asList(false, false, false, false, false, true), opened);
+    }
+
+    @Test
+    public void ignoreCorruptIndex() throws IOException {
+        List<String> withoutIndex = check(false);
+        check(true);
+        byte[] contents = Files.readAllBytes(indexFile().toPath());
+        OutputStream out = new FileOutputStream(indexFile());
+        try {
+            out.write(contents, 0, contents.length / 2);
+        } finally {
+            out.close();
+        }
+
+        List<String> corrupt = check(false);
+        assertEquals(withoutIndex.size() + 1, corrupt.size());
+        assertTrue(corrupt.toString(), corrupt.get(0).contains("Ignoring JDK index"));
+        assertEquals(withoutIndex, corrupt.subList(1, corrupt.size()));
+    }
+
+    /** Returns the index file of the {@link IndexChecker}. */
+    private File indexFile() {
+        return new File(indexDir, IndexChecker.class.getName() + ".jdkidx");
+    }
+
+    /**
+     * Checks IndexUse with the library on the class path and the index
+     * directory, and returns the diagnostics.
+     *
+     * @param build whether to build the index of the library
+     */
+    private List<String> check(boolean build) {
+        List<String> options = new ArrayList<String>();
+        options.add("-Anomsgtext");
+        options.add("-AjdkIndex=" + indexDir.getAbsolutePath());
+        if (build) {
+            options.add("-AjdkIndexBuild=" + jar.getAbsolutePath());
+        }
+        options.add("-classpath");
+        options.add(System.getProperty("java.class.path", "") + File.pathSeparator + jar.getAbsolutePath());
+
+        StandardJavaFileManager fileManager =
+                ToolProvider.getSystemJavaCompiler().getStandardFileManager(null, null, null);
+        File use = new File(new File(dir, "use"), "IndexUse.java");
+        TestRun run = TestInput.compileAndCheck(use.getParent(), fileManager,
+                fileManager.getJavaFileObjects(use), IndexChecker.class.getName(), options);
+
+        List<String> diagnostics = new ArrayList<String>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : run.getDiagnostics()) {
+            diagnostics.add(diagnostic.getKind() + ":" + diagnostic.getLineNumber()
+                    + ": " + diagnostic.getMessage(null));
+        }
+        return diagnostics;
+    }
+
+    private File write(String name, byte[] contents) throws IOException {
+        File file = new File(dir, name + ".jdkidx");
+        Files.write(file.toPath(), contents);
+        return file;
+    }
+
+    private static void write(File file, String contents) throws IOException {
+        PrintWriter out = new PrintWriter(file, "UTF-8");
+        try {
+            out.print(contents);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,228 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.lang.model.util.Types;
+
+import org.checkerframework.dataflow.cfg.node.MarkerNode;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.dataflow.cfg.node.NodeNumbering;
+import org.checkerframework.dataflow.util.NodeValueMap;
+import org.junit.Test;
+
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * Tests of {@link NodeValueMap}, which stores the values of numbered nodes
+ * in an array and the values of other nodes in a hash map.
+ */
+public class NodeValueMapTest {
+
+    private final Types types;
+
+    public NodeValueMapTest() {
+        types = JavacProcessingEnvironment.instance(new Context()).getTypeUtils();
+    }
+
+    /** Returns a node with the given number, or without a number if it is -1. */
+    private Node node(int id) {
+        Node n = new MarkerNode(null, "node " + id, types);
+        if (id >= 0) {
+            new NodeNumbering(id).number(Collections.singletonList(n));
+        }
+        return n;
+    }
+
+    /** Returns the nodes with the numbers from {@code lo} (inclusive) to {@code hi} (exclusive). */
+    private Node[] nodes(int lo, int hi) {
+        Node[] result = new Node[hi - lo];
+        for (int i = lo; i < hi; i++) {
+            result[i - lo] = new MarkerNode(null, "node " + i, types);
+        }
+        new NodeNumbering(lo).number(Arrays.asList(result));
+        return result;
+    }
+
+    @Test
+    public void putAndGet() {
+        NodeValueMap<String> map = new NodeValueMap<>();
+        Node[] n = nodes(0, 40);
+        assertEquals(0, map.size());
+        assertNull(map.get(n[0]));
+        assertNull(map.get(null));
+        for (int i = 0; i < n.length; i++) {
+            map.put(n[i], "v" + i);
+        }
+        assertEquals(40, map.size());
+        for (int i = 0; i < n.length; i++) {
+            assertEquals("v" + i, map.get(n[i]));
+        }
+        map.put(n[3], "w");
+        assertEquals(40, map.size());
+        assertEquals("w", map.get(n[3]));
+    }
+
+    @Test
+    public void nullRemoves() {
+        NodeValueMap<String> map = new NodeValueMap<>();
+        Node a = node(5);
+        Node b = node(6);
+        Node unnumbered = node(-1);
+        map.put(a, "a");
+        map.put(b, "b");
+        map.put(unnumbered, "u");
+        assertEquals(3, map.size());
+
+        map.put(a, null);
+        assertNull(map.get(a));
+        assertEquals(2, map.size());
+        map.put(a, null);
+        assertEquals(2, map.size());
+
+        map.put(unnumbered, null);
+        assertNull(map.get(unnumbered));
+        assertEquals(1, map.size());
+
+        // Removing values of nodes that never had one.
+        map.put(node(1000), null);
+        map.put(node(-1), null);
+        assertEquals(1, map.size());
+        assertEquals("b", map.get(b));
+    }
+
+    @Test
+    public void growDownward() {
+        NodeValueMap<Integer> map = new NodeValueMap<>();
+        Node[] n = nodes(0, 200);
+        for (int i = n.length - 1; i >= 0; i -= 7) {
+            map.put(n[i], i);
+        }
+        map.put(n[0], 0);
+        int count = 0;
+        for (int i = 0; i < n.length; i++) {
+            boolean expected = i == 0 || (n.length - 1 - i) % 7 == 0;
+            assertEquals(expected ? Integer.valueOf(i) : null, map.get(n[i]));
+            count += expected ? 1 : 0;
+        }
+        assertEquals(count, map.size());
+    }
+
+    @Test
+    public void growUpward() {
+        NodeValueMap<Integer> map = new NodeValueMap<>();
+        Node[] n = nodes(100, 1100);
+        for (int i = 0; i < n.length; i += 3) {
+            map.put(n[i], i);
+        }
+        // Far beyond the current array.
+        Node far = node(50000);
+        map.put(far, -1);
+        int count = 0;
+        for (int i = 0; i < n.length; i++) {
+            assertEquals(i % 3 == 0 ? Integer.valueOf(i) : null, map.get(n[i]));
+            count += i % 3 == 0 ? 1 : 0;
+        }
+        assertEquals(Integer.valueOf(-1), map.get(far));
+        assertEquals(count + 1, map.size());
+    }
+
+    @Test
+    public void unnumberedNodes() {
+        NodeValueMap<String> map = new NodeValueMap<>();
+        Node a = node(-1);
+        Node b = node(-1);
+        Node numbered = node(3);
+        map.put(a, "a");
+        map.put(b, "b");
+        map.put(numbered, "n");
+        assertEquals(3, map.size());
+        // Unnumbered nodes are distinguished by identity.
+        assertEquals("a", map.get(a));
+        assertEquals("b", map.get(b));
+        assertNull(map.get(node(-1)));
+        assertEquals("n", map.get(numbered));
+    }
+
+    @Test
+    public void putAll() {
+        Node[] low = nodes(0, 6);
+        Node[] high = nodes(1000, 1011);
+        Node unnumbered = node(-1);
+
+        NodeValueMap<String> map = new NodeValueMap<>();
+        for (int i = 0; i < low.length; i++) {
+            map.put(low[i], "low" + i);
+        }
+
+        // The array of the other map has room beyond its values, and no
+        // values at its start, which putAll trims.
+        NodeValueMap<String> other = new NodeValueMap<>();
+        other.put(node(990), "gone");
+        other.put(node(990), null);
+        for (int i = 0; i < high.length; i++) {
+            other.put(high[i], "high" + i);
+        }
+        other.put(low[2], "replaced");
+        other.put(unnumbered, "u");
+
+        map.putAll(other);
+        assertEquals(6 + 11 + 1, map.size());
+        for (int i = 0; i < low.length; i++) {
+            assertEquals(i == 2 ? "replaced" : "low" + i, map.get(low[i]));
+        }
+        for (int i = 0; i < high.length; i++) {
+            assertEquals("high" + i, map.get(high[i]));
+        }
+        assertEquals("u", map.get(unnumbered));
+        assertNull(map.get(node(990)));
+
+        // The other map is unchanged.
+        assertEquals(11 + 1 + 1, other.size());
+        assertEquals("replaced", other.get(low[2]));
+        assertNull(other.get(low[0]));
+    }
+
+    @Test
+    public void putAllIntoEmptyAndFromEmpty() {
+        NodeValueMap<String> other = new NodeValueMap<>();
+        Node[] n = nodes(20, 30);
+        for (int i = 0; i < n.length; i += 2) {
+            other.put(n[i], "v" + i);
+        }
+
+        NodeValueMap<String> map = new NodeValueMap<>();
+        map.putAll(other);
+        assertEquals(5, map.size());
+        map.putAll(new NodeValueMap<String>());
+        assertEquals(5, map.size());
+        for (int i = 0; i < n.length; i++) {
+            assertEquals(i % 2 == 0 ? "v" + i : null, map.get(n[i]));
+        }
+    }
+
+    @Test
+    public void copy() {
+        NodeValueMap<String> map = new NodeValueMap<>();
+        Node a = node(1);
+        Node b = node(-1);
+        map.put(a, "a");
+        map.put(b, "b");
+
+        NodeValueMap<String> copy = new NodeValueMap<>(map);
+        copy.put(a, "a2");
+        copy.put(b, null);
+        copy.put(node(2), "c");
+
+        assertEquals(2, map.size());
+        assertEquals("a", map.get(a));
+        assertEquals("b", map.get(b));
+        assertEquals(2, copy.size());
+        assertEquals("a2", copy.get(a));
+        assertNull(copy.get(b));
+    }
+}
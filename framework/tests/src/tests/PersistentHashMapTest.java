@@ -0,0 +1,400 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.checkerframework.dataflow.util.PersistentHashMap;
+import org.junit.Test;
+
+/**
+ * Tests of {@link PersistentHashMap}, the hash array mapped trie behind
+ * the stores of the dataflow framework.  Keys with chosen hash codes
+ * exercise the shapes of the trie:  hash codes that agree in their lowest
+ * five bits share a child node, and equal hash codes share a collision
+ * node.
+ */
+public class PersistentHashMapTest {
+
+    /** A key with a given hash code. */
+    private static class Key {
+        final int hash;
+        final String name;
+
+        Key(int hash, String name) {
+            this.hash = hash;
+            this.name = name;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).hash == hash && ((Key) o).name.equals(name);
+        }
+
+        @Override
+        public String toString() {
+            return name + "#" + hash;
+        }
+    }
+
+    /** Keeps the larger value, or drops the key if the values differ by more than 10. */
+    private static class CountingMerger implements PersistentHashMap.Merger<Integer> {
+        int calls = 0;
+
+        @Override
+        public Integer merge(Integer v1, Integer v2) {
+            calls++;
+            return Math.abs(v1 - v2) > 10 ? null : Math.max(v1, v2);
+        }
+    }
+
+    private static void assertSameEntries(Map<?, ?> expected, PersistentHashMap<?, ?> actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        assertEquals(expected, actual);
+        assertEquals(expected, new HashMap<Object, Object>(actual));
+        for (Map.Entry<?, ?> e : expected.entrySet()) {
+            assertTrue(actual.containsKey(e.getKey()));
+            assertEquals(e.getValue(), actual.get(e.getKey()));
+        }
+    }
+
+    @Test
+    public void putAndGet() {
+        PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(new Key(1, "a"), 1));
+        assertNull(map.put(new Key(2, "b"), 2));
+        assertEquals(Integer.valueOf(1), map.put(new Key(1, "a"), 10));
+        assertEquals(2, map.size());
+        assertEquals(Integer.valueOf(10), map.get(new Key(1, "a")));
+        assertNull(map.get(new Key(3, "c")));
+        assertFalse(map.containsKey(new Key(1, "other")));
+        assertFalse(map.containsKey(null));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullKey() {
+        new PersistentHashMap<Key, Integer>().put(null, 1);
+    }
+
+    @Test
+    public void nullValue() {
+        PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+        map.put(new Key(1, "a"), null);
+        assertTrue(map.containsKey(new Key(1, "a")));
+        assertNull(map.get(new Key(1, "a")));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void removeFromChild() {
+        // 1, 33, and 65 agree in their lowest five bits, so they are in a
+        // child node of the root.
+        Key a = new Key(1, "a");
+        Key b = new Key(33, "b");
+        Key c = new Key(65, "c");
+        PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+        map.put(a, 1);
+        map.put(b, 2);
+        map.put(c, 3);
+        assertNull(map.remove(new Key(97, "d")));
+        assertEquals(3, map.size());
+
+        assertEquals(Integer.valueOf(2), map.remove(b));
+        assertEquals(2, map.size());
+        // The child with a single entry is stored as that entry.
+        assertEquals(Integer.valueOf(3), map.remove(c));
+        assertEquals(1, map.size());
+        assertEquals(Integer.valueOf(1), map.get(a));
+        assertFalse(map.containsKey(b));
+        assertFalse(map.containsKey(c));
+
+        // The collapsed entry can be split into a child again.
+        map.put(c, 30);
+        assertEquals(Integer.valueOf(30), map.get(c));
+        assertEquals(Integer.valueOf(1), map.get(a));
+
+        map.remove(a);
+        map.remove(c);
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.size());
+        assertFalse(map.entrySet().iterator().hasNext());
+    }
+
+    @Test
+    public void collisions() {
+        Key a = new Key(7, "a");
+        Key b = new Key(7, "b");
+        Key c = new Key(7, "c");
+        PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+        map.put(a, 1);
+        map.put(b, 2);
+        map.put(c, 3);
+        assertEquals(3, map.size());
+        assertEquals(Integer.valueOf(2), map.get(b));
+        assertNull(map.get(new Key(7, "d")));
+
+        assertEquals(Integer.valueOf(2), map.put(b, 20));
+        assertEquals(Integer.valueOf(20), map.get(b));
+        assertEquals(3, map.size());
+
+        assertEquals(Integer.valueOf(20), map.remove(b));
+        assertNull(map.remove(new Key(7, "d")));
+        assertEquals(2, map.size());
+        assertEquals(Integer.valueOf(1), map.get(a));
+        assertEquals(Integer.valueOf(3), map.get(c));
+
+        map.remove(a);
+        map.remove(c);
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void collisionNodeMovedDown() {
+        // The collision node of hash code 1 is below the root; a key whose
+        // hash code agrees in the lowest five bits needs a node that
+        // distinguishes them.
+        Key a = new Key(1, "a");
+        Key b = new Key(1, "b");
+        Key c = new Key(33, "c");
+        Key d = new Key(1 + (1 << 10), "d");
+        PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+        map.put(new Key(2, "x"), 0);
+        map.put(a, 1);
+        map.put(b, 2);
+        map.put(c, 3);
+        map.put(d, 4);
+        Map<Key, Integer> expected = new HashMap<>();
+        expected.put(new Key(2, "x"), 0);
+        expected.put(a, 1);
+        expected.put(b, 2);
+        expected.put(c, 3);
+        expected.put(d, 4);
+        assertSameEntries(expected, map);
+
+        map.remove(a);
+        expected.remove(a);
+        assertSameEntries(expected, map);
+        map.remove(c);
+        expected.remove(c);
+        assertSameEntries(expected, map);
+    }
+
+    @Test
+    public void copiesAreIndependent() {
+        PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put(new Key(i, "k"), i);
+        }
+        PersistentHashMap<Key, Integer> copy = new PersistentHashMap<>(map);
+        copy.put(new Key(5, "k"), 50);
+        copy.remove(new Key(6, "k"));
+        copy.put(new Key(200, "k"), 200);
+
+        assertEquals(100, map.size());
+        assertEquals(Integer.valueOf(5), map.get(new Key(5, "k")));
+        assertEquals(Integer.valueOf(6), map.get(new Key(6, "k")));
+        assertFalse(map.containsKey(new Key(200, "k")));
+        assertEquals(100, copy.size());
+        assertEquals(Integer.valueOf(50), copy.get(new Key(5, "k")));
+        assertFalse(copy.containsKey(new Key(6, "k")));
+    }
+
+    @Test
+    public void replaceWith() {
+        PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+        map.put(new Key(1, "a"), 1);
+        PersistentHashMap<Key, Integer> other = new PersistentHashMap<>();
+        other.put(new Key(2, "b"), 2);
+        other.put(new Key(3, "c"), 3);
+
+        map.replaceWith(other);
+        assertEquals(other, map);
+        assertFalse(map.containsKey(new Key(1, "a")));
+
+        map.put(new Key(4, "d"), 4);
+        other.remove(new Key(2, "b"));
+        assertEquals(3, map.size());
+        assertEquals(Integer.valueOf(2), map.get(new Key(2, "b")));
+        assertEquals(1, other.size());
+        assertFalse(other.containsKey(new Key(4, "d")));
+    }
+
+    @Test
+    public void iterator() {
+        PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            map.put(new Key(i % 3, "k" + i), i);
+        }
+        Iterator<Map.Entry<Key, Integer>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Integer> e = it.next();
+            if (e.getValue() % 2 == 0) {
+                it.remove();
+            } else {
+                e.setValue(-e.getValue());
+            }
+        }
+        assertEquals(5, map.size());
+        for (int i = 1; i < 10; i += 2) {
+            assertEquals(Integer.valueOf(-i), map.get(new Key(i % 3, "k" + i)));
+        }
+    }
+
+    @Test
+    public void intersect() {
+        PersistentHashMap<Key, Integer> base = new PersistentHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            base.put(new Key(i, "k"), i);
+        }
+        PersistentHashMap<Key, Integer> left = new PersistentHashMap<>(base);
+        PersistentHashMap<Key, Integer> right = new PersistentHashMap<>(base);
+        left.put(new Key(1, "k"), 5);       // merged to 5
+        right.put(new Key(2, "k"), 100);    // values differ too much; dropped
+        left.remove(new Key(3, "k"));       // only in right; dropped
+        right.put(new Key(300, "k"), 300);  // only in right; dropped
+
+        CountingMerger merger = new CountingMerger();
+        PersistentHashMap<Key, Integer> result = left.intersect(right, merger);
+        assertEquals(2, merger.calls);
+        assertEquals(198, result.size());
+        assertEquals(Integer.valueOf(5), result.get(new Key(1, "k")));
+        assertFalse(result.containsKey(new Key(2, "k")));
+        assertFalse(result.containsKey(new Key(3, "k")));
+        assertFalse(result.containsKey(new Key(300, "k")));
+        assertEquals(Integer.valueOf(4), result.get(new Key(4, "k")));
+
+        // Maps that share everything are not merged at all.
+        merger.calls = 0;
+        assertEquals(base, base.intersect(new PersistentHashMap<>(base), merger));
+        assertEquals(0, merger.calls);
+
+        assertTrue(base.intersect(new PersistentHashMap<Key, Integer>(), merger).isEmpty());
+    }
+
+    @Test
+    public void intersectCollisions() {
+        // Collision nodes on one side and entries or child nodes on the other.
+        PersistentHashMap<Key, Integer> left = new PersistentHashMap<>();
+        left.put(new Key(1, "a"), 1);
+        left.put(new Key(1, "b"), 2);
+        left.put(new Key(1, "c"), 3);
+        left.put(new Key(2, "a"), 4);
+        PersistentHashMap<Key, Integer> right = new PersistentHashMap<>();
+        right.put(new Key(1, "b"), 2);
+        right.put(new Key(33, "x"), 5);
+        right.put(new Key(2, "a"), 6);
+        right.put(new Key(2, "b"), 7);
+
+        CountingMerger merger = new CountingMerger();
+        PersistentHashMap<Key, Integer> result = left.intersect(right, merger);
+        Map<Key, Integer> expected = new HashMap<>();
+        expected.put(new Key(1, "b"), 2);
+        expected.put(new Key(2, "a"), 6);
+        assertSameEntries(expected, result);
+        assertSameEntries(expected, right.intersect(left, merger));
+    }
+
+    @Test
+    public void includes() {
+        PersistentHashMap<Key, Integer> base = new PersistentHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            base.put(new Key(i, "k"), i);
+        }
+        PersistentHashMap<Key, Integer> copy = new PersistentHashMap<>(base);
+        assertTrue(base.includes(copy));
+        assertTrue(base.includes(new PersistentHashMap<Key, Integer>()));
+        assertFalse(new PersistentHashMap<Key, Integer>().includes(base));
+
+        copy.remove(new Key(10, "k"));
+        assertTrue(base.includes(copy));
+        assertFalse(copy.includes(base));
+
+        copy.put(new Key(20, "k"), -20);
+        assertFalse(base.includes(copy));
+        copy.put(new Key(20, "k"), 20);
+        assertTrue(base.includes(copy));
+
+        // Equal values that are not the same object.
+        PersistentHashMap<Key, String> strings = new PersistentHashMap<>();
+        strings.put(new Key(1, "k"), "value");
+        PersistentHashMap<Key, String> other = new PersistentHashMap<>();
+        other.put(new Key(1, "k"), new String("value"));
+        assertTrue(strings.includes(other));
+    }
+
+    @Test
+    public void includesCollisions() {
+        PersistentHashMap<Key, Integer> big = new PersistentHashMap<>();
+        big.put(new Key(1, "a"), 1);
+        big.put(new Key(1, "b"), 2);
+        big.put(new Key(33, "c"), 3);
+        big.put(new Key(2, "d"), 4);
+        PersistentHashMap<Key, Integer> small = new PersistentHashMap<>();
+        small.put(new Key(1, "b"), 2);
+        small.put(new Key(33, "c"), 3);
+        assertTrue(big.includes(small));
+        assertFalse(small.includes(big));
+
+        small.put(new Key(1, "a"), 1);
+        assertTrue(big.includes(small));
+        small.put(new Key(1, "e"), 5);
+        assertFalse(big.includes(small));
+    }
+
+    /**
+     * Random operations on keys with few distinct hash codes, compared with
+     * a {@link HashMap}.
+     */
+    @Test
+    public void randomOperations() {
+        Random random = new Random(42);
+        PersistentHashMap<Key, Integer> map = new PersistentHashMap<>();
+        Map<Key, Integer> expected = new HashMap<>();
+        PersistentHashMap<Key, Integer> snapshot = new PersistentHashMap<>(map);
+        Map<Key, Integer> expectedSnapshot = new HashMap<>(expected);
+        for (int i = 0; i < 5000; i++) {
+            // Hash codes that agree in their lowest bits, or are equal.
+            Key key = new Key(random.nextInt(8) * 32 + random.nextInt(3), "k" + random.nextInt(4));
+            int value = random.nextInt(20);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            if (i % 100 == 0) {
+                assertSameEntries(expected, map);
+                assertSameEntries(expectedSnapshot, snapshot);
+
+                Map<Key, Integer> expectedIntersection = new HashMap<>();
+                CountingMerger merger = new CountingMerger();
+                for (Map.Entry<Key, Integer> e : expected.entrySet()) {
+                    if (expectedSnapshot.containsKey(e.getKey())) {
+                        Integer merged = merger.merge(e.getValue(), expectedSnapshot.get(e.getKey()));
+                        if (merged != null) {
+                            expectedIntersection.put(e.getKey(), merged);
+                        }
+                    }
+                }
+                assertSameEntries(expectedIntersection, map.intersect(snapshot, merger));
+                boolean includes = expected.entrySet().containsAll(expectedSnapshot.entrySet());
+                assertEquals(includes, map.includes(snapshot));
+
+                snapshot = new PersistentHashMap<>(map);
+                expectedSnapshot = new HashMap<>(expected);
+            }
+        }
+    }
+}
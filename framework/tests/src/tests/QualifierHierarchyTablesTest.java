@@ -0,0 +1,473 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.util.Elements;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.framework.qual.Bottom;
+import org.checkerframework.framework.qual.PolymorphicQualifier;
+import org.checkerframework.framework.qual.TypeQualifiers;
+import org.checkerframework.framework.qual.Unqualified;
+import org.checkerframework.framework.test.TestInput;
+import org.checkerframework.framework.util.AnnotationBuilder;
+import org.checkerframework.framework.util.MultiGraphQualifierHierarchy;
+import org.checkerframework.framework.util.MultiGraphQualifierHierarchy.MultiGraphFactory;
+import org.checkerframework.javacutil.AnnotationUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import tests.util.AnnoWithStringArg;
+import tests.util.Critical;
+import tests.util.Encrypted;
+import tests.util.Even;
+import tests.util.MonotonicOdd;
+import tests.util.Odd;
+import tests.util.PolyEncrypted;
+import tests.util.SubQual;
+import tests.util.SuperQual;
+import tests.util.Value;
+
+/**
+ * Tests that the tables of {@link MultiGraphQualifierHierarchy} give the
+ * same subtype relation, tops, bottoms, lubs, and glbs as walking the
+ * graph of the hierarchy, which is how they were computed before there
+ * were tables.  The hierarchy has two tops, a polymorphic qualifier for
+ * each of them, and qualifiers with elements, which have no ordinals.
+ */
+public class QualifierHierarchyTablesTest {
+
+    /** The queries whose results differ, with both results. */
+    private static final List<String> mismatches = new ArrayList<String>();
+    /** The number of queries that were compared. */
+    private static int compared;
+
+    @PolymorphicQualifier(Unqualified.class)
+    public @interface PolyA {}
+
+    @PolymorphicQualifier(SuperQual.class)
+    public @interface PolyB {}
+
+    public @interface BBottom {}
+
+    /**
+     * A subtyping checker that, after the compilation, builds the test
+     * hierarchy with its type factory and compares the results of the
+     * queries.
+     */
+    @TypeQualifiers({ Encrypted.class, PolyEncrypted.class, Unqualified.class })
+    public static final class TablesChecker extends BaseTypeChecker {
+        @Override
+        public void typeProcessingOver() {
+            if (getVisitor() != null) {
+                compareQueries();
+            }
+            super.typeProcessingOver();
+        }
+
+        private void compareQueries() {
+            Elements elements = getElementUtils();
+            AnnotationMirror unqualified = AnnotationUtils.fromClass(elements, Unqualified.class);
+            AnnotationMirror encrypted = AnnotationUtils.fromClass(elements, Encrypted.class);
+            AnnotationMirror even = AnnotationUtils.fromClass(elements, Even.class);
+            AnnotationMirror odd = AnnotationUtils.fromClass(elements, Odd.class);
+            AnnotationMirror value = value(1);
+            AnnotationMirror monotonicOdd = AnnotationUtils.fromClass(elements, MonotonicOdd.class);
+            AnnotationMirror critical = AnnotationUtils.fromClass(elements, Critical.class);
+            AnnotationMirror bottom = AnnotationUtils.fromClass(elements, Bottom.class);
+            AnnotationMirror polyA = AnnotationUtils.fromClass(elements, PolyA.class);
+            AnnotationMirror superQual = AnnotationUtils.fromClass(elements, SuperQual.class);
+            AnnotationMirror subQual = AnnotationUtils.fromClass(elements, SubQual.class);
+            AnnotationMirror withArg = new AnnotationBuilder(getProcessingEnvironment(), AnnoWithStringArg.class)
+                .setValue("value", "g").build();
+            AnnotationMirror bBottom = AnnotationUtils.fromClass(elements, BBottom.class);
+            AnnotationMirror polyB = AnnotationUtils.fromClass(elements, PolyB.class);
+
+            // Encrypted and Even have the glb Odd; MonotonicOdd and Critical
+            // have the lub @Value(1), which has no ordinal.
+            MultiGraphFactory factory = new MultiGraphFactory(getTypeFactory());
+            factory.addSubtype(encrypted, unqualified);
+            factory.addSubtype(even, unqualified);
+            factory.addSubtype(odd, encrypted);
+            factory.addSubtype(odd, even);
+            factory.addSubtype(value, unqualified);
+            factory.addSubtype(monotonicOdd, value);
+            factory.addSubtype(critical, value);
+            factory.addSubtype(bottom, odd);
+            factory.addSubtype(bottom, monotonicOdd);
+            factory.addSubtype(bottom, critical);
+            factory.addQualifier(polyA);
+            factory.addSubtype(subQual, superQual);
+            factory.addSubtype(withArg, superQual);
+            factory.addSubtype(bBottom, subQual);
+            factory.addSubtype(bBottom, withArg);
+            factory.addQualifier(polyB);
+            WalkedHierarchy hierarchy = new WalkedHierarchy(factory);
+
+            // Copies of the qualifiers with elements, which are equal but
+            // not identical to those of the hierarchy, and one that is not
+            // in the hierarchy.
+            List<AnnotationMirror> quals = Arrays.asList(unqualified, encrypted, even, odd,
+                    value, value(1), value(2), monotonicOdd, critical, bottom, polyA,
+                    superQual, subQual, withArg,
+                    new AnnotationBuilder(getProcessingEnvironment(), AnnoWithStringArg.class)
+                        .setValue("value", "g").build(),
+                    bBottom, polyB);
+
+            // Every query twice: the first fills in the tables, and the
+            // second reads them.
+            for (int i = 0; i < 2; i++) {
+                for (AnnotationMirror a : quals) {
+                    record("top " + a, describeTop(hierarchy, a), describeWalkTop(hierarchy, a));
+                    record("bottom " + a, describeBottom(hierarchy, a), describeWalkBottom(hierarchy, a));
+                    for (AnnotationMirror b : quals) {
+                        record(a + " <: " + b, describeSubtype(hierarchy, a, b),
+                                describeWalkSubtype(hierarchy, a, b));
+                        record("lub " + a + " " + b, describeLub(hierarchy, a, b),
+                                describeWalkLub(hierarchy, a, b));
+                        record("glb " + a + " " + b, describeGlb(hierarchy, a, b),
+                                describeWalkGlb(hierarchy, a, b));
+                    }
+                }
+                List<AnnotationMirror> others = Arrays.asList(encrypted, subQual);
+                for (AnnotationMirror a : Arrays.asList(unqualified, odd, bottom, polyA)) {
+                    for (AnnotationMirror b : Arrays.asList(superQual, bBottom, polyB)) {
+                        List<AnnotationMirror> rhs = Arrays.asList(a, b);
+                        record(rhs + " <: " + others, describeSubtype(hierarchy, rhs, others),
+                                describeWalkSubtype(hierarchy, rhs, others));
+                        record(others + " <: " + rhs, describeSubtype(hierarchy, others, rhs),
+                                describeWalkSubtype(hierarchy, others, rhs));
+                    }
+                }
+            }
+        }
+
+        private AnnotationMirror value(int v) {
+            return new AnnotationBuilder(getProcessingEnvironment(), Value.class).setValue("value", v).build();
+        }
+    }
+
+    private static void record(String query, String actual, String expected) {
+        ++compared;
+        if (!actual.equals(expected)) {
+            mismatches.add(query + ": " + actual + " != " + expected);
+        }
+    }
+
+    // The describe methods return the result of a query, or "abort" if
+    // the query is an error.
+
+    private static String describeTop(WalkedHierarchy h, AnnotationMirror a) {
+        try {
+            return String.valueOf(h.getTopAnnotation(a));
+        } catch (RuntimeException e) {
+            return "abort";
+        }
+    }
+
+    private static String describeWalkTop(WalkedHierarchy h, AnnotationMirror a) {
+        try {
+            return String.valueOf(h.walkTop(a));
+        } catch (RuntimeException e) {
+            return "abort";
+        }
+    }
+
+    private static String describeBottom(WalkedHierarchy h, AnnotationMirror a) {
+        try {
+            return String.valueOf(h.getBottomAnnotation(a));
+        } catch (RuntimeException e) {
+            return "abort";
+        }
+    }
+
+    private static String describeWalkBottom(WalkedHierarchy h, AnnotationMirror a) {
+        try {
+            return String.valueOf(h.walkBottom(a));
+        } catch (RuntimeException e) {
+            return "abort";
+        }
+    }
+
+    private static String describeSubtype(WalkedHierarchy h, AnnotationMirror a, AnnotationMirror b) {
+        try {
+            return String.valueOf(h.isSubtype(a, b));
+        } catch (RuntimeException e) {
+            return "abort";
+        }
+    }
+
+    private static String describeWalkSubtype(WalkedHierarchy h, AnnotationMirror a, AnnotationMirror b) {
+        try {
+            return String.valueOf(h.walkIsSubtype(a, b));
+        } catch (RuntimeException e) {
+            return "abort";
+        }
+    }
+
+    private static String describeSubtype(WalkedHierarchy h, List<AnnotationMirror> a, List<AnnotationMirror> b) {
+        try {
+            return String.valueOf(h.isSubtype(a, b));
+        } catch (RuntimeException e) {
+            return "abort";
+        }
+    }
+
+    private static String describeWalkSubtype(WalkedHierarchy h, List<AnnotationMirror> a, List<AnnotationMirror> b) {
+        try {
+            return String.valueOf(h.walkIsSubtype(a, b));
+        } catch (RuntimeException e) {
+            return "abort";
+        }
+    }
+
+    private static String describeLub(WalkedHierarchy h, AnnotationMirror a, AnnotationMirror b) {
+        try {
+            return String.valueOf(h.leastUpperBound(a, b));
+        } catch (RuntimeException e) {
+            return "abort";
+        }
+    }
+
+    private static String describeWalkLub(WalkedHierarchy h, AnnotationMirror a, AnnotationMirror b) {
+        try {
+            return String.valueOf(h.walkLub(a, b));
+        } catch (RuntimeException e) {
+            return "abort";
+        }
+    }
+
+    private static String describeGlb(WalkedHierarchy h, AnnotationMirror a, AnnotationMirror b) {
+        try {
+            return String.valueOf(h.greatestLowerBound(a, b));
+        } catch (RuntimeException e) {
+            return "abort";
+        }
+    }
+
+    private static String describeWalkGlb(WalkedHierarchy h, AnnotationMirror a, AnnotationMirror b) {
+        try {
+            return String.valueOf(h.walkGlb(a, b));
+        } catch (RuntimeException e) {
+            return "abort";
+        }
+    }
+
+    /**
+     * A hierarchy that can also answer the queries by walking its graph,
+     * as {@link MultiGraphQualifierHierarchy} did before it had tables.
+     */
+    private static final class WalkedHierarchy extends MultiGraphQualifierHierarchy {
+
+        WalkedHierarchy(MultiGraphFactory f) {
+            super(f);
+        }
+
+        boolean walkIsSubtype(AnnotationMirror rhs, AnnotationMirror lhs) {
+            checkInGraph(rhs);
+            checkInGraph(lhs);
+            if (AnnotationUtils.areSameIgnoringValues(rhs, lhs)) {
+                return AnnotationUtils.areSame(rhs, lhs);
+            }
+            return AnnotationUtils.containsSame(supertypesMap.get(rhs), lhs);
+        }
+
+        boolean walkIsSubtype(List<AnnotationMirror> rhs, List<AnnotationMirror> lhs) {
+            int valid = 0;
+            for (AnnotationMirror lhsAnno : lhs) {
+                for (AnnotationMirror rhsAnno : rhs) {
+                    if (AnnotationUtils.areSame(walkTop(lhsAnno), walkTop(rhsAnno))
+                            && walkIsSubtype(rhsAnno, lhsAnno)) {
+                        ++valid;
+                    }
+                }
+            }
+            return lhs.size() == valid;
+        }
+
+        private void checkInGraph(AnnotationMirror a) {
+            if (!AnnotationUtils.containsSame(supertypesMap.keySet(), a)
+                    && !AnnotationUtils.containsSame(polyQualifiers.values(), a)) {
+                throw new RuntimeException("not in the hierarchy: " + a);
+            }
+        }
+
+        AnnotationMirror walkTop(AnnotationMirror start) {
+            for (AnnotationMirror top : tops) {
+                if (AnnotationUtils.areSame(start, top) || walkIsSubtype(start, top)) {
+                    return top;
+                }
+            }
+            throw new RuntimeException("no top: " + start);
+        }
+
+        AnnotationMirror walkBottom(AnnotationMirror start) {
+            for (AnnotationMirror bottom : bottoms) {
+                if (AnnotationUtils.areSame(start, bottom) || walkIsSubtype(bottom, start)) {
+                    return bottom;
+                }
+            }
+            throw new RuntimeException("no bottom: " + start);
+        }
+
+        AnnotationMirror walkLub(AnnotationMirror a1, AnnotationMirror a2) {
+            if (!AnnotationUtils.areSameIgnoringValues(walkTop(a1), walkTop(a2))) {
+                return null;
+            } else if (walkIsSubtype(a1, a2)) {
+                return a2;
+            } else if (walkIsSubtype(a2, a1)) {
+                return a1;
+            } else if (AnnotationUtils.areSameIgnoringValues(a1, a2)) {
+                return walkTop(a1);
+            }
+            AnnotationMirror[] pair = graphPair(a1, a2);
+            return pair == null ? null : findLub(pair[0], pair[1]);
+        }
+
+        AnnotationMirror walkGlb(AnnotationMirror a1, AnnotationMirror a2) {
+            if (AnnotationUtils.areSameIgnoringValues(a1, a2)) {
+                return AnnotationUtils.areSame(a1, a2) ? a1 : walkBottom(a1);
+            }
+            AnnotationMirror[] pair = graphPair(a1, a2);
+            return pair == null ? null : findGlb(pair[0], pair[1]);
+        }
+
+        /**
+         * Returns the first pair of qualifiers of the graph that have the
+         * names of {@code a1} and {@code a2} in either order and the same
+         * top, or null if there is none.  The lubs and glbs of the graph
+         * were computed for these pairs only.
+         */
+        private AnnotationMirror[] graphPair(AnnotationMirror a1, AnnotationMirror a2) {
+            for (AnnotationMirror g1 : supertypesGraph.keySet()) {
+                for (AnnotationMirror g2 : supertypesGraph.keySet()) {
+                    if (AnnotationUtils.areSameIgnoringValues(g1, g2)
+                            || !AnnotationUtils.areSame(walkTop(g1), walkTop(g2))) {
+                        continue;
+                    }
+                    if ((AnnotationUtils.areSameIgnoringValues(g1, a1) && AnnotationUtils.areSameIgnoringValues(g2, a2))
+                            || (AnnotationUtils.areSameIgnoringValues(g1, a2) && AnnotationUtils.areSameIgnoringValues(g2, a1))) {
+                        return new AnnotationMirror[] { g1, g2 };
+                    }
+                }
+            }
+            return null;
+        }
+
+        private AnnotationMirror findLub(AnnotationMirror a1, AnnotationMirror a2) {
+            if (walkIsSubtype(a1, a2)) {
+                return a2;
+            }
+            if (walkIsSubtype(a2, a1)) {
+                return a1;
+            }
+            Set<AnnotationMirror> outset = AnnotationUtils.createAnnotationSet();
+            for (AnnotationMirror a1Super : findSmallestTypes(supertypesMap.get(a1))) {
+                AnnotationMirror a1Lub = findLub(a1Super, a2);
+                if (a1Lub != null) {
+                    outset.add(a1Lub);
+                }
+            }
+            if (outset.isEmpty()) {
+                throw new RuntimeException("no lub: " + a1 + " " + a2);
+            }
+            return findSmallestTypes(outset).iterator().next();
+        }
+
+        private AnnotationMirror findGlb(AnnotationMirror a1, AnnotationMirror a2) {
+            if (walkIsSubtype(a1, a2)) {
+                return a1;
+            }
+            if (walkIsSubtype(a2, a1)) {
+                return a2;
+            }
+            Set<AnnotationMirror> outset = AnnotationUtils.createAnnotationSet();
+            for (AnnotationMirror a1Sub : supertypesGraph.keySet()) {
+                if (walkIsSubtype(a1Sub, a1) && !a1Sub.equals(a1)) {
+                    AnnotationMirror a1lb = findGlb(a1Sub, a2);
+                    if (a1lb != null) {
+                        outset.add(a1lb);
+                    }
+                }
+            }
+            if (outset.isEmpty()) {
+                throw new RuntimeException("no glb: " + a1 + " " + a2);
+            }
+            return findGreatestTypes(outset).iterator().next();
+        }
+
+        private Set<AnnotationMirror> findSmallestTypes(Set<AnnotationMirror> inset) {
+            Set<AnnotationMirror> outset = AnnotationUtils.createAnnotationSet();
+            outset.addAll(inset);
+            for (AnnotationMirror a1 : inset) {
+                for (AnnotationMirror a2 : new ArrayList<AnnotationMirror>(outset)) {
+                    if (a1 != a2 && walkIsSubtype(a1, a2)) {
+                        outset.remove(a2);
+                    }
+                }
+            }
+            return outset;
+        }
+
+        private Set<AnnotationMirror> findGreatestTypes(Set<AnnotationMirror> inset) {
+            Set<AnnotationMirror> outset = AnnotationUtils.createAnnotationSet();
+            outset.addAll(inset);
+            for (AnnotationMirror a1 : inset) {
+                for (AnnotationMirror a2 : new ArrayList<AnnotationMirror>(outset)) {
+                    if (a1 != a2 && walkIsSubtype(a2, a1)) {
+                        outset.remove(a2);
+                    }
+                }
+            }
+            return outset;
+        }
+    }
+
+    private File dir;
+
+    @Before
+    public void createFiles() throws IOException {
+        dir = File.createTempFile("qualifier-tables", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+        PrintWriter out = new PrintWriter(new File(dir, "TablesUse.java"), "UTF-8");
+        try {
+            out.print("class TablesUse {}\n");
+        } finally {
+            out.close();
+        }
+        mismatches.clear();
+        compared = 0;
+    }
+
+    @Test
+    public void tablesMatchGraphWalk() {
+        StandardJavaFileManager fileManager =
+                ToolProvider.getSystemJavaCompiler().getStandardFileManager(null, null, null);
+        File use = new File(dir, "TablesUse.java");
+        Iterable<? extends JavaFileObject> files = fileManager.getJavaFileObjects(use);
+        TestInput.compileAndCheck(dir.getAbsolutePath(), fileManager, files,
+                TablesChecker.class.getName(), Collections.singletonList("-Anomsgtext"));
+        use.delete();
+        dir.delete();
+
+        // 17 qualifiers, with tops, bottoms, and three queries for each
+        // pair, and 24 queries of sets of qualifiers, twice.
+        assertEquals(2 * (17 * 2 + 17 * 17 * 3 + 24), compared);
+        assertTrue(mismatches.toString(), mismatches.isEmpty());
+    }
+}
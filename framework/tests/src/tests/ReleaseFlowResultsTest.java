@@ -0,0 +1,185 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.framework.qual.TypeQualifiers;
+import org.checkerframework.framework.qual.Unqualified;
+import org.checkerframework.framework.test.TestInput;
+import org.checkerframework.framework.test.TestRun;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import tests.util.Encrypted;
+import tests.util.PolyEncrypted;
+
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+
+/**
+ * Tests of the -AreleaseFlowResults option, which drops the results of
+ * the flow analysis of a class once it has been checked.
+ */
+public class ReleaseFlowResultsTest {
+
+    /** Whether the {@link ReleaseChecker} checks every class twice. */
+    private static boolean rerun;
+    /**
+     * The types of the initializers of the variables named "e", which the
+     * {@link ReleaseChecker} queries after checking a class.
+     */
+    private static final List<String> queried = new ArrayList<String>();
+
+    /**
+     * A subtyping checker that queries the types of trees after checking
+     * a class, and may check it again.
+     */
+    @TypeQualifiers({ Encrypted.class, PolyEncrypted.class, Unqualified.class })
+    public static final class ReleaseChecker extends BaseTypeChecker {
+        @Override
+        public void typeProcess(TypeElement e, TreePath p) {
+            super.typeProcess(e, p);
+            new TreePathScanner<Void, Void>() {
+                @Override
+                public Void visitVariable(VariableTree node, Void v) {
+                    ExpressionTree init = node.getInitializer();
+                    if (node.getName().contentEquals("e") && init != null) {
+                        queried.add(getTypeFactory().getAnnotatedType(init).toString());
+                    }
+                    return super.visitVariable(node, v);
+                }
+            }.scan(p, null);
+            if (rerun) {
+                super.typeProcess(e, p);
+            }
+        }
+    }
+
+    /**
+     * Two top-level classes, one with a nested class.  The assignments to
+     * the variables named "e" only type-check with flow-sensitive
+     * refinement.
+     */
+    private static final String SOURCE =
+            "import tests.util.Encrypted;\n" +
+            "class ReleaseA {\n" +
+            "    @Encrypted Object encrypted;\n" +
+            "    void m(Object o) {\n" +
+            "        o = encrypted;\n" +
+            "        @Encrypted Object e = o;\n" +
+            "        @Encrypted Object f = new Object();\n" +
+            "    }\n" +
+            "    class Nested {\n" +
+            "        void n(Object o) {\n" +
+            "            o = encrypted;\n" +
+            "            @Encrypted Object e = o;\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n" +
+            "class ReleaseB {\n" +
+            "    void m(@Encrypted Object p, Object o) {\n" +
+            "        o = p;\n" +
+            "        @Encrypted Object e = o;\n" +
+            "        @Encrypted Object f = new Object();\n" +
+            "    }\n" +
+            "}\n";
+
+    private File dir;
+
+    @Before
+    public void createFiles() throws IOException {
+        dir = File.createTempFile("release-flow", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+        PrintWriter out = new PrintWriter(new File(dir, "ReleaseA.java"), "UTF-8");
+        try {
+            out.print(SOURCE);
+        } finally {
+            out.close();
+        }
+        rerun = false;
+    }
+
+    @After
+    public void deleteFiles() {
+        new File(dir, "ReleaseA.java").delete();
+        dir.delete();
+    }
+
+    @Test
+    public void sameDiagnostics() {
+        List<String> kept = check(false);
+        assertEquals(kept.toString(), 2, kept.size());
+        assertEquals(kept, check(true));
+    }
+
+    @Test
+    public void queriesAfterRelease() {
+        check(false);
+        // The results are kept, so the queries see the refined types.
+        assertEquals(3, queried.size());
+        for (String type : queried) {
+            assertTrue(queried.toString(), type.contains("Encrypted"));
+        }
+
+        check(true);
+        // The results were released, and the classes are not analyzed
+        // again, so the queries see the declared types.
+        assertEquals(3, queried.size());
+        for (String type : queried) {
+            assertFalse(queried.toString(), type.contains("Encrypted"));
+        }
+    }
+
+    @Test
+    public void rerunClass() {
+        List<String> once = check(true);
+        rerun = true;
+        List<String> twice = check(true);
+        // Checking a class again reports the same errors, which javac may
+        // or may not report twice, and none from missing refinement.
+        assertEquals(new TreeSet<String>(once), new TreeSet<String>(twice));
+    }
+
+    /** Checks the source, and returns the diagnostics. */
+    private List<String> check(boolean release) {
+        queried.clear();
+        List<String> options = new ArrayList<String>();
+        options.add("-Anomsgtext");
+        if (release) {
+            options.add("-AreleaseFlowResults");
+        }
+
+        StandardJavaFileManager fileManager =
+                ToolProvider.getSystemJavaCompiler().getStandardFileManager(null, null, null);
+        Iterable<? extends JavaFileObject> files =
+                fileManager.getJavaFileObjects(new File(dir, "ReleaseA.java"));
+        TestRun run = TestInput.compileAndCheck(dir.getAbsolutePath(), fileManager, files,
+                ReleaseChecker.class.getName(), options);
+
+        List<String> diagnostics = new ArrayList<String>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : run.getDiagnostics()) {
+            diagnostics.add(diagnostic.getKind() + ":" + diagnostic.getLineNumber()
+                    + ":" + diagnostic.getColumnNumber() + ": " + diagnostic.getMessage(null));
+        }
+        return diagnostics;
+    }
+}
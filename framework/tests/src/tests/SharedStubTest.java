@@ -0,0 +1,163 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.framework.qual.TypeQualifiers;
+import org.checkerframework.framework.qual.Unqualified;
+import org.checkerframework.framework.stub.StubCache;
+import org.checkerframework.framework.stub.StubParser;
+import org.checkerframework.framework.test.TestInput;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.stubparser.JavaParser;
+import org.checkerframework.stubparser.ParseException;
+import org.checkerframework.stubparser.ast.IndexUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import tests.util.Encrypted;
+import tests.util.PolyEncrypted;
+
+/**
+ * Tests that a stub file that is shared between compilations is parsed
+ * into the type factory of each compilation alike, and is not modified
+ * by parsing it.
+ */
+public class SharedStubTest {
+
+    /** The contents of the stub file; unique, so that no other test shares it. */
+    private static byte[] stub;
+    /** The IndexUnit that each {@link SharedStubChecker} read. */
+    private static final List<IndexUnit> indexes = new ArrayList<IndexUnit>();
+    /** The annotated types of the stub file of each {@link SharedStubChecker}. */
+    private static final List<List<String>> results = new ArrayList<List<String>>();
+
+    /**
+     * A subtyping checker that, after the compilation, parses the shared
+     * {@link #stub} into its type factory.
+     */
+    @TypeQualifiers({ Encrypted.class, PolyEncrypted.class, Unqualified.class })
+    public static final class SharedStubChecker extends BaseTypeChecker {
+        @Override
+        public void typeProcessingOver() {
+            if (getVisitor() != null) {
+                IndexUnit index = StubCache.parseShared("shared.astub", stub);
+                Map<Element, AnnotatedTypeMirror> atypes = new HashMap<Element, AnnotatedTypeMirror>();
+                Map<String, Set<AnnotationMirror>> declAnnos = new HashMap<String, Set<AnnotationMirror>>();
+                new StubParser("shared.astub", index, getTypeFactory(), getProcessingEnvironment())
+                    .parse(atypes, declAnnos);
+                List<String> result = new ArrayList<String>();
+                for (Map.Entry<Element, AnnotatedTypeMirror> entry : atypes.entrySet()) {
+                    result.add(entry.getKey().getEnclosingElement() + "." + entry.getKey()
+                            + ": " + entry.getValue().toString(true));
+                }
+                Collections.sort(result);
+                indexes.add(index);
+                results.add(result);
+            }
+            super.typeProcessingOver();
+        }
+    }
+
+    private static final String STUB =
+            "import tests.util.Encrypted;\n" +
+            "package java.lang;\n" +
+            "class String {\n" +
+            "    @Encrypted String trim();\n" +
+            "    String concat(@Encrypted String str);\n" +
+            "}\n" +
+            "class Object {\n" +
+            "    @Encrypted String toString();\n" +
+            "}\n";
+
+    private File dir;
+
+    @Before
+    public void createFiles() throws IOException {
+        dir = File.createTempFile("shared-stub", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+        PrintWriter out = new PrintWriter(new File(dir, "SharedStubUse.java"), "UTF-8");
+        try {
+            out.print("class SharedStubUse { String s = \"\".trim(); }\n");
+        } finally {
+            out.close();
+        }
+        stub = (STUB + "// " + UUID.randomUUID() + "\n").getBytes(StandardCharsets.UTF_8);
+        indexes.clear();
+        results.clear();
+    }
+
+    @After
+    public void deleteFiles() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void parseIntoTwoFactories() throws ParseException {
+        String expected = JavaParser.parse(new ByteArrayInputStream(stub)).toString();
+        check();
+        check();
+
+        assertEquals(2, indexes.size());
+        assertSame(indexes.get(0), indexes.get(1));
+        assertEquals(expected, indexes.get(0).toString());
+
+        assertEquals(2, results.size());
+        List<String> first = results.get(0);
+        assertTrue(first.toString(), contains(first, "java.lang.String.trim()", "Encrypted"));
+        assertTrue(first.toString(), contains(first, "java.lang.String.concat(java.lang.String)", "Encrypted"));
+        assertTrue(first.toString(), contains(first, "java.lang.Object.toString()", "Encrypted"));
+        assertEquals(first, results.get(1));
+    }
+
+    /**
+     * Returns whether a line of {@code result} starts with {@code element}
+     * and contains {@code annotation}.
+     */
+    private static boolean contains(List<String> result, String element, String annotation) {
+        for (String line : result) {
+            if (line.startsWith(element + ": ") && line.contains(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void check() {
+        StandardJavaFileManager fileManager =
+                ToolProvider.getSystemJavaCompiler().getStandardFileManager(null, null, null);
+        Iterable<? extends JavaFileObject> files =
+                fileManager.getJavaFileObjects(new File(dir, "SharedStubUse.java"));
+        int before = results.size();
+        TestInput.compileAndCheck(dir.getAbsolutePath(), fileManager, files,
+                SharedStubChecker.class.getName(), Collections.singletonList("-Anomsgtext"));
+        assertFalse("the checker did not run", results.size() == before);
+    }
+}
@@ -0,0 +1,78 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+import org.checkerframework.framework.test.ParameterizedCheckerTest;
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runners.Parameterized.Parameters;
+
+import tests.util.TestChecker;
+
+/**
+ * JUnit tests of the signature cache stored with -AsignatureCache, using
+ * the {@link TestChecker}.  All inputs are checked with one cache
+ * directory, each twice:  the first compilation of a file saves the types
+ * it computed, and every later compilation restores the types that the
+ * compilations before it saved.  The expected diagnostics are those of
+ * {@link FrameworkTest}, which does not store the types.
+ */
+public class SignatureCacheTest extends ParameterizedCheckerTest {
+
+    /** The cache directory of all tests. */
+    private static final File cacheDir = createCacheDirectory();
+
+    public SignatureCacheTest(File testFile) {
+        super(testFile,
+                tests.util.TestChecker.class,
+                "framework",
+                "-Anomsgtext",
+                "-AsignatureCache=" + cacheDir.getAbsolutePath());
+    }
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        return testFiles("framework", "all-systems");
+    }
+
+    @Override
+    @Test
+    public void run() {
+        super.run();
+        // All compilations have the same configuration, so they share one file.
+        File[] stored = cacheDir.listFiles();
+        assertEquals(1, stored.length);
+        assertTrue(stored[0].getName().endsWith(".sigcache"));
+        assertTrue(stored[0].length() > 0);
+
+        super.run();
+    }
+
+    private static File createCacheDirectory() {
+        try {
+            File dir = File.createTempFile("signature-cache", "");
+            if (!dir.delete() || !dir.mkdir()) {
+                throw new IOException("cannot create " + dir);
+            }
+            return dir;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @AfterClass
+    public static void deleteCacheDirectory() {
+        File[] stored = cacheDir.listFiles();
+        if (stored != null) {
+            for (File file : stored) {
+                file.delete();
+            }
+        }
+        cacheDir.delete();
+    }
+}
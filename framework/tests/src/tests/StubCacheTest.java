@@ -0,0 +1,301 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.checkerframework.framework.stub.StubCache;
+import org.checkerframework.framework.stub.StubCacheCodec;
+import org.checkerframework.stubparser.JavaParser;
+import org.checkerframework.stubparser.ParseException;
+import org.checkerframework.stubparser.ast.CompilationUnit;
+import org.checkerframework.stubparser.ast.ImportDeclaration;
+import org.checkerframework.stubparser.ast.IndexUnit;
+import org.checkerframework.stubparser.ast.PackageDeclaration;
+import org.checkerframework.stubparser.ast.body.BodyDeclaration;
+import org.checkerframework.stubparser.ast.body.ClassOrInterfaceDeclaration;
+import org.checkerframework.stubparser.ast.body.ConstructorDeclaration;
+import org.checkerframework.stubparser.ast.body.EnumConstantDeclaration;
+import org.checkerframework.stubparser.ast.body.EnumDeclaration;
+import org.checkerframework.stubparser.ast.body.FieldDeclaration;
+import org.checkerframework.stubparser.ast.body.MethodDeclaration;
+import org.checkerframework.stubparser.ast.body.TypeDeclaration;
+import org.checkerframework.stubparser.ast.body.VariableDeclarator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of {@link StubCache} and of its encoding, {@link StubCacheCodec}.
+ */
+public class StubCacheTest {
+
+    private File cacheDir;
+
+    @Before
+    public void createCacheDirectory() throws IOException {
+        cacheDir = File.createTempFile("stub-cache", "");
+        assertTrue(cacheDir.delete());
+        assertTrue(cacheDir.mkdir());
+    }
+
+    @After
+    public void deleteCacheDirectory() {
+        for (File entry : cacheDir.listFiles()) {
+            entry.delete();
+        }
+        cacheDir.delete();
+    }
+
+    /**
+     * Encodes and decodes every stub file of the framework and the
+     * checkers, and compares the result with the parsed stub file.
+     */
+    @Test
+    public void roundTrip() throws IOException, ParseException {
+        List<File> stubFiles = stubFiles();
+        assertTrue(stubFiles.size() > 10);
+        int encoded = 0;
+        for (File stubFile : stubFiles) {
+            IndexUnit parsed = JavaParser.parse(stubFile);
+            byte[] bytes;
+            try {
+                bytes = encode(parsed);
+            } catch (IOException e) {
+                // A construct that the encoding does not support; such a
+                // stub file is parsed every time.
+                continue;
+            }
+            ++encoded;
+            IndexUnit decoded = decode(bytes);
+            assertEquals(stubFile.getPath(), outline(parsed), outline(decoded));
+            assertArrayEquals(stubFile.getPath(), bytes, encode(decoded));
+        }
+        assertTrue(encoded > stubFiles.size() / 2);
+    }
+
+    @Test
+    public void entries() throws IOException, ParseException {
+        StubCache cache = new StubCache(cacheDir);
+        byte[] contents = uniqueStubFile();
+        IndexUnit parsed = cache.parse("first.astub", contents);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(outline(JavaParser.parse(new ByteArrayInputStream(contents))), outline(parsed));
+
+        File[] entries = cacheDir.listFiles();
+        assertEquals(1, entries.length);
+        assertEquals(StubCache.checksum(contents) + ".stubcache", entries[0].getName());
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(entries[0].toPath())));
+        String version = in.readUTF();
+        assertEquals(StubCache.checksum(contents), in.readUTF());
+        byte[] body = new byte[in.available()];
+        in.readFully(body);
+
+        // The stub file is parsed once per process.
+        assertEquals(parsed, cache.parse("first.astub", contents));
+        assertEquals(1, cache.getHits());
+
+        // Entries are only used with the version and the checksum of the
+        // stub file that they are stored for.
+        byte[] other = uniqueStubFile();
+        writeEntry(other, version, StubCache.checksum(other), body);
+        assertEquals(outline(parsed), outline(cache.parse("entry.astub", other)));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        byte[] otherVersion = uniqueStubFile();
+        writeEntry(otherVersion, version + "0", StubCache.checksum(otherVersion), body);
+        cache.parse("version.astub", otherVersion);
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        byte[] otherChecksum = uniqueStubFile();
+        writeEntry(otherChecksum, version, StubCache.checksum(contents), body);
+        cache.parse("checksum.astub", otherChecksum);
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getMisses());
+
+        byte[] corrupt = uniqueStubFile();
+        writeEntry(corrupt, version, StubCache.checksum(corrupt), Arrays.copyOf(body, body.length / 2));
+        IndexUnit reparsed = cache.parse("corrupt.astub", corrupt);
+        assertEquals(2, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(outline(parsed), outline(reparsed));
+    }
+
+    /** Writes the cache entry of {@code contents}. */
+    private void writeEntry(byte[] contents, String version, String checksum, byte[] body)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(version);
+        out.writeUTF(checksum);
+        out.write(body);
+        out.close();
+        Files.write(new File(cacheDir, StubCache.checksum(contents) + ".stubcache").toPath(),
+                bytes.toByteArray());
+    }
+
+    /**
+     * Returns the contents of a stub file that no other test parses, so
+     * that it is not shared from an earlier parse in this process.
+     */
+    private static byte[] uniqueStubFile() throws IOException {
+        File stubFile = new File(checkerFrameworkDirectory(),
+                "framework/src/org/checkerframework/common/basetype/flow.astub".replace('/', File.separatorChar));
+        String contents = new String(Files.readAllBytes(stubFile.toPath()), StandardCharsets.UTF_8);
+        return (contents + "\n// " + UUID.randomUUID() + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(IndexUnit index) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        StubCacheCodec.write(index, out);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static IndexUnit decode(byte[] bytes) throws IOException {
+        return StubCacheCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * Returns a description of everything in {@code index} that the
+     * encoding retains: the parts that {@link
+     * org.checkerframework.framework.stub.StubParser} uses, and the
+     * positions of declarations.
+     */
+    private static String outline(IndexUnit index) {
+        StringBuilder sb = new StringBuilder();
+        for (CompilationUnit cu : index.getCompilationUnits()) {
+            PackageDeclaration pkg = cu.getPackage();
+            sb.append("package ");
+            if (pkg != null) {
+                sb.append(pkg.getAnnotations()).append(' ').append(pkg.getName());
+            }
+            sb.append('\n');
+            if (cu.getImports() != null) {
+                for (ImportDeclaration imp : cu.getImports()) {
+                    sb.append("import ").append(imp.getName()).append(' ')
+                        .append(imp.isStatic()).append(' ').append(imp.isAsterisk()).append('\n');
+                }
+            }
+            if (cu.getTypes() != null) {
+                for (TypeDeclaration type : cu.getTypes()) {
+                    outline(type, "", sb);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void outline(BodyDeclaration decl, String indent, StringBuilder sb) {
+        sb.append(indent).append(decl.getClass().getSimpleName()).append(' ')
+            .append(decl.getBeginLine()).append(':').append(decl.getBeginColumn()).append('-')
+            .append(decl.getEndLine()).append(':').append(decl.getEndColumn()).append(' ')
+            .append(decl.getAnnotations());
+        if (decl instanceof ClassOrInterfaceDeclaration) {
+            ClassOrInterfaceDeclaration d = (ClassOrInterfaceDeclaration) decl;
+            sb.append(' ').append(d.getModifiers()).append(' ').append(d.isInterface())
+                .append(' ').append(d.getName()).append(' ').append(d.getTypeParameters())
+                .append(" extends ").append(d.getExtends())
+                .append(" implements ").append(d.getImplements());
+        } else if (decl instanceof EnumDeclaration) {
+            EnumDeclaration d = (EnumDeclaration) decl;
+            sb.append(' ').append(d.getModifiers()).append(' ').append(d.getName())
+                .append(" implements ").append(d.getImplements());
+            if (d.getEntries() != null) {
+                for (EnumConstantDeclaration e : d.getEntries()) {
+                    sb.append('\n');
+                    outline(e, indent + "  ", sb);
+                    sb.append(' ').append(e.getName());
+                }
+            }
+        } else if (decl instanceof MethodDeclaration) {
+            MethodDeclaration d = (MethodDeclaration) decl;
+            sb.append(' ').append(d.getModifiers()).append(' ').append(d.getTypeParameters())
+                .append(' ').append(d.getType()).append(' ').append(d.getName())
+                .append(' ').append(d.getParameters()).append(' ').append(d.getArrayCount())
+                .append(' ').append(d.getReceiverAnnotations())
+                .append(" throws ").append(d.getThrows())
+                .append(" body ").append(d.getBody() != null);
+        } else if (decl instanceof ConstructorDeclaration) {
+            ConstructorDeclaration d = (ConstructorDeclaration) decl;
+            sb.append(' ').append(d.getModifiers()).append(' ').append(d.getTypeParameters())
+                .append(' ').append(d.getName()).append(' ').append(d.getParameters())
+                .append(' ').append(d.getReceiverAnnotations())
+                .append(" throws ").append(d.getThrows())
+                .append(" body ").append(d.getBlock() != null);
+        } else if (decl instanceof FieldDeclaration) {
+            FieldDeclaration d = (FieldDeclaration) decl;
+            sb.append(' ').append(d.getModifiers()).append(' ').append(d.getType());
+            if (d.getVariables() != null) {
+                for (VariableDeclarator v : d.getVariables()) {
+                    sb.append(' ').append(v.getId().getName()).append(' ').append(v.getId().getArrayCount());
+                }
+            }
+        }
+        if (decl instanceof TypeDeclaration) {
+            sb.append(' ').append(((TypeDeclaration) decl).getName());
+            List<BodyDeclaration> members = ((TypeDeclaration) decl).getMembers();
+            if (members != null) {
+                for (BodyDeclaration member : members) {
+                    sb.append('\n');
+                    outline(member, indent + "  ", sb);
+                }
+            }
+        }
+        if (!(decl instanceof EnumConstantDeclaration)) {
+            sb.append('\n');
+        }
+    }
+
+    /** Returns the stub files of the framework and the checkers. */
+    private static List<File> stubFiles() {
+        File root = checkerFrameworkDirectory();
+        List<File> result = new ArrayList<File>();
+        findStubFiles(new File(root, "framework"), result);
+        findStubFiles(new File(root, "checker"), result);
+        return result;
+    }
+
+    private static void findStubFiles(File dir, List<File> result) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                if (!child.getName().equals("build")) {
+                    findStubFiles(child, result);
+                }
+            } else if (child.getName().endsWith(".astub")) {
+                result.add(child);
+            }
+        }
+    }
+
+    /** Returns the directory that contains the framework and the checkers. */
+    private static File checkerFrameworkDirectory() {
+        for (File dir = new File("").getAbsoluteFile(); dir != null; dir = dir.getParentFile()) {
+            if (new File(dir, "framework").isDirectory() && new File(dir, "checker").isDirectory()) {
+                return dir;
+            }
+        }
+        throw new AssertionError("cannot find the framework and checker directories");
+    }
+}
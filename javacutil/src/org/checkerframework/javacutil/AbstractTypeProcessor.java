@@ -98,6 +98,12 @@ public abstract class AbstractTypeProcessor extends AbstractProcessor {
      */
     private static boolean hasInvokedTypeProcessingOver = false;
 
+    /**
+     * Method {@link #typeProcessingEnd()} must be invoked exactly once,
+     * after the last invocation of {@link #scheduleTypeProcess(TypeElement, TreePath)}.
+     */
+    private boolean hasInvokedTypeProcessingEnd = false;
+
     /**
      * The TaskListener registered for completion of attribution.
      */
@@ -156,6 +162,32 @@ public abstract class AbstractTypeProcessor extends AbstractProcessor {
      */
     public abstract void typeProcess(TypeElement element, TreePath tree);
 
+    /**
+     * Schedules the processing of a fully-analyzed class.  The tool calls
+     * this method instead of {@link #typeProcess(TypeElement, TreePath)
+     * typeProcess}; the default implementation processes the class
+     * immediately.
+     *
+     * <p>Subclasses may override this method to wrap the processing of
+     * each class, for example to reuse the results of an earlier
+     * compilation instead.
+     *
+     * @param element       element of the analyzed class
+     * @param tree  the tree path to the element, with the leaf being a
+     *              {@link ClassTree}
+     */
+    protected void scheduleTypeProcess(TypeElement element, TreePath tree) {
+        typeProcess(element, tree);
+    }
+
+    /**
+     * A method to be called once after the last call to
+     * {@link #scheduleTypeProcess(TypeElement, TreePath) scheduleTypeProcess}
+     * and before {@link #typeProcessingOver() typeProcessingOver}.
+     * Unlike typeProcessingOver, it is invoked even if errors were reported.
+     */
+    protected void typeProcessingEnd() { }
+
     /**
      * A method to be called once all the classes are processed and no error
      * is reported.
@@ -202,7 +234,12 @@ public abstract class AbstractTypeProcessor extends AbstractProcessor {
             TypeElement elem = e.getTypeElement();
             TreePath p = Trees.instance(processingEnv).getPath(elem);
 
-            typeProcess(elem, p);
+            scheduleTypeProcess(elem, p);
+
+            if (!hasInvokedTypeProcessingEnd && elements.isEmpty()) {
+                typeProcessingEnd();
+                hasInvokedTypeProcessingEnd = true;
+            }
 
             if (!hasInvokedTypeProcessingOver && elements.isEmpty() && log.nerrors == 0) {
                 typeProcessingOver();
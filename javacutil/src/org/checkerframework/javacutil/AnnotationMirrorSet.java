@@ -0,0 +1,172 @@
+package org.checkerframework.javacutil;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.lang.model.element.AnnotationMirror;
+
+/**
+ * A compact {@link java.util.Set} of {@link AnnotationMirror}s, ordered by
+ * {@link AnnotationUtils#annotationOrdering()}.
+ *
+ * It has the same semantics as a {@link java.util.TreeSet} with that
+ * ordering, but stores its elements in a sorted array.  Annotation sets
+ * are small, usually holding one annotation per qualifier hierarchy, so
+ * an array is both smaller and faster than a tree.  Lookups first compare
+ * the elements by identity, which succeeds for the canonical qualifiers
+ * that most types carry, before they fall back to the ordering.
+ *
+ * @see AnnotationUtils#createAnnotationSet()
+ */
+public class AnnotationMirrorSet extends AbstractSet<AnnotationMirror> {
+
+    private static final AnnotationMirror[] EMPTY = new AnnotationMirror[0];
+
+    /** The elements, sorted by the annotation ordering. */
+    private AnnotationMirror[] elements = EMPTY;
+
+    /** The number of elements. */
+    private int size = 0;
+
+    /** The number of modifications, to detect concurrent modification. */
+    private int modCount = 0;
+
+    /** Creates an empty set. */
+    public AnnotationMirrorSet() {
+    }
+
+    /** Creates a set that contains the annotations in {@code annos}. */
+    public AnnotationMirrorSet(Collection<? extends AnnotationMirror> annos) {
+        addAll(annos);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof AnnotationMirror)) {
+            return false;
+        }
+        return indexOf((AnnotationMirror) o) >= 0;
+    }
+
+    /**
+     * Adds {@code anno} unless the set already contains an annotation that
+     * is equal to it according to the annotation ordering, in which case
+     * the set is unchanged.
+     */
+    @Override
+    public boolean add(AnnotationMirror anno) {
+        int index = indexOf(anno);
+        if (index >= 0) {
+            return false;
+        }
+        index = -index - 1;
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size == 0 ? 2 : size * 2);
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = anno;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof AnnotationMirror)) {
+            return false;
+        }
+        int index = indexOf((AnnotationMirror) o);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(elements, 0, size, null);
+            size = 0;
+            modCount++;
+        }
+    }
+
+    @Override
+    public Iterator<AnnotationMirror> iterator() {
+        return new Iterator<AnnotationMirror>() {
+            /** Index of the next element to return. */
+            private int next = 0;
+            /** Index of the last element returned, or -1. */
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public AnnotationMirror next() {
+                checkForComodification();
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return elements[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                checkForComodification();
+                removeAt(last);
+                next = last;
+                last = -1;
+                expectedModCount = modCount;
+            }
+
+            private void checkForComodification() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        elements[--size] = null;
+        modCount++;
+    }
+
+    /**
+     * Returns the index of {@code anno} in {@link #elements}, or
+     * (-(insertion point) - 1) if it is not in the set, like
+     * {@link Arrays#binarySearch(Object[], Object, java.util.Comparator)}.
+     */
+    private int indexOf(AnnotationMirror anno) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == anno) {
+                return i;
+            }
+        }
+        return Arrays.binarySearch(elements, 0, size, anno, AnnotationUtils.annotationOrdering());
+    }
+}
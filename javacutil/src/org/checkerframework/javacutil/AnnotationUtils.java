@@ -33,6 +33,7 @@ import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Elements;
 
+import com.sun.tools.javac.code.Attribute;
 import com.sun.tools.javac.code.Symbol.VarSymbol;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.model.JavacElements;
@@ -312,6 +313,18 @@ public class AnnotationUtils {
     = new Comparator<AnnotationMirror>() {
         @Override
         public int compare(AnnotationMirror a1, AnnotationMirror a2) {
+            if (a1 == a2) {
+                return 0;
+            }
+            // The string of an annotation without element values is "@" followed
+            // by its name.  Compare the cached, interned names instead of building
+            // the two strings.
+            if (hasNoElementValues(a1) && hasNoElementValues(a2)) {
+                /*@Interned*/ String n1 = annotationName(a1);
+                /*@Interned*/ String n2 = annotationName(a2);
+                return n1 == n2 ? 0 : n1.compareTo(n2);
+            }
+
             String n1 = a1.toString();
             String n2 = a2.toString();
 
@@ -319,6 +332,17 @@ public class AnnotationUtils {
         }
     };
 
+    /**
+     * Returns true if no element values are given explicitly in the annotation.
+     */
+    private static boolean hasNoElementValues(AnnotationMirror anno) {
+        if (anno instanceof Attribute.Compound) {
+            // Avoid the map that getElementValues creates.
+            return ((Attribute.Compound) anno).values.isEmpty();
+        }
+        return anno.getElementValues().isEmpty();
+    }
+
     /**
      * provide ordering for {@link AnnotationMirror} based on their fully
      * qualified name.  The ordering ignores annotation values when ordering.
@@ -351,9 +375,10 @@ public class AnnotationUtils {
      * type, regardless of the annotation element values.
      *
      * @return a new set to store {@link AnnotationMirror} as element
+     * @see AnnotationMirrorSet
      */
     public static Set<AnnotationMirror> createAnnotationSet() {
-        return new TreeSet<AnnotationMirror>(annotationOrdering());
+        return new AnnotationMirrorSet();
     }
 
     /** Returns true if the given annotation has a @Inherited meta-annotation. */
@@ -0,0 +1,117 @@
+package org.checkerframework.javacutil;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A map with a maximum number of entries, which keeps statistics about
+ * its use.  When an entry is added to a full cache, the eldest entry is
+ * evicted: the least recently inserted one for a FIFO cache, or the least
+ * recently accessed one for an LRU cache.
+ *
+ * A lookup in the cache is a call to {@link #containsKey}, which is how
+ * the Checker Framework probes its caches, because cached values may be
+ * null.  Each lookup is counted as a hit or a miss.
+ */
+public class BoundedCache<K, V> extends LinkedHashMap<K, V> {
+
+    private static final long serialVersionUID = 3914436425185236493L;
+
+    /** The eviction policy of a {@link BoundedCache}. */
+    public static enum EvictionPolicy {
+        /** Evict the least recently inserted entry. */
+        FIFO,
+        /** Evict the least recently accessed entry. */
+        LRU;
+    }
+
+    /** A name for the cache, used when printing statistics. */
+    private final String name;
+
+    /** The maximum number of entries. */
+    private final int capacity;
+
+    /** The eviction policy. */
+    private final EvictionPolicy policy;
+
+    /** Number of lookups that found an entry. */
+    private long hits = 0;
+
+    /** Number of lookups that did not find an entry. */
+    private long misses = 0;
+
+    /** Number of entries that were evicted. */
+    private long evictions = 0;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param name a name for the cache, used when printing statistics
+     * @param capacity the maximum number of entries
+     * @param policy the eviction policy
+     */
+    public BoundedCache(String name, int capacity, EvictionPolicy policy) {
+        super(16, 0.75f, policy == EvictionPolicy.LRU);
+        this.name = name;
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        boolean result = super.containsKey(key);
+        if (result) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return result;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        if (size() > capacity) {
+            evictions++;
+            return true;
+        }
+        return false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return policy;
+    }
+
+    /** Returns the number of lookups that found an entry. */
+    public long getHits() {
+        return hits;
+    }
+
+    /** Returns the number of lookups that did not find an entry. */
+    public long getMisses() {
+        return misses;
+    }
+
+    /** Returns the number of entries that were evicted. */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns a one-line summary of the statistics of this cache.
+     */
+    public String statistics() {
+        long lookups = hits + misses;
+        double hitRate = lookups == 0 ? 0 : 100.0 * hits / lookups;
+        return String.format("%s: capacity %d (%s), size %d, lookups %d, hits %d (%.1f%%), misses %d, evictions %d",
+                name, capacity, policy.toString().toLowerCase(), size(),
+                lookups, hits, hitRate, misses, evictions);
+    }
+}
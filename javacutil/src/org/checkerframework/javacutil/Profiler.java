@@ -0,0 +1,379 @@
+package org.checkerframework.javacutil;
+
+/*>>>
+import org.checkerframework.checker.nullness.qual.Nullable;
+*/
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the wall time and the allocated bytes of the phases of type
+ * checking, for the -Aprofile option.
+ *
+ * A phase is measured by a pair of calls:
+ *
+ * <pre>{@code
+ * Profiler.Measurement m = Profiler.start("cfg", null);
+ * try {
+ *     ...
+ * } finally {
+ *     Profiler.stop(m);
+ * }
+ * }</pre>
+ *
+ * Both calls do nothing if profiling is off, so they are cheap enough to
+ * stay in the code.  Phases nest:  the time and allocation of a phase do
+ * not include those of the phases that it contains, so the totals of all
+ * phases add up.  Each measurement is attributed to the checker and
+ * source file that are set on the current thread with
+ * {@link #setContext}.
+ *
+ * The allocated bytes are only available on JVMs whose thread bean
+ * supports measuring them; otherwise they are reported as 0.
+ */
+public final class Profiler {
+
+    /** The profiler that records measurements, or null if profiling is off. */
+    private static volatile /*@Nullable*/ Profiler active = null;
+
+    /** The JVM bean used to measure allocation, or null if that is not supported. */
+    private static final /*@Nullable*/ com.sun.management.ThreadMXBean allocationBean = createAllocationBean();
+
+    /** The innermost phase that is being measured on the current thread. */
+    private static final ThreadLocal<Measurement> current = new ThreadLocal<Measurement>();
+
+    /** The checker and source file of the current thread. */
+    private static final ThreadLocal<Context> context = new ThreadLocal<Context>();
+
+    /** The totals per checker, source file, phase, and detail. */
+    private final Map<Key, Totals> totals = new HashMap<Key, Totals>();
+
+    /** The time profiling started, by {@link System#nanoTime()}. */
+    private final long startNanos = System.nanoTime();
+
+    private Profiler() {}
+
+    /** Starts recording measurements, discarding earlier ones. */
+    public static void enable() {
+        active = new Profiler();
+    }
+
+    /** Returns true if measurements are recorded. */
+    public static boolean isEnabled() {
+        return active != null;
+    }
+
+    /**
+     * Sets the checker and source file to which measurements on the
+     * current thread are attributed.
+     *
+     * @return the previous context, to be passed to {@link #restoreContext}
+     */
+    public static /*@Nullable*/ Object setContext(String checker, /*@Nullable*/ String file) {
+        if (active == null) {
+            return null;
+        }
+        Context previous = context.get();
+        context.set(new Context(checker, file));
+        return previous;
+    }
+
+    /** Restores a context returned by {@link #setContext}. */
+    public static void restoreContext(/*@Nullable*/ Object previous) {
+        if (active == null) {
+            return;
+        }
+        if (previous == null) {
+            context.remove();
+        } else {
+            context.set((Context) previous);
+        }
+    }
+
+    /**
+     * Starts measuring a phase.
+     *
+     * @param phase the name of the phase, such as "cfg"
+     * @param detail what the phase is applied to, such as a tree kind, or
+     *        null
+     * @return the measurement, to be passed to {@link #stop}; null if
+     *         profiling is off
+     */
+    public static /*@Nullable*/ Measurement start(String phase, /*@Nullable*/ String detail) {
+        if (active == null) {
+            return null;
+        }
+        Context ctx = context.get();
+        Measurement m = new Measurement(current.get(),
+                new Key(ctx == null ? null : ctx.checker, ctx == null ? null : ctx.file, phase, detail));
+        current.set(m);
+        m.startBytes = allocatedBytes();
+        m.startNanos = System.nanoTime();
+        return m;
+    }
+
+    /** Stops measuring a phase that {@link #start} returned. */
+    public static void stop(/*@Nullable*/ Measurement m) {
+        if (m == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - m.startNanos;
+        long bytes = allocatedBytes() - m.startBytes;
+        Measurement parent = m.parent;
+        if (parent != null) {
+            parent.childNanos += nanos;
+            parent.childBytes += bytes;
+        }
+        current.set(parent);
+
+        Profiler profiler = active;
+        if (profiler != null) {
+            profiler.add(m.key, nanos - m.childNanos, bytes - m.childBytes);
+        }
+    }
+
+    private synchronized void add(Key key, long nanos, long bytes) {
+        Totals t = totals.get(key);
+        if (t == null) {
+            t = new Totals();
+            totals.put(key, t);
+        }
+        t.count++;
+        t.nanos += nanos;
+        t.bytes += bytes;
+    }
+
+    /**
+     * Writes the measurements as a JSON object to {@code file}, and stops
+     * recording.  The object contains the measurements per checker, source
+     * file, phase, and detail, and their totals per checker and per
+     * source file, largest first.
+     *
+     * @param checker the name of the checker that was run
+     */
+    public static void writeJson(File file, String checker) throws IOException {
+        Profiler profiler = active;
+        active = null;
+        if (profiler == null) {
+            return;
+        }
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+        try {
+            profiler.writeJson(out, checker);
+        } finally {
+            out.close();
+        }
+    }
+
+    private synchronized void writeJson(Writer out, String checker) throws IOException {
+        List<Map.Entry<Key, Totals>> entries = new ArrayList<Map.Entry<Key, Totals>>(totals.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<Key, Totals>>() {
+            @Override
+            public int compare(Map.Entry<Key, Totals> e1, Map.Entry<Key, Totals> e2) {
+                return Long.compare(e2.getValue().nanos, e1.getValue().nanos);
+            }
+        });
+        Map<String, Totals> byChecker = new HashMap<String, Totals>();
+        Map<String, Totals> byFile = new HashMap<String, Totals>();
+        for (Map.Entry<Key, Totals> e : entries) {
+            sum(byChecker, e.getKey().checker, e.getValue());
+            sum(byFile, e.getKey().file, e.getValue());
+        }
+
+        out.write("{\n");
+        out.write("  \"checker\": " + quote(checker) + ",\n");
+        out.write("  \"wallNanos\": " + (System.nanoTime() - startNanos) + ",\n");
+        out.write("  \"allocationMeasured\": " + (allocationBean != null) + ",\n");
+        out.write("  \"phases\": [");
+        String sep = "\n";
+        for (Map.Entry<Key, Totals> e : entries) {
+            Key key = e.getKey();
+            out.write(sep + "    {\"checker\": " + quote(key.checker)
+                    + ", \"file\": " + quote(key.file)
+                    + ", \"phase\": " + quote(key.phase)
+                    + ", \"detail\": " + quote(key.detail)
+                    + ", " + e.getValue().toJson() + "}");
+            sep = ",\n";
+        }
+        out.write("\n  ],\n");
+        writeTotals(out, "byChecker", "checker", byChecker);
+        out.write(",\n");
+        writeTotals(out, "byFile", "file", byFile);
+        out.write("\n}\n");
+    }
+
+    private static void sum(Map<String, Totals> map, /*@Nullable*/ String name, Totals t) {
+        Totals sum = map.get(name);
+        if (sum == null) {
+            sum = new Totals();
+            map.put(name, sum);
+        }
+        sum.count += t.count;
+        sum.nanos += t.nanos;
+        sum.bytes += t.bytes;
+    }
+
+    private static void writeTotals(Writer out, String field, String nameField,
+            Map<String, Totals> map) throws IOException {
+        List<Map.Entry<String, Totals>> entries = new ArrayList<Map.Entry<String, Totals>>(map.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Totals>>() {
+            @Override
+            public int compare(Map.Entry<String, Totals> e1, Map.Entry<String, Totals> e2) {
+                return Long.compare(e2.getValue().nanos, e1.getValue().nanos);
+            }
+        });
+        out.write("  \"" + field + "\": [");
+        String sep = "\n";
+        for (Map.Entry<String, Totals> e : entries) {
+            out.write(sep + "    {\"" + nameField + "\": " + quote(e.getKey()) + ", " + e.getValue().toJson() + "}");
+            sep = ",\n";
+        }
+        out.write("\n  ]");
+    }
+
+    /** Returns {@code s} as a JSON string literal, or null. */
+    private static String quote(/*@Nullable*/ String s) {
+        if (s == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static long allocatedBytes() {
+        if (allocationBean == null) {
+            return 0;
+        }
+        return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static /*@Nullable*/ com.sun.management.ThreadMXBean createAllocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        try {
+            if (!sunBean.isThreadAllocatedMemorySupported()) {
+                return null;
+            }
+            sunBean.setThreadAllocatedMemoryEnabled(true);
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+        return sunBean;
+    }
+
+    /** A phase that is being measured. */
+    public static final class Measurement {
+        final /*@Nullable*/ Measurement parent;
+        final Key key;
+        long startNanos;
+        long startBytes;
+        /** The time and allocation of the phases that this one contains. */
+        long childNanos;
+        long childBytes;
+
+        Measurement(/*@Nullable*/ Measurement parent, Key key) {
+            this.parent = parent;
+            this.key = key;
+        }
+    }
+
+    /** The checker and source file that measurements are attributed to. */
+    private static final class Context {
+        final String checker;
+        final /*@Nullable*/ String file;
+
+        Context(String checker, /*@Nullable*/ String file) {
+            this.checker = checker;
+            this.file = file;
+        }
+    }
+
+    private static final class Key {
+        final /*@Nullable*/ String checker;
+        final /*@Nullable*/ String file;
+        final String phase;
+        final /*@Nullable*/ String detail;
+
+        Key(/*@Nullable*/ String checker, /*@Nullable*/ String file, String phase, /*@Nullable*/ String detail) {
+            this.checker = checker;
+            this.file = file;
+            this.phase = phase;
+            this.detail = detail;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return equal(checker, other.checker) && equal(file, other.file)
+                    && phase.equals(other.phase) && equal(detail, other.detail);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = phase.hashCode();
+            h = 31 * h + (checker == null ? 0 : checker.hashCode());
+            h = 31 * h + (file == null ? 0 : file.hashCode());
+            h = 31 * h + (detail == null ? 0 : detail.hashCode());
+            return h;
+        }
+
+        private static boolean equal(/*@Nullable*/ Object a, /*@Nullable*/ Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    private static final class Totals {
+        long count;
+        long nanos;
+        long bytes;
+
+        String toJson() {
+            return "\"count\": " + count + ", \"wallNanos\": " + nanos + ", \"allocatedBytes\": " + bytes;
+        }
+    }
+}
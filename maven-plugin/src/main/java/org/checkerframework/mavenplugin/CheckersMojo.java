@@ -109,6 +109,22 @@ public class CheckersMojo extends AbstractMojo {
      */
     private boolean useJavacOutput;
 
+    /**
+     * If set, the checkers run in a long-lived checker daemon whose files are in this directory,
+     * instead of in a new JVM for every execution.  The daemon is started when it is not running.
+     * @parameter expression="${checkers.daemon}"
+     */
+    private String daemonDirectory;
+
+    /**
+     * The largest number of compilers to run at the same time.  If greater than 1, the sources are partitioned
+     * into up to this many batches of whole packages with about the same amount of code, each batch is checked by
+     * its own compiler, and the messages of all batches are reported together.  The compiler of a batch still reads
+     * the sources of other batches that the batch refers to.
+     * @parameter expression="${checkers.workers}" default-value="1"
+     */
+    private int workers;
+
     /**
      * DEPENDENCIES
      */
@@ -240,56 +256,96 @@ public class CheckersMojo extends AbstractMojo {
 
         locateArtifacts();
 
-        final Commandline cl = new Commandline();
-
         if (StringUtils.isEmpty(executable)) {
             executable = "java";
         }
 
         final String executablePath = PathUtils.getExecutablePath(executable, toolchainManager, session);
-        cl.setExecutable(executablePath);
 
         //TODO: SEEMS THAT WHEN WE ARE USING @ ARGS THE CLASSPATH FROM THE JAR IS OVERRIDDEN - FIX THIS
         final String classpath =
                 checkerJar.getAbsolutePath() + File.pathSeparator
                 + StringUtils.join(classpathElements.iterator(), File.pathSeparator);
 
-        File srcFofn = null;
+        final List<List<String>> batches = (workers > 1) ? SourceBatches.partition(sources, workers)
+                                                         : Collections.singletonList(sources);
+        if (batches.size() > 1) {
+            log.info("Checking " + sources.size() + " source files in " + batches.size() + " batches, "
+                    + "with up to " + workers + " compilers at a time");
+            if (!StringUtils.isEmpty(daemonDirectory)) {
+                log.warn("The checker daemon runs one compilation at a time, so it is not used for parallel checking");
+            }
+        }
+
+        final List<File> srcFofns = new ArrayList<File>(batches.size());
         File cpFofn = null;
         try {
-            srcFofn = PluginUtil.writeTmpSrcFofn("CFPlugin-maven-src", true, PluginUtil.toFiles(sources));
+            for (final List<String> batch : batches) {
+                srcFofns.add(PluginUtil.writeTmpSrcFofn("CFPlugin-maven-src", true, PluginUtil.toFiles(batch)));
+            }
             cpFofn = PluginUtil.writeTmpCpFile("CFPlugin-maven-cp", true, classpath);
         } catch (IOException e) {
-            if (srcFofn != null && srcFofn.exists()) {
-                srcFofn.delete();
-            }
-            if (cpFofn != null && cpFofn.exists()) {
-                cpFofn.delete();
-            }
+            deleteFiles(srcFofns, cpFofn);
             throw new MojoExecutionException("Exception trying to write command file fofn!", e);
         }
 
         final File outputDirFile = new File(outputDirectory);
         if (!procOnly && !outputDirFile.exists()) {
             if (!outputDirFile.mkdirs()) {
+                deleteFiles(srcFofns, cpFofn);
                 throw new MojoExecutionException("Could not create output directory: " + outputDirFile.getAbsolutePath());
             }
         }
 
         final Map<PluginUtil.CheckerProp, Object> props = makeProps();
 
-        final List<String> arguments = PluginUtil.getCmdArgsOnly(
-                javacJar, jdkJar,
-                srcFofn, processor, checkerJar.getAbsolutePath(),
-                null, cpFofn, null, props, null,
-                procOnly, outputDirectory);
+        final List<Commandline> cls = new ArrayList<Commandline>(srcFofns.size());
+        for (final File srcFofn : srcFofns) {
+            final List<String> arguments = PluginUtil.getCmdArgsOnly(
+                    javacJar, jdkJar,
+                    srcFofn, processor, checkerJar.getAbsolutePath(),
+                    null, cpFofn, null, props, null,
+                    procOnly, outputDirectory);
+
+            if (srcFofns.size() > 1) {
+                // A batch reads the sources of other batches that it refers to from the sourcepath, but only the
+                // batch that checks a source may write its class files
+                arguments.add("-implicit:none");
+            } else if (!StringUtils.isEmpty(daemonDirectory)) {
+                arguments.add("-daemon");
+                arguments.add(new File(daemonDirectory).getAbsolutePath());
+            }
+
+            final Commandline cl = new Commandline();
+            cl.setExecutable(executablePath);
+            cl.addArguments(arguments.toArray(new String[arguments.size()]));
+            cls.add(cl);
+        }
 
         // And executing
-        cl.addArguments(arguments.toArray(new String[arguments.size()]));
+        try {
+            if (cls.size() == 1) {
+                createCommandLineExecutor().executeCommandLine(cls.get(0), log, failOnError);
+            } else {
+                createCommandLineExecutor().executeCommandLines(cls, workers, log, failOnError);
+            }
+        } finally {
+            deleteFiles(srcFofns, cpFofn);
+        }
+    }
 
-        createCommandLineExecutor().executeCommandLine(cl, log, failOnError);
-        srcFofn.delete();
-        cpFofn.delete();
+    /**
+     * Delete the given temporary files, ignoring those that are null or do not exist
+     */
+    private static void deleteFiles(final List<File> files, final File file) {
+        for (final File f : files) {
+            if (f.exists()) {
+                f.delete();
+            }
+        }
+        if (file != null && file.exists()) {
+            file.delete();
+        }
     }
 
     /**
@@ -5,6 +5,8 @@ import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
 import org.codehaus.plexus.util.cli.Commandline;
 
+import java.util.List;
+
 /**
  * Implementations of CommandLineExecutor take a CommandLine object and a Log.  They then execute
  * the command line and log any relevant output.  The "failOnError" flag must be obeyed.
@@ -24,4 +26,19 @@ public interface CommandLineExceutor {
      */
     public void executeCommandLine(final Commandline cl, final Log log, final boolean failOnError)
             throws MojoExecutionException, MojoFailureException;
+
+    /**
+     * Executes the given command lines, at most workers of them at the same time, and writes their merged errors,
+     * warnings, or messages to log, as if they had been reported by a single command line.
+     * @param cls CommandLine objects to execute, each of which checks a different batch of sources
+     * @param workers The largest number of command lines to execute at the same time
+     * @param log Log to report to
+     * @param failOnError If true, any errors found while executing cls will cause the Maven process to halt,
+     *                    if false, errors will only be reported but the Maven process will continue
+     * @throws MojoExecutionException Thrown if there is any exception in the attempt to run the commands
+     * @throws MojoFailureException Thrown if an executed CommandLine reports errors and failOnError = true
+     */
+    public void executeCommandLines(final List<Commandline> cls, final int workers, final Log log,
+                                    final boolean failOnError)
+            throws MojoExecutionException, MojoFailureException;
 }
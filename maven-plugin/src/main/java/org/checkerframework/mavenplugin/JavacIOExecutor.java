@@ -42,8 +42,40 @@ public class JavacIOExecutor implements CommandLineExceutor {
                     ", command line: " + Arrays.toString(cl.getCommandline()), e);
         }
 
-        final String javacOutput = out.getOutput();
+        report(exitCode, out.getOutput(), log, failOnError);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The outputs of the command lines are reported one after the other, in the order of cls.
+     */
+    public void executeCommandLines(final List<Commandline> cls, final int workers, final Log log,
+                                    final boolean failOnError) throws MojoExecutionException, MojoFailureException {
+        for (final Commandline cl : cls) {
+            log.debug("command line: " + Arrays.toString(cl.getCommandline()));
+        }
+
+        int exitCode = 0;
+        final StringBuilder javacOutput = new StringBuilder();
+        for (final ParallelCommandLines.Result result : ParallelCommandLines.execute(cls, workers, true)) {
+            if (result.exitCode != 0 && result.out.isEmpty()) {
+                throw new MojoExecutionException("Exit code from the compiler was not zero (" + result.exitCode +
+                        "), but no output was reported");
+            }
+            if (exitCode == 0) {
+                exitCode = result.exitCode;
+            }
+            javacOutput.append(result.out);
+        }
 
+        report(exitCode, javacOutput.toString(), log, failOnError);
+    }
+
+    /**
+     * Log the output of the compiler, and fail if the exit code is not zero and failOnError is true
+     */
+    private static void report(final int exitCode, final String javacOutput, final Log log,
+                               final boolean failOnError) throws MojoExecutionException, MojoFailureException {
         // Sanity check - if the exit code is non-zero, there should be some messages
         if (exitCode != 0 && javacOutput.isEmpty()) {
             throw new MojoExecutionException("Exit code from the compiler was not zero (" + exitCode +
@@ -11,7 +11,11 @@ import org.codehaus.plexus.util.cli.Commandline;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A CommandLineExecutor that formats warning and error messages in a similar style to the maven-compiler-plugin.
@@ -42,10 +46,58 @@ public class MavenIOExecutor implements CommandLineExceutor {
                     ", command line: " + Arrays.toString(cl.getCommandline()), e);
         }
 
+        report(parseMessages(cl, exitCode, err.getOutput()), log, failOnError);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void executeCommandLines(final List<Commandline> cls, final int workers, final Log log,
+                                    final boolean failOnError) throws MojoExecutionException, MojoFailureException {
+        for (final Commandline cl : cls) {
+            log.debug("command line: " + Arrays.toString(cl.getCommandline()));
+        }
+
+        // A message about a file that several batches refer to may be reported by each of them
+        final Map<String, CompilerError> messages = new LinkedHashMap<String, CompilerError>();
+        for (final ParallelCommandLines.Result result : ParallelCommandLines.execute(cls, workers, false)) {
+            for (final CompilerError message : parseMessages(result.commandLine, result.exitCode, result.err)) {
+                final String key = message.isError() + message.toString();
+                if (!messages.containsKey(key)) {
+                    messages.put(key, message);
+                }
+            }
+        }
+
+        final List<CompilerError> merged = new ArrayList<CompilerError>(messages.values());
+        Collections.sort(merged, new Comparator<CompilerError>() {
+            public int compare(final CompilerError e1, final CompilerError e2) {
+                final String file1 = String.valueOf(e1.getFile());
+                final String file2 = String.valueOf(e2.getFile());
+                if (!file1.equals(file2)) {
+                    return file1.compareTo(file2);
+                }
+                return e1.getStartLine() - e2.getStartLine();
+            }
+        });
+        report(merged, log, failOnError);
+    }
+
+    /**
+     * Parse the messages that a command line wrote to its error stream
+     * @param cl The executed command line
+     * @param exitCode The exit code of the command line
+     * @param errOutput The content of its error stream
+     * @return The messages of the compiler
+     * @throws MojoExecutionException Thrown if the messages cannot be parsed, or if the command line failed without
+     *                                reporting any
+     */
+    private static List<CompilerError> parseMessages(final Commandline cl, final int exitCode, final String errOutput)
+            throws MojoExecutionException {
         // Parsing the messages from the compiler
         final List<CompilerError> messages;
         try {
-            messages = JavacErrorMessagesParser.parseMessages(err.getOutput());
+            messages = JavacErrorMessagesParser.parseMessages(errOutput);
         } catch (RuntimeException e) {
             throw new MojoExecutionException("Unable to parse messages.", e);
         }
@@ -53,10 +105,18 @@ public class MavenIOExecutor implements CommandLineExceutor {
         // Sanity check - if the exit code is non-zero, there should be some messages
         if (exitCode != 0 && messages.isEmpty()) {
             throw new MojoExecutionException("Exit code from the compiler was not zero (" + exitCode +
-                    "), but no messages reported. Error stream content: " + err.getOutput() +
+                    "), but no messages reported. Error stream content: " + errOutput +
                     " command line: " + Arrays.toString(cl.getCommandline()));
         }
 
+        return messages;
+    }
+
+    /**
+     * Log the messages of the compiler, and fail if there are any and failOnError is true
+     */
+    private static void report(final List<CompilerError> messages, final Log log, final boolean failOnError)
+            throws MojoFailureException {
         if (messages.isEmpty()) {
             log.info("No errors found by the processor(s).");
         } else {
@@ -0,0 +1,84 @@
+package org.checkerframework.mavenplugin;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.cli.CommandLineException;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.codehaus.plexus.util.cli.Commandline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Executes several command lines at the same time, with a bounded number of processes, and collects their output.
+ * Used by the CommandLineExceutors to check batches of sources with separate compilers.
+ */
+public class ParallelCommandLines {
+
+    private ParallelCommandLines() { /* Prevent instantiation */ }
+
+    /**
+     * The exit code and the output of one executed command line.
+     */
+    public static class Result {
+        public final Commandline commandLine;
+        public final int exitCode;
+        public final String out;
+        public final String err;
+
+        Result(final Commandline commandLine, final int exitCode, final String out, final String err) {
+            this.commandLine = commandLine;
+            this.exitCode = exitCode;
+            this.out = out;
+            this.err = err;
+        }
+    }
+
+    /**
+     * Execute all command lines, at most workers of them at a time.
+     * @param cls The command lines to execute
+     * @param workers The largest number of processes to run at the same time
+     * @param mergeStreams If true, the error stream of each process is captured as part of its output stream
+     * @return The results, in the order of cls
+     * @throws MojoExecutionException Thrown if a command line could not be executed
+     */
+    public static List<Result> execute(final List<Commandline> cls, final int workers, final boolean mergeStreams)
+            throws MojoExecutionException {
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(workers, cls.size())));
+        try {
+            final List<Future<Result>> futures = new ArrayList<Future<Result>>(cls.size());
+            for (final Commandline cl : cls) {
+                futures.add(executor.submit(new Callable<Result>() {
+                    public Result call() throws CommandLineException {
+                        final CommandLineUtils.StringStreamConsumer out = new CommandLineUtils.StringStreamConsumer();
+                        final CommandLineUtils.StringStreamConsumer err =
+                                mergeStreams ? out : new CommandLineUtils.StringStreamConsumer();
+                        final int exitCode = CommandLineUtils.executeCommandLine(cl, out, err);
+                        return new Result(cl, exitCode, out.getOutput(), err.getOutput());
+                    }
+                }));
+            }
+
+            final List<Result> results = new ArrayList<Result>(cls.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    throw new MojoExecutionException("Unable to execute the Checker Framework, command line: " +
+                            Arrays.toString(cls.get(i).getCommandline()), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new MojoExecutionException("Interrupted while executing the Checker Framework", e);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
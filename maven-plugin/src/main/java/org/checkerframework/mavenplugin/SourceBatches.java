@@ -0,0 +1,112 @@
+package org.checkerframework.mavenplugin;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partitions the sources of a project into batches that can be checked by separate compilers at the same time.
+ *
+ * The sources of a package stay in the same batch, so that each compiler checks whole packages.  The packages are
+ * distributed over the batches so that the batches have about the same number of bytes of source code.  A package
+ * that is larger than its share of the sources is split, so that one large package does not hold up the others.
+ */
+public class SourceBatches {
+
+    private SourceBatches() { /* Prevent instantiation */ }
+
+    /**
+     * A set of source files that are kept together, and their total size.
+     */
+    private static class Unit {
+        final List<String> sources = new ArrayList<String>();
+        long size = 0;
+
+        void add(final String source, final long length) {
+            sources.add(source);
+            size += length;
+        }
+    }
+
+    /**
+     * Partition sources into at most maxBatches batches.
+     * @param sources The absolute paths of the source files
+     * @param maxBatches The largest number of batches to return
+     * @return Non-empty batches that together contain every source exactly once
+     */
+    public static List<List<String>> partition(final List<String> sources, final int maxBatches) {
+        final int batchCount = Math.max(1, Math.min(maxBatches, sources.size()));
+
+        // Group the sources by package, that is, by directory
+        final Map<String, Unit> packages = new LinkedHashMap<String, Unit>();
+        long total = 0;
+        for (final String source : sources) {
+            final File file = new File(source);
+            final String dir = String.valueOf(file.getParent());
+            Unit unit = packages.get(dir);
+            if (unit == null) {
+                unit = new Unit();
+                packages.put(dir, unit);
+            }
+            // Count every file as at least one byte, so that empty files are spread as well
+            final long length = Math.max(1, file.length());
+            unit.add(source, length);
+            total += length;
+        }
+
+        // Split the packages that are larger than a batch should be
+        final long target = (total + batchCount - 1) / batchCount;
+        final List<Unit> units = new ArrayList<Unit>();
+        for (final Unit pkg : packages.values()) {
+            if (pkg.size <= target) {
+                units.add(pkg);
+                continue;
+            }
+            Unit part = new Unit();
+            for (final String source : pkg.sources) {
+                final long length = Math.max(1, new File(source).length());
+                if (!part.sources.isEmpty() && part.size + length > target) {
+                    units.add(part);
+                    part = new Unit();
+                }
+                part.add(source, length);
+            }
+            units.add(part);
+        }
+
+        // Assign the largest units first, each to the smallest batch so far
+        Collections.sort(units, new Comparator<Unit>() {
+            public int compare(final Unit u1, final Unit u2) {
+                return u1.size < u2.size ? 1 : (u1.size == u2.size ? 0 : -1);
+            }
+        });
+        final List<Unit> batches = new ArrayList<Unit>(batchCount);
+        for (int i = 0; i < batchCount; i++) {
+            batches.add(new Unit());
+        }
+        for (final Unit unit : units) {
+            Unit smallest = batches.get(0);
+            for (final Unit batch : batches) {
+                if (batch.size < smallest.size) {
+                    smallest = batch;
+                }
+            }
+            for (final String source : unit.sources) {
+                smallest.add(source, 0);
+            }
+            smallest.size += unit.size;
+        }
+
+        final List<List<String>> result = new ArrayList<List<String>>(batchCount);
+        for (final Unit batch : batches) {
+            if (!batch.sources.isEmpty()) {
+                result.add(batch.sources);
+            }
+        }
+        return result;
+    }
+}
@@ -52,7 +52,7 @@ public class ASTParserTokenManager implements ASTParserConstants
         lastJavadoc = null;
     }
 
-    private void CommonTokenAction(Token token) {
+    void CommonTokenAction(Token token) {
         lastJavadoc = null;
         if (token.specialToken != null) {
                 if(comments == null) {
@@ -21,10 +21,17 @@
  */
 package org.checkerframework.stubparser;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 
 import org.checkerframework.stubparser.ast.CompilationUnit;
 import org.checkerframework.stubparser.ast.IndexUnit;
@@ -44,6 +51,8 @@ public final class JavaParser {
 
     private static boolean cacheParser = true;
 
+    private static boolean fastTokenManager = true;
+
     private JavaParser() {
         // hide the constructor
     }
@@ -64,6 +73,38 @@ public final class JavaParser {
         }
     }
 
+    /**
+     * Changes the token manager that the parse methods use.  If enabled,
+     * the parse methods read the whole input into a {@link CharBuffer} and
+     * tokenize it with a hand-written token manager, which is faster than
+     * the one generated by javacc and produces the same tokens.  Inputs
+     * with Unicode escapes or lexical errors are still tokenized by the
+     * generated token manager.
+     * By default, the hand-written token manager is enabled.
+     * @param value <code>false</code> to always use the generated token manager.
+     */
+    public static void setFastTokenManager(boolean value) {
+        fastTokenManager = value;
+    }
+
+    /**
+     * Parses the Java code contained in the {@link CharBuffer} and returns 
+     * a {@link CompilationUnit} that represents it. 
+     * @param chars {@link CharBuffer} containing Java source code
+     * @return CompilationUnit representing the Java source code
+     * @throws ParseException if the source code has parser errors
+     */
+    public static IndexUnit parse(CharBuffer chars) throws ParseException {
+        if (fastTokenManager && !StubTokenManager.hasUnicodeEscapes(chars)) {
+            try {
+                return new ASTParser(new StubTokenManager(chars)).IndexUnit();
+            } catch (TokenMgrError e) {
+                // Parse again, so that the generated token manager reports the error
+            }
+        }
+        return new ASTParser(new StringReader(chars.toString())).IndexUnit();
+    }
+
     /**
      * Parses the Java code contained in the {@link InputStream} and returns 
      * a {@link CompilationUnit} that represents it. 
@@ -73,6 +114,16 @@ public final class JavaParser {
      * @throws ParseException if the source code has parser errors
      */
     public static IndexUnit parse(InputStream in, String encoding) throws ParseException {
+        if (fastTokenManager) {
+            byte[] bytes;
+            try {
+                bytes = readFully(in);
+            } catch (IOException e) {
+                // The input cannot be parsed, as with the generated token manager
+                throw new ParseException(e.getMessage());
+            }
+            return parse(charset(encoding).decode(ByteBuffer.wrap(bytes)));
+        }
         if (cacheParser) {
             if (parser == null) {
                 parser = new ASTParser(in, encoding);
@@ -106,6 +157,11 @@ public final class JavaParser {
     public static IndexUnit parse(File file, String encoding) throws ParseException, IOException {
         FileInputStream in = new FileInputStream(file);
         try {
+            if (fastTokenManager) {
+                FileChannel channel = in.getChannel();
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                return parse(charset(encoding).decode(bytes));
+            }
             return parse(in, encoding);
         } finally {
             in.close();
@@ -122,4 +178,18 @@ public final class JavaParser {
     public static IndexUnit parse(File file) throws ParseException, IOException {
         return parse(file, null);
     }
+
+    private static Charset charset(String encoding) {
+        return encoding == null ? Charset.defaultCharset() : Charset.forName(encoding);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
 }
@@ -0,0 +1,564 @@
+package org.checkerframework.stubparser;
+
+import java.nio.CharBuffer;
+
+/**
+ * A hand-written token manager that reads a stub file directly from a
+ * {@link CharBuffer}, instead of one character at a time through a
+ * {@link JavaCharStream} and the DFA that javacc generates.
+ *
+ * <p>It returns the same tokens as {@link ASTParserTokenManager}: the same
+ * kinds, images, positions, and special tokens for comments, so that
+ * {@link ASTParser} builds the same syntax tree from either.  It does not
+ * translate Unicode escapes; use {@link #hasUnicodeEscapes} to decide
+ * whether it can read a file.  On malformed input it throws a
+ * {@link TokenMgrError} without a description of the error; the generated
+ * token manager gives the description.
+ *
+ * <p>The characters of identifiers outside of ASCII are classified by
+ * {@link Character#isJavaIdentifierStart} and
+ * {@link Character#isJavaIdentifierPart}, instead of by the tables of
+ * java_1_5.jj.
+ */
+final class StubTokenManager extends ASTParserTokenManager {
+
+    /** The tab size of {@link JavaCharStream}, which determines columns. */
+    private static final int TAB_SIZE = 8;
+
+    /** The keywords, in an open-addressing hash table by their hash codes. */
+    private static final String[] KEYWORDS = new String[128];
+
+    /** The token kind of each keyword in {@link #KEYWORDS}. */
+    private static final int[] KEYWORD_KINDS = new int[KEYWORDS.length];
+
+    static {
+        for (int kind = ABSTRACT; kind <= WHILE; kind++) {
+            String keyword = jjstrLiteralImages[kind];
+            int i = keyword.hashCode() & (KEYWORDS.length - 1);
+            while (KEYWORDS[i] != null) {
+                i = (i + 1) & (KEYWORDS.length - 1);
+            }
+            KEYWORDS[i] = keyword;
+            KEYWORD_KINDS[i] = kind;
+        }
+    }
+
+    private final char[] buf;
+    private final int limit;
+    private int pos;
+
+    /** The position of the last character read, as computed by {@link JavaCharStream}. */
+    private int line = 1;
+    private int column = 0;
+    private boolean prevCharIsCR = false;
+    private boolean prevCharIsLF = false;
+
+    /** The kind of the token found by the last scan. */
+    private int kind;
+
+    /**
+     * The images of recent identifiers, by hash code, so that a name that
+     * occurs repeatedly in a stub file is represented by one string.
+     */
+    private final String[] names = new String[1024];
+
+    StubTokenManager(CharBuffer chars) {
+        super((JavaCharStream) null);
+        if (chars.hasArray()) {
+            buf = chars.array();
+            pos = chars.arrayOffset() + chars.position();
+            limit = chars.arrayOffset() + chars.limit();
+        } else {
+            buf = new char[chars.remaining()];
+            chars.duplicate().get(buf);
+            pos = 0;
+            limit = buf.length;
+        }
+    }
+
+    /**
+     * Returns true if {@code chars} contains a Unicode escape, or a
+     * backslash followed by 'u' in general, which this token manager does
+     * not translate.
+     */
+    static boolean hasUnicodeEscapes(CharBuffer chars) {
+        for (int i = chars.position(), end = chars.limit() - 1; i < end; i++) {
+            if (chars.get(i) == '\\' && chars.get(i + 1) == 'u') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Token getNextToken() {
+        Token specialToken = null;
+        for (;;) {
+            while (pos < limit && isWhitespace(buf[pos])) {
+                read();
+            }
+            if (pos == limit) {
+                Token eof = newToken(EOF, jjstrLiteralImages[EOF], line, column, line, column);
+                eof.specialToken = specialToken;
+                CommonTokenAction(eof);
+                return eof;
+            }
+
+            int start = pos;
+            if (buf[start] == '/' && start + 1 < limit && (buf[start + 1] == '/' || buf[start + 1] == '*')) {
+                int end = scanComment(start);
+                read();
+                int beginLine = line;
+                int beginColumn = column;
+                while (pos < end) {
+                    read();
+                }
+                Token special = newToken(kind, new String(buf, start, end - start),
+                        beginLine, beginColumn, line, column);
+                if (specialToken != null) {
+                    special.specialToken = specialToken;
+                    specialToken.next = special;
+                }
+                specialToken = special;
+                continue;
+            }
+
+            int end = scanToken(start);
+            read();
+            int beginLine = line;
+            int beginColumn = column;
+            Token token;
+            if (kind == RUNSIGNEDSHIFT || kind == RSIGNEDSHIFT) {
+                // As in java_1_5.jj, ">>>" and ">>" are returned as a ">"
+                // that spans them; the following ">"s are read again.
+                token = newToken(GT, jjstrLiteralImages[kind],
+                        beginLine, beginColumn, beginLine, beginColumn + end - start - 1);
+                ((ASTParser.GTToken) token).realKind = kind;
+            } else {
+                while (pos < end) {
+                    read();
+                }
+                String image = jjstrLiteralImages[kind];
+                if (image == null) {
+                    image = kind == IDENTIFIER ? name(start, end) : new String(buf, start, end - start);
+                }
+                token = newToken(kind, image, beginLine, beginColumn, line, column);
+            }
+            token.specialToken = specialToken;
+            CommonTokenAction(token);
+            return token;
+        }
+    }
+
+    private static Token newToken(int kind, String image, int beginLine, int beginColumn,
+            int endLine, int endColumn) {
+        Token t = ASTParser.GTToken.newToken(kind, image);
+        t.beginLine = beginLine;
+        t.beginColumn = beginColumn;
+        t.endLine = endLine;
+        t.endColumn = endColumn;
+        return t;
+    }
+
+    /** Reads the next character, updating the position as JavaCharStream.UpdateLineColumn does. */
+    private void read() {
+        char c = buf[pos++];
+        column++;
+        if (prevCharIsLF) {
+            prevCharIsLF = false;
+            line += (column = 1);
+        } else if (prevCharIsCR) {
+            prevCharIsCR = false;
+            if (c == '\n') {
+                prevCharIsLF = true;
+            } else {
+                line += (column = 1);
+            }
+        }
+        switch (c) {
+        case '\r':
+            prevCharIsCR = true;
+            break;
+        case '\n':
+            prevCharIsLF = true;
+            break;
+        case '\t':
+            column--;
+            column += (TAB_SIZE - (column % TAB_SIZE));
+            break;
+        default:
+            break;
+        }
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static TokenMgrError error(int index) {
+        return new TokenMgrError("Lexical error at offset " + index, TokenMgrError.LEXICAL_ERROR);
+    }
+
+    /**
+     * Scans the comment at {@code start}, sets {@link #kind}, and returns
+     * the index after it.
+     */
+    private int scanComment(int start) {
+        int p = start + 2;
+        if (buf[start + 1] == '/') {
+            while (p < limit && buf[p] != '\n' && buf[p] != '\r') {
+                p++;
+            }
+            if (p < limit) {
+                p += (buf[p] == '\r' && p + 1 < limit && buf[p + 1] == '\n') ? 2 : 1;
+            }
+            kind = SINGLE_LINE_COMMENT;
+            return p;
+        }
+        // "/**/" is not a Javadoc comment
+        kind = MULTI_LINE_COMMENT;
+        if (p + 1 < limit && buf[p] == '*' && buf[p + 1] != '/') {
+            kind = JAVA_DOC_COMMENT;
+            p++;
+        }
+        for (; p + 1 < limit; p++) {
+            if (buf[p] == '*' && buf[p + 1] == '/') {
+                return p + 2;
+            }
+        }
+        throw error(start);
+    }
+
+    /**
+     * Scans the token at {@code start}, sets {@link #kind}, and returns the
+     * index after it.
+     */
+    private int scanToken(int start) {
+        char c = buf[start];
+        if (c < 128 ? isAsciiIdentifierStart(c) : Character.isJavaIdentifierStart(c)) {
+            return scanIdentifier(start);
+        }
+        if ((c >= '0' && c <= '9')
+                || (c == '.' && start + 1 < limit && buf[start + 1] >= '0' && buf[start + 1] <= '9')) {
+            return scanNumber(start);
+        }
+        switch (c) {
+        case '"':
+            return scanQuoted(start, '"', STRING_LITERAL);
+        case '\'':
+            return scanQuoted(start, '\'', CHARACTER_LITERAL);
+        case '(':
+            return single(start, LPAREN);
+        case ')':
+            return single(start, RPAREN);
+        case '{':
+            return single(start, LBRACE);
+        case '}':
+            return single(start, RBRACE);
+        case '[':
+            return single(start, LBRACKET);
+        case ']':
+            return single(start, RBRACKET);
+        case ';':
+            return single(start, SEMICOLON);
+        case ',':
+            return single(start, COMMA);
+        case '@':
+            return single(start, AT);
+        case '~':
+            return single(start, TILDE);
+        case '?':
+            return single(start, HOOK);
+        case ':':
+            return single(start, COLON);
+        case '\u001a':
+            return single(start, 128);
+        case '.':
+            if (start + 2 < limit && buf[start + 1] == '.' && buf[start + 2] == '.') {
+                kind = ELLIPSIS;
+                return start + 3;
+            }
+            return single(start, DOT);
+        case '=':
+            return withAssign(start, ASSIGN, EQ);
+        case '!':
+            return withAssign(start, BANG, NE);
+        case '*':
+            return withAssign(start, STAR, STARASSIGN);
+        case '/':
+            return withAssign(start, SLASH, SLASHASSIGN);
+        case '^':
+            return withAssign(start, XOR, XORASSIGN);
+        case '%':
+            return withAssign(start, REM, REMASSIGN);
+        case '+':
+            return doubled(start, PLUS, INCR, PLUSASSIGN);
+        case '-':
+            return doubled(start, MINUS, DECR, MINUSASSIGN);
+        case '&':
+            return doubled(start, BIT_AND, SC_AND, ANDASSIGN);
+        case '|':
+            return doubled(start, BIT_OR, SC_OR, ORASSIGN);
+        case '<':
+            if (is(start + 1, '<')) {
+                return withAssign(start + 1, LSHIFT, LSHIFTASSIGN);
+            }
+            return withAssign(start, LT, LE);
+        case '>':
+            if (is(start + 1, '>')) {
+                if (is(start + 2, '>')) {
+                    return withAssign(start + 2, RUNSIGNEDSHIFT, RUNSIGNEDSHIFTASSIGN);
+                }
+                return withAssign(start + 1, RSIGNEDSHIFT, RSIGNEDSHIFTASSIGN);
+            }
+            return withAssign(start, GT, GE);
+        default:
+            throw error(start);
+        }
+    }
+
+    private boolean is(int index, char c) {
+        return index < limit && buf[index] == c;
+    }
+
+    private int single(int start, int kind) {
+        this.kind = kind;
+        return start + 1;
+    }
+
+    /** Scans an operator that ends at {@code last}, or at the '=' after it. */
+    private int withAssign(int last, int kind, int assignKind) {
+        if (is(last + 1, '=')) {
+            this.kind = assignKind;
+            return last + 2;
+        }
+        this.kind = kind;
+        return last + 1;
+    }
+
+    /** Scans an operator such as "+", which may be doubled or followed by '='. */
+    private int doubled(int start, int kind, int doubleKind, int assignKind) {
+        if (is(start + 1, buf[start])) {
+            this.kind = doubleKind;
+            return start + 2;
+        }
+        return withAssign(start, kind, assignKind);
+    }
+
+    private static boolean isAsciiIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        if (c < 128) {
+            return isAsciiIdentifierStart(c) || (c >= '0' && c <= '9')
+                    || c <= 0x08 || (c >= 0x0e && c <= 0x1b) || c == 0x7f;
+        }
+        return Character.isJavaIdentifierPart(c);
+    }
+
+    private int scanIdentifier(int start) {
+        int hash = buf[start];
+        int p = start + 1;
+        while (p < limit && isIdentifierPart(buf[p])) {
+            hash = 31 * hash + buf[p];
+            p++;
+        }
+        kind = IDENTIFIER;
+        for (int i = hash & (KEYWORDS.length - 1); KEYWORDS[i] != null; i = (i + 1) & (KEYWORDS.length - 1)) {
+            if (matches(KEYWORDS[i], start, p)) {
+                kind = KEYWORD_KINDS[i];
+                break;
+            }
+        }
+        return p;
+    }
+
+    private boolean matches(String s, int start, int end) {
+        if (s.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i - start) != buf[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the image of the identifier from {@code start} to {@code end}. */
+    private String name(int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buf[i];
+        }
+        int i = hash & (names.length - 1);
+        String name = names[i];
+        if (name == null || !matches(name, start, end)) {
+            name = new String(buf, start, end - start);
+            names[i] = name;
+        }
+        return name;
+    }
+
+    /** Scans a string or character literal, whose escapes are checked but not translated. */
+    private int scanQuoted(int start, char quote, int kind) {
+        int p = start + 1;
+        int length = 0;
+        while (p < limit && buf[p] != quote) {
+            char c = buf[p];
+            if (c == '\n' || c == '\r') {
+                throw error(start);
+            }
+            p = c == '\\' ? scanEscape(p + 1) : p + 1;
+            length++;
+        }
+        if (p == limit || (kind == CHARACTER_LITERAL && length != 1)) {
+            throw error(start);
+        }
+        this.kind = kind;
+        return p + 1;
+    }
+
+    private int scanEscape(int p) {
+        if (p == limit) {
+            throw error(p);
+        }
+        switch (buf[p]) {
+        case 'n': case 't': case 'b': case 'r': case 'f': case '\\': case '\'': case '"':
+            return p + 1;
+        case '0': case '1': case '2': case '3':
+            if (isOctal(p + 1)) {
+                return isOctal(p + 2) ? p + 3 : p + 2;
+            }
+            return p + 1;
+        case '4': case '5': case '6': case '7':
+            return isOctal(p + 1) ? p + 2 : p + 1;
+        default:
+            throw error(p);
+        }
+    }
+
+    private boolean isOctal(int index) {
+        return index < limit && buf[index] >= '0' && buf[index] <= '7';
+    }
+
+    private boolean isDigit(int index) {
+        return index < limit && buf[index] >= '0' && buf[index] <= '9';
+    }
+
+    private boolean isHexDigit(int index) {
+        if (index >= limit) {
+            return false;
+        }
+        char c = buf[index];
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    /**
+     * Scans a number, taking the longest of the literals of java_1_5.jj
+     * that match at {@code start}.
+     */
+    private int scanNumber(int start) {
+        if (buf[start] == '0' && (is(start + 1, 'x') || is(start + 1, 'X'))) {
+            return scanHexNumber(start);
+        }
+        int digitsEnd = start;
+        while (isDigit(digitsEnd)) {
+            digitsEnd++;
+        }
+        int floatEnd = -1;
+        if (is(digitsEnd, '.')) {
+            int fractionEnd = digitsEnd + 1;
+            while (isDigit(fractionEnd)) {
+                fractionEnd++;
+            }
+            // scanToken only calls this for a '.' that is followed by a digit
+            floatEnd = floatSuffix(exponent(fractionEnd, 'e', 'E'));
+        } else {
+            int exponentEnd = exponent(digitsEnd, 'e', 'E');
+            if (exponentEnd > digitsEnd || floatSuffix(digitsEnd) > digitsEnd) {
+                floatEnd = floatSuffix(exponentEnd);
+            }
+        }
+        if (floatEnd >= 0) {
+            kind = FLOATING_POINT_LITERAL;
+            return floatEnd;
+        }
+        int end = digitsEnd;
+        if (buf[start] == '0') {
+            // An octal literal
+            end = start + 1;
+            while (isOctal(end)) {
+                end++;
+            }
+        }
+        return integerSuffix(end);
+    }
+
+    private int scanHexNumber(int start) {
+        int digitsEnd = start + 2;
+        while (isHexDigit(digitsEnd)) {
+            digitsEnd++;
+        }
+        boolean hasDigits = digitsEnd > start + 2;
+        int mantissaEnd = -1;
+        if (is(digitsEnd, '.')) {
+            int fractionEnd = digitsEnd + 1;
+            while (isHexDigit(fractionEnd)) {
+                fractionEnd++;
+            }
+            if (fractionEnd > digitsEnd + 1) {
+                mantissaEnd = fractionEnd;
+            } else if (hasDigits) {
+                mantissaEnd = digitsEnd + 1;
+            }
+        } else if (hasDigits) {
+            mantissaEnd = digitsEnd;
+        }
+        if (mantissaEnd >= 0) {
+            int exponentEnd = exponent(mantissaEnd, 'p', 'P');
+            if (exponentEnd > mantissaEnd) {
+                kind = FLOATING_POINT_LITERAL;
+                return floatSuffix(exponentEnd);
+            }
+        }
+        if (!hasDigits) {
+            // Only "0" is a literal; the 'x' starts an identifier
+            kind = INTEGER_LITERAL;
+            return start + 1;
+        }
+        return integerSuffix(digitsEnd);
+    }
+
+    /** Returns the index after the exponent at {@code p}, or {@code p} if there is none. */
+    private int exponent(int p, char lower, char upper) {
+        if (!is(p, lower) && !is(p, upper)) {
+            return p;
+        }
+        int q = p + 1;
+        if (is(q, '+') || is(q, '-')) {
+            q++;
+        }
+        if (!isDigit(q)) {
+            return p;
+        }
+        while (isDigit(q)) {
+            q++;
+        }
+        return q;
+    }
+
+    private int floatSuffix(int p) {
+        return (is(p, 'f') || is(p, 'F') || is(p, 'd') || is(p, 'D')) ? p + 1 : p;
+    }
+
+    private int integerSuffix(int p) {
+        if (is(p, 'l') || is(p, 'L')) {
+            kind = LONG_LITERAL;
+            return p + 1;
+        }
+        kind = INTEGER_LITERAL;
+        return p;
+    }
+}
@@ -5,6 +5,16 @@ import java.util.List;
 import org.checkerframework.stubparser.ast.visitor.GenericVisitor;
 import org.checkerframework.stubparser.ast.visitor.VoidVisitor;
 
+/**
+ * The compilation units of a stub file.
+ * <p>
+ * The Checker Framework shares an IndexUnit between the compilations of
+ * a process that read the same stub file, which may run concurrently.
+ * A shared IndexUnit and the nodes that it contains are therefore
+ * read-only: code that reads a stub file must not call the setters of
+ * the nodes, change their lists, or attach data to them with
+ * {@link Node#setData}.
+ */
 public class IndexUnit extends Node {
     List<CompilationUnit> compilationUnits;
 
@@ -0,0 +1,162 @@
+package org.checkerframework.stubparser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Compares the tokens of {@link StubTokenManager} with those of the
+ * generated {@link ASTParserTokenManager}, for the stub files of the
+ * Checker Framework and for inputs with shifts and comments.
+ */
+public class TestStubTokenManager {
+
+    private static List<Token> generatedTokens(String input) {
+        ASTParserTokenManager tm = new ASTParserTokenManager(new JavaCharStream(new StringReader(input)));
+        return tokens(tm);
+    }
+
+    private static List<Token> stubTokens(String input) {
+        assertFalse(StubTokenManager.hasUnicodeEscapes(CharBuffer.wrap(input)));
+        return tokens(new StubTokenManager(CharBuffer.wrap(input)));
+    }
+
+    private static List<Token> tokens(ASTParserTokenManager tm) {
+        List<Token> result = new ArrayList<Token>();
+        Token t;
+        do {
+            t = tm.getNextToken();
+            result.add(t);
+        } while (t.kind != ASTParserConstants.EOF);
+        return result;
+    }
+
+    private static String describe(Token t) {
+        int realKind = t instanceof ASTParser.GTToken ? ((ASTParser.GTToken) t).realKind : t.kind;
+        return t.kind + "/" + realKind + " '" + t.image + "' "
+                + t.beginLine + ":" + t.beginColumn + "-" + t.endLine + ":" + t.endColumn;
+    }
+
+    /** Returns the special tokens before {@code t}, first to last. */
+    private static List<String> specialTokens(Token t) {
+        List<String> result = new ArrayList<String>();
+        for (Token s = t.specialToken; s != null; s = s.specialToken) {
+            result.add(0, describe(s));
+        }
+        return result;
+    }
+
+    /** Asserts that both token managers return the same tokens for {@code input}. */
+    private static void assertSameTokens(String name, String input) {
+        List<Token> expected = generatedTokens(input);
+        List<Token> actual = stubTokens(input);
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            String where = name + ", token " + i;
+            assertEquals(where, describe(expected.get(i)), describe(actual.get(i)));
+            assertEquals(where, specialTokens(expected.get(i)), specialTokens(actual.get(i)));
+        }
+        assertEquals(name, expected.size(), actual.size());
+    }
+
+    /** Returns the stub files under {@code dir}. */
+    private static void findStubFiles(File dir, List<File> result) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                if (!child.getName().equals("build")) {
+                    findStubFiles(child, result);
+                }
+            } else if (child.getName().endsWith(".astub")) {
+                result.add(child);
+            }
+        }
+    }
+
+    /** Returns the directory that contains the framework and the checkers. */
+    private static File checkerFrameworkDirectory() {
+        for (File dir = new File("").getAbsoluteFile(); dir != null; dir = dir.getParentFile()) {
+            if (new File(dir, "framework").isDirectory() && new File(dir, "checker").isDirectory()) {
+                return dir;
+            }
+        }
+        throw new AssertionError("cannot find the framework and checker directories");
+    }
+
+    @Test
+    public void testStubFiles() throws IOException {
+        File root = checkerFrameworkDirectory();
+        List<File> stubFiles = new ArrayList<File>();
+        findStubFiles(new File(root, "framework"), stubFiles);
+        findStubFiles(new File(root, "checker"), stubFiles);
+        assertTrue(stubFiles.size() > 10);
+        for (File stubFile : stubFiles) {
+            String contents = new String(Files.readAllBytes(stubFile.toPath()), StandardCharsets.UTF_8);
+            if (StubTokenManager.hasUnicodeEscapes(CharBuffer.wrap(contents))) {
+                // Parsed with the generated token manager.
+                continue;
+            }
+            assertSameTokens(stubFile.getPath(), contents);
+        }
+    }
+
+    @Test
+    public void testShifts() {
+        assertSameTokens("type arguments",
+                "class A { List<List<String>> a; Map<K, List<List<V>>> b;"
+                + " Map<List<List<V>>,W> c; Map<K, Map<K, List<V>>>> d; }");
+        assertSameTokens("shift operators",
+                "class A { int a = x >> 2; int b = y >>> 3; void m() { c >>= 1; d >>>= 2; e >= f; g > h; } }");
+        assertSameTokens("shifts at the end", "A<B<C>>");
+        assertSameTokens("unsigned shift at the end", "A<B<C<D>>>");
+        assertSameTokens("shifts with spaces", "> > >> > >>> >>>= >>=");
+    }
+
+    @Test
+    public void testComments() {
+        assertSameTokens("comments",
+                "// line comment\n/* block */ /** javadoc */ class A { // trailing\n"
+                + "  /**/ int /***/ a; /* multi\n * line\n */ int b;\n} // at the end");
+        assertSameTokens("comment at end of input", "class A {} /* block at the end */");
+        assertSameTokens("line comment without newline", "class A {} // no newline");
+        assertSameTokens("only comments", "/* a */ // b\n/** c */");
+        assertSameTokens("slashes", "a / b /= c // d\n/ e");
+    }
+
+    @Test
+    public void testLineEndingsAndTabs() {
+        assertSameTokens("crlf", "class A {\r\n\tint a; // x\r\n\t/* y\r\n */ int b;\r\n}\r\n");
+        assertSameTokens("cr", "class A {\r\tint a; // x\r\t/* y\r */ int b;\r}\r");
+        assertSameTokens("tabs", "\tclass\t\tA {\n\t int\t a;\f}");
+    }
+
+    @Test
+    public void testLiterals() {
+        assertSameTokens("literals",
+                "@A(value = \"s\\\"t\", c = 'c', d = '\\n', i = 0x1F, l = 10L, f = 1.5f, e = 1e10, o = 017)"
+                + " class A { String s = \"\"; double d = .5; char q = '\\''; }");
+    }
+
+    @Test
+    public void testEmpty() {
+        assertSameTokens("empty", "");
+        assertSameTokens("whitespace", "  \n\t ");
+        List<Token> tokens = stubTokens("");
+        assertEquals(1, tokens.size());
+        assertNull(tokens.get(0).specialToken);
+    }
+}
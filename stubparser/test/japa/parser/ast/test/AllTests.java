@@ -3,6 +3,7 @@
  */
 package org.checkerframework.stubparser.ast.test;
 
+import org.checkerframework.stubparser.TestStubTokenManager;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
@@ -15,7 +16,8 @@ import org.junit.runners.Suite.SuiteClasses;
 TestAdapters.class, //
         TestNodePositions.class, //
         TestDumper.class, //
-        TestHashCodeEquals.class })
+        TestHashCodeEquals.class, //
+        TestStubTokenManager.class })
 public class AllTests {
 
 }